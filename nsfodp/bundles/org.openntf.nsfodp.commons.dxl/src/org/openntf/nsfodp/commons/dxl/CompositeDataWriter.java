@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.commons.dxl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the raw CD record data for an item to a stream, for use with
+ * {@link DXLUtil#writeItemDataDeferred(org.w3c.dom.Document, String, int, int, CompositeDataWriter)}.
+ * 
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+@FunctionalInterface
+public interface CompositeDataWriter {
+	void write(OutputStream os) throws IOException;
+}
@@ -31,12 +31,18 @@ import static org.openntf.nsfodp.commons.h.Ods.SIZE_CDIMAGEHEADER;
 import static org.openntf.nsfodp.commons.h.Ods.SIZE_CDIMAGESEGMENT;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
@@ -55,12 +61,16 @@ import org.openntf.nsfodp.commons.xml.NSFODPDomUtil;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
+import org.w3c.dom.ProcessingInstruction;
 
 import com.ibm.commons.util.StringUtil;
 
 public enum DXLUtil {
 	;
 	
+	/** The processing instruction target used as a placeholder for deferred item data */
+	private static final String PI_DEFERRED_ITEM = "nsfodp-deferred-item"; //$NON-NLS-1$
+	
 	public static final ThreadLocal<DateFormat> DXL_DATETIME_FORMAT = ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyyMMdd'T'HHmmss,00X")); //$NON-NLS-1$
 
 	public static String escapeXPathValue(final String input) {
@@ -158,24 +168,152 @@ public enum DXLUtil {
 		}
 	}
 
+	/**
+	 * Adds a placeholder for raw item data to the provided DXL document, deferring the creation of
+	 * the data until the document is written with {@link #writeDxl(Document, OutputStream)} or
+	 * {@link #newDxlInputStream(Document)}.
+	 * 
+	 * <p>The data is Base64-encoded directly to the output as it is written, split into items in the
+	 * same way as {@link #writeItemDataRaw(Document, String, byte[], int, int)}, and so is never
+	 * held in memory in full.</p>
+	 * 
+	 * <p>Note: the deferred data is not included when the document is serialized by other means,
+	 * such as {@link NSFODPDomUtil#getXmlString(Node, javax.xml.transform.Transformer)}.</p>
+	 * 
+	 * @param dxlDoc the DXL document to modify
+	 * @param itemName the name of the item to write
+	 * @param itemCap the maximum amount of data to store in each item
+	 * @param headerSize the size of the leading header record, which is added to the first item
+	 * @param writer a {@link CompositeDataWriter} that will write the raw CD record data
+	 * @since 4.1.0
+	 */
+	public static void writeItemDataDeferred(Document dxlDoc, String itemName, int itemCap, int headerSize, CompositeDataWriter writer) {
+		deleteItems(dxlDoc, itemName);
+		
+		Element note = getRootNoteElement(dxlDoc);
+		List<DeferredItem> deferred = getDeferredItems(dxlDoc, true);
+		
+		// Remove any previous placeholder for the same item
+		for(Node child = note.getFirstChild(); child != null; ) {
+			Node next = child.getNextSibling();
+			if(child instanceof ProcessingInstruction && PI_DEFERRED_ITEM.equals(((ProcessingInstruction)child).getTarget())) {
+				DeferredItem item = deferred.get(Integer.parseInt(((ProcessingInstruction)child).getData()));
+				if(itemName.equals(item.itemName)) {
+					note.removeChild(child);
+				}
+			}
+			child = next;
+		}
+		
+		ProcessingInstruction pi = dxlDoc.createProcessingInstruction(PI_DEFERRED_ITEM, Integer.toString(deferred.size()));
+		note.appendChild(pi);
+		deferred.add(new DeferredItem(itemName, itemCap, headerSize, writer));
+	}
+	
+	/**
+	 * Writes the provided DXL document to the provided stream as UTF-8, including any items added
+	 * with {@link #writeItemDataDeferred(Document, String, int, int, CompositeDataWriter)}.
+	 * 
+	 * @param dxlDoc the DXL document to write
+	 * @param os the stream to write to
+	 * @throws IOException if there is a problem writing the document or its deferred data
+	 * @since 4.1.0
+	 */
+	public static void writeDxl(Document dxlDoc, OutputStream os) throws IOException {
+		StringWriter w = new StringWriter();
+		NSFODPDomUtil.serialize(w, dxlDoc, null);
+		String xml = w.toString();
+		
+		List<DeferredItem> deferred = getDeferredItems(dxlDoc, false);
+		if(deferred == null) {
+			os.write(xml.getBytes(StandardCharsets.UTF_8));
+			return;
+		}
+		
+		String piStart = "<?" + PI_DEFERRED_ITEM + ' '; //$NON-NLS-1$
+		int pos = 0;
+		int piIndex;
+		while((piIndex = xml.indexOf(piStart, pos)) > -1) {
+			int piEnd = xml.indexOf("?>", piIndex); //$NON-NLS-1$
+			os.write(xml.substring(pos, piIndex).getBytes(StandardCharsets.UTF_8));
+			
+			DeferredItem item = deferred.get(Integer.parseInt(xml.substring(piIndex + piStart.length(), piEnd).trim()));
+			try(RawItemDataOutputStream itemOut = new RawItemDataOutputStream(os, item)) {
+				item.writer.write(itemOut);
+			}
+			
+			pos = piEnd + 2;
+		}
+		os.write(xml.substring(pos).getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Writes the provided DXL document to a temporary file with {@link #writeDxl(Document, OutputStream)}
+	 * and opens a stream to read it. The temporary file is deleted when the stream is closed.
+	 * 
+	 * @param dxlDoc the DXL document to write
+	 * @return an {@link InputStream} of the UTF-8 DXL
+	 * @throws IOException if there is a problem writing the document
+	 * @since 4.1.0
+	 */
+	public static InputStream newDxlInputStream(Document dxlDoc) throws IOException {
+		Path tempFile = Files.createTempFile(NSFODPUtil.getTempDirectory(), "nsfodp-dxl", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			try(OutputStream os = Files.newOutputStream(tempFile, StandardOpenOption.TRUNCATE_EXISTING)) {
+				writeDxl(dxlDoc, os);
+			}
+			return Files.newInputStream(tempFile, StandardOpenOption.DELETE_ON_CLOSE);
+		} catch(IOException | RuntimeException e) {
+			Files.deleteIfExists(tempFile);
+			throw e;
+		}
+	}
+
 	public static void writeItemFileData(Document dxlDoc, String itemName, InputStream is, int fileLength) throws IOException {
 		byte[] data = getFileResourceData(is, fileLength);
 		writeItemDataRaw(dxlDoc, itemName, data, PER_FILE_ITEM_DATA_CAP, Ods.SIZE_CDFILEHEADER);
 	}
 
 	public static byte[] getFileResourceData(InputStream is, int fileLength) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(getFileResourceDataSize(fileLength));
+		writeFileResourceData(baos, is, fileLength);
+		return baos.toByteArray();
+	}
+	
+	/**
+	 * Determines the size of the CD records written by {@link #writeFileResourceData(OutputStream, InputStream, int)}
+	 * for a file of the given length.
+	 * 
+	 * @param fileLength the length of the file data
+	 * @return the total size of the file's CD records
+	 * @since 4.1.0
+	 */
+	public static int getFileResourceDataSize(int fileLength) {
+		int segCount = fileLength / FILE_SEGMENT_SIZE_CAP;
+		if (fileLength % FILE_SEGMENT_SIZE_CAP > 0) {
+			segCount++;
+		}
+		return SIZE_CDFILEHEADER + (SIZE_CDFILESEGMENT * segCount) + fileLength + (fileLength % 2);
+	}
+
+	/**
+	 * Writes the CDFILEHEADER and CDFILESEGMENT records for the provided file data to the given stream,
+	 * one segment at a time.
+	 * 
+	 * @param os the stream to write to
+	 * @param is the file data to read
+	 * @param fileLength the length of the file data
+	 * @throws IOException if there is a problem reading or writing the data
+	 * @since 4.1.0
+	 */
+	public static void writeFileResourceData(OutputStream os, InputStream is, int fileLength) throws IOException {
 		// Spec out the structure
 		int segCount = fileLength / FILE_SEGMENT_SIZE_CAP;
 		if (fileLength % FILE_SEGMENT_SIZE_CAP > 0) {
 			segCount++;
 		}
 		
-		int totalSize = SIZE_CDFILEHEADER + (SIZE_CDFILESEGMENT * segCount) + fileLength + (fileLength % 2);
-		
-		// Now create a CD record for the file data
-		// TODO this could be a little more efficient by writing to a Base64 wrapper and
-		//   cutting off and making a new item node at size intervals
-		ByteBuffer buf = ByteBuffer.allocate(totalSize).order(ByteOrder.LITTLE_ENDIAN) ;
+		ByteBuffer buf = ByteBuffer.allocate(Math.max(SIZE_CDFILEHEADER, SIZE_CDFILESEGMENT + FILE_SEGMENT_SIZE_CAP + 1)).order(ByteOrder.LITTLE_ENDIAN);
 		// CDFILEHEADER
 		{
 			buf.putShort(SIG_CDFILEHEADER);// Header.Signature
@@ -186,8 +324,10 @@ public enum DXLUtil {
 			buf.putInt(0);                 // Flags
 			buf.putInt(0);                 // Reserved
 		}
+		os.write(buf.array(), 0, buf.position());
 		for(int i = 0; i < segCount; i++) {
 			// Each chunk begins with a CDFILESEGMENT
+			buf.clear();
 	
 			// Figure out our data and segment sizes
 			int dataOffset = FILE_SEGMENT_SIZE_CAP * i;
@@ -203,18 +343,39 @@ public enum DXLUtil {
 				buf.putInt(0);                            // Flags
 				buf.putInt(0);                            // Reserved
 				
-				byte[] segData = new byte[dataSize];
-				is.read(segData);
-				buf.put(segData);
+				readSegment(is, buf, dataSize);
 				if(segSize > dataSize) {
 					buf.put((byte)0);
 				}
 			}
+			os.write(buf.array(), 0, buf.position());
 		}
-		return buf.array();
 	}
 
 	public static byte[] getImageResourceData(Path file, Document dxlDoc) throws IOException {
+		int fileLength = (int)Files.size(file);
+		int segCount = fileLength / IMAGE_SEGMENT_SIZE_CAP;
+		if (fileLength % IMAGE_SEGMENT_SIZE_CAP > 0) {
+			segCount++;
+		}
+		int totalSize = SIZE_CDGRAPHIC + SIZE_CDIMAGEHEADER + (SIZE_CDIMAGESEGMENT * segCount) + fileLength + (fileLength % 2);
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(totalSize);
+		writeImageResourceData(baos, file, dxlDoc);
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Writes the CDGRAPHIC, CDIMAGEHEADER, and CDIMAGESEGMENT records for the provided image file to
+	 * the given stream, one segment at a time.
+	 * 
+	 * @param os the stream to write to
+	 * @param file the image file to read
+	 * @param dxlDoc the image resource's DXL, used to determine the image type
+	 * @throws IOException if there is a problem reading or writing the data
+	 * @since 4.1.0
+	 */
+	public static void writeImageResourceData(OutputStream os, Path file, Document dxlDoc) throws IOException {
 		int fileLength = (int)Files.size(file);
 		// Load image info
 		int height = 0; // true value not actually stored
@@ -267,12 +428,7 @@ public enum DXLUtil {
 			segCount++;
 		}
 		
-		int totalSize = SIZE_CDGRAPHIC + SIZE_CDIMAGEHEADER + (SIZE_CDIMAGESEGMENT * segCount) + fileLength + (fileLength % 2);
-		
-		// Now create a CD record for the file data
-		// TODO this could be a little more efficient by writing to a Base64 wrapper and
-		//   cutting off and making a new item node at size intervals
-		ByteBuffer buf = ByteBuffer.allocate(totalSize).order(ByteOrder.LITTLE_ENDIAN) ;
+		ByteBuffer buf = ByteBuffer.allocate(Math.max(SIZE_CDGRAPHIC + SIZE_CDIMAGEHEADER, SIZE_CDIMAGESEGMENT + IMAGE_SEGMENT_SIZE_CAP + 1)).order(ByteOrder.LITTLE_ENDIAN);
 		// CDGRAPHIC
 		{
 			buf.putShort(SIG_CDGRAPHIC); // Header.Signature
@@ -302,9 +458,11 @@ public enum DXLUtil {
 			buf.putInt(0);                  // Flags
 			buf.putInt(0);                  // Reserved
 		}
+		os.write(buf.array(), 0, buf.position());
 		try(InputStream is = NSFODPUtil.newInputStream(file)) {
 			for(int i = 0; i < segCount; i++) {
 				// Each chunk begins with a CDIMAGESEGMENT
+				buf.clear();
 	
 				// Figure out our data and segment sizes
 				int dataOffset = IMAGE_SEGMENT_SIZE_CAP * i;
@@ -318,16 +476,14 @@ public enum DXLUtil {
 					buf.putShort((short)dataSize);             // DataSize
 					buf.putShort((short)segSize);              // SegSize
 					
-					byte[] segData = new byte[dataSize];
-					is.read(segData);
-					buf.put(segData);
+					readSegment(is, buf, dataSize);
 					if(segSize > dataSize) {
 						buf.put((byte)0);
 					}
 				}
+				os.write(buf.array(), 0, buf.position());
 			}
 		}
-		return buf.array();
 	}
 
 	public static void writeItemFileData(Document dxlDoc, String itemName, Path file) throws IOException {
@@ -339,6 +495,30 @@ public enum DXLUtil {
 		}
 	}
 
+	/**
+	 * Adds file data for the provided file to the DXL document, deferring reading the file until
+	 * the document is written. See {@link #writeItemDataDeferred(Document, String, int, int, CompositeDataWriter)}.
+	 * 
+	 * @param dxlDoc the DXL document to modify
+	 * @param itemName the name of the item to write
+	 * @param file the file to read
+	 * @return the size of the item's CD record data
+	 * @throws IOException if there is a problem reading the file size
+	 * @since 4.1.0
+	 */
+	public static int writeItemFileDataDeferred(Document dxlDoc, String itemName, Path file) throws IOException {
+		if(!Files.isRegularFile(file)) {
+			throw new IllegalArgumentException(MessageFormat.format(Messages.getString("DXLUtil.cannotReadFile"), file)); //$NON-NLS-1$
+		}
+		int fileLength = (int)Files.size(file);
+		writeItemDataDeferred(dxlDoc, itemName, PER_FILE_ITEM_DATA_CAP, Ods.SIZE_CDFILEHEADER, os -> {
+			try(InputStream is = NSFODPUtil.newInputStream(file)) {
+				writeFileResourceData(os, is, fileLength);
+			}
+		});
+		return getFileResourceDataSize(fileLength);
+	}
+
 	public static void writeItemFileData(Document dxlDoc, String itemName, byte[] itemData) throws IOException {
 		try(InputStream is = new ByteArrayInputStream(itemData)) {
 			writeItemFileData(dxlDoc, itemName, is, itemData.length);
@@ -362,6 +542,118 @@ public enum DXLUtil {
 		}
 	}
 	
+	private static void readSegment(InputStream is, ByteBuffer buf, int dataSize) throws IOException {
+		int read = 0;
+		while(read < dataSize) {
+			int r = is.read(buf.array(), buf.position() + read, dataSize - read);
+			if(r < 0) {
+				throw new IOException(MessageFormat.format(Messages.getString("DXLUtil.unexpectedEndOfData"), dataSize - read)); //$NON-NLS-1$
+			}
+			read += r;
+		}
+		buf.position(buf.position() + dataSize);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static List<DeferredItem> getDeferredItems(Document dxlDoc, boolean create) {
+		List<DeferredItem> result = (List<DeferredItem>)dxlDoc.getUserData(PI_DEFERRED_ITEM);
+		if(result == null && create) {
+			result = new ArrayList<>();
+			dxlDoc.setUserData(PI_DEFERRED_ITEM, result, null);
+		}
+		return result;
+	}
+	
+	private static class DeferredItem {
+		private final String itemName;
+		private final int itemCap;
+		private final int headerSize;
+		private final CompositeDataWriter writer;
+		
+		public DeferredItem(String itemName, int itemCap, int headerSize, CompositeDataWriter writer) {
+			this.itemName = itemName;
+			this.itemCap = itemCap;
+			this.headerSize = headerSize;
+			this.writer = writer;
+		}
+	}
+	
+	/**
+	 * Wraps incoming CD record data in {@code <item>} and {@code <rawitemdata>} elements
+	 * in the same form as {@link DXLUtil#writeItemDataRaw}, Base64-encoding the data directly
+	 * to the underlying stream and starting a new item at each size boundary.
+	 */
+	private static class RawItemDataOutputStream extends OutputStream {
+		private final OutputStream os;
+		private final DeferredItem item;
+		private final byte[] itemStart;
+		private final byte[] itemEnd;
+		private OutputStream base64;
+		private int chunkIndex;
+		private int chunkRemaining;
+		
+		public RawItemDataOutputStream(OutputStream os, DeferredItem item) {
+			this.os = os;
+			this.item = item;
+			String escapedName = item.itemName.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+			this.itemStart = ("<item name=\"" + escapedName + "\"><rawitemdata type=\"1\">\n").getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$ //$NON-NLS-2$
+			this.itemEnd = "\n</rawitemdata></item>".getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+		}
+		
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte)b }, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while(len > 0) {
+				if(base64 == null) {
+					startChunk();
+				}
+				int count = Math.min(len, chunkRemaining);
+				base64.write(b, off, count);
+				off += count;
+				len -= count;
+				chunkRemaining -= count;
+				if(chunkRemaining == 0) {
+					endChunk();
+				}
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			if(base64 != null) {
+				endChunk();
+			}
+		}
+		
+		private void startChunk() throws IOException {
+			os.write(itemStart);
+			// Keep the encoder from closing the destination stream
+			OutputStream nonClosing = new FilterOutputStream(os) {
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					out.write(b, off, len);
+				}
+				@Override
+				public void close() throws IOException {
+					flush();
+				}
+			};
+			base64 = Base64.getMimeEncoder(72, new byte[] { '\n' }).wrap(nonClosing);
+			chunkRemaining = item.itemCap + (chunkIndex == 0 ? item.headerSize : 0);
+			chunkIndex++;
+		}
+		
+		private void endChunk() throws IOException {
+			base64.close();
+			base64 = null;
+			os.write(itemEnd);
+		}
+	}
+	
 	/**
 	 * @param dxlDoc the DXL document to search
 	 * @return the root {@code note} element
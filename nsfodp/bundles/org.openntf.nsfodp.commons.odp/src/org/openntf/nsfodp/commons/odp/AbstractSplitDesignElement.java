@@ -67,8 +67,33 @@ public class AbstractSplitDesignElement {
 	}
 	
 	public Document getDxl() throws IOException {
+		return attachFileData(loadDxl());
+	}
+	
+	/**
+	 * Retrieves the DXL for this element with its file data deferred, to be read from disk
+	 * and encoded only when the document is written by {@link DXLUtil#writeDxl(Document, java.io.OutputStream)}
+	 * or {@link DXLUtil#newDxlInputStream(Document)}.
+	 * 
+	 * <p>This avoids holding the full encoded data in memory, but the returned document
+	 * must be written using one of those methods to include it.</p>
+	 * 
+	 * @return the element's DXL with a placeholder for its file data
+	 * @throws IOException if there is a problem reading the DXL
+	 * @since 4.1.0
+	 */
+	public Document getStreamingDxl() throws IOException {
+		return attachFileDataDeferred(loadDxl());
+	}
+	
+	/**
+	 * @return the element's DXL metadata, without its file data
+	 * @throws IOException if there is a problem reading the DXL
+	 * @since 4.1.0
+	 */
+	protected Document loadDxl() throws IOException {
 		if(Files.isRegularFile(dxlFile)) {
-			return attachFileData(ODPUtil.readXml(dxlFile));
+			return ODPUtil.readXml(dxlFile);
 		} else {
 			throw new IllegalStateException(MessageFormat.format(Messages.AbstractSplitDesignElement_cannotLocateDxl, dataFile));
 		}
@@ -91,6 +116,34 @@ public class AbstractSplitDesignElement {
 		return dxlDoc;
 	}
 	
+	/**
+	 * Adds the element's file data to the provided DXL as a deferred item, as used by
+	 * {@link #getStreamingDxl()}.
+	 * 
+	 * @param dxlDoc the DXL document to modify
+	 * @return the modified document
+	 * @throws IOException if there is a problem reading the file
+	 * @since 4.1.0
+	 */
+	protected Document attachFileDataDeferred(Document dxlDoc) throws IOException {
+		if(this.overrideData != null) {
+			// Already in memory
+			return attachFileData(dxlDoc);
+		}
+		
+		Path file = getDataFile();
+		if(!Files.isRegularFile(file)) {
+			throw new IllegalArgumentException(MessageFormat.format(Messages.AbstractSplitDesignElement_cannotReadFile, file));
+		}
+		int size = DXLUtil.writeItemFileDataDeferred(dxlDoc, getFileDataItem(), file);
+		String sizeItemName = getFileSizeItem();
+		if(StringUtil.isNotEmpty(sizeItemName)) {
+			DXLUtil.writeItemNumber(dxlDoc, sizeItemName, size);
+		}
+		
+		return dxlDoc;
+	}
+	
 	public byte[] getCompositeData() throws IOException {
 		if(this.overrideData != null) {
 			try(InputStream is = new ByteArrayInputStream(this.overrideData)) {
@@ -69,9 +69,9 @@ public class FileResource extends AbstractSplitDesignElement {
 	}
 	
 	@Override
-	public Document getDxl() throws IOException {
+	protected Document loadDxl() throws IOException {
 		if(Files.isRegularFile(getDxlFile())) {
-			return super.getDxl();
+			return super.loadDxl();
 		} else {
 			if(nameProvider == null) {
 				throw new IllegalStateException(MessageFormat.format(Messages.FileResource_noNameProvider, getDataFile()));
@@ -96,7 +96,7 @@ public class FileResource extends AbstractSplitDesignElement {
 				DXLUtil.writeItemString(dxlDoc, "$FileNames", false, path); //$NON-NLS-1$
 			}
 			
-			return attachFileData(dxlDoc);
+			return dxlDoc;
 		}		
 	}
 	
@@ -59,6 +59,18 @@ public class ImageResource extends FileResource {
 		
 		return dxlDoc;
 	}
+	
+	@Override
+	protected Document attachFileDataDeferred(Document dxlDoc) throws IOException {
+		Path file = getDataFile();
+		if(!Files.isRegularFile(file)) {
+			throw new IllegalArgumentException(MessageFormat.format(Messages.AbstractSplitDesignElement_cannotReadFile, file));
+		}
+		DXLUtil.writeItemDataDeferred(dxlDoc, getFileDataItem(), ODSConstants.PER_IMAGE_ITEM_DATA_CAP, Ods.SIZE_CDIMAGEHEADER + Ods.SIZE_CDGRAPHIC,
+			os -> DXLUtil.writeImageResourceData(os, file, dxlDoc));
+		
+		return dxlDoc;
+	}
 
 	@Override
 	public byte[] getCompositeData() throws IOException {
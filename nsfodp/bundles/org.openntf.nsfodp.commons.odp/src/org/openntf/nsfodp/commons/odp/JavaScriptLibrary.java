@@ -54,4 +54,10 @@ public class JavaScriptLibrary extends AbstractSourceDesignElement {
 		
 		return dxlDoc;
 	}
+	
+	@Override
+	protected Document attachFileDataDeferred(Document dxlDoc) throws IOException {
+		// Library data is generated natively in memory
+		return attachFileData(dxlDoc);
+	}
 }
@@ -18,11 +18,19 @@ package org.openntf.nsfodp.commons.odp;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystem;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -44,6 +52,11 @@ import org.w3c.dom.Element;
 /**
  * Represents an On-Disk Project version of an NSF.
  * 
+ * <p>The project model - its file listing, {@code .classpath} and {@code plugin.xml} configuration,
+ * and design element lists - is read on first use and then cached. Call {@link #refresh()} to
+ * discard this cache after changing the project on disk, or {@link #startWatching()} to have
+ * it discarded automatically when files change.</p>
+ * 
  * @author Jesse Gallagher
  * @since 2.0.0
  */
@@ -83,10 +96,27 @@ public class OnDiskProject {
 		"**/Thumbs.db" //$NON-NLS-1$
 	).collect(Collectors.toList());
 	private final List<PathMatcher> ignoredFileGlobs;
+	
+	public static final String LOTUSSCRIPT_LIBRARY_GLOB = "Code/ScriptLibraries/*.lss"; //$NON-NLS-1$
+	private final PathMatcher lotusScriptLibraryGlob;
 
 	private final Path baseDir;
 	
 	public final List<GlobMatcher> FILE_RESOURCES;
+	private final List<PathMatcher> fileResourceGlobs;
+	
+	// Cached project model, cleared by refresh()
+	private ProjectFileScan fileScan;
+	private List<String> classpathLibPaths;
+	private List<Path> sourceFolders;
+	private List<Path> manualJars;
+	private List<String> requiredBundles;
+	private Map<Path, List<JavaSource>> javaSourceFiles;
+	private List<XPage> xpages;
+	private List<CustomControl> customControls;
+	private List<LotusScriptLibrary> lotusScriptLibraries;
+	
+	private WatchService watchService;
 	
 	public OnDiskProject(Path baseDirectory) {
 		this.baseDir = Objects.requireNonNull(baseDirectory);
@@ -121,12 +151,72 @@ public class OnDiskProject {
 		this.ignoredFileGlobs = IGNORED_FILE_GLOBS.stream()
 			.map(glob -> GlobMatcher.glob(baseDir.getFileSystem(), glob))
 			.collect(Collectors.toList());
+		this.lotusScriptLibraryGlob = GlobMatcher.glob(baseDir.getFileSystem(), LOTUSSCRIPT_LIBRARY_GLOB);
+		this.fileResourceGlobs = FILE_RESOURCES.stream()
+			.map(matcher -> matcher.getMatcher(baseDir.getFileSystem()))
+			.collect(Collectors.toList());
 	}
 	
 	public Path getBaseDirectory() {
 		return baseDir;
 	}
 	
+	/**
+	 * Discards the cached project model, so that the next call to any getter re-reads the
+	 * project from disk.
+	 * 
+	 * @since 4.1.0
+	 */
+	public synchronized void refresh() {
+		this.fileScan = null;
+		this.classpathLibPaths = null;
+		this.sourceFolders = null;
+		this.manualJars = null;
+		this.requiredBundles = null;
+		this.javaSourceFiles = null;
+		this.xpages = null;
+		this.customControls = null;
+		this.lotusScriptLibraries = null;
+	}
+	
+	/**
+	 * Begins watching the project directory for changes, calling {@link #refresh()} automatically
+	 * when any file in the project is created, modified, or deleted.
+	 * 
+	 * <p>Changes are checked for when the project model is next read, so this does not create any
+	 * threads. Detection relies on the platform's {@link WatchService} and may be delayed on
+	 * some systems; callers that require an up-to-date model immediately after a change should
+	 * call {@link #refresh()} directly.</p>
+	 * 
+	 * @throws IOException if there is a problem registering the project directories
+	 * @throws UnsupportedOperationException if the project's filesystem does not support watching
+	 * @since 4.1.0
+	 */
+	public synchronized void startWatching() throws IOException {
+		if(this.watchService != null) {
+			return;
+		}
+		this.watchService = baseDir.getFileSystem().newWatchService();
+		registerWatchTree(baseDir);
+		refresh();
+	}
+	
+	/**
+	 * Stops watching the project directory for changes, if {@link #startWatching()} was called.
+	 * 
+	 * @since 4.1.0
+	 */
+	public synchronized void stopWatching() {
+		if(this.watchService != null) {
+			try {
+				this.watchService.close();
+			} catch (IOException e) {
+				// Nothing to do here
+			}
+			this.watchService = null;
+		}
+	}
+	
 	public Path getClasspathFile() {
 		Path classpath = baseDir.resolve(".classpath"); //$NON-NLS-1$
 		if(Files.exists(classpath) && !Files.isRegularFile(classpath)) {
@@ -144,24 +234,10 @@ public class OnDiskProject {
 	 * @throws XMLException 
 	 */
 	public Collection<Path> getJars() throws IOException {
+		ProjectFileScan scan = getFileScan();
 		List<Path> result = new ArrayList<>();
-		
-		Path jars = baseDir.resolve("Code").resolve("Jars"); //$NON-NLS-1$ //$NON-NLS-2$
-		if(Files.exists(jars) && Files.isDirectory(jars)) {
-			try(Stream<Path> fileStream = Files.find(jars, Integer.MAX_VALUE,
-				(path, attr) -> attr.isRegularFile() && path.getFileName().toString().endsWith(".jar") //$NON-NLS-1$
-			)) {
-				fileStream.forEach(result::add);
-			}
-		}
-		Path lib = baseDir.resolve("WebContent").resolve("WEB-INF").resolve("lib"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-		if(Files.exists(lib) && Files.isDirectory(lib)) {
-			try(Stream<Path> fileStream = Files.find(lib, Integer.MAX_VALUE,
-				(path, attr) -> attr.isRegularFile() && path.getFileName().toString().endsWith(".jar") //$NON-NLS-1$
-			)) {
-				fileStream.forEach(result::add);
-			}
-		}
+		result.addAll(scan.codeJars);
+		result.addAll(scan.webInfJars);
 		result.addAll(this.findManualJars());
 		return result;
 	}
@@ -214,13 +290,17 @@ public class OnDiskProject {
 		return result;
 	}
 	
-	public List<String> getRequiredBundles() {
-		// TODO adapt to FP10 MANIFEST.MF style?
-		Document pluginXml = ODPUtil.readXml(getPluginFile());
-		return NSFODPDomUtil.streamNodes(pluginXml, "/plugin/requires/import") //$NON-NLS-1$
-			.map(Element.class::cast)
-			.map(el -> el.getAttribute("plugin")) //$NON-NLS-1$
-			.collect(Collectors.toList());
+	public synchronized List<String> getRequiredBundles() {
+		checkForChanges();
+		if(this.requiredBundles == null) {
+			// TODO adapt to FP10 MANIFEST.MF style?
+			Document pluginXml = ODPUtil.readXml(getPluginFile());
+			this.requiredBundles = Collections.unmodifiableList(NSFODPDomUtil.streamNodes(pluginXml, "/plugin/requires/import") //$NON-NLS-1$
+				.map(Element.class::cast)
+				.map(el -> el.getAttribute("plugin")) //$NON-NLS-1$
+				.collect(Collectors.toList()));
+		}
+		return this.requiredBundles;
 	}
 	
 	/**
@@ -230,42 +310,36 @@ public class OnDiskProject {
 	 * @throws IOException if there is a problem reading the filesystem
 	 * @throws FileNotFoundException if one of the configured class paths doesn't exist
 	 */
-	public Map<Path, List<JavaSource>> getJavaSourceFiles() throws FileNotFoundException, IOException {
-		return findSourceFolders().stream()
+	public synchronized Map<Path, List<JavaSource>> getJavaSourceFiles() throws FileNotFoundException, IOException {
+		List<Path> sourceFolders = findSourceFolders();
+		if(this.javaSourceFiles == null) {
+			this.javaSourceFiles = Collections.unmodifiableMap(sourceFolders.stream()
 				.collect(Collectors.toMap(
 					Function.identity(),
-					ODPUtil::listJavaFiles
-				));
+					folder -> Collections.unmodifiableList(ODPUtil.listJavaFiles(folder))
+				)));
+		}
+		return this.javaSourceFiles;
 	}
 	
-	public List<CustomControl> getCustomControls() throws IOException {
-		Path dir = baseDir.resolve("CustomControls"); //$NON-NLS-1$
-		if(Files.exists(dir) && Files.isDirectory(dir)) {
-			try(Stream<Path> fileStream = Files.find(dir, 1,
-				(path, attr) -> path.toString().endsWith(".xsp") && attr.isRegularFile()) //$NON-NLS-1$
-			) {
-				return fileStream
-					.map(path -> new CustomControl(path))
-					.collect(Collectors.toList());
-			}
-		} else {
-			return Collections.emptyList();
+	public synchronized List<CustomControl> getCustomControls() throws IOException {
+		ProjectFileScan scan = getFileScan();
+		if(this.customControls == null) {
+			this.customControls = Collections.unmodifiableList(scan.customControls.stream()
+				.map(path -> new CustomControl(path))
+				.collect(Collectors.toList()));
 		}
+		return this.customControls;
 	}
 	
-	public List<XPage> getXPages() throws IOException {
-		Path dir = baseDir.resolve("XPages"); //$NON-NLS-1$
-		if(Files.exists(dir) && Files.isDirectory(dir)) {
-			try(Stream<Path> fileStream = Files.find(dir, 1,
-				(path, attr) -> path.toString().endsWith(".xsp") && attr.isRegularFile()) //$NON-NLS-1$
-			) {
-				return fileStream
-					.map(path -> new XPage(path))
-					.collect(Collectors.toList());
-			}
-		} else {
-			return Collections.emptyList();
+	public synchronized List<XPage> getXPages() throws IOException {
+		ProjectFileScan scan = getFileScan();
+		if(this.xpages == null) {
+			this.xpages = Collections.unmodifiableList(scan.xpages.stream()
+				.map(path -> new XPage(path))
+				.collect(Collectors.toList()));
 		}
+		return this.xpages;
 	}
 	
 	/**
@@ -275,63 +349,56 @@ public class OnDiskProject {
 	 * @return a {@link Stream} of {@link Path}s containing DXL to import
 	 */
 	public Stream<Path> getDirectDXLElements() {
-		return directDxlFiles.stream()
-			.map(glob -> {
-				try {
-					return Files.find(baseDir, Integer.MAX_VALUE, (path, attr) -> {
-						return glob.matches(baseDir.relativize(path)) && attr.size() > 0;
-					});
-				} catch (IOException e) {
-					throw new RuntimeException(e);
-				}
-			})
-			.flatMap(Function.identity());
+		try {
+			return ProjectFileScan.flatten(getFileScan().directDxlElements).stream();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
 	}
 	
 	public Stream<Path> getDirectEarlyDXLElements() {
-		return directEarlyDxlFiles.stream()
-			.map(glob -> {
-				try {
-					return Files.find(baseDir, Integer.MAX_VALUE, (path, attr) -> {
-						return glob.matches(baseDir.relativize(path)) && attr.size() > 0;
-					});
-				} catch (IOException e) {
-					throw new RuntimeException(e);
-				}
-			})
-			.flatMap(Function.identity());
+		try {
+			return ProjectFileScan.flatten(getFileScan().directEarlyDxlElements).stream();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
 	}
 	
+	/**
+	 * Retrieves the file-resource-type design elements in the project.
+	 * 
+	 * <p>Unlike other element lists, the returned elements are created anew for each call,
+	 * since callers may customize them with {@link AbstractSplitDesignElement#setOverrideData(byte[])}.</p>
+	 * 
+	 * @return a {@link List} of file-resource-type design elements
+	 */
 	public List<AbstractSplitDesignElement> getFileResources() {
-		FileSystem fs = baseDir.getFileSystem();
-		return FILE_RESOURCES.stream()
-			.map(matcher -> {
-				try {
-					return Files.find(baseDir, Integer.MAX_VALUE,
-						(path, attr) -> {
-							for(PathMatcher ignoreMatcher : this.ignoredFileGlobs) {
-								if(ignoreMatcher.matches(path)) {
-									return false;
-								}
-							}
-							return attr.isRegularFile() && matcher.getMatcher(fs).matches(baseDir.relativize(path)) && !path.getFileName().toString().endsWith(".metadata"); //$NON-NLS-1$
-						}
-					).map(matcher::getElement);
-				} catch (IOException e) {
-					throw new RuntimeException(e);
-				}
-			})
-			.flatMap(Function.identity())
-			.filter(Objects::nonNull)
-			.map(AbstractSplitDesignElement.class::cast)
-			.collect(Collectors.toList());
+		List<List<Path>> matches;
+		try {
+			matches = getFileScan().fileResources;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		List<AbstractSplitDesignElement> result = new ArrayList<>();
+		for(int i = 0; i < FILE_RESOURCES.size(); i++) {
+			GlobMatcher matcher = FILE_RESOURCES.get(i);
+			matches.get(i).stream()
+				.map(matcher::getElement)
+				.filter(Objects::nonNull)
+				.map(AbstractSplitDesignElement.class::cast)
+				.forEach(result::add);
+		}
+		return result;
 	}
 	
-	public List<LotusScriptLibrary> getLotusScriptLibraries() throws IOException {
-		PathMatcher glob = GlobMatcher.glob(baseDir.getFileSystem(), "Code/ScriptLibraries/*.lss"); //$NON-NLS-1$
-		return Files.find(baseDir, Integer.MAX_VALUE, (path, attr) -> attr.isRegularFile() && glob.matches(baseDir.relativize(path)))
-			.map(path -> new LotusScriptLibrary(path))
-			.collect(Collectors.toList());
+	public synchronized List<LotusScriptLibrary> getLotusScriptLibraries() throws IOException {
+		ProjectFileScan scan = getFileScan();
+		if(this.lotusScriptLibraries == null) {
+			this.lotusScriptLibraries = Collections.unmodifiableList(scan.lotusScriptLibraries.stream()
+				.map(path -> new LotusScriptLibrary(path))
+				.collect(Collectors.toList()));
+		}
+		return this.lotusScriptLibraries;
 	}
 	
 	/**
@@ -364,43 +431,121 @@ public class OnDiskProject {
 	// * Internal utility methods
 	// *******************************************************************************
 	
-	private List<Path> findSourceFolders() throws FileNotFoundException, IOException {
-		Path classpath = getClasspathFile();
-		if(!Files.exists(classpath)) {
-			return Collections.emptyList();
+	/**
+	 * Retrieves the categorized list of files in the project, walking the project directory
+	 * the first time this is called.
+	 * 
+	 * @return the {@link ProjectFileScan} for this project
+	 * @throws IOException if there is a problem walking the project directory
+	 * @since 4.1.0
+	 */
+	private synchronized ProjectFileScan getFileScan() throws IOException {
+		checkForChanges();
+		if(this.fileScan == null) {
+			this.fileScan = ProjectFileScan.scan(baseDir, fileResourceGlobs, directDxlFiles, directEarlyDxlFiles, lotusScriptLibraryGlob, ignoredFileGlobs);
 		}
-		
-		Document domDoc;
-		try(Reader r = Files.newBufferedReader(classpath, StandardCharsets.UTF_8)) {
-			domDoc = NSFODPDomUtil.createDocument(r);
+		return this.fileScan;
+	}
+	
+	private synchronized List<Path> findSourceFolders() throws FileNotFoundException, IOException {
+		List<String> libPaths = getClasspathLibPaths();
+		if(this.sourceFolders == null) {
+			if(!Files.exists(getClasspathFile())) {
+				this.sourceFolders = Collections.emptyList();
+			} else {
+				List<String> paths = libPaths.stream()
+					.filter(path -> !"Local".equals(path)) //$NON-NLS-1$
+					.collect(Collectors.toList());
+				paths.add("Code/Java"); //$NON-NLS-1$
+				this.sourceFolders = Collections.unmodifiableList(paths.stream()
+					.map(path -> getBaseDirectory().resolve(path))
+					.filter(Files::exists)
+					.filter(Files::isDirectory)
+					.collect(Collectors.toList()));
+			}
 		}
-		List<String> paths = NSFODPDomUtil.streamNodes(domDoc, "/classpath/classpathentry[@kind='lib']") //$NON-NLS-1$
-			.map(node -> Element.class.cast(node))
-			.map(el -> el.getAttribute("path")) //$NON-NLS-1$
-			.filter(path -> !"Local".equals(path)) //$NON-NLS-1$
-			.collect(Collectors.toList());
-		paths.add("Code/Java"); //$NON-NLS-1$
-		return paths.stream()
-			.map(path -> getBaseDirectory().resolve(path))
-			.filter(Files::exists)
-			.filter(Files::isDirectory)
-			.collect(Collectors.toList());
+		return this.sourceFolders;
 	}
-	private List<Path> findManualJars() throws IOException {
-		Path classpath = getClasspathFile();
-		if(!Files.exists(classpath)) {
-			return Collections.emptyList();
+	private synchronized List<Path> findManualJars() throws IOException {
+		List<String> libPaths = getClasspathLibPaths();
+		if(this.manualJars == null) {
+			this.manualJars = Collections.unmodifiableList(libPaths.stream()
+				.map(path -> getBaseDirectory().resolve(path))
+				.filter(Files::exists)
+				.filter(Files::isRegularFile)
+				.collect(Collectors.toList()));
 		}
-		Document domDoc;
-		try(Reader r = Files.newBufferedReader(classpath, StandardCharsets.UTF_8)) {
-			domDoc = NSFODPDomUtil.createDocument(r);
+		return this.manualJars;
+	}
+	
+	/**
+	 * @return the "path" values of all "lib" entries in the project's {@code .classpath} file,
+	 *         parsed once for all callers
+	 * @since 4.1.0
+	 */
+	private synchronized List<String> getClasspathLibPaths() throws IOException {
+		checkForChanges();
+		if(this.classpathLibPaths == null) {
+			Path classpath = getClasspathFile();
+			if(!Files.exists(classpath)) {
+				this.classpathLibPaths = Collections.emptyList();
+			} else {
+				Document domDoc;
+				try(Reader r = Files.newBufferedReader(classpath, StandardCharsets.UTF_8)) {
+					domDoc = NSFODPDomUtil.createDocument(r);
+				}
+				this.classpathLibPaths = Collections.unmodifiableList(NSFODPDomUtil.streamNodes(domDoc, "/classpath/classpathentry[@kind='lib']") //$NON-NLS-1$
+					.map(node -> Element.class.cast(node))
+					.map(el -> el.getAttribute("path")) //$NON-NLS-1$
+					.collect(Collectors.toList()));
+			}
 		}
-		return NSFODPDomUtil.streamNodes(domDoc, "/classpath/classpathentry[@kind='lib']") //$NON-NLS-1$
-			.map(node -> Element.class.cast(node))
-			.map(el -> el.getAttribute("path")) //$NON-NLS-1$
-			.map(path -> getBaseDirectory().resolve(path))
-			.filter(Files::exists)
-			.filter(Files::isRegularFile)
-			.collect(Collectors.toList());
+		return this.classpathLibPaths;
+	}
+	
+	/**
+	 * Drains any pending events from the {@link WatchService}, if watching is enabled, and
+	 * discards the cached model if anything changed.
+	 * 
+	 * @since 4.1.0
+	 */
+	private synchronized void checkForChanges() {
+		if(this.watchService == null) {
+			return;
+		}
+		boolean changed = false;
+		WatchKey key;
+		while((key = this.watchService.poll()) != null) {
+			Path dir = (Path)key.watchable();
+			for(WatchEvent<?> event : key.pollEvents()) {
+				changed = true;
+				// Newly-created directories need to be watched as well
+				if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+					Path child = dir.resolve((Path)event.context());
+					if(Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+						try {
+							registerWatchTree(child);
+						} catch(IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}
+				}
+			}
+			key.reset();
+		}
+		if(changed) {
+			refresh();
+		}
+	}
+	
+	private void registerWatchTree(Path dir) throws IOException {
+		WatchService watchService = this.watchService;
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+				return FileVisitResult.CONTINUE;
+			}
+		});
 	}
 }
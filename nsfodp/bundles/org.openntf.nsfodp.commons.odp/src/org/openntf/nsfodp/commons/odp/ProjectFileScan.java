@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.commons.odp;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshot of the files in an on-disk project, gathered in a single walk of the
+ * project directory and grouped by the design-element globs that match them.
+ *
+ * <p>Each category list is indexed in parallel with the matcher list it was built
+ * from, and the paths within each category are in filesystem walk order.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+class ProjectFileScan {
+	private static final String EXT_XSP = ".xsp"; //$NON-NLS-1$
+	private static final String EXT_JAR = ".jar"; //$NON-NLS-1$
+
+	final List<List<Path>> fileResources;
+	final List<List<Path>> directDxlElements;
+	final List<List<Path>> directEarlyDxlElements;
+	final List<Path> lotusScriptLibraries = new ArrayList<>();
+	final List<Path> xpages = new ArrayList<>();
+	final List<Path> customControls = new ArrayList<>();
+	final List<Path> codeJars = new ArrayList<>();
+	final List<Path> webInfJars = new ArrayList<>();
+
+	private ProjectFileScan(int fileResourceCount, int directDxlCount, int directEarlyDxlCount) {
+		this.fileResources = newBuckets(fileResourceCount);
+		this.directDxlElements = newBuckets(directDxlCount);
+		this.directEarlyDxlElements = newBuckets(directEarlyDxlCount);
+	}
+
+	/**
+	 * Walks the provided directory once, classifying each regular file.
+	 *
+	 * @param baseDir the base directory of the project
+	 * @param fileResources matchers for file-resource-type elements, in priority order
+	 * @param directDxl matchers for DXL elements to import directly
+	 * @param directEarlyDxl matchers for DXL elements to import before all others
+	 * @param lotusScriptLibraries a matcher for LotusScript library files
+	 * @param ignored matchers for files that should never be treated as file resources
+	 * @return a new {@link ProjectFileScan} for the current state of the directory
+	 * @throws IOException if there is a problem walking the directory
+	 */
+	static ProjectFileScan scan(Path baseDir, List<PathMatcher> fileResources, List<PathMatcher> directDxl,
+			List<PathMatcher> directEarlyDxl, PathMatcher lotusScriptLibraries, List<PathMatcher> ignored) throws IOException {
+		ProjectFileScan result = new ProjectFileScan(fileResources.size(), directDxl.size(), directEarlyDxl.size());
+		Path xpagesDir = baseDir.resolve("XPages"); //$NON-NLS-1$
+		Path ccDir = baseDir.resolve("CustomControls"); //$NON-NLS-1$
+		Path codeJarsDir = baseDir.resolve("Code").resolve("Jars"); //$NON-NLS-1$ //$NON-NLS-2$
+		Path webInfLibDir = baseDir.resolve("WebContent").resolve("WEB-INF").resolve("lib"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		Files.walkFileTree(baseDir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if(!attrs.isRegularFile()) {
+					return FileVisitResult.CONTINUE;
+				}
+				Path relative = baseDir.relativize(file);
+				String fileName = file.getFileName().toString();
+
+				if(!fileName.endsWith(AbstractSplitDesignElement.EXT_METADATA) && ignored.stream().noneMatch(m -> m.matches(file))) {
+					addMatches(result.fileResources, fileResources, relative, file);
+				}
+				if(attrs.size() > 0) {
+					addMatches(result.directDxlElements, directDxl, relative, file);
+					addMatches(result.directEarlyDxlElements, directEarlyDxl, relative, file);
+				}
+				if(lotusScriptLibraries.matches(relative)) {
+					result.lotusScriptLibraries.add(file);
+				}
+				if(fileName.endsWith(EXT_XSP)) {
+					Path parent = file.getParent();
+					if(xpagesDir.equals(parent)) {
+						result.xpages.add(file);
+					} else if(ccDir.equals(parent)) {
+						result.customControls.add(file);
+					}
+				} else if(fileName.endsWith(EXT_JAR)) {
+					if(file.startsWith(codeJarsDir)) {
+						result.codeJars.add(file);
+					} else if(file.startsWith(webInfLibDir)) {
+						result.webInfJars.add(file);
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+
+		return result;
+	}
+
+	static List<Path> flatten(List<List<Path>> buckets) {
+		return buckets.stream()
+			.flatMap(List::stream)
+			.collect(Collectors.toList());
+	}
+
+	private static void addMatches(List<List<Path>> buckets, List<PathMatcher> matchers, Path relative, Path file) {
+		for(int i = 0; i < matchers.size(); i++) {
+			if(matchers.get(i).matches(relative)) {
+				buckets.get(i).add(file);
+			}
+		}
+	}
+
+	private static List<List<Path>> newBuckets(int count) {
+		List<List<Path>> result = new ArrayList<>(count);
+		for(int i = 0; i < count; i++) {
+			result.add(new ArrayList<>());
+		}
+		return result;
+	}
+}
@@ -24,5 +24,15 @@ public interface NDXLImporter extends AutoCloseable {
 	
 	String getResultLogXML();
 	
+	/**
+	 * Sets whether the attributes of a {@code <database>} root element in imported DXL
+	 * replace the properties of the target database. Importers are created with this
+	 * enabled.
+	 * 
+	 * @param replaceDbProperties whether to replace the database properties on import
+	 * @since 4.1.0
+	 */
+	void setReplaceDbProperties(boolean replaceDbProperties);
+	
 	@Override void close();
 }
@@ -16,21 +16,64 @@
 package org.openntf.nsfodp.commons.odp.notesapi;
 
 import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
 
 public interface NDatabase extends AutoCloseable {
 	NotesAPI getAPI();
 	
 	NNote getNoteByID(int noteId);
 	
+	/**
+	 * Deletes the note with the provided ID without leaving a deletion stub.
+	 * 
+	 * @param noteId the ID of the note to delete
+	 * @since 4.1.0
+	 */
+	void deleteNote(int noteId);
+	
 	String getTitle();
 	void setTitle(String title);
 	
 	String getFilePath();
 	
+	/**
+	 * @return the path of the database in the form accepted by {@link NotesAPI#openDatabase(String)}
+	 * @since 4.1.0
+	 */
+	String getApiPath();
+	
 	int getSharedFieldNoteID(String fieldName);
 	
 	void eachDesignNote(BiConsumer<Integer, NNote> consumer);
 	
+	/**
+	 * Provides the IDs of all design notes in the database, without opening the notes.
+	 * 
+	 * @param consumer the consumer to pass each note ID to
+	 * @since 4.1.0
+	 */
+	void eachDesignNoteId(IntConsumer consumer);
+	
+	/**
+	 * Provides the IDs of design notes modified since the given database time, along with
+	 * the IDs of design notes deleted since then.
+	 * 
+	 * @param since a database time returned by a previous call, or {@code null} to provide
+	 *        all design notes
+	 * @param modified the consumer to pass the IDs of modified notes to
+	 * @param deleted the consumer to pass the IDs of deletion stubs to
+	 * @return the database time at which the search was performed, to be passed as
+	 *         {@code since} to later calls
+	 * @since 4.1.0
+	 */
+	String eachModifiedDesignNoteId(String since, IntConsumer modified, IntConsumer deleted);
+	
+	/**
+	 * @return the replica ID of the database, as a 16-character hex string
+	 * @since 4.1.0
+	 */
+	String getReplicaID();
+	
 	short getCurrentAccessLevel();
 	
 	@Override void close();
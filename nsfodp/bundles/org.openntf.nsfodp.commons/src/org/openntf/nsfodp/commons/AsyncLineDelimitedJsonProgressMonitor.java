@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.commons;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * An implementation of {@link IProgressMonitor} that sends the same line-delimited JSON
+ * messages as {@link LineDelimitedJsonProgressMonitor}, but writes them from a background
+ * thread so that the monitored work does not wait on the client's connection.
+ *
+ * <p>Messages are held in a bounded queue and written in batches. {@code worked} and
+ * {@code internalWorked} calls are summed and sent at most once per {@link #WORK_INTERVAL}
+ * milliseconds. If the queue is full, only the most recent of the waiting
+ * {@link #subTask(String) subtask} messages is kept; other messages wait for space.</p>
+ *
+ * <p>Callers must call {@link #flush()} before writing other content to the stream and
+ * {@link #close()} once the work is complete.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class AsyncLineDelimitedJsonProgressMonitor implements IProgressMonitor, AutoCloseable {
+	/** The number of messages that may wait to be written */
+	public static final int CAPACITY = Integer.getInteger("org.openntf.nsfodp.progress.capacity", 1024); //$NON-NLS-1$
+	/** The minimum number of milliseconds between work messages */
+	public static final long WORK_INTERVAL = Long.getLong("org.openntf.nsfodp.progress.workInterval", 250); //$NON-NLS-1$
+
+	private static class Event {
+		private final String type;
+		private final String name;
+		private final int totalWork;
+		private final CountDownLatch written;
+
+		Event(String type, String name, int totalWork, CountDownLatch written) {
+			this.type = type;
+			this.name = name;
+			this.totalWork = totalWork;
+			this.written = written;
+		}
+	}
+
+	private final OutputStream out;
+	private final BlockingQueue<Event> queue;
+	private final AtomicReference<Event> overflowSubTask = new AtomicReference<>();
+	private final Thread writer;
+
+	private final Object workLock = new Object();
+	private int pendingWork;
+	private double pendingInternalWork;
+
+	private volatile boolean canceled;
+	private volatile boolean closed;
+	private volatile IOException failure;
+
+	public AsyncLineDelimitedJsonProgressMonitor(OutputStream out) {
+		this.out = Objects.requireNonNull(out);
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, CAPACITY));
+		this.writer = new Thread(this::writeLoop, getClass().getSimpleName());
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	@Override
+	public void beginTask(String name, int totalWork) {
+		enqueue(new Event("beginTask", name, totalWork, null)); //$NON-NLS-1$
+	}
+
+	@Override
+	public void done() {
+		enqueue(new Event("done", null, 0, null)); //$NON-NLS-1$
+	}
+
+	@Override
+	public void internalWorked(double work) {
+		synchronized(workLock) {
+			pendingInternalWork += work;
+		}
+	}
+
+	@Override
+	public boolean isCanceled() {
+		return this.canceled;
+	}
+
+	@Override
+	public void setCanceled(boolean canceled) {
+		this.canceled = canceled;
+		if(canceled) {
+			enqueue(new Event("cancel", null, 0, null)); //$NON-NLS-1$
+		}
+	}
+
+	@Override
+	public void setTaskName(String name) {
+		enqueue(new Event("task", name, 0, null)); //$NON-NLS-1$
+	}
+
+	@Override
+	public void subTask(String name) {
+		if(closed || failure != null) {
+			return;
+		}
+		Event event = new Event("subTask", name, 0, null); //$NON-NLS-1$
+		if(!queue.offer(event)) {
+			// Keep only the latest for when the client catches up
+			overflowSubTask.set(event);
+		}
+	}
+
+	@Override
+	public void worked(int work) {
+		synchronized(workLock) {
+			pendingWork += work;
+		}
+	}
+
+	/**
+	 * Waits until all messages sent so far have been written to the stream and flushes it.
+	 *
+	 * @throws IOException if there was a problem writing messages to the stream
+	 */
+	public void flush() throws IOException {
+		if(!closed) {
+			CountDownLatch written = new CountDownLatch(1);
+			enqueue(new Event(null, null, 0, written));
+			await(written);
+		}
+		if(failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Writes any remaining messages and stops the writer thread. Failures to write are
+	 * ignored, as the client has gone away.
+	 */
+	@Override
+	public void close() {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		CountDownLatch written = new CountDownLatch(1);
+		try {
+			queue.put(new Event(null, null, -1, written));
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			writer.interrupt();
+			return;
+		}
+		await(written);
+	}
+
+	// *******************************************************************************
+	// * Internal implementation methods
+	// *******************************************************************************
+
+	private void enqueue(Event event) {
+		if((closed || failure != null) && event.written == null) {
+			return;
+		}
+		try {
+			// Messages other than subtasks are never dropped
+			queue.put(event);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void writeLoop() {
+		List<Event> events = new ArrayList<>();
+		StringBuilder batch = new StringBuilder();
+		long intervalNanos = TimeUnit.MILLISECONDS.toNanos(WORK_INTERVAL);
+		long lastWork = System.nanoTime();
+		boolean stop = false;
+		while(!stop) {
+			events.clear();
+			try {
+				Event first = queue.poll(WORK_INTERVAL, TimeUnit.MILLISECONDS);
+				if(first != null) {
+					events.add(first);
+					queue.drainTo(events);
+				}
+			} catch(InterruptedException e) {
+				stop = true;
+			}
+			Event dropped = overflowSubTask.getAndSet(null);
+			if(dropped != null) {
+				// The subtask was sent before any done or flush that followed it into the
+				//   queue, and the client reads everything after those as other content
+				int index = 0;
+				while(index < events.size() && !isBoundary(events.get(index))) {
+					index++;
+				}
+				events.add(index, dropped);
+			}
+
+			boolean flush = false;
+			for(Event event : events) {
+				flush |= event.written != null || "done".equals(event.type); //$NON-NLS-1$
+			}
+
+			batch.setLength(0);
+			long now = System.nanoTime();
+			if(flush || now - lastWork >= intervalNanos) {
+				appendWork(batch);
+				lastWork = now;
+			}
+			for(Event event : events) {
+				if(event.type != null) {
+					batch.append(message(event));
+					batch.append("\r\n"); //$NON-NLS-1$
+				} else if(event.totalWork < 0) {
+					stop = true;
+				}
+			}
+
+			if(failure == null && batch.length() > 0) {
+				try {
+					out.write(batch.toString().getBytes(StandardCharsets.UTF_8));
+					out.flush();
+				} catch(IOException e) {
+					failure = e;
+					canceled = true;
+				}
+			} else if(failure == null && flush) {
+				try {
+					out.flush();
+				} catch(IOException e) {
+					failure = e;
+					canceled = true;
+				}
+			}
+
+			for(Event event : events) {
+				if(event.written != null) {
+					event.written.countDown();
+				}
+			}
+		}
+
+		// Release anyone still waiting
+		events.clear();
+		queue.drainTo(events);
+		for(Event event : events) {
+			if(event.written != null) {
+				event.written.countDown();
+			}
+		}
+	}
+
+	private static boolean isBoundary(Event event) {
+		return event.type == null || "done".equals(event.type); //$NON-NLS-1$
+	}
+
+	private void appendWork(StringBuilder batch) {
+		int work;
+		double internalWork;
+		synchronized(workLock) {
+			work = pendingWork;
+			internalWork = pendingInternalWork;
+			pendingWork = 0;
+			pendingInternalWork = 0;
+		}
+		if(work != 0) {
+			batch.append(LineDelimitedJsonProgressMonitor.message("type", "worked", "work", work)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			batch.append("\r\n"); //$NON-NLS-1$
+		}
+		if(internalWork != 0) {
+			batch.append(LineDelimitedJsonProgressMonitor.message("type", "internalWorked", "work", internalWork)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			batch.append("\r\n"); //$NON-NLS-1$
+		}
+	}
+
+	private static String message(Event event) {
+		switch(event.type) {
+		case "beginTask": //$NON-NLS-1$
+			return LineDelimitedJsonProgressMonitor.message("type", event.type, "name", event.name, "totalWork", event.totalWork); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		case "task": //$NON-NLS-1$
+		case "subTask": //$NON-NLS-1$
+			return LineDelimitedJsonProgressMonitor.message("type", event.type, "name", event.name); //$NON-NLS-1$ //$NON-NLS-2$
+		default:
+			return LineDelimitedJsonProgressMonitor.message("type", event.type); //$NON-NLS-1$
+		}
+	}
+}
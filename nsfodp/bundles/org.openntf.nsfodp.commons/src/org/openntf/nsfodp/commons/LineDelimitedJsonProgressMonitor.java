@@ -17,10 +17,10 @@ package org.openntf.nsfodp.commons;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.openntf.com.eclipsesource.json.JsonObject;
 
 /**
  * An implementation of {@link IProgressMonitor} sends monitor messages to an {@link OutputStream}
@@ -133,28 +133,76 @@ public class LineDelimitedJsonProgressMonitor implements IProgressMonitor {
 	// *******************************************************************************
 	
 	private void println(String message) throws IOException {
-		out.write(message.getBytes());
-		out.write('\r');
-		out.write('\n');
+		// Write each message in one call, as the stream is typically unbuffered
+		out.write((message + "\r\n").getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
 	}
 	
 	public static String message(Object... parts) {
-		JsonObject json = new JsonObject();
+		StringBuilder json = new StringBuilder(64);
+		json.append('{');
 		for(int i = 0; i < parts.length; i += 2) {
 			String key = parts[i] == null ? "" : parts[i].toString(); //$NON-NLS-1$
 			Object val = i < parts.length-1 ? parts[i+1] : null;
 			
+			if(i > 0) {
+				json.append(',');
+			}
+			appendString(json, key);
+			json.append(':');
 			if(val instanceof Integer) {
-				json.add(key, ((Integer)val).intValue());
+				json.append(((Integer)val).intValue());
 			} else if(val instanceof Number) {
-				json.add(key, ((Number)val).doubleValue());
+				String num = Double.toString(((Number)val).doubleValue());
+				json.append(num.endsWith(".0") ? num.substring(0, num.length()-2) : num); //$NON-NLS-1$
 			} else if(val instanceof Boolean) {
-				json.add(key, ((Boolean)val).booleanValue());
+				json.append(((Boolean)val).booleanValue());
+			} else if(val == null) {
+				json.append("null"); //$NON-NLS-1$
 			} else {
-				json.add(key, val == null ? null : val.toString());
+				appendString(json, val.toString());
 			}
 		}
-		
+		json.append('}');
 		return json.toString();
 	}
+	
+	/**
+	 * Appends a JSON string literal, escaped in the same way as the minimal-json writer
+	 * previously used to build messages.
+	 */
+	private static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch(c) {
+			case '"':
+				json.append("\\\""); //$NON-NLS-1$
+				break;
+			case '\\':
+				json.append("\\\\"); //$NON-NLS-1$
+				break;
+			case '\n':
+				json.append("\\n"); //$NON-NLS-1$
+				break;
+			case '\r':
+				json.append("\\r"); //$NON-NLS-1$
+				break;
+			case '\t':
+				json.append("\\t"); //$NON-NLS-1$
+				break;
+			case '\u2028':
+			case '\u2029':
+				json.append(String.format("\\u%04x", (int)c)); //$NON-NLS-1$
+				break;
+			default:
+				if(c < 0x20) {
+					json.append(String.format("\\u%04x", (int)c)); //$NON-NLS-1$
+				} else {
+					json.append(c);
+				}
+				break;
+			}
+		}
+		json.append('"');
+	}
 }
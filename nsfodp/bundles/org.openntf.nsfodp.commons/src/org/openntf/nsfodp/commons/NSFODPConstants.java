@@ -40,7 +40,36 @@ public enum NSFODPConstants {
 	 * @since 3.0.0
 	 */
 	public static final String PROP_NOTESINI = "org.openntf.nsfodp.notesini"; //$NON-NLS-1$
-	
+
+	// *******************************************************************************
+	// * Equinox daemon constants
+	// *******************************************************************************
+
+	/**
+	 * The property used to specify the file where a local Equinox daemon records its port
+	 * and access token.
+	 * @since 4.1.0
+	 */
+	public static final String PROP_DAEMON_INFOFILE = "org.openntf.nsfodp.daemon.infoFile"; //$NON-NLS-1$
+	/**
+	 * The property used to specify the number of seconds a local Equinox daemon waits for
+	 * a new job before shutting down.
+	 * @since 4.1.0
+	 */
+	public static final String PROP_DAEMON_IDLETIMEOUT = "org.openntf.nsfodp.daemon.idleTimeout"; //$NON-NLS-1$
+	/**
+	 * The property used to specify the launch configuration key recorded by a local Equinox
+	 * daemon, which clients use to decide whether the daemon can run their jobs.
+	 * @since 4.1.0
+	 */
+	public static final String PROP_DAEMON_CONFIGURATIONKEY = "org.openntf.nsfodp.daemon.configurationKey"; //$NON-NLS-1$
+	/**
+	 * The property used to specify the maximum number of jobs a local Equinox daemon runs
+	 * at the same time.
+	 * @since 4.1.0
+	 */
+	public static final String PROP_DAEMON_PARALLELISM = "org.openntf.nsfodp.daemon.parallelism"; //$NON-NLS-1$
+
 	// *******************************************************************************
 	// * Compiler constants
 	// *******************************************************************************
@@ -63,6 +92,25 @@ public enum NSFODPConstants {
 	 * @since 3.11.0
 	 */
 	public static final String HEADER_CONTAINER_PACKAGE = "X-ContainerPackage"; //$NON-NLS-1$
+	/**
+	 * Header indicating the number of threads to use when translating XSP source to Java,
+	 * used when transmitting a job to remote server.
+	 * @since 4.1.0
+	 */
+	public static final String HEADER_TRANSLATION_PARALLELISM = "X-TranslationParallelism"; //$NON-NLS-1$
+	/**
+	 * Header indicating the maximum number of design elements to import in a single DXL import
+	 * call, used when transmitting a job to remote server.
+	 * @since 4.1.0
+	 */
+	public static final String HEADER_IMPORT_BATCH_SIZE = "X-ImportBatchSize"; //$NON-NLS-1$
+	/**
+	 * Name of the entry in a compiler package listing the SHA-256 digests of its update sites
+	 * and classpath JARs, one "{@code <digest>  <entry name>}" pair per line. Listed entries
+	 * that are absent from the package are read from the server's blob store.
+	 * @since 4.1.0
+	 */
+	public static final String PACKAGE_BLOB_MANIFEST = "blobs.sha256"; //$NON-NLS-1$
 	
 	/**
 	 * The system property used to specify the path to the ODP directory to compile using the local
@@ -86,6 +134,32 @@ public enum NSFODPConstants {
 	 * @since 3.8.0
 	 */
 	public static final String PROP_COMPILEBASICLS = "org.openntf.nsfodp.compiler.compileBasicElementLS"; //$NON-NLS-1$
+	/**
+	 * Property indicating the number of threads to use when translating XSP source to Java,
+	 * used when launching an Equinox container.
+	 * @since 4.1.0
+	 */
+	public static final String PROP_TRANSLATIONPARALLELISM = "org.openntf.nsfodp.compiler.translationParallelism"; //$NON-NLS-1$
+	/**
+	 * Property indicating the maximum number of design elements to import in a single DXL import
+	 * call, used when launching an Equinox container.
+	 * @since 4.1.0
+	 */
+	public static final String PROP_IMPORTBATCHSIZE = "org.openntf.nsfodp.compiler.importBatchSize"; //$NON-NLS-1$
+	/**
+	 * Property specifying the path to the build manifest to use for incremental compilation,
+	 * used when launching an Equinox container. When set, the existing output file is used
+	 * as the base for the build.
+	 * @since 4.1.0
+	 */
+	public static final String PROP_BUILDMANIFEST = "org.openntf.nsfodp.compiler.buildManifest"; //$NON-NLS-1$
+	/**
+	 * System property indicating whether update-site bundles are kept installed after a
+	 * compilation for later compilations with the same update sites, which can then run
+	 * concurrently.
+	 * @since 4.1.0
+	 */
+	public static final String PROP_POOLBUNDLES = "org.openntf.nsfodp.compiler.poolBundles"; //$NON-NLS-1$
 	
 	// *******************************************************************************
 	// * Exporter constants
@@ -112,6 +186,37 @@ public enum NSFODPConstants {
 	
 	public static final String HEADER_PROJECT_NAME = "X-ProjectName"; //$NON-NLS-1$
 	public static final String PROP_PROJECT_NAME = "org.openntf.nsfodp.exporter.projectName"; //$NON-NLS-1$
+	/**
+	 * The HTTP header name used to specify the number of threads to use to export design
+	 * notes in the ODP Exporter servlet.
+	 * @since 4.1.0
+	 */
+	public static final String HEADER_EXPORT_PARALLELISM = "X-ExportParallelism"; //$NON-NLS-1$
+	public static final String PROP_EXPORTER_PARALLELISM = "org.openntf.nsfodp.exporter.parallelism"; //$NON-NLS-1$
+	/**
+	 * Property indicating whether to update the existing ODP in the output location
+	 * with only the design notes modified since its last export, used when launching
+	 * an Equinox container.
+	 * @since 4.1.0
+	 */
+	public static final String PROP_EXPORTER_INCREMENTAL = "org.openntf.nsfodp.exporter.incremental"; //$NON-NLS-1$
+	/**
+	 * The HTTP header name used to request that the ODP Exporter servlet stream ZIP entries
+	 * as design notes are exported. The servlet echoes the header in its response when it
+	 * honors the request.
+	 * @since 4.1.0
+	 */
+	public static final String HEADER_STREAM_ODP = "X-StreamODP"; //$NON-NLS-1$
+	/**
+	 * Name of the final entry of a streamed ODP, written only when the export completed.
+	 * @since 4.1.0
+	 */
+	public static final String STREAM_ENTRY_END = ".nsfodp-stream-end"; //$NON-NLS-1$
+	/**
+	 * Name of the entry containing the stack trace of a failure that ended a streamed ODP.
+	 * @since 4.1.0
+	 */
+	public static final String STREAM_ENTRY_ERROR = ".nsfodp-stream-error"; //$NON-NLS-1$
 	
 	// *******************************************************************************
 	// * Deployment constants
@@ -35,12 +35,16 @@ import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.AccessController;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivilegedAction;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.zip.Deflater;
@@ -48,6 +52,8 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import org.openntf.nsfodp.commons.io.ZipArchive;
+
 public enum NSFODPUtil {
 	;
 
@@ -385,6 +391,9 @@ public enum NSFODPUtil {
 	 * for ZIP filesystems to work around bugs in the Java 8 implementation. Specifically, when
 	 * {@code path} is in a ZIP filesystem, this method first extracts the file to a temporary file.
 	 * This file is deleted when the input stream is closed.</p>
+	 * 
+	 * <p>When {@code path} is within an open {@link ZipArchive}, the file is instead read
+	 * directly from the ZIP data without extraction.</p>
 	 *
      * @param path the path to the file to open
      * @param options options specifying how the file is opened
@@ -394,6 +403,10 @@ public enum NSFODPUtil {
 	 */
 	public static InputStream newInputStream(Path path, OpenOption... options) throws IOException {
 		Objects.requireNonNull(path, "path cannot be null");
+		Optional<ZipArchive> archive = ZipArchive.forPath(path);
+		if(archive.isPresent()) {
+			return archive.get().newInputStream(path);
+		}
 		FileSystem fs = path.getFileSystem();
 		if("jar".equals(fs.provider().getScheme())) { //$NON-NLS-1$
 			// In practice, Files.copy in ZIP FS copies the file properly, while Files.newInputStream adds nulls
@@ -406,6 +419,65 @@ public enum NSFODPUtil {
 		}
 	}
 	
+	/**
+	 * Computes the SHA-256 digest of the provided file.
+	 * 
+	 * @param path the file to digest
+	 * @return the digest as a lowercase hexadecimal string
+	 * @throws IOException if there is a problem reading the file
+	 * @since 4.1.0
+	 */
+	public static String sha256(Path path) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		try(InputStream is = new DigestInputStream(newInputStream(path), digest)) {
+			byte[] buf = new byte[8192];
+			while(is.read(buf) != -1) {
+				// Read through
+			}
+		}
+		return toHex(digest.digest());
+	}
+	
+	/**
+	 * Converts the provided bytes to a lowercase hexadecimal string.
+	 * 
+	 * @param bytes the bytes to convert
+	 * @return the hexadecimal representation of {@code bytes}
+	 * @since 4.1.0
+	 */
+	public static String toHex(byte[] bytes) {
+		StringBuilder result = new StringBuilder(bytes.length * 2);
+		for(byte b : bytes) {
+			result.append(Character.forDigit((b >> 4) & 0xF, 16));
+			result.append(Character.forDigit(b & 0xF, 16));
+		}
+		return result.toString();
+	}
+	
+	/**
+	 * Parses the provided value as a decimal integer, ignoring surrounding whitespace.
+	 * 
+	 * @param value the value to parse, which may be {@code null}
+	 * @param defaultValue the value to return when {@code value} is empty or not an integer
+	 * @return the parsed integer, or {@code defaultValue}
+	 * @since 4.1.0
+	 */
+	public static int parseInt(String value, int defaultValue) {
+		if(value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch(NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+	
 	/**
 	 * Performs an operation like {@link Map#computeIfAbsent}, but made to avoid problems
 	 * with ConcurrentModificationException in synchronized maps on Java beyond 8.
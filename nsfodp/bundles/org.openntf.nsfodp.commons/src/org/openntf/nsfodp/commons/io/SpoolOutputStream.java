@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.commons.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openntf.nsfodp.commons.NSFODPUtil;
+
+/**
+ * Collects written content in memory until it exceeds a threshold, after which it is moved
+ * to a temporary file, so that large content does not need to be held in memory.
+ *
+ * <p>Once closed, the content can be copied with {@link #writeTo(OutputStream)}. Call
+ * {@link #delete()} when it is no longer needed to remove the temporary file, if any.</p>
+ *
+ * @since 4.1.0
+ */
+public class SpoolOutputStream extends OutputStream {
+	/**
+	 * The default number of bytes kept in memory before spilling to a temporary file.
+	 */
+	public static final int DEFAULT_THRESHOLD = 256 * 1024;
+
+	private final int threshold;
+	private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+	private Path file;
+	private OutputStream fileOut;
+	private long size;
+	private boolean closed;
+
+	public SpoolOutputStream() {
+		this(DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * @param threshold the number of bytes to keep in memory before spilling to a
+	 *        temporary file
+	 */
+	public SpoolOutputStream(int threshold) {
+		this.threshold = threshold;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte)b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if(closed) {
+			throw new IOException("Stream closed"); //$NON-NLS-1$
+		}
+		if(fileOut == null && size + len > threshold) {
+			file = Files.createTempFile(NSFODPUtil.getTempDirectory(), "nsfodp-spool", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+			fileOut = Files.newOutputStream(file);
+			memory.writeTo(fileOut);
+			memory = null;
+		}
+		if(fileOut != null) {
+			fileOut.write(b, off, len);
+		} else {
+			memory.write(b, off, len);
+		}
+		size += len;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		if(fileOut != null) {
+			fileOut.close();
+		}
+	}
+
+	/**
+	 * @return the number of bytes written
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return {@code true} if the content is held in memory; {@code false} if it was moved
+	 *         to a temporary file
+	 */
+	public boolean isInMemory() {
+		return file == null;
+	}
+
+	/**
+	 * Copies the content to the provided stream, closing this stream first if needed.
+	 *
+	 * @param os the stream to write to
+	 * @throws IOException if there is a problem copying the content
+	 * @throws IllegalStateException if this stream was deleted
+	 */
+	public void writeTo(OutputStream os) throws IOException {
+		close();
+		if(file != null) {
+			Files.copy(file, os);
+		} else if(memory != null) {
+			memory.writeTo(os);
+		} else {
+			throw new IllegalStateException("Content was already deleted"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Closes this stream and discards its content, deleting the temporary file if present.
+	 *
+	 * @throws IOException if there is a problem deleting the temporary file
+	 */
+	public void delete() throws IOException {
+		close();
+		memory = null;
+		Path file = this.file;
+		if(file != null) {
+			this.file = null;
+			Files.deleteIfExists(file);
+		}
+	}
+}
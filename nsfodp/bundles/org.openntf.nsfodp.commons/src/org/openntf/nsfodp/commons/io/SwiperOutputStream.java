@@ -15,18 +15,23 @@
  */
 package org.openntf.nsfodp.commons.io;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Templates;
@@ -37,10 +42,16 @@ import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
+import org.openntf.nsfodp.commons.osgi.JobOutput;
+
 /**
  * This OutputStream implementation toggles its behavior depending on whether or not Swiper is
  * enabled for this exporter.
  * 
+ * <p>When Swiper is enabled, written DXL is piped directly into the transformation, which runs
+ * on a background thread and writes its result to the destination file through a
+ * {@link TroubleDxlFilterWriter}. The DXL is not otherwise buffered.</p>
+ * 
  * @since 1.4.0
  */
 public class SwiperOutputStream extends OutputStream {
@@ -56,76 +67,133 @@ public class SwiperOutputStream extends OutputStream {
 	}
 	
 	private static final Templates swiper;
+	private static final int PIPE_SIZE = 64 * 1024;
+	private static final ExecutorService transformers = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, SwiperOutputStream.class.getSimpleName());
+		t.setDaemon(true);
+		return t;
+	});
 	
-	private final Path path;
-	private OutputStream os;
+	private final OutputStream os;
 	private final boolean isSwiper;
+	private final Future<?> transformation;
+	private boolean closed;
 	
 	public SwiperOutputStream(Path path, boolean isSwiper) throws IOException {
-		this.path = path;
+		this(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), isSwiper);
+	}
+	
+	/**
+	 * Creates a stream that writes its result to the provided stream, which is closed
+	 * when this stream is closed.
+	 * 
+	 * @param out the destination for the written or transformed DXL
+	 * @param isSwiper whether to transform the DXL with the Swiper filter
+	 * @since 4.1.0
+	 */
+	public SwiperOutputStream(OutputStream out, boolean isSwiper) {
 		this.isSwiper = isSwiper;
 		if(this.isSwiper) {
-			os = new ByteArrayOutputStream();
+			Pipe pipe = new Pipe(PIPE_SIZE);
+			InputStream in = pipe.in;
+			os = pipe.out;
+			// The pool outlives the job that created each thread, so carry over the caller's output
+			transformation = transformers.submit(JobOutput.wrap(() -> {
+				try(Reader r = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+					try(Writer w = new TroubleDxlFilterWriter(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)))) {
+						transform(createTransformer(), r, w);
+					}
+					// Consume anything after the document, so that the writer does not see a closed pipe
+					byte[] buf = new byte[1024];
+					while(in.read(buf) != -1) {
+						// Discard
+					}
+				}
+				return null;
+			}));
 		} else {
-			os = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			os = out;
+			transformation = null;
 		}
 	}
 
 	@Override
 	public void write(int b) throws IOException {
-		os.write(b);
+		try {
+			os.write(b);
+		} catch(IOException e) {
+			throw transformationFailure(e);
+		}
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		try {
+			os.write(b, off, len);
+		} catch(IOException e) {
+			throw transformationFailure(e);
+		}
 	}
 	
 	@Override
 	public void close() throws IOException {
+		if(closed) {
+			return;
+		}
+		closed = true;
 		super.close();
+		os.close();
 		
-		// Either close the underlying stream and be done or do Swiper transformations
+		// Wait for the Swiper transformation to finish writing the file
 		if(this.isSwiper) {
-			os.close();
-			byte[] xml = ((ByteArrayOutputStream)os).toByteArray();
-			try {
-				Transformer transformer = createTransformer();
-				try(InputStream is = new ByteArrayInputStream(xml)) {
-					try(Reader r = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-						transform(transformer, r, path);
-					}
-				}
-				
-				cleanKnownTroubleDxl(path);
-			} catch(RuntimeException e) {
-				throw e;
-			} catch (Exception e) {
-				throw new IOException(e);
-			}
-		} else {
-			os.close();
+			awaitTransformation();
 		}
 	}
 	
 	/**
-	 * Processes the given file to remove known gotchas from formatted DXL
-	 * 
-	 * @param path the path of the DXL file on the filesystem
-	 * @throws IOException if there is a problem reading or writing the file
-	 * @since 3.3.0
+	 * Reports the reason the transformation stopped reading, which is a more useful error
+	 * than the closed pipe.
 	 */
-	protected void cleanKnownTroubleDxl(Path path) throws IOException {
-		// TODO use a more-efficient way to do this
-		String dxl = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
-		
-		String result = dxl.replaceAll("<imageref>\\s+", "<imageref>"); //$NON-NLS-1$ //$NON-NLS-2$
-		
-		Files.write(path, result.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+	private IOException transformationFailure(IOException e) throws IOException {
+		if(this.isSwiper && transformation.isDone()) {
+			awaitTransformation();
+		}
+		return e;
 	}
 	
-	protected void transform(Transformer transformer, Reader r, Path destination) throws Exception {
-		try(Writer w = Files.newBufferedWriter(destination, StandardCharsets.UTF_8)) {
-			StreamResult result = new StreamResult(w);
-			transformer.transform(new StreamSource(r), result);
+	private void awaitTransformation() throws IOException {
+		try {
+			transformation.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) {
+				throw (IOException)cause;
+			} else if(cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else {
+				throw new IOException(cause);
+			}
 		}
 	}
 	
+	/**
+	 * Transforms the provided DXL with the Swiper transformer.
+	 * 
+	 * @param transformer the Swiper transformer
+	 * @param r a reader of the exported DXL
+	 * @param w the writer for the destination file, which removes known gotchas from
+	 *        formatted DXL as it is written
+	 * @throws Exception if there is a problem transforming the DXL
+	 * @since 4.1.0
+	 */
+	protected void transform(Transformer transformer, Reader r, Writer w) throws Exception {
+		StreamResult result = new StreamResult(w);
+		transformer.transform(new StreamSource(r), result);
+	}
+	
 	public static Transformer createTransformer() throws TransformerConfigurationException {
 		Transformer transformer = swiper.newTransformer();
 
@@ -135,4 +203,109 @@ public class SwiperOutputStream extends OutputStream {
 		
 		return transformer;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * A bounded in-memory pipe between the writing thread and the transformation thread.
+	 * 
+	 * <p>Unlike {@link java.io.PipedInputStream}, which polls for data once a second, each
+	 * side wakes the other as soon as data or space is available, and neither side is tied
+	 * to the thread that first used it.</p>
+	 */
+	private static class Pipe {
+		private final byte[] buffer;
+		private int readPos;
+		private int count;
+		private boolean writeClosed;
+		private boolean readClosed;
+		
+		final OutputStream out = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte)b }, 0, 1);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				Pipe.this.write(b, off, len);
+			}
+			
+			@Override
+			public void close() {
+				synchronized(Pipe.this) {
+					writeClosed = true;
+					Pipe.this.notifyAll();
+				}
+			}
+		};
+		
+		final InputStream in = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+				return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+			}
+			
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return Pipe.this.read(b, off, len);
+			}
+			
+			@Override
+			public void close() {
+				synchronized(Pipe.this) {
+					readClosed = true;
+					Pipe.this.notifyAll();
+				}
+			}
+		};
+		
+		Pipe(int size) {
+			this.buffer = new byte[size];
+		}
+		
+		private synchronized void write(byte[] b, int off, int len) throws IOException {
+			while(len > 0) {
+				while(count == buffer.length && !readClosed) {
+					await();
+				}
+				if(readClosed || writeClosed) {
+					throw new IOException("Pipe closed"); //$NON-NLS-1$
+				}
+				int writePos = (readPos + count) % buffer.length;
+				int n = Math.min(len, Math.min(buffer.length - count, buffer.length - writePos));
+				System.arraycopy(b, off, buffer, writePos, n);
+				count += n;
+				off += n;
+				len -= n;
+				notifyAll();
+			}
+		}
+		
+		private synchronized int read(byte[] b, int off, int len) throws IOException {
+			if(len == 0) {
+				return 0;
+			}
+			while(count == 0 && !writeClosed && !readClosed) {
+				await();
+			}
+			if(count == 0 || readClosed) {
+				return -1;
+			}
+			int n = Math.min(len, Math.min(count, buffer.length - readPos));
+			System.arraycopy(buffer, readPos, b, off, n);
+			readPos = (readPos + n) % buffer.length;
+			count -= n;
+			notifyAll();
+			return n;
+		}
+		
+		private void await() throws InterruptedIOException {
+			try {
+				wait();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.commons.io;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Removes known gotchas from formatted DXL as it is written. Currently, this removes
+ * whitespace following {@code <imageref>}, as the indentation added there is treated
+ * as content on import.
+ * 
+ * <p>Matching carries over between calls to {@code write}, so the tag and the whitespace
+ * after it may be split across any number of writes.</p>
+ * 
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class TroubleDxlFilterWriter extends FilterWriter {
+	private static final char[] IMAGEREF = "<imageref>".toCharArray(); //$NON-NLS-1$
+	
+	private int matched;
+	private boolean skipWhitespace;
+	
+	public TroubleDxlFilterWriter(Writer out) {
+		super(out);
+	}
+	
+	@Override
+	public void write(int c) throws IOException {
+		if(accept((char)c)) {
+			out.write(c);
+		}
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		int start = off;
+		int end = off + len;
+		for(int i = off; i < end; i++) {
+			if(!accept(cbuf[i])) {
+				// Write out the run before the skipped character
+				out.write(cbuf, start, i - start);
+				start = i + 1;
+			}
+		}
+		out.write(cbuf, start, end - start);
+	}
+	
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		char[] chars = new char[len];
+		str.getChars(off, off + len, chars, 0);
+		write(chars, 0, len);
+	}
+	
+	/**
+	 * @return whether {@code c} should be written
+	 */
+	private boolean accept(char c) {
+		if(skipWhitespace) {
+			if(isWhitespace(c)) {
+				return false;
+			}
+			skipWhitespace = false;
+		}
+		
+		if(c == IMAGEREF[matched]) {
+			matched++;
+			if(matched == IMAGEREF.length) {
+				matched = 0;
+				skipWhitespace = true;
+			}
+		} else {
+			// '<' occurs only at the start of the tag, so no partial match can overlap
+			matched = c == IMAGEREF[0] ? 1 : 0;
+		}
+		return true;
+	}
+	
+	/**
+	 * Matches the characters of the regex {@code \s} class.
+	 */
+	private static boolean isWhitespace(char c) {
+		switch(c) {
+		case ' ':
+		case '\t':
+		case '\n':
+		case '\u000B':
+		case '\f':
+		case '\r':
+			return true;
+		default:
+			return false;
+		}
+	}
+}
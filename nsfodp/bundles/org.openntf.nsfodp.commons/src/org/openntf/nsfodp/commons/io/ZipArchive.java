@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.commons.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.openntf.nsfodp.commons.NSFODPUtil;
+
+/**
+ * Represents a read-only view of a ZIP file, pairing an NIO {@link FileSystem} used for
+ * traversal with a {@link ZipFile} used to read entry contents directly.
+ *
+ * <p>While an archive is open, {@link NSFODPUtil#newInputStream} reads files from its
+ * filesystem via random access into the ZIP instead of extracting them to temporary
+ * files first.</p>
+ *
+ * <p>The filesystem should not be written to while the archive is open, as changes made
+ * through it are not visible to the underlying {@link ZipFile}.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class ZipArchive implements Closeable {
+	private static final Map<FileSystem, ZipArchive> OPEN_ARCHIVES = new ConcurrentHashMap<>();
+
+	/**
+	 * Opens the provided ZIP file for reading.
+	 *
+	 * @param zipFilePath a {@link Path} to the ZIP file
+	 * @return a new {@link ZipArchive} for the file, which must be closed by the caller
+	 * @throws IOException if there is a problem opening the ZIP file
+	 */
+	public static ZipArchive open(Path zipFilePath) throws IOException {
+		ZipFile zipFile = new ZipFile(zipFilePath.toFile(), StandardCharsets.UTF_8);
+		FileSystem fs;
+		try {
+			fs = NSFODPUtil.openZipPath(zipFilePath);
+		} catch(IOException | RuntimeException e) {
+			zipFile.close();
+			throw e;
+		}
+		ZipArchive result = new ZipArchive(zipFile, fs);
+		OPEN_ARCHIVES.put(fs, result);
+		return result;
+	}
+
+	/**
+	 * Finds the open archive containing the provided path, if any.
+	 *
+	 * @param path the path to check
+	 * @return an {@link Optional} describing the open archive containing {@code path},
+	 *         or an empty one if the path is not within an open archive
+	 */
+	public static Optional<ZipArchive> forPath(Path path) {
+		return Optional.ofNullable(OPEN_ARCHIVES.get(path.getFileSystem()));
+	}
+
+	private final ZipFile zipFile;
+	private final FileSystem fileSystem;
+
+	private ZipArchive(ZipFile zipFile, FileSystem fileSystem) {
+		this.zipFile = zipFile;
+		this.fileSystem = fileSystem;
+	}
+
+	/**
+	 * @return the NIO filesystem view of this archive
+	 */
+	public FileSystem getFileSystem() {
+		return fileSystem;
+	}
+
+	/**
+	 * @return the root directory of this archive
+	 */
+	public Path getRoot() {
+		return fileSystem.getPath("/"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Opens a stream to the contents of the provided file directly from the ZIP data.
+	 *
+	 * @param path a path to a file within {@link #getFileSystem()}
+	 * @return a new {@link InputStream} for the entry's contents
+	 * @throws NoSuchFileException if {@code path} does not refer to a file within this archive
+	 * @throws IOException if there is a problem reading the ZIP file
+	 */
+	public InputStream newInputStream(Path path) throws IOException {
+		Objects.requireNonNull(path, "path cannot be null"); //$NON-NLS-1$
+		if(path.getFileSystem() != fileSystem) {
+			throw new IllegalArgumentException("Path is not within this archive: " + path); //$NON-NLS-1$
+		}
+		String name = path.toAbsolutePath().normalize().toString();
+		if(name.startsWith("/")) { //$NON-NLS-1$
+			name = name.substring(1);
+		}
+		ZipEntry entry = zipFile.getEntry(name);
+		if(entry == null || entry.isDirectory()) {
+			throw new NoSuchFileException(path.toString());
+		}
+		return zipFile.getInputStream(entry);
+	}
+
+	@Override
+	public void close() throws IOException {
+		OPEN_ARCHIVES.remove(fileSystem);
+		try {
+			fileSystem.close();
+		} finally {
+			zipFile.close();
+		}
+	}
+}
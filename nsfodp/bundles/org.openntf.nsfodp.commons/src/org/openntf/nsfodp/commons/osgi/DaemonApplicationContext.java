@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.commons.osgi;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.osgi.framework.Bundle;
+
+/**
+ * {@link IApplicationContext} implementation used to run an application as a job inside
+ * a long-lived {@link EquinoxDaemon}, carrying the job's environment variables.
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class DaemonApplicationContext implements IApplicationContext {
+	private static final String ARG_ENVIRONMENT = DaemonApplicationContext.class.getName() + ".environment"; //$NON-NLS-1$
+	private static final String ARG_OUTPUT = DaemonApplicationContext.class.getName() + ".output"; //$NON-NLS-1$
+
+	/**
+	 * Retrieves the environment variables for the provided application context.
+	 *
+	 * <p>For jobs run by the daemon, this is the environment provided for the job.
+	 * Otherwise, it is the process environment.</p>
+	 *
+	 * @param context the context passed to {@link IApplication#start(IApplicationContext)}
+	 * @return a {@link Map} of environment variable names to values
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, String> getEnvironment(IApplicationContext context) {
+		Object env = context == null ? null : context.getArguments().get(ARG_ENVIRONMENT);
+		if(env instanceof Map) {
+			return (Map<String, String>)env;
+		}
+		return System.getenv();
+	}
+	
+	/**
+	 * Retrieves the stream to send progress output to for the provided application context.
+	 *
+	 * <p>For jobs run by the daemon, this is the stream sent to the job's client, which
+	 * remains correct when several jobs run at once. Otherwise, it is {@link System#out}.</p>
+	 *
+	 * @param context the context passed to {@link IApplication#start(IApplicationContext)}
+	 * @return the output stream for the application
+	 */
+	public static PrintStream getOutput(IApplicationContext context) {
+		Object out = context == null ? null : context.getArguments().get(ARG_OUTPUT);
+		if(out instanceof PrintStream) {
+			return (PrintStream)out;
+		}
+		return System.out;
+	}
+
+	private final Map<String, Object> arguments;
+
+	/**
+	 * @param environment the complete set of environment variables for the job, used in
+	 *        place of the process environment
+	 * @param output the stream to send the job's output to
+	 */
+	public DaemonApplicationContext(Map<String, String> environment, PrintStream output) {
+		Map<String, Object> arguments = new HashMap<>();
+		arguments.put(APPLICATION_ARGS, new String[0]);
+		arguments.put(ARG_ENVIRONMENT, Collections.unmodifiableMap(new HashMap<>(environment)));
+		arguments.put(ARG_OUTPUT, output);
+		this.arguments = Collections.unmodifiableMap(arguments);
+	}
+
+	@Override
+	public Map<String, Object> getArguments() {
+		return arguments;
+	}
+
+	@Override
+	public void applicationRunning() {
+		// NOP
+	}
+
+	@Override
+	public String getBrandingApplication() {
+		return null;
+	}
+
+	@Override
+	public String getBrandingName() {
+		return null;
+	}
+
+	@Override
+	public String getBrandingDescription() {
+		return null;
+	}
+
+	@Override
+	public String getBrandingId() {
+		return null;
+	}
+
+	@Override
+	public String getBrandingProperty(String key) {
+		return null;
+	}
+
+	@Override
+	public Bundle getBrandingBundle() {
+		return null;
+	}
+
+	@Override
+	public void setResult(Object result, IApplication application) {
+		// NOP
+	}
+}
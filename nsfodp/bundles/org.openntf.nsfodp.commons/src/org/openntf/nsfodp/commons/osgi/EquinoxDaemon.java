@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.commons.osgi;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Shared definitions for the long-lived Equinox process used to run several local
+ * compilation, export, and transpilation jobs without relaunching the OSGi framework
+ * for each.
+ *
+ * <p>The daemon listens on a loopback socket and records its port and access token in
+ * an {@link Info info file}. Each connection carries a single {@link Request} and receives
+ * the job's console output as UTF-8 lines, ending with a line consisting of
+ * {@link #RESULT_PREFIX} followed by the job's status code. Jobs may run concurrently, up
+ * to the parallelism the daemon was launched with.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public enum EquinoxDaemon {
+	;
+
+	/** The Equinox application ID of the daemon */
+	public static final String APPLICATION_ID = "org.openntf.nsfodp.compiler.equinox.DaemonApplication"; //$NON-NLS-1$
+	/** The command to run an Equinox application as a job */
+	public static final String COMMAND_RUN = "run"; //$NON-NLS-1$
+	/** The command to stop the daemon once any earlier jobs complete */
+	public static final String COMMAND_SHUTDOWN = "shutdown"; //$NON-NLS-1$
+	/** The prefix of the final line sent for each request, followed by the status code */
+	public static final String RESULT_PREFIX = "#nsfodp-daemon-result:"; //$NON-NLS-1$
+	/** The default number of seconds the daemon waits for a job before shutting down */
+	public static final int DEFAULT_IDLE_TIMEOUT = 300;
+	/**
+	 * The name of the file locked by the daemon within its working directory for as long as
+	 * the process runs, allowing clients to tell when the directory can be removed
+	 */
+	public static final String LOCK_FILE = "daemon.lock"; //$NON-NLS-1$
+
+	/**
+	 * Represents the connection details published by a running daemon.
+	 */
+	public static class Info {
+		private static final String PROP_PORT = "port"; //$NON-NLS-1$
+		private static final String PROP_TOKEN = "token"; //$NON-NLS-1$
+		private static final String PROP_KEY = "configurationKey"; //$NON-NLS-1$
+
+		/**
+		 * Reads daemon information from the provided file.
+		 *
+		 * @param infoFile the file to read
+		 * @return an {@link Optional} describing the daemon information, or an empty one if
+		 *         the file does not exist
+		 * @throws IOException if there is a problem reading the file
+		 */
+		public static Optional<Info> read(Path infoFile) throws IOException {
+			Properties props = new Properties();
+			try(Reader r = Files.newBufferedReader(infoFile, StandardCharsets.UTF_8)) {
+				props.load(r);
+			} catch(NoSuchFileException e) {
+				return Optional.empty();
+			}
+			String port = props.getProperty(PROP_PORT);
+			if(port == null || port.isEmpty()) {
+				return Optional.empty();
+			}
+			return Optional.of(new Info(Integer.parseInt(port), props.getProperty(PROP_TOKEN), props.getProperty(PROP_KEY)));
+		}
+
+		private final int port;
+		private final String token;
+		private final String configurationKey;
+
+		public Info(int port, String token, String configurationKey) {
+			this.port = port;
+			this.token = token;
+			this.configurationKey = configurationKey;
+		}
+
+		public int getPort() {
+			return port;
+		}
+
+		public String getToken() {
+			return token;
+		}
+
+		public String getConfigurationKey() {
+			return configurationKey;
+		}
+
+		/**
+		 * Writes this information to the provided file, replacing it atomically so that
+		 * clients never see a partial file.
+		 *
+		 * @param infoFile the file to write
+		 * @throws IOException if there is a problem writing the file
+		 */
+		public void write(Path infoFile) throws IOException {
+			Properties props = new Properties();
+			props.setProperty(PROP_PORT, Integer.toString(port));
+			props.setProperty(PROP_TOKEN, token);
+			props.setProperty(PROP_KEY, String.valueOf(configurationKey));
+			Path temp = Files.createTempFile(infoFile.getParent(), infoFile.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+			try {
+				try(Writer w = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+					props.store(w, "NSF ODP Equinox daemon"); //$NON-NLS-1$
+				}
+				Files.move(temp, infoFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+	}
+
+	/**
+	 * Represents a single request sent to the daemon.
+	 */
+	public static class Request {
+		/**
+		 * Reads a request written by {@link #write(OutputStream)}.
+		 *
+		 * @param is the stream to read from
+		 * @return the read request
+		 * @throws IOException if there is a problem reading the request
+		 */
+		public static Request read(InputStream is) throws IOException {
+			DataInputStream dis = new DataInputStream(is);
+			String token = dis.readUTF();
+			String command = dis.readUTF();
+			String applicationId = dis.readUTF();
+			int envCount = dis.readInt();
+			Map<String, String> environment = new LinkedHashMap<>();
+			for(int i = 0; i < envCount; i++) {
+				environment.put(dis.readUTF(), dis.readUTF());
+			}
+			return new Request(token, command, applicationId, environment);
+		}
+
+		private final String token;
+		private final String command;
+		private final String applicationId;
+		private final Map<String, String> environment;
+
+		/**
+		 * @param token the access token published by the daemon
+		 * @param command the command to perform, such as {@link EquinoxDaemon#COMMAND_RUN}
+		 * @param applicationId the Equinox application ID to run, or an empty string for
+		 *        commands other than {@link EquinoxDaemon#COMMAND_RUN}
+		 * @param environment the environment variables for the job, overriding those of the
+		 *        daemon process
+		 */
+		public Request(String token, String command, String applicationId, Map<String, String> environment) {
+			this.token = token;
+			this.command = command;
+			this.applicationId = applicationId == null ? "" : applicationId; //$NON-NLS-1$
+			this.environment = environment == null ? Collections.emptyMap() : environment;
+		}
+
+		public String getToken() {
+			return token;
+		}
+
+		public String getCommand() {
+			return command;
+		}
+
+		public String getApplicationId() {
+			return applicationId;
+		}
+
+		public Map<String, String> getEnvironment() {
+			return environment;
+		}
+
+		/**
+		 * Writes this request to the provided stream.
+		 *
+		 * @param os the stream to write to
+		 * @throws IOException if there is a problem writing the request
+		 */
+		public void write(OutputStream os) throws IOException {
+			DataOutputStream dos = new DataOutputStream(os);
+			dos.writeUTF(token);
+			dos.writeUTF(command);
+			dos.writeUTF(applicationId);
+			Map<String, String> env = new LinkedHashMap<>(environment);
+			env.values().removeIf(Objects::isNull);
+			dos.writeInt(env.size());
+			for(Map.Entry<String, String> entry : env.entrySet()) {
+				dos.writeUTF(entry.getKey());
+				dos.writeUTF(entry.getValue());
+			}
+			dos.flush();
+		}
+	}
+}
@@ -21,10 +21,15 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.lang.ProcessBuilder.Redirect;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -34,6 +39,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.TreeMap;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
@@ -56,6 +62,7 @@ public class EquinoxRunner {
 	private String osgiBundle;
 	private Path logFile;
 	private String jvmArgs;
+	private String jempowerShim;
 	
 	public JvmEnvironment getJvmEnvironment() {
 		return this.jvm;
@@ -69,10 +76,7 @@ public class EquinoxRunner {
 	}
 	public void setNotesProgram(Path notesProgram) {
 		this.notesProgram = notesProgram;
-		String shim = createJempowerShim(notesProgram);
-		if(shim != null) {
-			addPlatformEntry(shim);
-		}
+		this.jempowerShim = createJempowerShim(notesProgram);
 	}
 	public void setOsgiBundle(String osgiBundle) {
 		this.osgiBundle = osgiBundle;
@@ -149,7 +153,11 @@ public class EquinoxRunner {
 		Path plugins = workingDirectory.resolve("plugins"); //$NON-NLS-1$
 		Files.createDirectories(plugins);
 		
-		List<String> platform = new ArrayList<>(this.platform);
+		List<String> platform = new ArrayList<>();
+		if(this.jempowerShim != null) {
+			platform.add(this.jempowerShim);
+		}
+		platform.addAll(this.platform);
 		platform.add(createClasspathExtensionBundle(this.classpath, plugins));
 		platform.add(createNotesCorbaShim(this.classpath, plugins));
 		
@@ -256,6 +264,63 @@ public class EquinoxRunner {
 	}
 	
 	public Process start(String applicationId) throws IOException {
+		return start(applicationId, Redirect.PIPE, Redirect.PIPE);
+	}
+	
+	/**
+	 * Starts the Equinox process with its console output appended to the provided file
+	 * rather than piped to the caller, for processes expected to outlive the caller.
+	 * 
+	 * @param applicationId the Equinox application ID to launch
+	 * @param outputFile the file to append standard output and error to
+	 * @return the started {@link Process}
+	 * @throws IOException if there is a problem launching the process
+	 * @since 4.1.0
+	 */
+	public Process startDetached(String applicationId, Path outputFile) throws IOException {
+		Redirect output = Redirect.appendTo(outputFile.toFile());
+		return start(applicationId, output, output);
+	}
+	
+	/**
+	 * Computes a digest of the launch configuration: the JVM, framework bundles, classpath,
+	 * and environment. Referenced files contribute their size and modification time, so
+	 * that rebuilt bundles produce a different key.
+	 * 
+	 * <p>This is used to determine whether a running {@link EquinoxDaemon} was launched
+	 * with the same configuration as this runner.</p>
+	 * 
+	 * @return a hexadecimal digest of the launch configuration
+	 * @since 4.1.0
+	 */
+	public String getConfigurationKey() {
+		List<String> parts = new ArrayList<>();
+		parts.add(String.valueOf(notesProgram));
+		parts.add(String.valueOf(osgiBundle));
+		parts.add(String.valueOf(jvmArgs));
+		new TreeMap<>(jvmProps).forEach((name, value) -> parts.add("-D" + name + '=' + value)); //$NON-NLS-1$
+		new TreeMap<>(environmentVars).forEach((name, value) -> parts.add(name + '=' + value));
+		for(String entry : platform) {
+			parts.add(entry + describeFile(toReferencedPath(entry)));
+		}
+		for(Path jar : classpath) {
+			parts.add(jar + describeFile(jar));
+		}
+		
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		for(String part : parts) {
+			md.update(part.getBytes(StandardCharsets.UTF_8));
+			md.update((byte)'\n');
+		}
+		return NSFODPUtil.toHex(md.digest());
+	}
+	
+	private Process start(String applicationId, Redirect output, Redirect error) throws IOException {
 		Objects.requireNonNull(notesProgram, "notesProgram must be set");
 		Objects.requireNonNull(workingDirectory, "workingDirectory must be set");
 		Objects.requireNonNull(osgiBundle, "core OSGi bundle must be set");
@@ -265,8 +330,8 @@ public class EquinoxRunner {
 		ProcessBuilder builder = new ProcessBuilder()
 				.command(command)
 				.directory(workingDirectory.toFile())
-				.redirectOutput(Redirect.PIPE)
-				.redirectError(Redirect.PIPE)
+				.redirectOutput(output)
+				.redirectError(error)
 				.redirectInput(Redirect.INHERIT);
 		Map<String, String> env = builder.environment();
 		env.putAll(getExecEnvironmentVariables());
@@ -368,6 +433,36 @@ public class EquinoxRunner {
     	}
 	}
 	
+    /**
+     * @param entry a platform entry, such as "reference:file:/foo.jar@2:start"
+     * @return the local file referenced by {@code entry}, or {@code null} if it does not
+     *         reference a local file
+     * @since 4.1.0
+     */
+    private static Path toReferencedPath(String entry) {
+    	String uri = entry.startsWith("reference:") ? entry.substring("reference:".length()) : entry; //$NON-NLS-1$ //$NON-NLS-2$
+    	uri = uri.replaceFirst("@\\d+(:start)?$", ""); //$NON-NLS-1$ //$NON-NLS-2$
+    	if(!uri.startsWith("file:")) { //$NON-NLS-1$
+    		return null;
+    	}
+    	try {
+    		return Paths.get(URI.create(uri));
+    	} catch(IllegalArgumentException e) {
+    		return null;
+    	}
+    }
+    
+    private static String describeFile(Path path) {
+    	if(path == null || !Files.isRegularFile(path)) {
+    		return ""; //$NON-NLS-1$
+    	}
+    	try {
+    		return "@" + Files.size(path) + ':' + Files.getLastModifiedTime(path).toMillis(); //$NON-NLS-1$
+    	} catch(IOException e) {
+    		return ""; //$NON-NLS-1$
+    	}
+    }
+	
     private static long copyStream(InputStream is, OutputStream os, int bufferSize) throws IOException {
 		byte[] buffer = new byte[bufferSize];
 		long totalBytes = 0;
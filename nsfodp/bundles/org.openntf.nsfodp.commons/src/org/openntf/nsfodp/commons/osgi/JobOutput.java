@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.commons.osgi;
+
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * Tracks the client that console output written on the current thread belongs to, for
+ * applications run as jobs in an {@link EquinoxDaemon}.
+ *
+ * <p>Threads started by a job inherit its output. Tasks submitted to thread pools that
+ * outlive a single job should be wrapped with {@link #wrap(Callable)}, so that they write to
+ * the output of the submitting job instead of the one of the job that created the pool
+ * thread. Once a job has ended, its output is no longer returned by {@link #current()}.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public final class JobOutput {
+	private static final InheritableThreadLocal<JobOutput> CURRENT = new InheritableThreadLocal<>();
+
+	private final OutputStream out;
+	private volatile boolean ended;
+
+	/**
+	 * @param out the stream that sends output to the job's client
+	 */
+	public JobOutput(OutputStream out) {
+		this.out = Objects.requireNonNull(out);
+	}
+
+	/**
+	 * @return the output of the job running on the current thread, or {@code null} if the
+	 *         thread does not belong to a running job
+	 */
+	public static OutputStream current() {
+		JobOutput job = CURRENT.get();
+		return job == null || job.ended ? null : job.out;
+	}
+
+	/**
+	 * Wraps the provided task so that it runs with the job output of the calling thread.
+	 *
+	 * @param <T> the result type of the task
+	 * @param task the task to wrap
+	 * @return a task that runs {@code task} with the calling thread's job output
+	 */
+	public static <T> Callable<T> wrap(Callable<T> task) {
+		JobOutput job = CURRENT.get();
+		return () -> {
+			JobOutput previous = CURRENT.get();
+			set(job);
+			try {
+				return task.call();
+			} finally {
+				set(previous);
+			}
+		};
+	}
+
+	private static void set(JobOutput job) {
+		if(job == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(job);
+		}
+	}
+
+	/**
+	 * Directs output from the current thread, and threads it starts, to this job's client.
+	 */
+	public void begin() {
+		set(this);
+	}
+
+	/**
+	 * Stops sending output to this job's client, including from threads that inherited it,
+	 * and clears the current thread's job.
+	 */
+	public void end() {
+		ended = true;
+		CURRENT.remove();
+	}
+}
@@ -69,7 +69,8 @@ public enum NSFODPDomUtil {
 	;
 	
 	private static TransformerFactory tFactory = TransformerFactory.newInstance();
-	private static XPath xpath;
+	/** Guarded by itself, as {@link XPathFactory} is not thread-safe */
+	private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
 	
 	/**
 	 * Creates a new, empty {@link Document}.
@@ -167,7 +168,7 @@ public enum NSFODPDomUtil {
 	 */
 	public static Node selectSingleNode(Node node, String xpathString) {
 		try {
-			return (Node)getXPath().evaluate(xpathString, node, XPathConstants.NODE);
+			return (Node)newXPath().evaluate(xpathString, node, XPathConstants.NODE);
 		} catch (XPathExpressionException e) {
 			throw new RuntimeException(e);
 		}
@@ -194,7 +195,7 @@ public enum NSFODPDomUtil {
 	 */
 	public static NodeList selectNodes(Node node, String xpathString) {
 		try {
-			return (NodeList)getXPath().evaluate(xpathString, node, XPathConstants.NODESET);
+			return (NodeList)newXPath().evaluate(xpathString, node, XPathConstants.NODESET);
 		} catch (XPathExpressionException e) {
 			throw new RuntimeException(e);
 		}
@@ -362,10 +363,13 @@ public enum NSFODPDomUtil {
 		}
 	}
 	
-	private static XPath getXPath() {
-		if (xpath == null) {
-			xpath = XPathFactory.newInstance().newXPath();
+	/**
+	 * Creates an {@link XPath} for use by the current caller, as {@link XPath} objects are
+	 * not thread-safe.
+	 */
+	private static XPath newXPath() {
+		synchronized(XPATH_FACTORY) {
+			return XPATH_FACTORY.newXPath();
 		}
-		return xpath;
 	}
 }
@@ -15,12 +15,14 @@
  */
 package org.openntf.nsfodp.compiler.equinox;
 
+import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -31,9 +33,11 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.equinox.app.IApplication;
 import org.eclipse.equinox.app.IApplicationContext;
 import org.openntf.nsfodp.commons.NSFODPConstants;
+import org.openntf.nsfodp.commons.NSFODPUtil;
 import org.openntf.nsfodp.commons.PrintStreamProgressMonitor;
 import org.openntf.nsfodp.commons.odp.OnDiskProject;
 import org.openntf.nsfodp.commons.odp.notesapi.NotesAPI;
+import org.openntf.nsfodp.commons.osgi.DaemonApplicationContext;
 import org.openntf.nsfodp.compiler.ODPCompiler;
 import org.openntf.nsfodp.compiler.ODPCompilerActivator;
 import org.openntf.nsfodp.compiler.update.FilesystemUpdateSite;
@@ -46,13 +50,13 @@ import com.ibm.commons.util.io.json.JsonParser;
 import lotus.domino.NotesThread;
 
 public class CompilerApplication implements IApplication {
-	private static final ExecutorService exec = Executors.newSingleThreadExecutor(NotesThread::new);
-	
 	@Override
 	public Object start(IApplicationContext context) throws Exception {
-		String notesIni = System.getenv(NSFODPConstants.PROP_NOTESINI);
+		Map<String, String> env = DaemonApplicationContext.getEnvironment(context);
+		PrintStream out = DaemonApplicationContext.getOutput(context);
+		String notesIni = env.get(NSFODPConstants.PROP_NOTESINI);
 		if(notesIni != null && !notesIni.isEmpty()) {
-			String execDir = System.getenv("Notes_ExecDirectory"); //$NON-NLS-1$
+			String execDir = env.get("Notes_ExecDirectory"); //$NON-NLS-1$
 			try(NotesAPI api = NotesAPI.get()) {
 				api.NotesInitExtended(execDir, "=" + notesIni); //$NON-NLS-1$
 			}
@@ -67,44 +71,52 @@ public class CompilerApplication implements IApplication {
 			}
 			throw e;
 		}
+		// Created per run, as the daemon may start this application repeatedly
+		ExecutorService exec = Executors.newSingleThreadExecutor(NotesThread::new);
 		try {
-			Path odpDirectory = toPath(System.getenv(NSFODPConstants.PROP_ODPDIRECTORY));
-			List<Path> updateSites = toPaths(System.getenv(NSFODPConstants.PROP_UPDATESITE));
-			Path outputFile = toPath(System.getenv(NSFODPConstants.PROP_OUTPUTFILE));
+			Path odpDirectory = toPath(env.get(NSFODPConstants.PROP_ODPDIRECTORY));
+			List<Path> updateSites = toPaths(env.get(NSFODPConstants.PROP_UPDATESITE));
+			Path outputFile = toPath(env.get(NSFODPConstants.PROP_OUTPUTFILE));
+			Path buildManifest = toPath(env.get(NSFODPConstants.PROP_BUILDMANIFEST));
 			
-			IProgressMonitor mon = new PrintStreamProgressMonitor(System.out);
+			IProgressMonitor mon = new PrintStreamProgressMonitor(out);
 			OnDiskProject odp = new OnDiskProject(odpDirectory);
 			ODPCompiler compiler = new ODPCompiler(ODPCompilerActivator.instance.getBundle().getBundleContext(), odp, mon);
 			
 			// See if the client requested a specific compiler level
-			String compilerLevel = System.getenv(NSFODPConstants.PROP_COMPILERLEVEL);
+			String compilerLevel = env.get(NSFODPConstants.PROP_COMPILERLEVEL);
 			if(StringUtil.isNotEmpty(compilerLevel)) {
 				compiler.setCompilerLevel(compilerLevel);
 			}
-			String appendTimestamp = System.getenv(NSFODPConstants.PROP_APPENDTIMESTAMPTOTITLE);
+			String appendTimestamp = env.get(NSFODPConstants.PROP_APPENDTIMESTAMPTOTITLE);
 			if("true".equals(appendTimestamp)) { //$NON-NLS-1$
 				compiler.setAppendTimestampToTitle(true);
 			}
-			String templateName = System.getenv(NSFODPConstants.PROP_TEMPLATENAME);
+			String templateName = env.get(NSFODPConstants.PROP_TEMPLATENAME);
 			if(StringUtil.isNotEmpty(templateName)) {
 				compiler.setTemplateName(templateName);
-				String templateVersion = System.getenv(NSFODPConstants.PROP_TEMPLATEVERSION);
+				String templateVersion = env.get(NSFODPConstants.PROP_TEMPLATEVERSION);
 				if(StringUtil.isNotEmpty(templateVersion)) {
 					compiler.setTemplateVersion(templateVersion);
 				}
 			}
-			String setXspOptions = System.getenv(NSFODPConstants.PROP_SETPRODUCTIONXSPOPTIONS);
+			String setXspOptions = env.get(NSFODPConstants.PROP_SETPRODUCTIONXSPOPTIONS);
 			if("true".equals(setXspOptions)) { //$NON-NLS-1$
 				compiler.setSetProductionXspOptions(true);
 			}
-			String odsRelease = System.getenv(NSFODPConstants.PROP_ODSRELEASE);
+			String odsRelease = env.get(NSFODPConstants.PROP_ODSRELEASE);
 			if(StringUtil.isNotEmpty(odsRelease)) {
 				compiler.setOdsRelease(odsRelease);
 			}
-			String compileBasicLs = System.getenv(NSFODPConstants.PROP_COMPILEBASICLS);
+			String compileBasicLs = env.get(NSFODPConstants.PROP_COMPILEBASICLS);
 			if("true".equals(compileBasicLs)) { //$NON-NLS-1$
 				compiler.setCompileBasicElementLotusScript(true);
 			}
+			compiler.setTranslationParallelism(NSFODPUtil.parseInt(env.get(NSFODPConstants.PROP_TRANSLATIONPARALLELISM), 1));
+			compiler.setImportBatchSize(NSFODPUtil.parseInt(env.get(NSFODPConstants.PROP_IMPORTBATCHSIZE), 1));
+			if(buildManifest != null) {
+				compiler.setIncrementalBuild(outputFile, buildManifest);
+			}
 			
 			if(updateSites != null && !updateSites.isEmpty()) {
 				updateSites.stream()
@@ -116,6 +128,10 @@ public class CompilerApplication implements IApplication {
 				try {
 					Path nsf = compiler.compile();
 					Files.move(nsf, outputFile, StandardCopyOption.REPLACE_EXISTING);
+					if(buildManifest != null) {
+						// Only store the manifest once the NSF it describes is in place
+						compiler.getBuildManifest().save(buildManifest);
+					}
 					mon.done();
 				} catch(RuntimeException e) {
 					throw e;
@@ -123,13 +139,12 @@ public class CompilerApplication implements IApplication {
 					throw new RuntimeException(e);
 				}
 			}).get();
-			System.out.println(getClass().getName() + "#end"); //$NON-NLS-1$
-			
-			exec.shutdownNow();
-			exec.awaitTermination(30, TimeUnit.SECONDS);
+			out.println(getClass().getName() + "#end"); //$NON-NLS-1$
 			
 			return EXIT_OK;
 		} finally {
+			exec.shutdownNow();
+			exec.awaitTermination(30, TimeUnit.SECONDS);
 			NotesThread.stermThread();
 		}
 	}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler.equinox;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IConfigurationElement;
+import org.eclipse.core.runtime.IExtension;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+import org.openntf.nsfodp.commons.NSFODPConstants;
+import org.openntf.nsfodp.commons.NSFODPUtil;
+import org.openntf.nsfodp.commons.odp.notesapi.NotesAPI;
+import org.openntf.nsfodp.commons.osgi.DaemonApplicationContext;
+import org.openntf.nsfodp.commons.osgi.EquinoxDaemon;
+import org.openntf.nsfodp.commons.osgi.JobOutput;
+
+/**
+ * Long-lived application that runs the NSF ODP Equinox applications as jobs submitted over a
+ * loopback socket, avoiding a fresh OSGi and Notes startup for each job.
+ *
+ * <p>Up to {@link NSFODPConstants#PROP_DAEMON_PARALLELISM} jobs run at once, sharing the
+ * process-wide caches such as installed update-site bundles and classpath indexes. The daemon
+ * exits when it receives a shutdown request or when no job has been running or submitted
+ * within the configured idle timeout.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ * @see EquinoxDaemon
+ */
+public class DaemonApplication implements IApplication {
+	private final AtomicInteger pendingJobs = new AtomicInteger();
+	private volatile boolean shuttingDown;
+	private ServerSocket server;
+	private Path infoFile;
+	private String token;
+	/** The daemon's own console, which is kept in its log file */
+	private final PrintStream log = System.err;
+
+	@Override
+	public Object start(IApplicationContext context) throws Exception {
+		Map<String, String> env = System.getenv();
+		infoFile = Paths.get(env.get(NSFODPConstants.PROP_DAEMON_INFOFILE));
+		int idleSeconds = getInt(env, NSFODPConstants.PROP_DAEMON_IDLETIMEOUT, EquinoxDaemon.DEFAULT_IDLE_TIMEOUT);
+		int parallelism = Math.max(1, getInt(env, NSFODPConstants.PROP_DAEMON_PARALLELISM, 1));
+
+		// Notes is initialized once for the process, before any job runs
+		String notesIni = env.get(NSFODPConstants.PROP_NOTESINI);
+		if(notesIni != null && !notesIni.isEmpty()) {
+			String execDir = env.get("Notes_ExecDirectory"); //$NON-NLS-1$
+			try(NotesAPI api = NotesAPI.get()) {
+				api.NotesInitExtended(execDir, "=" + notesIni); //$NON-NLS-1$
+			}
+		}
+
+		byte[] tokenBytes = new byte[32];
+		new SecureRandom().nextBytes(tokenBytes);
+		token = NSFODPUtil.toHex(tokenBytes);
+
+		// Route console output to the client of the job running on the current thread
+		System.setOut(new PrintStream(new JobOutputStream(System.out), true, "UTF-8")); //$NON-NLS-1$
+		System.setErr(new PrintStream(new JobOutputStream(System.err), true, "UTF-8")); //$NON-NLS-1$
+
+		ExecutorService jobs = Executors.newFixedThreadPool(parallelism);
+		// The working directory is the process's own, and the lock tells clients it's in use
+		try(FileChannel lockChannel = FileChannel.open(Paths.get(EquinoxDaemon.LOCK_FILE).toAbsolutePath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			lockChannel.lock();
+			this.server = server;
+			server.setSoTimeout((int)TimeUnit.SECONDS.toMillis(Math.max(1, idleSeconds)));
+			new EquinoxDaemon.Info(server.getLocalPort(), token, env.get(NSFODPConstants.PROP_DAEMON_CONFIGURATIONKEY)).write(infoFile);
+
+			while(!shuttingDown) {
+				Socket socket;
+				try {
+					socket = server.accept();
+				} catch(SocketTimeoutException e) {
+					if(pendingJobs.get() == 0) {
+						// Then we've been idle long enough
+						break;
+					}
+					continue;
+				} catch(SocketException e) {
+					if(shuttingDown) {
+						break;
+					}
+					throw e;
+				}
+				pendingJobs.incrementAndGet();
+				jobs.execute(() -> {
+					try(Socket s = socket) {
+						handle(s);
+					} catch(IOException e) {
+						// The client went away - carry on with the next
+						log.println(MessageFormat.format(Messages.DaemonApplication_clientConnectionFailed, e));
+					} finally {
+						pendingJobs.decrementAndGet();
+					}
+				});
+			}
+
+			stopAccepting();
+			// Let running and already-accepted jobs finish
+			jobs.shutdown();
+			jobs.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} finally {
+			jobs.shutdownNow();
+			exitLater();
+		}
+
+		return EXIT_OK;
+	}
+
+	@Override
+	public void stop() {
+		// NOP
+	}
+
+	/**
+	 * Handles a single client request.
+	 *
+	 * @param socket the client connection
+	 * @throws IOException if there is a problem communicating with the client
+	 */
+	private void handle(Socket socket) throws IOException {
+		EquinoxDaemon.Request request = EquinoxDaemon.Request.read(socket.getInputStream());
+		if(!token.equals(request.getToken())) {
+			return;
+		}
+
+		OutputStream os = socket.getOutputStream();
+		PrintStream out = new PrintStream(os, true, "UTF-8"); //$NON-NLS-1$
+		switch(request.getCommand()) {
+		case EquinoxDaemon.COMMAND_SHUTDOWN:
+			stopAccepting();
+			out.println(EquinoxDaemon.RESULT_PREFIX + EXIT_OK);
+			break;
+		case EquinoxDaemon.COMMAND_RUN:
+			out.println(EquinoxDaemon.RESULT_PREFIX + runJob(request, os, out));
+			break;
+		default:
+			out.println(MessageFormat.format(Messages.DaemonApplication_unknownCommand, request.getCommand()));
+			out.println(EquinoxDaemon.RESULT_PREFIX + 1);
+			break;
+		}
+	}
+
+	/**
+	 * Runs the requested application with its console output redirected to the client.
+	 *
+	 * @param request the job request
+	 * @param os the raw client stream, used for output written to {@link System#out}
+	 * @param out the stream to send job output to
+	 * @return the job's status code
+	 */
+	private int runJob(EquinoxDaemon.Request request, OutputStream os, PrintStream out) {
+		Map<String, String> jobEnv = new HashMap<>(System.getenv());
+		jobEnv.putAll(request.getEnvironment());
+		jobEnv.remove(NSFODPConstants.PROP_NOTESINI);
+
+		JobOutput job = new JobOutput(os);
+		job.begin();
+		try {
+			IApplication application = createApplication(request.getApplicationId());
+			Object result = application.start(new DaemonApplicationContext(jobEnv, out));
+			return EXIT_OK.equals(result) ? 0 : 1;
+		} catch(Throwable t) {
+			t.printStackTrace(out);
+			return 1;
+		} finally {
+			System.out.flush();
+			System.err.flush();
+			job.end();
+		}
+	}
+
+	/**
+	 * Stops accepting new jobs and withdraws the published connection details, so that
+	 * clients start a new daemon while this one finishes its current jobs.
+	 */
+	private synchronized void stopAccepting() {
+		if(shuttingDown) {
+			return;
+		}
+		shuttingDown = true;
+		try {
+			// Only remove the details if a replacement daemon hasn't already written its own
+			Optional<EquinoxDaemon.Info> info = EquinoxDaemon.Info.read(infoFile);
+			if(info.isPresent() && token.equals(info.get().getToken())) {
+				Files.deleteIfExists(infoFile);
+			}
+			server.close();
+		} catch(IOException e) {
+			// Clients that find stale details fail to connect and start a new daemon
+			log.println(MessageFormat.format(Messages.DaemonApplication_unableToWithdrawInfo, e));
+			e.printStackTrace(log);
+		}
+	}
+
+	private IApplication createApplication(String applicationId) throws Exception {
+		IExtension extension = Platform.getExtensionRegistry().getExtension("org.eclipse.core.runtime.applications", applicationId); //$NON-NLS-1$
+		if(extension == null || EquinoxDaemon.APPLICATION_ID.equals(applicationId)) {
+			throw new IllegalArgumentException(MessageFormat.format(Messages.DaemonApplication_unableToFindApplication, applicationId));
+		}
+		for(IConfigurationElement app : extension.getConfigurationElements()) {
+			for(IConfigurationElement run : app.getChildren("run")) { //$NON-NLS-1$
+				return (IApplication)run.createExecutableExtension("class"); //$NON-NLS-1$
+			}
+		}
+		throw new IllegalArgumentException(MessageFormat.format(Messages.DaemonApplication_unableToFindApplication, applicationId));
+	}
+
+	private static int getInt(Map<String, String> env, String name, int defaultValue) {
+		String value = env.get(name);
+		return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+	}
+
+	/**
+	 * Ensures that the process ends even if a non-daemon thread remains, matching the
+	 * forced termination applied to single-use Equinox processes.
+	 */
+	private static void exitLater() {
+		Thread exit = new Thread(() -> {
+			try {
+				TimeUnit.SECONDS.sleep(30);
+			} catch(InterruptedException e) {
+				// Exit regardless
+			}
+			System.exit(0);
+		});
+		exit.setDaemon(true);
+		exit.start();
+	}
+
+	/**
+	 * Sends bytes written to the process console to the client of the job that the writing
+	 * thread belongs to, as tracked by {@link JobOutput}. Output from other threads, and from
+	 * threads of jobs that have ended, goes to the daemon's own console.
+	 */
+	private static class JobOutputStream extends OutputStream {
+		private final OutputStream fallback;
+
+		JobOutputStream(OutputStream fallback) {
+			this.fallback = fallback;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			getTarget().write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			getTarget().write(b, off, len);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			getTarget().flush();
+		}
+
+		private OutputStream getTarget() {
+			OutputStream target = JobOutput.current();
+			return target == null ? fallback : target;
+		}
+	}
+}
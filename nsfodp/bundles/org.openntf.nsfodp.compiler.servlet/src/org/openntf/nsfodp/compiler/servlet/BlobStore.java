@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler.servlet;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.openntf.nsfodp.commons.NSFODPUtil;
+
+/**
+ * Content-addressed store of update site ZIPs and classpath JARs uploaded by clients,
+ * keyed by the SHA-256 digest of their contents.
+ *
+ * <p>Update sites are additionally kept in expanded form, so that repeated builds
+ * against the same site don't need to re-extract it.</p>
+ *
+ * <p>Entries are pruned when the store is first opened and after each new blob is added.
+ * Pruning removes entries that have gone unused for longer than the configured maximum age,
+ * followed by the least-recently-used entries while the store exceeds its maximum size.
+ * Entries used within the last {@link #MIN_IDLE_MILLIS hour} are always kept, so that
+ * running builds do not lose their update sites or JARs.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class BlobStore {
+	/** The directory used to hold stored blobs */
+	public static final String PROP_ROOT = "org.openntf.nsfodp.compiler.blobStore"; //$NON-NLS-1$
+	/** The number of days after which an unused blob is removed */
+	public static final int MAX_AGE_DAYS = Integer.getInteger("org.openntf.nsfodp.compiler.blobMaxAge", 30); //$NON-NLS-1$
+	/**
+	 * The total size in megabytes above which least-recently-used blobs are removed, including
+	 * expanded update sites, or {@code 0} to disable the limit
+	 */
+	public static final long MAX_SIZE_MB = Long.getLong("org.openntf.nsfodp.compiler.blobMaxSize", 4096); //$NON-NLS-1$
+	/** The time since last use within which an entry is never pruned */
+	public static final long MIN_IDLE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private static final Pattern DIGEST_PATTERN = Pattern.compile("^[0-9a-f]{64}$"); //$NON-NLS-1$
+
+	private static BlobStore instance;
+
+	/**
+	 * @return the server-wide blob store, pruned of stale entries on first access
+	 * @throws IOException if there is a problem creating or pruning the store
+	 */
+	public static synchronized BlobStore get() throws IOException {
+		if(instance == null) {
+			String root = System.getProperty(PROP_ROOT);
+			Path rootPath = root == null || root.isEmpty() ? NSFODPUtil.getTempDirectory().resolve("nsfodp-blobs") : Paths.get(root); //$NON-NLS-1$
+			BlobStore store = new BlobStore(rootPath, TimeUnit.DAYS.toMillis(MAX_AGE_DAYS), MAX_SIZE_MB * 1024 * 1024);
+			store.clearWork();
+			store.prune();
+			instance = store;
+		}
+		return instance;
+	}
+
+	/**
+	 * @param digest the value to check
+	 * @return {@code true} if {@code digest} is a lowercase hexadecimal SHA-256 digest
+	 */
+	public static boolean isDigest(String digest) {
+		return digest != null && DIGEST_PATTERN.matcher(digest).matches();
+	}
+
+	private final Path blobs;
+	private final Path sites;
+	private final Path work;
+	private final long maxAgeMillis;
+	private final long maxSizeBytes;
+	private final Map<String, Object> locks = new ConcurrentHashMap<>();
+	private final Object pruneLock = new Object();
+
+	/**
+	 * @param root the directory to hold stored blobs
+	 * @param maxAgeMillis the time after which an unused entry is removed
+	 * @param maxSizeBytes the total size above which least-recently-used entries are removed,
+	 *        or {@code 0} to disable the limit
+	 * @throws IOException if there is a problem creating the store directories
+	 */
+	public BlobStore(Path root, long maxAgeMillis, long maxSizeBytes) throws IOException {
+		this.maxAgeMillis = maxAgeMillis;
+		this.maxSizeBytes = maxSizeBytes;
+		this.blobs = Files.createDirectories(root.resolve("blobs")); //$NON-NLS-1$
+		this.sites = Files.createDirectories(root.resolve("sites")); //$NON-NLS-1$
+		this.work = Files.createDirectories(root.resolve("work")); //$NON-NLS-1$
+	}
+
+	/**
+	 * @param digest the SHA-256 digest of the blob to check
+	 * @return {@code true} if the store contains the blob
+	 */
+	public boolean contains(String digest) {
+		return isDigest(digest) && Files.isRegularFile(blobs.resolve(digest));
+	}
+
+	/**
+	 * Retrieves the stored blob for the provided digest, marking it as recently used.
+	 *
+	 * @param digest the SHA-256 digest of the blob
+	 * @return an {@link Optional} describing the stored file, or an empty one if the blob
+	 *         is not present
+	 * @throws IOException if there is a problem accessing the store
+	 */
+	public Optional<Path> get(String digest) throws IOException {
+		if(!contains(digest)) {
+			return Optional.empty();
+		}
+		Path blob = blobs.resolve(digest);
+		synchronized(lock(digest)) {
+			// Check again, in case the blob was pruned in the meantime
+			if(!Files.isRegularFile(blob)) {
+				return Optional.empty();
+			}
+			touch(blob);
+		}
+		return Optional.of(blob);
+	}
+
+	/**
+	 * Adds the provided data to the store, verifying that it matches the expected digest.
+	 *
+	 * @param digest the expected SHA-256 digest of the data
+	 * @param data the data to store
+	 * @return the stored file
+	 * @throws IOException if the data does not match {@code digest} or there is a problem
+	 *         writing to the store
+	 */
+	public Path put(String digest, InputStream data) throws IOException {
+		if(!isDigest(digest)) {
+			throw new IllegalArgumentException(MessageFormat.format(Messages.BlobStore_invalidDigest, digest));
+		}
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		Path temp = Files.createTempFile(work, digest, ".bin"); //$NON-NLS-1$
+		try {
+			try(InputStream is = new DigestInputStream(data, md)) {
+				Files.copy(is, temp, StandardCopyOption.REPLACE_EXISTING);
+			}
+			String actual = NSFODPUtil.toHex(md.digest());
+			if(!digest.equals(actual)) {
+				throw new IOException(MessageFormat.format(Messages.BlobStore_digestMismatch, digest, actual));
+			}
+
+			Path blob = blobs.resolve(digest);
+			boolean added = false;
+			synchronized(lock(digest)) {
+				if(!Files.isRegularFile(blob)) {
+					Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+					added = true;
+				}
+				touch(blob);
+			}
+			if(added) {
+				prune();
+			}
+			return blob;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Retrieves the expanded contents of the stored update site ZIP for the provided digest,
+	 * expanding it first if needed.
+	 *
+	 * @param digest the SHA-256 digest of the update site ZIP
+	 * @return an {@link Optional} describing the expanded site directory, or an empty one if
+	 *         the blob is not present
+	 * @throws IOException if there is a problem expanding the site
+	 */
+	public Optional<Path> getExpandedSite(String digest) throws IOException {
+		Optional<Path> blob = get(digest);
+		if(!blob.isPresent()) {
+			return Optional.empty();
+		}
+		Path site = sites.resolve(digest);
+		synchronized(lock(digest)) {
+			if(!Files.isRegularFile(blob.get())) {
+				return Optional.empty();
+			}
+			if(!Files.isDirectory(site)) {
+				Path expanded = NSFODPUtil.expandZip(blob.get());
+				try {
+					NSFODPUtil.moveDirectory(expanded, site);
+				} catch(IOException e) {
+					NSFODPUtil.deltree(site);
+					throw e;
+				} finally {
+					NSFODPUtil.deltree(expanded);
+				}
+			}
+			touch(site);
+		}
+		return Optional.of(site);
+	}
+
+	private Object lock(String digest) {
+		return locks.computeIfAbsent(digest, key -> new Object());
+	}
+
+	private void touch(Path path) throws IOException {
+		Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Removes entries that have gone unused for longer than the maximum age and then, while
+	 * the store exceeds its maximum size, the least-recently-used remaining entries. Entries
+	 * used within {@link #MIN_IDLE_MILLIS} are kept regardless.
+	 *
+	 * @throws IOException if there is a problem reading or deleting entries
+	 */
+	public void prune() throws IOException {
+		synchronized(pruneLock) {
+			long now = System.currentTimeMillis();
+			long ageCutoff = now - maxAgeMillis;
+			long idleCutoff = now - MIN_IDLE_MILLIS;
+
+			// Group each blob with its expanded site, oldest first
+			Map<String, Long> lastUsed = new HashMap<>();
+			Map<String, Long> sizes = new HashMap<>();
+			long totalSize = 0;
+			for(Path dir : new Path[] { blobs, sites }) {
+				try(Stream<Path> entries = Files.list(dir)) {
+					for(Path entry : (Iterable<Path>)entries::iterator) {
+						String digest = entry.getFileName().toString();
+						long size = size(entry);
+						lastUsed.merge(digest, Files.getLastModifiedTime(entry).toMillis(), Math::max);
+						sizes.merge(digest, size, Long::sum);
+						totalSize += size;
+					}
+				}
+			}
+			List<String> digests = new ArrayList<>(lastUsed.keySet());
+			digests.sort(Comparator.comparing(lastUsed::get));
+
+			for(String digest : digests) {
+				long used = lastUsed.get(digest);
+				boolean expired = used < ageCutoff;
+				boolean oversized = maxSizeBytes > 0 && totalSize > maxSizeBytes;
+				if(used >= idleCutoff || !(expired || oversized)) {
+					continue;
+				}
+				synchronized(lock(digest)) {
+					Path blob = blobs.resolve(digest);
+					Path site = sites.resolve(digest);
+					// Skip entries used since the listing above
+					if(isUsedSince(blob, idleCutoff) || isUsedSince(site, idleCutoff)) {
+						continue;
+					}
+					NSFODPUtil.deltree(site);
+					NSFODPUtil.deltree(blob);
+				}
+				totalSize -= sizes.get(digest);
+			}
+		}
+	}
+
+	/**
+	 * Deletes anything left in the work directory, which is from an interrupted upload.
+	 */
+	private void clearWork() throws IOException {
+		try(Stream<Path> entries = Files.list(work)) {
+			for(Path entry : (Iterable<Path>)entries::iterator) {
+				NSFODPUtil.deltree(entry);
+			}
+		}
+	}
+
+	private static boolean isUsedSince(Path path, long cutoff) throws IOException {
+		return Files.exists(path) && Files.getLastModifiedTime(path).toMillis() >= cutoff;
+	}
+
+	private static long size(Path path) throws IOException {
+		if(!Files.isDirectory(path)) {
+			return Files.size(path);
+		}
+		try(Stream<Path> files = Files.walk(path)) {
+			return files.filter(Files::isRegularFile)
+				.mapToLong(file -> file.toFile().length())
+				.sum();
+		}
+	}
+}
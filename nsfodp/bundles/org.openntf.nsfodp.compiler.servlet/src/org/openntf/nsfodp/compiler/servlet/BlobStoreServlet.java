@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler.servlet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reports which of a list of SHA-256 digests are missing from the server's {@link BlobStore},
+ * so that clients can omit already-stored update sites and JARs from compiler packages.
+ *
+ * <p>The request body is a list of digests, one per line, and the response body lists the
+ * digests the client must include in its package, in the same format.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class BlobStoreServlet extends HttpServlet {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+		Principal user = req.getUserPrincipal();
+		if(!ODPCompilerServlet.ALLOW_ANONYMOUS && "Anonymous".equalsIgnoreCase(user.getName())) { //$NON-NLS-1$
+			resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+			resp.setContentType("text/plain"); //$NON-NLS-1$
+			resp.getOutputStream().println(Messages.ODPCompilerServlet_anonymousDisallowed);
+			return;
+		}
+
+		List<String> missing = new ArrayList<>();
+		BlobStore store = BlobStore.get();
+		try(BufferedReader r = new BufferedReader(new InputStreamReader(req.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while((line = r.readLine()) != null) {
+				String digest = line.trim();
+				if(digest.isEmpty()) {
+					continue;
+				}
+				if(!BlobStore.isDigest(digest)) {
+					resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+					resp.setContentType("text/plain"); //$NON-NLS-1$
+					resp.getOutputStream().println(MessageFormat.format(Messages.BlobStore_invalidDigest, digest));
+					return;
+				}
+				// Retrieving a blob marks it as used, so that pruning keeps it until the package arrives
+				if(!store.get(digest).isPresent()) {
+					missing.add(digest);
+				}
+			}
+		}
+
+		resp.setStatus(HttpServletResponse.SC_OK);
+		resp.setContentType("text/plain"); //$NON-NLS-1$
+		resp.setCharacterEncoding("UTF-8"); //$NON-NLS-1$
+		PrintWriter w = resp.getWriter();
+		for(String digest : missing) {
+			w.println(digest);
+		}
+		w.flush();
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler.servlet;
+
+import java.text.MessageFormat;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import lotus.domino.NotesThread;
+
+/**
+ * Runs compilation tasks on a bounded pool of Notes threads, limiting the number
+ * of requests that may wait for a free thread.
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+class CompilationQueue {
+	/** The number of compilations to run at once */
+	public static final int POOL_SIZE = Integer.getInteger("org.openntf.nsfodp.compiler.poolSize", 2); //$NON-NLS-1$
+	/** The number of requests that may wait for a compilation thread before being refused */
+	public static final int QUEUE_LIMIT = Integer.getInteger("org.openntf.nsfodp.compiler.queueLimit", 8); //$NON-NLS-1$
+	/** The number of seconds refused clients are told to wait before retrying */
+	public static final int RETRY_AFTER = Integer.getInteger("org.openntf.nsfodp.compiler.retryAfter", 30); //$NON-NLS-1$
+
+	private final ExecutorService exec;
+	private final Semaphore admission;
+	private final List<Object> waiting = new LinkedList<>();
+
+	public CompilationQueue() {
+		int poolSize = Math.max(1, POOL_SIZE);
+		this.exec = Executors.newFixedThreadPool(poolSize, NotesThread::new);
+		this.admission = new Semaphore(poolSize + Math.max(0, QUEUE_LIMIT));
+	}
+
+	/**
+	 * Attempts to reserve a place for a request, either running or waiting.
+	 *
+	 * @return {@code true} if the request was admitted and must later call {@link #exit()};
+	 *         {@code false} if the queue is full
+	 */
+	public boolean tryEnter() {
+		return admission.tryAcquire();
+	}
+
+	/**
+	 * Releases a place reserved by a successful call to {@link #tryEnter()}.
+	 */
+	public void exit() {
+		admission.release();
+	}
+
+	/**
+	 * Runs the provided task on a Notes thread, blocking until it completes and reporting
+	 * the task's position to {@code mon} while it waits for a free thread.
+	 *
+	 * @param <T> the type of value returned by the task
+	 * @param task the task to run
+	 * @param mon the monitor to report queue position to
+	 * @return the value returned by {@code task}
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 * @throws ExecutionException if {@code task} throws an exception
+	 */
+	public <T> T run(Callable<T> task, IProgressMonitor mon) throws InterruptedException, ExecutionException {
+		Object ticket = new Object();
+		synchronized(waiting) {
+			waiting.add(ticket);
+		}
+		Future<T> future = exec.submit(() -> {
+			synchronized(waiting) {
+				waiting.remove(ticket);
+			}
+			return task.call();
+		});
+
+		int lastPosition = 0;
+		try {
+			while(true) {
+				try {
+					return future.get(1, TimeUnit.SECONDS);
+				} catch(TimeoutException e) {
+					// Report position while holding the lock, so that it can't interleave with the task's own output
+					synchronized(waiting) {
+						int position = waiting.indexOf(ticket) + 1;
+						if(position > 0 && position != lastPosition) {
+							mon.subTask(MessageFormat.format(Messages.ODPCompilerServlet_queuePosition, position));
+							lastPosition = position;
+						}
+					}
+				}
+			}
+		} catch(InterruptedException e) {
+			future.cancel(true);
+			synchronized(waiting) {
+				waiting.remove(ticket);
+			}
+			throw e;
+		}
+	}
+
+	public void shutdown() throws InterruptedException {
+		exec.shutdownNow();
+		exec.awaitTermination(5, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * Runs the provided task on a Notes thread outside of any queue accounting.
+	 *
+	 * @param task the task to run
+	 * @return a {@link Future} representing the result of the task
+	 */
+	public Future<?> submit(Runnable task) {
+		return exec.submit(task);
+	}
+}
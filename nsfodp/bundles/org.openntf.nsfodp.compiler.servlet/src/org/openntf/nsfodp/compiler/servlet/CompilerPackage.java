@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler.servlet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.openntf.nsfodp.commons.NSFODPConstants;
+import org.openntf.nsfodp.commons.NSFODPUtil;
+
+/**
+ * Represents the contents of a compiler package sent by a client: the ODP itself, along
+ * with any update sites and classpath JARs.
+ *
+ * <p>Update sites and JARs listed in the package's {@link NSFODPConstants#PACKAGE_BLOB_MANIFEST
+ * blob manifest} are added to the {@link BlobStore} when included in the package and read from
+ * it when omitted. Unlisted entries are extracted to temporary files.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+class CompilerPackage {
+	private static final Pattern SITE_ZIP_PATTERN = Pattern.compile("^site\\d*\\.zip$"); //$NON-NLS-1$
+	private static final String CLASSPATH_PREFIX = "classpath/"; //$NON-NLS-1$
+
+	/**
+	 * Reads the provided package file.
+	 *
+	 * @param packageFile the package ZIP sent by the client
+	 * @param cleanup a collection to add temporary files to, for deletion after compilation
+	 * @return the contents of the package
+	 * @throws IOException if there is a problem reading the package or a referenced blob is
+	 *         not available
+	 */
+	public static CompilerPackage read(Path packageFile, Collection<Path> cleanup) throws IOException {
+		List<Path> siteZips = new ArrayList<>();
+		List<Path> updateSites = new ArrayList<>();
+		List<Path> classPathJars = new ArrayList<>();
+		Path odpZip;
+		try(ZipFile packageZip = new ZipFile(packageFile.toFile(), StandardCharsets.UTF_8)) {
+			ZipEntry odpEntry = packageZip.getEntry("odp.zip"); //$NON-NLS-1$
+			if(odpEntry == null) {
+				// Then the package is itself the ODP
+				return new CompilerPackage(packageFile, Collections.emptyList(), Collections.emptyList());
+			}
+
+			// Then extract the ODP
+			odpZip = Files.createTempFile(NSFODPUtil.getTempDirectory(), "odp", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+			cleanup.add(odpZip);
+			try(InputStream odpIs = packageZip.getInputStream(odpEntry)) {
+				Files.copy(odpIs, odpZip, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			Map<String, String> blobManifest = readBlobManifest(packageZip);
+
+			// Look for any embedded update sites and classpath entries not handled by the blob store
+			for(ZipEntry entry : Collections.list(packageZip.entries())) {
+				String name = entry.getName();
+				if(blobManifest.containsKey(name)) {
+					continue;
+				}
+				if(SITE_ZIP_PATTERN.matcher(name).matches()) {
+					// Then add it as an update site
+					Path siteZip = Files.createTempFile(NSFODPUtil.getTempDirectory(), "site", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+					cleanup.add(siteZip);
+					try(InputStream siteIs = packageZip.getInputStream(entry)) {
+						Files.copy(siteIs, siteZip, StandardCopyOption.REPLACE_EXISTING);
+					}
+					siteZips.add(siteZip);
+				} else if(name.startsWith(CLASSPATH_PREFIX)) {
+					// Then add it as an individual JAR
+					Path cpJar = Files.createTempFile(NSFODPUtil.getTempDirectory(), "classpathJar", ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
+					cleanup.add(cpJar);
+					try(InputStream jarIs = packageZip.getInputStream(entry)) {
+						Files.copy(jarIs, cpJar, StandardCopyOption.REPLACE_EXISTING);
+					}
+					classPathJars.add(cpJar);
+				}
+			}
+			for(Path siteZip : siteZips) {
+				Path siteFile = NSFODPUtil.expandZip(siteZip);
+				cleanup.add(siteFile);
+				updateSites.add(siteFile);
+			}
+
+			// Store any newly-sent blobs and resolve the rest from the store
+			if(!blobManifest.isEmpty()) {
+				BlobStore store = BlobStore.get();
+				for(Map.Entry<String, String> blob : blobManifest.entrySet()) {
+					String name = blob.getKey();
+					String digest = blob.getValue();
+					ZipEntry entry = packageZip.getEntry(name);
+					if(entry != null) {
+						try(InputStream is = packageZip.getInputStream(entry)) {
+							store.put(digest, is);
+						}
+					}
+
+					if(SITE_ZIP_PATTERN.matcher(name).matches()) {
+						updateSites.add(store.getExpandedSite(digest)
+							.orElseThrow(() -> missingBlob(name, digest)));
+					} else if(name.startsWith(CLASSPATH_PREFIX)) {
+						classPathJars.add(store.get(digest)
+							.orElseThrow(() -> missingBlob(name, digest)));
+					}
+				}
+			}
+		}
+
+		return new CompilerPackage(odpZip, updateSites, classPathJars);
+	}
+
+	private static Map<String, String> readBlobManifest(ZipFile packageZip) throws IOException {
+		ZipEntry manifestEntry = packageZip.getEntry(NSFODPConstants.PACKAGE_BLOB_MANIFEST);
+		if(manifestEntry == null) {
+			return Collections.emptyMap();
+		}
+		Map<String, String> result = new LinkedHashMap<>();
+		try(BufferedReader r = new BufferedReader(new InputStreamReader(packageZip.getInputStream(manifestEntry), StandardCharsets.UTF_8))) {
+			String line;
+			while((line = r.readLine()) != null) {
+				if(line.trim().isEmpty()) {
+					continue;
+				}
+				// Lines are in the format "<digest>  <name>", matching sha256sum output
+				int space = line.indexOf("  "); //$NON-NLS-1$
+				String digest = space < 0 ? line : line.substring(0, space);
+				if(space < 0 || !BlobStore.isDigest(digest)) {
+					throw new IOException(MessageFormat.format(Messages.BlobStore_invalidManifestLine, line));
+				}
+				result.put(line.substring(space+2), digest);
+			}
+		}
+		return result;
+	}
+
+	private static IOException missingBlob(String name, String digest) {
+		return new IOException(MessageFormat.format(Messages.BlobStore_missingBlob, name, digest));
+	}
+
+	private final Path odpZip;
+	private final List<Path> updateSites;
+	private final List<Path> classPathJars;
+
+	private CompilerPackage(Path odpZip, List<Path> updateSites, List<Path> classPathJars) {
+		this.odpZip = odpZip;
+		this.updateSites = updateSites;
+		this.classPathJars = classPathJars;
+	}
+
+	/**
+	 * @return the ZIP file containing the ODP to compile
+	 */
+	public Path getOdpZip() {
+		return odpZip;
+	}
+
+	/**
+	 * @return directories containing the expanded contents of the package's update sites
+	 */
+	public List<Path> getUpdateSites() {
+		return updateSites;
+	}
+
+	/**
+	 * @return JAR files to add to the compilation classpath
+	 */
+	public List<Path> getClassPathJars() {
+		return classPathJars;
+	}
+}
@@ -19,8 +19,14 @@ import org.eclipse.osgi.util.NLS;
 
 public class Messages extends NLS {
 	private static final String BUNDLE_NAME = "org.openntf.nsfodp.compiler.servlet.messages"; //$NON-NLS-1$
+	public static String BlobStore_digestMismatch;
+	public static String BlobStore_invalidDigest;
+	public static String BlobStore_invalidManifestLine;
+	public static String BlobStore_missingBlob;
 	public static String ODPCompilerServlet_anonymousDisallowed;
 	public static String ODPCompilerServlet_contentMustBeZip;
+	public static String ODPCompilerServlet_queuePosition;
+	public static String ODPCompilerServlet_serverBusy;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
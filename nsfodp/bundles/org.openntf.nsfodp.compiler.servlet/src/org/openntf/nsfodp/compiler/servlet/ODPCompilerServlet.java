@@ -20,23 +20,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.security.Principal;
-import java.util.ArrayList;
+import java.text.MessageFormat;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -46,9 +37,11 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.openntf.nsfodp.commons.AsyncLineDelimitedJsonProgressMonitor;
 import org.openntf.nsfodp.commons.LineDelimitedJsonProgressMonitor;
 import org.openntf.nsfodp.commons.NSFODPConstants;
 import org.openntf.nsfodp.commons.NSFODPUtil;
+import org.openntf.nsfodp.commons.io.ZipArchive;
 import org.openntf.nsfodp.commons.odp.OnDiskProject;
 import org.openntf.nsfodp.commons.odp.notesapi.NotesAPI;
 import org.openntf.nsfodp.compiler.ODPCompiler;
@@ -58,31 +51,26 @@ import org.openntf.nsfodp.compiler.update.UpdateSite;
 
 import com.ibm.commons.util.StringUtil;
 
-import lotus.domino.NotesThread;
-
 public class ODPCompilerServlet extends HttpServlet {
 	private static final long serialVersionUID = 1L;
 	
-	private static final Pattern SITE_ZIP_PATTERN = Pattern.compile("^site\\d*\\.zip$"); //$NON-NLS-1$
-	
 	public static boolean ALLOW_ANONYMOUS = "true".equals(System.getProperty("org.openntf.nsfodp.allowAnonymous")); //$NON-NLS-1$ //$NON-NLS-2$
 	
-	private ExecutorService exec;
+	private CompilationQueue queue;
 	
 	@Override
 	public void init(ServletConfig config) throws ServletException {
 		super.init(config);
 		
-		this.exec = Executors.newSingleThreadExecutor(NotesThread::new);
+		this.queue = new CompilationQueue();
 	}
 	
 	@Override
 	public void destroy() {
 		super.destroy();
 		
-		this.exec.shutdownNow();
 		try {
-			this.exec.awaitTermination(5, TimeUnit.MINUTES);
+			this.queue.shutdown();
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
@@ -97,6 +85,8 @@ public class ODPCompilerServlet extends HttpServlet {
 		ServletOutputStream os = resp.getOutputStream();
 		
 		Set<Path> cleanup = new HashSet<>();
+		AsyncLineDelimitedJsonProgressMonitor monitor = null;
+		boolean entered = false;
 		try {
 			if(!ALLOW_ANONYMOUS && "Anonymous".equalsIgnoreCase(user.getName())) { //$NON-NLS-1$
 				resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -113,65 +103,35 @@ public class ODPCompilerServlet extends HttpServlet {
 				throw new IllegalArgumentException(Messages.ODPCompilerServlet_contentMustBeZip);
 			}
 			
+			if(!this.queue.tryEnter()) {
+				resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+				resp.setHeader("Retry-After", Integer.toString(CompilationQueue.RETRY_AFTER)); //$NON-NLS-1$
+				resp.setContentType("text/plain"); //$NON-NLS-1$
+				os.println(MessageFormat.format(Messages.ODPCompilerServlet_serverBusy, CompilationQueue.RETRY_AFTER));
+				return;
+			}
+			entered = true;
+			
 			Path packageFile = Files.createTempFile(NSFODPUtil.getTempDirectory(), "package", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
 			cleanup.add(packageFile);
 			try(InputStream reqInputStream = req.getInputStream()) {
 				Files.copy(reqInputStream, packageFile, StandardCopyOption.REPLACE_EXISTING);
 			}
 			
-			// Look for an ODP item
-			Path odpZip = null;
-			List<Path> siteZips = new ArrayList<>();
-			List<Path> classPathJars = new ArrayList<>();
-			try(ZipFile packageZip = new ZipFile(packageFile.toFile(), StandardCharsets.UTF_8)) {
-				ZipEntry odpEntry = packageZip.getEntry("odp.zip"); //$NON-NLS-1$
-				if(odpEntry == null) {
-					// Then the package is itself the ODP
-					odpZip = packageFile;
-				} else {
-					// Then extract the ODP
-					odpZip = Files.createTempFile(NSFODPUtil.getTempDirectory(), "odp", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
-					cleanup.add(odpZip);
-					try(InputStream odpIs = packageZip.getInputStream(odpEntry)) {
-						Files.copy(odpIs, odpZip, StandardCopyOption.REPLACE_EXISTING);
-					}
-					
-					// Look for any embedded update sites and classpath entries
-					packageZip.stream()
-						.forEach(entry -> {
-							try {
-								if(SITE_ZIP_PATTERN.matcher(entry.getName()).matches()) {
-									// Then add it as an update site
-									Path siteZip = Files.createTempFile(NSFODPUtil.getTempDirectory(), "site", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
-									cleanup.add(siteZip);
-									try(InputStream siteIs = packageZip.getInputStream(entry)) {
-										Files.copy(siteIs, siteZip, StandardCopyOption.REPLACE_EXISTING);
-									}
-									siteZips.add(siteZip);
-								} else if(entry.getName().startsWith("classpath/")) { //$NON-NLS-1$
-									// Then add it as an individual JAR
-									Path cpJar = Files.createTempFile(NSFODPUtil.getTempDirectory(), "classpathJar", ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
-									cleanup.add(cpJar);
-									try(InputStream jarIs = packageZip.getInputStream(entry)) {
-										Files.copy(jarIs, cpJar, StandardCopyOption.REPLACE_EXISTING);
-									}
-									classPathJars.add(cpJar);
-								}
-							} catch(IOException e) {
-								throw new RuntimeException(e);
-							}
-						});
-				}
-			}
+			CompilerPackage compilerPackage = CompilerPackage.read(packageFile, cleanup);
+			Path odpZip = compilerPackage.getOdpZip();
 			
-			IProgressMonitor mon = new LineDelimitedJsonProgressMonitor(os);
+			monitor = new AsyncLineDelimitedJsonProgressMonitor(os);
+			IProgressMonitor mon = monitor;
 
 			Path nsf;
-			try(FileSystem fs = NSFODPUtil.openZipPath(odpZip)) {
-				Path odpFile = fs.getPath("/"); //$NON-NLS-1$
+			try(ZipArchive odpArchive = ZipArchive.open(odpZip)) {
+				Path odpFile = odpArchive.getRoot();
 				
 				OnDiskProject odp = new OnDiskProject(odpFile);
 				ODPCompiler compiler = new ODPCompiler(ODPCompilerActivator.instance.getBundle().getBundleContext(), odp, mon);
+				// Requests with the same update sites share their installed bundles and run concurrently
+				compiler.setPoolBundles(true);
 				
 				// See if the client requested a specific compiler level
 				String compilerLevel = req.getHeader(NSFODPConstants.HEADER_COMPILER_LEVEL);
@@ -202,26 +162,26 @@ public class ODPCompilerServlet extends HttpServlet {
 				if("true".equals(compileBasicLs)) { //$NON-NLS-1$
 					compiler.setCompileBasicElementLotusScript(true);
 				}
+				// Malformed values fall back to the defaults rather than failing the job
+				compiler.setTranslationParallelism(NSFODPUtil.parseInt(req.getHeader(NSFODPConstants.HEADER_TRANSLATION_PARALLELISM), 1));
+				compiler.setImportBatchSize(NSFODPUtil.parseInt(req.getHeader(NSFODPConstants.HEADER_IMPORT_BATCH_SIZE), 1));
 				
-				if(siteZips != null && !siteZips.isEmpty()) {
-					for(Path siteZip : siteZips) {
-						Path siteFile = NSFODPUtil.expandZip(siteZip);
-						cleanup.add(siteFile);
-						UpdateSite updateSite = new FilesystemUpdateSite(siteFile);
-						compiler.addUpdateSite(updateSite);
-					}
+				for(Path siteFile : compilerPackage.getUpdateSites()) {
+					UpdateSite updateSite = new FilesystemUpdateSite(siteFile);
+					compiler.addUpdateSite(updateSite);
 				}
-				classPathJars.forEach(compiler::addClassPathEntry);
+				compilerPackage.getClassPathJars().forEach(compiler::addClassPathEntry);
 				
-				nsf = this.exec.submit(() -> {
+				nsf = this.queue.run(() -> {
 					Path result = compiler.compile();
 					mon.done();
 					return result;
-				}).get();
+				}, mon);
 			}
 			
-			// Now stream the NSF
+			// Now stream the NSF, once all progress is sent
 			cleanup.add(nsf);
+			monitor.flush();
 			try(OutputStream gzos = new GZIPOutputStream(os)) {
 				Files.copy(nsf, gzos);
 			}
@@ -233,6 +193,9 @@ public class ODPCompilerServlet extends HttpServlet {
 			}
 			
 		} catch(Throwable e) {
+			if(monitor != null) {
+				monitor.close();
+			}
 			ByteArrayOutputStream baos = new ByteArrayOutputStream();
 			PrintWriter out = new PrintWriter(baos);
 			e.printStackTrace(out);
@@ -243,6 +206,12 @@ public class ODPCompilerServlet extends HttpServlet {
 				)
 			);
 		} finally {
+			if(monitor != null) {
+				monitor.close();
+			}
+			if(entered) {
+				this.queue.exit();
+			}
 			NSFODPUtil.deltree(cleanup);
 		}
 	}
@@ -226,7 +226,7 @@ public class JavaSourceClassLoader extends ClassLoader implements AutoCloseable
 				String packageName=dotPos<0 ? "" : qualifiedClassName.substring(0, dotPos);
 				String className=dotPos<0 ? qualifiedClassName : qualifiedClassName.substring(dotPos+1);
 				String javaName=className+JAVA_EXTENSION;
-				JavaFileObjectJavaSource source=new JavaFileObjectJavaSource(javaName, javaSource);
+				JavaFileObjectJavaSource source=new JavaFileObjectJavaSource(javaName, qualifiedClassName, javaSource);
 				sources.add(source);
 				// Store the source file in the FileManager via package/class name.
 				// For source files, we add a .java extension
@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.com.ibm.xsp.extlib.javacompiler.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openntf.com.ibm.xsp.extlib.bazaar.BazaarUtil;
+import org.openntf.com.ibm.xsp.extlib.javacompiler.JavaSourceClassLoader;
+import org.openntf.nsfodp.commons.NSFODPUtil;
+
+import com.ibm.commons.util.StringUtil;
+
+/**
+ * Index of the classes available in a resolved compilation classpath, grouped by
+ * package name.
+ *
+ * <p>Instances are shared between {@link SourceFileManager}s using the same classpath
+ * via {@link #acquire(Collection)} and are disposed when the last user calls
+ * {@link #close()}.</p>
+ *
+ * <p>The class listings of JAR files, as well as JARs extracted from within bundle JARs,
+ * are also cached on disk, keyed by the JAR's path, size, and modification time. By
+ * default, this cache is stored in {@link NSFODPUtil#getTempDirectory()}; this can be
+ * changed with the {@value #PROP_CACHEDIR} system property, which may also be set to
+ * {@code "false"} to disable the on-disk cache.</p>
+ *
+ * <p>Cached files are marked as used by updating their access time whenever they are
+ * read. The first time an index is acquired in a process, cached files not used within
+ * the number of days set by the {@value #PROP_CACHEMAXAGE} system property (14 by
+ * default) are deleted.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class ClassPathIndex implements AutoCloseable {
+	/**
+	 * System property used to specify the directory for the on-disk classpath cache.
+	 */
+	public static final String PROP_CACHEDIR = "org.openntf.nsfodp.compiler.classPathCacheDir"; //$NON-NLS-1$
+	/**
+	 * System property used to specify the number of days after which unused entries are
+	 * removed from the on-disk classpath cache, or {@code 0} to keep them indefinitely.
+	 */
+	public static final String PROP_CACHEMAXAGE = "org.openntf.nsfodp.compiler.classPathCacheMaxAge"; //$NON-NLS-1$
+	
+	// Bump this when the format of cached listings changes
+	private static final String CACHE_VERSION = "1"; //$NON-NLS-1$
+	
+	private static final Map<List<String>, ClassPathIndex> SHARED = new HashMap<>();
+	private static final Path CACHE_DIR;
+	private static final int CACHE_MAX_AGE_DAYS = Integer.getInteger(PROP_CACHEMAXAGE, 14);
+	private static boolean cachePruned;
+	static {
+		String cacheDir = System.getProperty(PROP_CACHEDIR);
+		if("false".equals(cacheDir)) { //$NON-NLS-1$
+			CACHE_DIR = null;
+		} else if(StringUtil.isNotEmpty(cacheDir)) {
+			CACHE_DIR = Paths.get(cacheDir);
+		} else {
+			CACHE_DIR = NSFODPUtil.getTempDirectory().resolve("nsfodp-classpath-cache"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Retrieves a shared index for the provided classpath, creating it if needed.
+	 * Callers must {@link #close()} the returned index when finished.
+	 *
+	 * @param classPath the resolved classpath entries, as "jar:"-prefixed or directory URIs
+	 * @return a shared {@link ClassPathIndex} for the classpath
+	 */
+	public static ClassPathIndex acquire(Collection<String> classPath) {
+		synchronized(SHARED) {
+			if(!cachePruned) {
+				cachePruned = true;
+				pruneCache();
+			}
+			ClassPathIndex index = SHARED.computeIfAbsent(new ArrayList<>(classPath), ClassPathIndex::new);
+			index.refCount++;
+			return index;
+		}
+	}
+
+	private final List<String> classPath;
+	private Map<String, List<JavaFileObjectClass>> packages;
+	private final Map<Path, FileSystem> jarFileSystems = new HashMap<>();
+	private int refCount;
+
+	private ClassPathIndex(List<String> classPath) {
+		this.classPath = classPath;
+	}
+
+	/**
+	 * Determines the on-disk location to use for a JAR nested inside the provided bundle
+	 * JAR. The returned file may not exist yet, in which case callers should extract the
+	 * nested JAR via {@link #storeNestedJar(Path, InputStream)}.
+	 *
+	 * @param bundleJar the JAR file containing the nested JAR
+	 * @param entryName the name of the nested JAR entry
+	 * @return the {@link Path} to use for the extracted JAR, or {@code null} if the
+	 *         on-disk cache is disabled
+	 * @throws IOException if there is a problem reading the bundle JAR's attributes
+	 */
+	public static Path getNestedJarCachePath(Path bundleJar, String entryName) throws IOException {
+		if(CACHE_DIR == null) {
+			return null;
+		}
+		Path result = CACHE_DIR.resolve("jars").resolve(cacheKey(bundleJar, entryName) + ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
+		if(Files.isRegularFile(result)) {
+			markUsed(result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Writes the provided nested JAR data to the given cache location.
+	 *
+	 * @param cachePath the path returned by {@link #getNestedJarCachePath(Path, String)}
+	 * @param is an {@link InputStream} of the nested JAR data
+	 * @throws IOException if there is a problem writing the JAR
+	 */
+	public static void storeNestedJar(Path cachePath, InputStream is) throws IOException {
+		Files.createDirectories(cachePath.getParent());
+		Path tempFile = Files.createTempFile(cachePath.getParent(), cachePath.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+		try {
+			Files.copy(is, tempFile, StandardCopyOption.REPLACE_EXISTING);
+			moveIntoPlace(tempFile, cachePath);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Retrieves the classes directly within the provided package.
+	 *
+	 * @param packageName the package name to look up, or {@code ""} for the default package
+	 * @return a {@link List} of class file objects, never {@code null}
+	 * @throws IOException if there is a problem reading the classpath
+	 */
+	public List<JavaFileObjectClass> getPackage(String packageName) throws IOException {
+		return getPackages().getOrDefault(packageName, Collections.emptyList());
+	}
+
+	@Override
+	public void close() {
+		synchronized(SHARED) {
+			if(--refCount > 0) {
+				return;
+			}
+			SHARED.remove(classPath);
+		}
+		synchronized(this) {
+			if(packages != null) {
+				packages.values().forEach(classes -> classes.forEach(JavaFileObjectClass::close));
+				packages = null;
+			}
+			jarFileSystems.forEach((p, fs) -> {
+				try {
+					fs.close();
+				} catch (IOException e) {
+				}
+			});
+			jarFileSystems.clear();
+		}
+	}
+
+	// *******************************************************************************
+	// * Internal utility methods
+	// *******************************************************************************
+
+	private synchronized Map<String, List<JavaFileObjectClass>> getPackages() throws IOException {
+		if(packages == null) {
+			Map<String, List<JavaFileObjectClass>> result = new HashMap<>();
+			for(String path : classPath) {
+				if(path.startsWith("jar:")) {
+					URI uri = URI.create(path.substring("jar:".length()));
+					listJarFile(result, Paths.get(uri));
+				} else {
+					Path directory = Paths.get(URI.create(path));
+					listDirectory(result, directory);
+				}
+			}
+			packages = result;
+		}
+		return packages;
+	}
+
+	private void listDirectory(Map<String, List<JavaFileObjectClass>> index, Path directory) throws IOException {
+		try(Stream<Path> dirStream = Files.find(directory, Integer.MAX_VALUE,
+			(file, attr) ->
+				attr.isRegularFile() && file.getFileName().toString().endsWith(JavaSourceClassLoader.CLASS_EXTENSION)
+			)) {
+
+			dirStream.forEach(path -> {
+				String relativeName = directory.relativize(path).toString();
+				String binaryName = removeClassExtension(relativeName).replace(directory.getFileSystem().getSeparator(), ".");
+				add(index, new JavaFileObjectClass(path, binaryName));
+			});
+		}
+	}
+
+	private void listJarFile(Map<String, List<JavaFileObjectClass>> index, Path jarFile) throws IOException {
+		Path cacheFile = CACHE_DIR == null ? null : CACHE_DIR.resolve("index").resolve(cacheKey(jarFile) + ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+		if(cacheFile != null && Files.isRegularFile(cacheFile)) {
+			markUsed(cacheFile);
+			// Build the entries from the cached listing, deferring opening the JAR until a class is read
+			for(String entryName : Files.readAllLines(cacheFile, StandardCharsets.UTF_8)) {
+				if(StringUtil.isEmpty(entryName)) {
+					continue;
+				}
+				String binaryName = removeClassExtension(entryName).replace('/', '.');
+				add(index, new JavaFileObjectClass('/' + entryName, binaryName, () -> getJarFileSystem(jarFile).getPath("/" + entryName))); //$NON-NLS-1$
+			}
+			return;
+		}
+		
+		FileSystem fs = getJarFileSystem(jarFile);
+		Path jarRoot = fs.getPath("/"); //$NON-NLS-1$
+		List<String> entryNames = new ArrayList<>();
+		try(Stream<Path> jarStream = Files.walk(jarRoot)) {
+			jarStream
+				.filter(Files::isRegularFile)
+				.filter(p -> p.getFileName().toString().endsWith(JavaSourceClassLoader.CLASS_EXTENSION))
+				.forEach(p -> {
+					String relativeName = jarRoot.relativize(p).toString().replace(fs.getSeparator(), "/"); //$NON-NLS-1$
+					entryNames.add(relativeName);
+					String binaryName = removeClassExtension(relativeName).replace('/', '.');
+					add(index, new JavaFileObjectClass(p, binaryName));
+				});
+		}
+		
+		if(cacheFile != null) {
+			try {
+				Files.createDirectories(cacheFile.getParent());
+				Path tempFile = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp"); //$NON-NLS-1$
+				try {
+					Files.write(tempFile, entryNames, StandardCharsets.UTF_8);
+					moveIntoPlace(tempFile, cacheFile);
+				} finally {
+					Files.deleteIfExists(tempFile);
+				}
+			} catch(IOException e) {
+				// The cache is an optimization only, so don't fail compilation. The JAR is
+				//   walked again next time, which is how it's handled without a cache
+			}
+		}
+	}
+
+	private static void add(Map<String, List<JavaFileObjectClass>> index, JavaFileObjectClass file) {
+		String binaryName = file.binaryName();
+		int dotPos = binaryName.lastIndexOf('.');
+		String packageName = dotPos < 0 ? "" : binaryName.substring(0, dotPos);
+		index.computeIfAbsent(packageName, key -> new ArrayList<>()).add(file);
+	}
+
+	private static String removeClassExtension(String s) {
+		return s.substring(0, s.length()-JavaSourceClassLoader.CLASS_EXTENSION.length());
+	}
+
+	private synchronized FileSystem getJarFileSystem(Path jarFile) {
+		// If we opened it locally, just return that
+		if(jarFileSystems.containsKey(jarFile)) {
+			return jarFileSystems.get(jarFile);
+		}
+		try {
+			// Next, see if it was opened elsewhere and can be reused
+			URI uri = URI.create("jar:" + jarFile.toUri()); //$NON-NLS-1$
+			return FileSystems.getFileSystem(uri);
+		} catch(FileSystemNotFoundException e) {
+			// Failing that, open it anew and stash the ref locally
+			return jarFileSystems.computeIfAbsent(jarFile, BazaarUtil::openZipPath);
+		}
+	}
+
+	/**
+	 * Computes a cache key for the provided file, based on its path, size, and modification
+	 * time, so that replaced or modified files get new entries.
+	 */
+	private static String cacheKey(Path file, String... extra) throws IOException {
+		Path absolute = file.toAbsolutePath();
+		StringBuilder key = new StringBuilder();
+		key.append(CACHE_VERSION).append('\0')
+			.append(absolute).append('\0')
+			.append(Files.size(absolute)).append('\0')
+			.append(Files.getLastModifiedTime(absolute).toMillis());
+		for(String e : extra) {
+			key.append('\0').append(e);
+		}
+		
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+			byte[] hash = digest.digest(key.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder result = new StringBuilder(hash.length * 2);
+			for(byte b : hash) {
+				result.append(String.format("%02x", b)); //$NON-NLS-1$
+			}
+			return result.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Marks the provided cache file as recently used. This sets the access time rather than the
+	 * modification time, as the latter is part of the cache key for nested JARs.
+	 */
+	private static void markUsed(Path cacheFile) {
+		try {
+			Files.getFileAttributeView(cacheFile, BasicFileAttributeView.class)
+				.setTimes(null, FileTime.fromMillis(System.currentTimeMillis()), null);
+		} catch(IOException e) {
+			// The cache is an optimization only, so don't fail compilation
+		}
+	}
+	
+	/**
+	 * Deletes cached files, including abandoned temporary files, that have not been used
+	 * within {@link #CACHE_MAX_AGE_DAYS}.
+	 */
+	private static void pruneCache() {
+		if(CACHE_DIR == null || CACHE_MAX_AGE_DAYS <= 0) {
+			return;
+		}
+		long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(CACHE_MAX_AGE_DAYS);
+		for(String dirName : new String[] { "index", "jars" }) { //$NON-NLS-1$ //$NON-NLS-2$
+			Path dir = CACHE_DIR.resolve(dirName);
+			if(!Files.isDirectory(dir)) {
+				continue;
+			}
+			try(Stream<Path> files = Files.list(dir)) {
+				files.forEach(file -> {
+					try {
+						BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+						long lastUsed = Math.max(attrs.lastModifiedTime().toMillis(), attrs.lastAccessTime().toMillis());
+						if(lastUsed < cutoff) {
+							Files.deleteIfExists(file);
+						}
+					} catch(IOException e) {
+						// Then it may be in use or removed by another process
+					}
+				});
+			} catch(IOException e) {
+				// The cache is an optimization only, so don't fail compilation. Stale entries
+				//   are tried again by the next prune
+			}
+		}
+	}
+	
+	private static void moveIntoPlace(Path tempFile, Path target) throws IOException {
+		// Other processes may be populating the same cache, so prefer an atomic replacement
+		try {
+			Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch(AtomicMoveNotSupportedException e) {
+			Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -23,8 +23,9 @@ import java.io.Reader;
 import java.io.Writer;
 import java.net.URI;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
 
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.NestingKind;
@@ -42,16 +43,35 @@ import com.ibm.commons.util.io.StreamUtil;
 public class JavaFileObjectClass implements JavaFileObject, Closeable {
 
 	private Path path;
+	private final Supplier<Path> pathSupplier;
 	private String binaryName;
 	private String name;
-	private Collection<InputStream> openedStreams = new ArrayList<>();
+	// May be shared between compilers via ClassPathIndex
+	private Collection<InputStream> openedStreams = new ConcurrentLinkedQueue<>();
 
 	public JavaFileObjectClass(Path path, String binaryName) {
 		this.path = path;
+		this.pathSupplier = null;
 		this.binaryName=binaryName;
 		this.name = path.toString();
 	}
 
+	/**
+	 * Constructs a new file object whose backing {@link Path} is only looked up when
+	 * the class is actually read, which avoids opening its containing JAR for classes
+	 * that the compiler never loads.
+	 * 
+	 * @param name the name of the file object, e.g. {@code "/com/example/Foo.class"}
+	 * @param binaryName the binary name of the class
+	 * @param pathSupplier a {@link Supplier} that provides the {@link Path} to the class file
+	 * @since 4.1.0
+	 */
+	public JavaFileObjectClass(String name, String binaryName, Supplier<Path> pathSupplier) {
+		this.pathSupplier = pathSupplier;
+		this.binaryName=binaryName;
+		this.name = name;
+	}
+
 	public String binaryName() {
 		return binaryName;
 	}
@@ -68,12 +88,12 @@ public class JavaFileObjectClass implements JavaFileObject, Closeable {
 
 	@Override
 	public URI toUri() {
-		return path.toUri();
+		return getPath().toUri();
 	}
 
 	@Override
 	public InputStream openInputStream() throws IOException {
-		InputStream is = BazaarUtil.newInputStream(path);
+		InputStream is = BazaarUtil.newInputStream(getPath());
 		this.openedStreams.add(is);
 		return is;
 	}
@@ -84,6 +104,13 @@ public class JavaFileObjectClass implements JavaFileObject, Closeable {
 		this.openedStreams.clear();
 	}
 	
+	private synchronized Path getPath() {
+		if(path == null) {
+			path = pathSupplier.get();
+		}
+		return path;
+	}
+	
 	@Override
 	public boolean isNameCompatible(String simpleName, Kind kind) {
 		String baseName=simpleName+kind.extension;
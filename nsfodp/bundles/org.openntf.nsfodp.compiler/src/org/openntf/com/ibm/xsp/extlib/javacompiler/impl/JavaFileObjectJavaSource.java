@@ -28,9 +28,22 @@ import javax.tools.SimpleJavaFileObject;
 public class JavaFileObjectJavaSource extends SimpleJavaFileObject {
 
 	private CharSequence sourceCode;			// SOURCE
+	private String qualifiedClassName;
 
 	public JavaFileObjectJavaSource(String name, CharSequence sourceCode) {
+		this(name, null, sourceCode);
+	}
+
+	/**
+	 * @param name the relative file name of the source, e.g. "Foo.java"
+	 * @param qualifiedClassName the fully-qualified name of the class, or {@code null}
+	 *        if unknown
+	 * @param sourceCode the Java source of the class
+	 * @since 4.1.0
+	 */
+	public JavaFileObjectJavaSource(String name, String qualifiedClassName, CharSequence sourceCode) {
 		super(createUri(name), Kind.SOURCE);
+		this.qualifiedClassName=qualifiedClassName;
 		this.sourceCode=sourceCode;
 	}
 
@@ -42,6 +55,15 @@ public class JavaFileObjectJavaSource extends SimpleJavaFileObject {
 		}
 	}
 
+	/**
+	 * @return the fully-qualified name of the class represented by this source, or
+	 *         {@code null} if unknown
+	 * @since 4.1.0
+	 */
+	public String getQualifiedClassName() {
+		return qualifiedClassName;
+	}
+
 	@Override
 	public CharSequence getCharContent(boolean ignoreEncodingErrors) throws UnsupportedOperationException {
 		if(sourceCode==null) {
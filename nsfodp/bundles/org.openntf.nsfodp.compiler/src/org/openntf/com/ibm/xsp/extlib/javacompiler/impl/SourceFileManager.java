@@ -19,12 +19,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.net.URI;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystemNotFoundException;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -77,8 +73,7 @@ public class SourceFileManager extends ForwardingJavaFileManager<JavaFileManager
 	private Set<Path> cleanup = new HashSet<>();
 	private Collection<String> nonDelegatingPackages;
 	
-	private List<JavaFileObjectClass> classPathClasses;
-	private Map<Path, FileSystem> jarFileSystems = new HashMap<>();
+	private final ClassPathIndex classPathIndex;
 
 	public SourceFileManager(JavaFileManager fileManager, JavaSourceClassLoader classLoader, String[] classPath, boolean resolve) {
 		super(fileManager);
@@ -88,6 +83,7 @@ public class SourceFileManager extends ForwardingJavaFileManager<JavaFileManager
 		} else {
 			resolvedClassPath = Arrays.asList(classPath);
 		}
+		classPathIndex = ClassPathIndex.acquire(resolvedClassPath);
 	}
 	
 	protected Collection<String> resolveClasspath(final String[] classPath) {
@@ -184,6 +180,13 @@ public class SourceFileManager extends ForwardingJavaFileManager<JavaFileManager
 			            continue;
 					}
 					
+					// If this was extracted on a previous run, re-use that
+					Path cachedJar = ClassPathIndex.getNestedJarCachePath(f, cp);
+					if(cachedJar != null && Files.isRegularFile(cachedJar)) {
+						resolved.add("jar:" + cachedJar.toUri().toString());
+						continue;
+					}
+					
 					// Then extract to a temporary directory
 					// Note: b.getResource(cp) doesn't seem to work with dynamically-installed plugins
 					try(InputStream is = BazaarUtil.newInputStream(f)) {
@@ -191,9 +194,15 @@ public class SourceFileManager extends ForwardingJavaFileManager<JavaFileManager
 							JarEntry jarEntry;
 							while((jarEntry = jis.getNextJarEntry()) != null) {
 								if(cp.equals(jarEntry.getName())) {
-									Path tempJar = Files.createTempFile(cp.replace('/', '-'), ".jar");
-									cleanup.add(tempJar);
-									Files.copy(jis, tempJar, StandardCopyOption.REPLACE_EXISTING);
+									Path tempJar;
+									if(cachedJar != null) {
+										ClassPathIndex.storeNestedJar(cachedJar, jis);
+										tempJar = cachedJar;
+									} else {
+										tempJar = Files.createTempFile(cp.replace('/', '-'), ".jar");
+										cleanup.add(tempJar);
+										Files.copy(jis, tempJar, StandardCopyOption.REPLACE_EXISTING);
+									}
 									String fileUri = tempJar.toUri().toString();
 									String url = "jar:" + fileUri;
 									resolved.add(url);
@@ -407,13 +416,7 @@ public class SourceFileManager extends ForwardingJavaFileManager<JavaFileManager
 			e.printStackTrace();
 		}
 		
-		this.classPathClasses.forEach(JavaFileObjectClass::close);
-		this.jarFileSystems.forEach((p, fs) -> {
-			try {
-				fs.close();
-			} catch (IOException e) {
-			}
-		});
+		this.classPathIndex.close();
 		
 		for(Path path : cleanup) {
 			try {
@@ -443,80 +446,7 @@ public class SourceFileManager extends ForwardingJavaFileManager<JavaFileManager
 		}
 	}
 
-	protected synchronized void listPackage(List<JavaFileObject> list, String packageName) throws IOException {
-		try {
-			if(classPathClasses == null) {
-				classPathClasses = new ArrayList<>();
-				if(resolvedClassPath != null) {
-					for(String path : resolvedClassPath) {
-						if(path.startsWith("jar:")) {
-							URI uri = URI.create(path.substring("jar:".length()));
-							listJarFile(classPathClasses, Paths.get(uri));
-						} else {
-							Path directory = Paths.get(URI.create(path));
-							listDirectory(classPathClasses, directory);
-						}
-					}
-				}
-			}
-			classPathClasses.stream()
-				.filter(o -> o.binaryName().startsWith(packageName) && o.binaryName().indexOf('.', packageName.length()+1) == -1)
-				.forEach(list::add);
-		} catch(IOException e) {
-			throw e;
-		}
-	}
-
-	protected void listDirectory(List<JavaFileObjectClass> list, Path directory) throws IOException {
-		try(Stream<Path> dirStream = Files.find(directory, Integer.MAX_VALUE,
-			(file, attr) -> 
-				attr.isRegularFile() && file.getFileName().toString().endsWith(JavaSourceClassLoader.CLASS_EXTENSION)
-			)) {
-			
-			dirStream.map(path -> {
-				String binaryName = removeClassExtension(path.toString()).replace(directory.getFileSystem().getSeparator(), ".");
-				return new JavaFileObjectClass(path, binaryName);
-			})
-			.forEach(list::add);
-		}	
-	}
-
-	/**
-	 * @param list the result collection to add to
-	 * @param a path pointing to the JAR file to process
-	 * @throws IOException if there is a problem reading from the JAR
-	 */
-	protected void listJarFile(List<JavaFileObjectClass> list, Path jarFile) throws IOException {
-		FileSystem fs = getJarFileSystem(jarFile);
-		Path jarRoot = fs.getPath("/");
-		try(Stream<Path> jarStream = Files.walk(jarRoot)) {
-			jarStream
-				.filter(Files::isRegularFile)
-				.filter(p -> p.getFileName().toString().endsWith(JavaSourceClassLoader.CLASS_EXTENSION))
-				.forEach(p -> {
-					String relativeName = jarRoot.relativize(p).toString();
-					String binaryName = removeClassExtension(relativeName.replace(fs.getSeparator(), "."));
-					list.add(new JavaFileObjectClass(p, binaryName));
-				});
-		}
-	}
-	
-	private static String removeClassExtension(String s) {
-		return s.substring(0, s.length()-JavaSourceClassLoader.CLASS_EXTENSION.length());
-	}
-	
-	private FileSystem getJarFileSystem(Path jarFile) {
-		// If we opened it locally, just return that
-		if(jarFileSystems.containsKey(jarFile)) {
-			return jarFileSystems.get(jarFile);
-		}
-		try {
-			// Next, see if it was opened elsewhere and can be reused
-			URI uri = URI.create("jar:" + jarFile.toUri()); //$NON-NLS-1$
-			return FileSystems.getFileSystem(uri);
-		} catch(FileSystemNotFoundException e) {
-			// Failing that, open it anew and stash the ref locally
-			return jarFileSystems.computeIfAbsent(jarFile, BazaarUtil::openZipPath);
-		}
+	protected void listPackage(List<JavaFileObject> list, String packageName) throws IOException {
+		list.addAll(classPathIndex.getPackage(packageName));
 	}
 }
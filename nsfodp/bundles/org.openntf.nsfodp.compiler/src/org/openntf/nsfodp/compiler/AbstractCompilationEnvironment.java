@@ -18,19 +18,33 @@ package org.openntf.nsfodp.compiler;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Field;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
@@ -51,8 +65,10 @@ import com.ibm.commons.util.StringUtil;
 import com.ibm.xsp.library.LibraryServiceLoader;
 import com.ibm.xsp.library.LibraryWrapper;
 import com.ibm.xsp.library.XspLibrary;
+import com.ibm.xsp.registry.FacesDefinition;
 import com.ibm.xsp.registry.FacesLibraryImpl;
 import com.ibm.xsp.registry.FacesProjectImpl;
+import com.ibm.xsp.registry.FacesSharableRegistry;
 import com.ibm.xsp.registry.SharableRegistryImpl;
 import com.ibm.xsp.registry.UpdatableLibrary;
 import com.ibm.xsp.registry.config.IconUrlSource;
@@ -68,6 +84,16 @@ import com.ibm.xsp.registry.config.XspRegistryProvider;
  */
 public abstract class AbstractCompilationEnvironment {
 
+	/**
+	 * Guards the OSGi framework and XPages library services shared by all environments in
+	 * the runtime. Environments installing bundles from update sites hold the write lock
+	 * while those bundles are present, while all others share the read lock, so that
+	 * concurrent compilations never see another's temporary libraries. Bundles kept in the
+	 * {@link BundlePool} only need the write lock while being installed or evicted, as the
+	 * pool never keeps bundles for other update sites installed.
+	 */
+	private static final ReadWriteLock FRAMEWORK_LOCK = new ReentrantReadWriteLock(true);
+
 	protected final BundleContext bundleContext;
 	protected final Set<UpdateSite> updateSites = new LinkedHashSet<>();
 	protected final Set<Path> classPathEntries = new LinkedHashSet<>();
@@ -76,6 +102,11 @@ public abstract class AbstractCompilationEnvironment {
 	protected final ResourceBundleSource resourceBundleSource;
 	protected final IconUrlSource iconUrlSource = icon -> getClass().getResource(icon);
 	protected final IProgressMonitor mon;
+	private int translationParallelism = 1;
+	private boolean poolBundles = BundlePool.ENABLED;
+	private Lock frameworkLock;
+	private BundlePool.Entry pooledBundles;
+	private List<FacesSharableRegistry> leasedRegistries;
 	
 	public AbstractCompilationEnvironment(BundleContext bundleContext, ResourceBundleSource resourceBundleSource, IProgressMonitor mon) {
 		this.bundleContext = Objects.requireNonNull(bundleContext);
@@ -101,12 +132,153 @@ public abstract class AbstractCompilationEnvironment {
 		}
 	}
 
+	/**
+	 * Sets the number of threads to use when translating XSP source to Java.
+	 * 
+	 * <p>Translation only reads from the Faces registry once all libraries and
+	 * Custom Controls are defined, and so can be safely spread across multiple
+	 * threads. The default is {@code 1}, which translates all elements on the
+	 * calling thread.</p>
+	 * 
+	 * @param translationParallelism the number of translation threads to use, or
+	 *        a value less than {@code 1} to use the number of available processors
+	 * @since 4.1.0
+	 */
+	public void setTranslationParallelism(int translationParallelism) {
+		if(translationParallelism < 1) {
+			this.translationParallelism = Runtime.getRuntime().availableProcessors();
+		} else {
+			this.translationParallelism = translationParallelism;
+		}
+	}
+	
+	/**
+	 * @return the number of threads used when translating XSP source to Java
+	 * @since 4.1.0
+	 */
+	public int getTranslationParallelism() {
+		return translationParallelism;
+	}
+
+	/**
+	 * Sets whether bundles installed from update sites are kept in the {@link BundlePool}
+	 * for later compilations with the same sites.
+	 * 
+	 * <p>Without pooling, a compilation with update sites holds the OSGi framework
+	 * exclusively until it finishes. With pooling, compilations with the same update sites
+	 * run concurrently, and only compilations with different sites wait for each other. The
+	 * default is the value of the {@value BundlePool#PROP_ENABLED} system property.</p>
+	 * 
+	 * @param poolBundles whether to keep installed bundles for later compilations
+	 * @since 4.1.0
+	 */
+	public void setPoolBundles(boolean poolBundles) {
+		this.poolBundles = poolBundles;
+	}
+	
+	/**
+	 * @return whether bundles installed from update sites are kept for later compilations
+	 * @since 4.1.0
+	 */
+	public boolean isPoolBundles() {
+		return poolBundles;
+	}
+
+	/**
+	 * Installs all bundles from the configured update sites.
+	 * 
+	 * <p>This acquires a runtime-wide lock on the OSGi framework, which is held until
+	 * {@link #uninstallBundles(Collection)} is called on the same thread.</p>
+	 * 
+	 * <p>When {@link BundlePool pooling} is enabled, bundles previously installed from the
+	 * same sites are reused and left installed afterwards, and the lock is shared once
+	 * installation is complete. Pooled bundles from other sites are uninstalled first.
+	 * Otherwise, the lock is exclusive when there are update sites to install and shared
+	 * otherwise, and any pooled bundles are uninstalled first so that they are not visible
+	 * to this compilation.</p>
+	 * 
+	 * @return the installed bundles
+	 */
 	protected Collection<Bundle> installBundles() {
+		if(!poolBundles) {
+			Lock lock = FRAMEWORK_LOCK.readLock();
+			lock.lock();
+			try {
+				if(!updateSites.isEmpty() || BundlePool.INSTANCE.hasEntry()) {
+					lock.unlock();
+					lock = FRAMEWORK_LOCK.writeLock();
+					lock.lock();
+					BundlePool.INSTANCE.evict(this::doUninstallBundles);
+					if(updateSites.isEmpty()) {
+						// Downgrade to the shared lock
+						Lock readLock = FRAMEWORK_LOCK.readLock();
+						readLock.lock();
+						lock.unlock();
+						lock = readLock;
+					}
+				}
+				this.frameworkLock = lock;
+				return doInstallBundles(null);
+			} catch(RuntimeException | Error e) {
+				this.frameworkLock = null;
+				lock.unlock();
+				throw e;
+			}
+		}
+		
+		String key = BundlePool.computeKey(updateSites);
+		Lock readLock = FRAMEWORK_LOCK.readLock();
+		readLock.lock();
+		try {
+			BundlePool.Entry entry = BundlePool.INSTANCE.get(key);
+			if(entry == null) {
+				readLock.unlock();
+				Lock writeLock = FRAMEWORK_LOCK.writeLock();
+				writeLock.lock();
+				try {
+					entry = BundlePool.INSTANCE.get(key);
+					if(entry == null) {
+						BundlePool.INSTANCE.evict(this::doUninstallBundles);
+						Path directory = BundlePool.INSTANCE.createDirectory();
+						Collection<Bundle> bundles;
+						try {
+							bundles = doInstallBundles(directory);
+						} catch(RuntimeException | Error e) {
+							BundlePool.INSTANCE.deleteDirectory(directory);
+							throw e;
+						}
+						entry = BundlePool.INSTANCE.put(key, directory, bundles);
+					}
+				} catch(IOException e) {
+					throw new UncheckedIOException(e);
+				} finally {
+					// Downgrade to the shared lock
+					readLock.lock();
+					writeLock.unlock();
+				}
+			} else {
+				subTask(MessageFormat.format(Messages.ODPCompiler_reusingBundles, entry.getBundles().size()));
+			}
+			this.frameworkLock = readLock;
+			this.pooledBundles = entry;
+			return entry.getBundles();
+		} catch(RuntimeException | Error e) {
+			readLock.unlock();
+			throw e;
+		}
+	}
+	
+	/**
+	 * @param poolDirectory the directory to copy bundles to before installing them, or
+	 *        {@code null} to install them from the update sites
+	 */
+	private Collection<Bundle> doInstallBundles(Path poolDirectory) {
 		subTask(Messages.ODPCompiler_installingBundles);
 		
 		Collection<Bundle> result = updateSites.stream()
 			.map(UpdateSite::getBundleURIs)
 			.flatMap(Collection::stream)
+			.map(uri -> poolDirectory == null ? uri : copyBundle(uri, poolDirectory))
 			.map(this::installBundle)
 			.collect(Collectors.toList()).stream() // Force waiting until installation is complete
 			.filter(Objects::nonNull)
@@ -116,7 +288,34 @@ public abstract class AbstractCompilationEnvironment {
 		return result;
 	}
 
+	/**
+	 * Uninstalls the provided bundles and releases the lock acquired by
+	 * {@link #installBundles()}.
+	 * 
+	 * <p>Bundles retrieved from the {@link BundlePool} are left installed for later
+	 * compilations.</p>
+	 * 
+	 * @param bundles the bundles to uninstall
+	 */
 	protected void uninstallBundles(Collection<Bundle> bundles) {
+		try {
+			if(this.pooledBundles == null) {
+				doUninstallBundles(bundles);
+			} else {
+				this.pooledBundles.releaseLibraryRegistries(this.leasedRegistries);
+			}
+		} finally {
+			this.pooledBundles = null;
+			this.leasedRegistries = null;
+			Lock lock = this.frameworkLock;
+			if(lock != null) {
+				this.frameworkLock = null;
+				lock.unlock();
+			}
+		}
+	}
+	
+	private void doUninstallBundles(Collection<Bundle> bundles) {
 		subTask(Messages.ODPCompiler_uninstallingBundles);
 		
 		bundles.stream().forEach(t -> {
@@ -133,6 +332,30 @@ public abstract class AbstractCompilationEnvironment {
 		});
 	}
 
+	/**
+	 * Copies the provided bundle into a directory owned by the {@link BundlePool}, so that
+	 * it remains available after the update site is cleaned up.
+	 * 
+	 * @param uri the platform-accessible URI to the bundle
+	 * @param poolDirectory the pool directory to copy to
+	 * @return the URI of the copy
+	 */
+	private URI copyBundle(URI uri, Path poolDirectory) {
+		Path source = Paths.get(uri);
+		try {
+			// Bundles from different sites may share a file name
+			Path dest = Files.createTempDirectory(poolDirectory, "bundle").resolve(source.getFileName().toString()); //$NON-NLS-1$
+			if(Files.isDirectory(source)) {
+				NSFODPUtil.copyDirectory(source, dest);
+			} else {
+				Files.copy(source, dest);
+			}
+			return dest.toUri();
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	/**
 	 * Installs the provided bundle.
 	 * 
@@ -179,8 +402,21 @@ public abstract class AbstractCompilationEnvironment {
 		subTask(Messages.ODPCompiler_initializingLibraries);
 
 		SharableRegistryImpl facesRegistry = (SharableRegistryImpl)facesProject.getRegistry();
+		BundlePool.Entry pooled = this.pooledBundles;
+		List<FacesSharableRegistry> libraryRegistries;
+		if(pooled == null) {
+			libraryRegistries = loadLibraryRegistries();
+		} else {
+			libraryRegistries = pooled.leaseLibraryRegistries(this::loadLibraryRegistries);
+			this.leasedRegistries = libraryRegistries;
+		}
+		libraryRegistries.forEach(facesRegistry::addDepend);
+		facesRegistry.refreshReferences();
+	}
+	
+	private List<FacesSharableRegistry> loadLibraryRegistries() {
 		List<Object> libraries = ExtensionManager.findServices((List<Object>)null, LibraryServiceLoader.class, "com.ibm.xsp.Library"); //$NON-NLS-1$
-		libraries.stream()
+		return libraries.stream()
 			.filter(lib -> lib instanceof XspLibrary)
 			.map(XspLibrary.class::cast)
 			.sorted(LibraryWeightComparator.INSTANCE)
@@ -190,9 +426,8 @@ public abstract class AbstractCompilationEnvironment {
 				provider.init(wrapper);
 				return provider;
 			})
-			.map(XspRegistryProvider::getRegistry)
-			.forEach(facesRegistry::addDepend);
-		facesRegistry.refreshReferences();
+			.<FacesSharableRegistry>map(XspRegistryProvider::getRegistry)
+			.collect(Collectors.toList());
 	}
 	
 	protected Collection<String> buildDependenciesCollection(Collection<Path> cleanup) throws IOException {
@@ -233,6 +468,87 @@ public abstract class AbstractCompilationEnvironment {
 		return dependencies;
 	}
 
+	/**
+	 * Applies the provided translation function to each element, spreading the work across
+	 * a pool sized by {@link #getTranslationParallelism()}.
+	 * 
+	 * <p>The registry must be fully populated before calling this method, as the translation
+	 * threads treat it as read-only: {@link DynamicXPageBean#translate(String, String, java.io.InputStream, com.ibm.xsp.registry.FacesSharableRegistry)}
+	 * creates a new {@code FacesDeserializer} and {@code Translator} for each element, and
+	 * these only look up tag and property definitions in the registry. Libraries and Custom
+	 * Control definitions are only added during {@link #initRegistry()} and Custom Control
+	 * configuration parsing, both of which complete before translation begins. As the
+	 * registry may still compute some lookups lazily, every definition and its properties
+	 * are looked up on the calling thread before the translation threads start.</p>
+	 * 
+	 * @param <T> the type of element to translate
+	 * @param <R> the type of the translation result
+	 * @param elements the elements to translate
+	 * @param translator the translation function to apply to each element
+	 * @return a {@link Map} of elements to their results, in the same order as {@code elements}
+	 * @since 4.1.0
+	 */
+	protected <T, R> Map<T, R> translateAll(List<T> elements, Function<T, R> translator) {
+		Map<T, R> result = new LinkedHashMap<>();
+		int parallelism = Math.min(this.translationParallelism, elements.size());
+		if(parallelism <= 1) {
+			for(T element : elements) {
+				result.put(element, translator.apply(element));
+			}
+			return result;
+		}
+		
+		prepareRegistryLookups();
+		
+		// Propagate the context ClassLoader, which the XSP translator uses to find component classes
+		ClassLoader cl = Thread.currentThread().getContextClassLoader();
+		ForkJoinWorkerThreadFactory threadFactory = pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setContextClassLoader(cl);
+			return thread;
+		};
+		ForkJoinPool pool = new ForkJoinPool(parallelism, threadFactory, null, false);
+		try {
+			List<Callable<R>> tasks = new ArrayList<>(elements.size());
+			for(T element : elements) {
+				tasks.add(() -> translator.apply(element));
+			}
+			List<Future<R>> futures = pool.invokeAll(tasks);
+			for(int i = 0; i < elements.size(); i++) {
+				result.put(elements.get(i), futures.get(i).get());
+			}
+			return result;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			}
+			throw new RuntimeException(cause);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Performs the registry lookups made during translation, so that anything the registry
+	 * builds lazily for them is built on the calling thread instead of concurrently by the
+	 * translation threads.
+	 */
+	private void prepareRegistryLookups() {
+		FacesSharableRegistry registry = (FacesSharableRegistry)facesProject.getRegistry();
+		for(FacesDefinition def : registry.findDefs()) {
+			if(def.isTag()) {
+				registry.findDef(def.getNamespaceUri(), def.getTagName());
+			}
+			for(String propertyName : def.getPropertyNames()) {
+				def.getProperty(propertyName);
+			}
+		}
+	}
+
 	protected UpdatableLibrary getLibrary(String namespace) {
 		SharableRegistryImpl facesRegistry = (SharableRegistryImpl)facesProject.getRegistry();
 		UpdatableLibrary library = (UpdatableLibrary)facesRegistry.getLocalLibrary(namespace);
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openntf.nsfodp.commons.NSFODPUtil;
+import org.openntf.nsfodp.commons.odp.OnDiskProject;
+import org.openntf.nsfodp.commons.odp.notesapi.NDatabase;
+import org.openntf.nsfodp.commons.odp.notesapi.NDominoException;
+
+/**
+ * Represents the content hashes of all files in an on-disk project at the time of a
+ * compilation, used to determine which elements need to be re-imported in an incremental
+ * build.
+ *
+ * <p>The manifest also records the IDs of the notes imported for each element, so that an
+ * incremental build can delete the previous notes of a changed element before importing
+ * it again.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class BuildManifest {
+	private static final String PROP_FINGERPRINT = "fingerprint"; //$NON-NLS-1$
+	private static final String PREFIX_FILE = "file:"; //$NON-NLS-1$
+	private static final String PREFIX_NOTES = "notes:"; //$NON-NLS-1$
+
+	private final String fingerprint;
+	private final Map<String, String> fileHashes;
+	private final Map<String, Set<Integer>> noteIds = new TreeMap<>();
+
+	private BuildManifest(String fingerprint, Map<String, String> fileHashes) {
+		this.fingerprint = fingerprint;
+		this.fileHashes = fileHashes;
+	}
+
+	/**
+	 * Computes a new manifest for the current state of the provided project.
+	 *
+	 * @param odp the project to read
+	 * @param fingerprint a value representing the compiler settings in use, which must match
+	 *        for a previous build to be re-used
+	 * @return a new {@link BuildManifest}
+	 * @throws IOException if there is a problem reading the project files
+	 */
+	public static BuildManifest forProject(OnDiskProject odp, String fingerprint) throws IOException {
+		Path baseDir = odp.getBaseDirectory();
+		Map<String, String> fileHashes = new TreeMap<>();
+		try(Stream<Path> files = Files.find(baseDir, Integer.MAX_VALUE, (path, attr) -> attr.isRegularFile())) {
+			for(Path file : files.collect(Collectors.toList())) {
+				fileHashes.put(toKey(baseDir, file), NSFODPUtil.sha256(file));
+			}
+		}
+		return new BuildManifest(fingerprint, fileHashes);
+	}
+
+	/**
+	 * Loads a manifest previously stored with {@link #save(Path)}.
+	 *
+	 * @param manifestFile the file to read
+	 * @return the loaded {@link BuildManifest}, or {@code null} if the file does not exist
+	 * @throws IOException if there is a problem reading the file
+	 */
+	public static BuildManifest load(Path manifestFile) throws IOException {
+		if(manifestFile == null || !Files.isRegularFile(manifestFile)) {
+			return null;
+		}
+		Properties props = new Properties();
+		try(InputStream is = Files.newInputStream(manifestFile)) {
+			props.load(is);
+		}
+		Map<String, String> fileHashes = new TreeMap<>();
+		Map<String, Set<Integer>> noteIds = new TreeMap<>();
+		for(String key : props.stringPropertyNames()) {
+			if(key.startsWith(PREFIX_FILE)) {
+				fileHashes.put(key.substring(PREFIX_FILE.length()), props.getProperty(key));
+			} else if(key.startsWith(PREFIX_NOTES)) {
+				Set<Integer> ids = new TreeSet<>();
+				for(String id : props.getProperty(key).split(",")) { //$NON-NLS-1$
+					if(!id.isEmpty()) {
+						ids.add(Integer.parseUnsignedInt(id, 16));
+					}
+				}
+				noteIds.put(key.substring(PREFIX_NOTES.length()), ids);
+			}
+		}
+		BuildManifest manifest = new BuildManifest(props.getProperty(PROP_FINGERPRINT), fileHashes);
+		manifest.noteIds.putAll(noteIds);
+		return manifest;
+	}
+
+	/**
+	 * Stores this manifest for use by a later build.
+	 *
+	 * @param manifestFile the file to write
+	 * @throws IOException if there is a problem writing the file
+	 */
+	public void save(Path manifestFile) throws IOException {
+		Properties props = new Properties();
+		if(fingerprint != null) {
+			props.setProperty(PROP_FINGERPRINT, fingerprint);
+		}
+		fileHashes.forEach((path, hash) -> props.setProperty(PREFIX_FILE + path, hash));
+		noteIds.forEach((path, ids) -> props.setProperty(PREFIX_NOTES + path, ids.stream()
+			.map(Integer::toHexString)
+			.collect(Collectors.joining(",")))); //$NON-NLS-1$
+
+		Path parent = manifestFile.toAbsolutePath().getParent();
+		if(parent != null) {
+			Files.createDirectories(parent);
+		}
+		try(OutputStream os = Files.newOutputStream(manifestFile)) {
+			props.store(os, null);
+		}
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @return an unmodifiable view of the project-relative file paths to their content hashes
+	 */
+	public Map<String, String> getFileHashes() {
+		return Collections.unmodifiableMap(fileHashes);
+	}
+
+	/**
+	 * Determines the files that were added or modified since the provided manifest.
+	 *
+	 * @param previous the manifest of the previous build
+	 * @return a {@link Set} of project-relative file paths, using {@code "/"} as a separator
+	 */
+	public Set<String> getChangedFiles(BuildManifest previous) {
+		return fileHashes.entrySet().stream()
+			.filter(entry -> !Objects.equals(entry.getValue(), previous.fileHashes.get(entry.getKey())))
+			.map(Map.Entry::getKey)
+			.collect(Collectors.toCollection(TreeSet::new));
+	}
+
+	/**
+	 * Determines the files that were present in the provided manifest but no longer exist.
+	 *
+	 * @param previous the manifest of the previous build
+	 * @return a {@link Set} of project-relative file paths, using {@code "/"} as a separator
+	 */
+	public Set<String> getDeletedFiles(BuildManifest previous) {
+		return previous.fileHashes.keySet().stream()
+			.filter(path -> !fileHashes.containsKey(path))
+			.collect(Collectors.toCollection(TreeSet::new));
+	}
+
+	/**
+	 * Copies the records of imported notes from the provided manifest, for use when the NSF
+	 * of that build is the starting point of this one.
+	 *
+	 * @param previous the manifest of the previous build
+	 */
+	public void inheritNoteIds(BuildManifest previous) {
+		previous.noteIds.forEach((path, ids) -> noteIds.put(path, new TreeSet<>(ids)));
+	}
+
+	/**
+	 * @param key a project-relative file path or other element key
+	 * @return the IDs of the notes recorded for the key, or an empty set if there are none
+	 */
+	public Set<Integer> getNoteIds(String key) {
+		Set<Integer> ids = noteIds.get(key);
+		return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(new TreeSet<>(ids));
+	}
+
+	/**
+	 * @return the keys with recorded notes
+	 */
+	public Set<String> getNoteKeys() {
+		return Collections.unmodifiableSet(new TreeSet<>(noteIds.keySet()));
+	}
+
+	/**
+	 * Imports the notes of a design element in place of any notes recorded for its keys.
+	 *
+	 * <p>The notes recorded for all of the keys are deleted from the database before the import
+	 * is run. The imported notes are then recorded under the first key.</p>
+	 *
+	 * @param database the database to import into
+	 * @param keys the project-relative file paths or other keys identifying the element
+	 * @param importer the import operation, returning the IDs of the imported notes
+	 * @return the IDs of the imported notes
+	 * @throws Exception if the import fails
+	 */
+	public List<Integer> replaceNotes(NDatabase database, List<String> keys, Callable<? extends Collection<Integer>> importer) throws Exception {
+		removeNotes(database, keys);
+		List<Integer> imported = new ArrayList<>(importer.call());
+		if(!keys.isEmpty()) {
+			noteIds.put(keys.get(0), new TreeSet<>(imported));
+		}
+		return imported;
+	}
+
+	/**
+	 * Deletes the notes recorded for the provided keys from the database and removes their
+	 * records.
+	 *
+	 * @param database the database to delete from
+	 * @param keys the project-relative file paths or other keys identifying the elements
+	 */
+	public void removeNotes(NDatabase database, Collection<String> keys) {
+		Set<Integer> toDelete = new TreeSet<>();
+		for(String key : keys) {
+			Set<Integer> ids = noteIds.remove(key);
+			if(ids != null) {
+				toDelete.addAll(ids);
+			}
+		}
+		for(int noteId : toDelete) {
+			try {
+				database.deleteNote(noteId);
+			} catch(NDominoException e) {
+				// Then it is already gone, which is the desired outcome
+			}
+		}
+	}
+
+	/**
+	 * Converts the provided file to the key format used in manifests.
+	 *
+	 * @param baseDir the base directory of the project
+	 * @param file the file to convert
+	 * @return a project-relative path using {@code "/"} as a separator
+	 */
+	public static String toKey(Path baseDir, Path file) {
+		return baseDir.relativize(file).toString().replace(baseDir.getFileSystem().getSeparator(), "/"); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openntf.nsfodp.commons.NSFODPConstants;
+import org.openntf.nsfodp.commons.NSFODPUtil;
+import org.openntf.nsfodp.compiler.update.UpdateSite;
+import org.osgi.framework.Bundle;
+
+import com.ibm.xsp.registry.FacesSharableRegistry;
+
+/**
+ * Keeps the bundles installed from a set of update sites, along with the XPages library
+ * registries built from them, for the next compilation that uses the same set of sites.
+ *
+ * <p>Pooling is disabled by default unless the {@value #PROP_ENABLED} system property is
+ * {@code true}, and can be enabled per compilation with
+ * {@link AbstractCompilationEnvironment#setPoolBundles(boolean)}.
+ * At most one set of bundles is kept, and it is uninstalled before a compilation with any
+ * other set of sites begins, so that each compilation only sees its own bundles. Pooled
+ * bundles are installed from copies in a directory owned by the pool, as the update sites
+ * themselves may be temporary.</p>
+ *
+ * <p>Callers must hold the framework lock in {@link AbstractCompilationEnvironment}: shared to
+ * read the entry and exclusive to replace it.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+class BundlePool {
+	public static final String PROP_ENABLED = NSFODPConstants.PROP_POOLBUNDLES;
+	/**
+	 * Whether bundles installed from update sites are kept for later compilations by default.
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean(PROP_ENABLED);
+
+	public static final BundlePool INSTANCE = new BundlePool();
+
+	/**
+	 * A set of installed bundles and the library registries prepared from them.
+	 */
+	public static class Entry {
+		private final String key;
+		private final Path directory;
+		private final Collection<Bundle> bundles;
+		private List<FacesSharableRegistry> libraryRegistries;
+		private boolean registriesLeased;
+
+		private Entry(String key, Path directory, Collection<Bundle> bundles) {
+			this.key = key;
+			this.directory = directory;
+			this.bundles = Collections.unmodifiableCollection(bundles);
+		}
+
+		public Collection<Bundle> getBundles() {
+			return bundles;
+		}
+
+		/**
+		 * Leases the XPages library registries for this entry, creating them on first use.
+		 *
+		 * <p>Adding a library registry as a dependency of a project registry is not
+		 * synchronized, so the cached registries are only used by one compilation at a time.
+		 * While they are leased, other callers receive newly-created registries that are not
+		 * cached.</p>
+		 *
+		 * @param loader a supplier to create the registries
+		 * @return the library registries, to be passed to {@link #releaseLibraryRegistries(List)}
+		 *         when the compilation is finished
+		 */
+		public List<FacesSharableRegistry> leaseLibraryRegistries(Supplier<List<FacesSharableRegistry>> loader) {
+			synchronized(this) {
+				if(registriesLeased) {
+					return loader.get();
+				}
+				registriesLeased = true;
+				if(libraryRegistries != null) {
+					return libraryRegistries;
+				}
+			}
+			List<FacesSharableRegistry> result = null;
+			try {
+				result = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+				return result;
+			} finally {
+				synchronized(this) {
+					if(result == null) {
+						registriesLeased = false;
+					} else {
+						libraryRegistries = result;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Returns registries retrieved from {@link #leaseLibraryRegistries(Supplier)}.
+		 *
+		 * @param registries the leased registries
+		 */
+		public synchronized void releaseLibraryRegistries(List<FacesSharableRegistry> registries) {
+			if(registries != null && registries == libraryRegistries) {
+				registriesLeased = false;
+			}
+		}
+	}
+
+	/**
+	 * Computes the pool key for the provided update sites.
+	 *
+	 * @param updateSites the sites to compute a key for
+	 * @return a digest of the names and contents of all bundles in {@code updateSites}
+	 * @throws UncheckedIOException if there is a problem reading a bundle
+	 */
+	public static String computeKey(Collection<UpdateSite> updateSites) {
+		// Site locations may be temporary, so identify bundles by file name and content
+		Collection<String> bundleKeys = new TreeSet<>();
+		for(UpdateSite site : updateSites) {
+			for(URI uri : site.getBundleURIs()) {
+				Path path = Paths.get(uri);
+				bundleKeys.add(path.getFileName() + "=" + digest(path)); //$NON-NLS-1$
+			}
+		}
+		MessageDigest md = newDigest();
+		bundleKeys.forEach(key -> {
+			md.update(key.getBytes(StandardCharsets.UTF_8));
+			md.update((byte)'\n');
+		});
+		return NSFODPUtil.toHex(md.digest());
+	}
+
+	private Entry entry;
+
+	private BundlePool() {
+	}
+
+	/**
+	 * @return whether any bundles are currently pooled
+	 */
+	public synchronized boolean hasEntry() {
+		return entry != null;
+	}
+
+	/**
+	 * @param key the key to look up
+	 * @return the pooled entry if it matches {@code key}, or {@code null} otherwise
+	 */
+	public synchronized Entry get(String key) {
+		return entry != null && entry.key.equals(key) ? entry : null;
+	}
+
+	/**
+	 * Creates a directory to hold the copies of a new set of bundles, to be passed to
+	 * {@link #put}.
+	 *
+	 * @return the new directory
+	 * @throws IOException if there is a problem creating the directory
+	 */
+	public Path createDirectory() throws IOException {
+		return Files.createTempDirectory(NSFODPUtil.getTempDirectory(), "nsfodp-bundlepool"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Adds a newly-installed set of bundles to the pool. Any set already in the pool must
+	 * have been removed with {@link #evict(Consumer)} before the new bundles were installed.
+	 *
+	 * @param key the key of the bundle set
+	 * @param directory the pool-owned directory containing the bundle files
+	 * @param bundles the installed bundles
+	 * @return the new pool entry
+	 */
+	public synchronized Entry put(String key, Path directory, Collection<Bundle> bundles) {
+		if(entry != null) {
+			throw new IllegalStateException("Pooled bundles must be evicted before installing others"); //$NON-NLS-1$
+		}
+		entry = new Entry(key, directory, bundles);
+		return entry;
+	}
+
+	/**
+	 * Uninstalls the pooled bundles, if any, and deletes their files.
+	 *
+	 * @param uninstaller a callback to uninstall the bundles
+	 */
+	public synchronized void evict(Consumer<Collection<Bundle>> uninstaller) {
+		Entry evicted = entry;
+		if(evicted == null) {
+			return;
+		}
+		entry = null;
+		try {
+			uninstaller.accept(evicted.bundles);
+		} finally {
+			deleteDirectory(evicted.directory);
+		}
+	}
+
+	/**
+	 * Deletes a pool directory, ignoring failures as the files may still be held open.
+	 *
+	 * @param directory the directory to delete
+	 */
+	public void deleteDirectory(Path directory) {
+		try {
+			NSFODPUtil.deltree(directory);
+		} catch(IOException e) {
+			// Leave it for the temp directory cleanup
+		}
+	}
+
+	private static String digest(Path path) {
+		try {
+			if(Files.isDirectory(path)) {
+				MessageDigest md = newDigest();
+				List<Path> files;
+				try(Stream<Path> walk = Files.walk(path)) {
+					files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+				}
+				for(Path file : files) {
+					md.update(path.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+					md.update(NSFODPUtil.sha256(file).getBytes(StandardCharsets.UTF_8));
+				}
+				return NSFODPUtil.toHex(md.digest());
+			} else {
+				return NSFODPUtil.sha256(path);
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.openntf.nsfodp.commons.odp.CustomControl;
+import org.openntf.nsfodp.commons.odp.LotusScriptLibrary;
+import org.openntf.nsfodp.commons.odp.OnDiskProject;
+import org.openntf.nsfodp.commons.odp.notesapi.NDatabase;
+
+/**
+ * Determines which parts of an on-disk project must be imported again when updating the NSF
+ * of a previous build, based on the {@link BuildManifest}s of both builds.
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class IncrementalBuild {
+	private static final String LOTUSSCRIPT_LIBRARY_DIR = "Code/ScriptLibraries/"; //$NON-NLS-1$
+	private static final String CUSTOM_CONTROL_DIR = "CustomControls/"; //$NON-NLS-1$
+
+	private final OnDiskProject odp;
+	private final BuildManifest manifest;
+	private final Set<String> changedFiles;
+	private final Set<String> deletedFiles;
+	private final String message;
+
+	private IncrementalBuild(OnDiskProject odp, BuildManifest manifest, Set<String> changedFiles, Set<String> deletedFiles, String message) {
+		this.odp = odp;
+		this.manifest = manifest;
+		this.changedFiles = changedFiles;
+		this.deletedFiles = deletedFiles;
+		this.message = message;
+	}
+
+	/**
+	 * Compares the current state of the project to the previous build.
+	 *
+	 * <p>When the previous build can be updated, the note records of {@code manifest} are
+	 * inherited from {@code previous}.</p>
+	 *
+	 * @param odp the project being compiled
+	 * @param manifest the manifest of the current state of the project
+	 * @param previous the manifest of the previous build, or {@code null} if there is none
+	 * @param hasBaseDatabase whether the NSF of the previous build is available
+	 * @return the new {@link IncrementalBuild}
+	 * @throws IOException if there is a problem reading the project
+	 */
+	public static IncrementalBuild plan(OnDiskProject odp, BuildManifest manifest, BuildManifest previous, boolean hasBaseDatabase) throws IOException {
+		if(previous == null || !hasBaseDatabase) {
+			return full(odp, manifest, Messages.IncrementalBuild_fullBuildNoPrevious);
+		}
+		if(!Objects.equals(previous.getFingerprint(), manifest.getFingerprint())) {
+			return full(odp, manifest, Messages.IncrementalBuild_fullBuildSettingsChanged);
+		}
+
+		Set<String> changed = manifest.getChangedFiles(previous);
+		Set<String> deleted = manifest.getDeletedFiles(previous);
+
+		// Code that uses a changed or removed LotusScript library would otherwise be left stale
+		Path baseDir = odp.getBaseDirectory();
+		Set<String> lotusScriptFiles = new HashSet<>();
+		for(LotusScriptLibrary lib : odp.getLotusScriptLibraries()) {
+			lotusScriptFiles.add(BuildManifest.toKey(baseDir, lib.getDataFile()));
+			lotusScriptFiles.add(BuildManifest.toKey(baseDir, lib.getDxlFile()));
+		}
+		Path dbScript = odp.getDbScriptFile();
+		if(dbScript != null) {
+			lotusScriptFiles.add(BuildManifest.toKey(baseDir, dbScript));
+		}
+		if(changed.stream().anyMatch(lotusScriptFiles::contains) || deleted.stream().anyMatch(path -> path.startsWith(LOTUSSCRIPT_LIBRARY_DIR) && path.contains(".lss"))) { //$NON-NLS-1$
+			return full(odp, manifest, Messages.IncrementalBuild_fullBuildLotusScriptChanged);
+		}
+
+		// The notes of changed and removed elements are replaced in the copy of the previous NSF
+		manifest.inheritNoteIds(previous);
+		String message = MessageFormat.format(Messages.IncrementalBuild_incrementalBuild, changed.size(), deleted.size());
+		return new IncrementalBuild(odp, manifest, Collections.unmodifiableSet(changed), Collections.unmodifiableSet(deleted), message);
+	}
+
+	private static IncrementalBuild full(OnDiskProject odp, BuildManifest manifest, String message) {
+		return new IncrementalBuild(odp, manifest, null, Collections.emptySet(), message);
+	}
+
+	/**
+	 * @return a human-readable description of the kind of build to perform
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * @return {@code true} if the project must be compiled into a new NSF; {@code false}
+	 *         if the NSF of the previous build can be updated
+	 */
+	public boolean isFullBuild() {
+		return changedFiles == null;
+	}
+
+	/**
+	 * @return the project-relative paths of files that were added or modified since the
+	 *         previous build, or {@code null} for a full build
+	 */
+	public Set<String> getChangedFiles() {
+		return changedFiles;
+	}
+
+	/**
+	 * @return the project-relative paths of files that were removed since the previous build
+	 */
+	public Set<String> getDeletedFiles() {
+		return deletedFiles;
+	}
+
+	/**
+	 * Deletes the notes recorded for removed files from the copy of the previous NSF.
+	 *
+	 * @param database the database being updated
+	 */
+	public void removeDeletedElements(NDatabase database) {
+		manifest.removeNotes(database, deletedFiles);
+	}
+
+	/**
+	 * Determines whether any of the provided files changed or were removed since the
+	 * previous build.
+	 *
+	 * @param files the files to check
+	 * @return {@code true} if any of the files changed or if this is a full build;
+	 *         {@code false} otherwise
+	 */
+	public boolean isChanged(Path... files) {
+		if(isFullBuild()) {
+			return true;
+		}
+		Path baseDir = odp.getBaseDirectory();
+		return Arrays.stream(files)
+			.filter(Objects::nonNull)
+			.filter(file -> file.startsWith(baseDir))
+			.map(file -> BuildManifest.toKey(baseDir, file))
+			.anyMatch(key -> changedFiles.contains(key) || deletedFiles.contains(key));
+	}
+
+	/**
+	 * Determines whether anything that XSP elements are compiled against changed since the
+	 * previous build: Java source, JARs, Custom Controls, or the project's build configuration.
+	 *
+	 * @return {@code true} if all XSP elements must be rebuilt; {@code false} otherwise
+	 * @throws IOException if there is a problem reading the project
+	 */
+	public boolean isXspDependencyChanged() throws IOException {
+		if(isFullBuild()) {
+			return true;
+		}
+
+		Path baseDir = odp.getBaseDirectory();
+		List<Path> dependencies = new ArrayList<>();
+		dependencies.add(odp.getClasspathFile());
+		dependencies.add(baseDir.resolve("plugin.xml")); //$NON-NLS-1$
+		dependencies.addAll(odp.getJars());
+		for(CustomControl cc : odp.getCustomControls()) {
+			dependencies.add(cc.getDataFile());
+			dependencies.add(cc.getDxlFile());
+			dependencies.add(cc.getXspConfigFile());
+		}
+		if(isChanged(dependencies.toArray(new Path[dependencies.size()]))) {
+			return true;
+		}
+
+		Set<String> modified = new TreeSet<>(changedFiles);
+		modified.addAll(deletedFiles);
+		for(Path sourceRoot : odp.getJavaSourceFiles().keySet()) {
+			String prefix = BuildManifest.toKey(baseDir, sourceRoot) + '/';
+			if(modified.stream().anyMatch(path -> path.startsWith(prefix))) {
+				return true;
+			}
+		}
+
+		// Removed Custom Controls, JARs, and source folders are no longer listed by the project
+		return deletedFiles.stream().anyMatch(path -> path.startsWith(CUSTOM_CONTROL_DIR) || path.endsWith(".jar") || path.endsWith(".java")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -19,17 +19,26 @@ import org.eclipse.osgi.util.NLS;
 
 public class Messages extends NLS {
 	private static final String BUNDLE_NAME = "org.openntf.nsfodp.compiler.messages"; //$NON-NLS-1$
+	public static String IncrementalBuild_fullBuildLotusScriptChanged;
+	public static String IncrementalBuild_fullBuildNoPrevious;
+	public static String IncrementalBuild_fullBuildSettingsChanged;
+	public static String IncrementalBuild_incrementalBuild;
+	public static String LotusScriptCompiler_circularUse;
+	public static String LotusScriptCompiler_cycle;
 	public static String ODPCompiler_basicElementLabel;
 	public static String ODPCompiler_compilingCustomControls;
 	public static String ODPCompiler_compilingJava;
 	public static String ODPCompiler_compilingJavaClasses;
 	public static String ODPCompiler_compilingLotusScript;
 	public static String ODPCompiler_compilingXPages;
+	public static String ODPCompiler_compilingXSPClasses;
+	public static String ODPCompiler_copyingPreviousNSF;
 	public static String ODPCompiler_couldNotIdentifyTitle;
 	public static String ODPCompiler_creatingNSF;
 	public static String ODPCompiler_customControlLabel;
 	public static String ODPCompiler_dxlImportFailed;
 	public static String ODPCompiler_errorConvertingXSP;
+	public static String ODPCompiler_importBatchLabel;
 	public static String ODPCompiler_importingCustomControls;
 	public static String ODPCompiler_importingDbProperties;
 	public static String ODPCompiler_importingEarlyDesignElements;
@@ -44,11 +53,13 @@ public class Messages extends NLS {
 	public static String ODPCompiler_javaClassLabel;
 	public static String ODPCompiler_javaCompilationFailed;
 	public static String ODPCompiler_lotusScriptLabel;
+	public static String ODPCompiler_reusingBundles;
 	public static String ODPCompiler_unableToCompileLotusScript;
 	public static String ODPCompiler_uninstallingBundles;
 	public static String ODPCompiler_webServiceNotFound1;
 	public static String ODPCompiler_webServiceNotFound2;
 	public static String ODPCompiler_XPageLabel;
+	public static String ODPCompiler_xspCompilationFailed;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
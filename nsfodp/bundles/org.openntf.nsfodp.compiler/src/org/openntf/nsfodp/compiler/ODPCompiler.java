@@ -15,8 +15,6 @@
  */
 package org.openntf.nsfodp.compiler;
 
-import static org.openntf.nsfodp.commons.h.StdNames.DFLAGPAT_SACTIONS_DESIGN;
-
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
@@ -32,7 +30,6 @@ import java.nio.file.StandardCopyOption;
 import java.text.DateFormat;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -45,9 +42,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
-import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -65,14 +63,16 @@ import com.ibm.xsp.registry.UpdatableLibrary;
 import com.ibm.xsp.registry.parse.ConfigParser;
 import com.ibm.xsp.registry.parse.ConfigParserFactory;
 
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.openntf.com.ibm.xsp.extlib.interpreter.DynamicFacesClassLoader;
 import org.openntf.com.ibm.xsp.extlib.javacompiler.JavaCompilerException;
 import org.openntf.com.ibm.xsp.extlib.javacompiler.JavaSourceClassLoader;
+import org.openntf.com.ibm.xsp.extlib.javacompiler.impl.JavaFileObjectJavaSource;
 import org.openntf.nsfodp.commons.NSFODPUtil;
 import org.openntf.nsfodp.commons.dxl.DXLUtil;
-import org.openntf.nsfodp.commons.h.NsfNote;
-import org.openntf.nsfodp.commons.h.StdNames;
 import org.openntf.nsfodp.commons.odp.AbstractSplitDesignElement;
 import org.openntf.nsfodp.commons.odp.CustomControl;
 import org.openntf.nsfodp.commons.odp.FileResource;
@@ -83,15 +83,14 @@ import org.openntf.nsfodp.commons.odp.XPage;
 import org.openntf.nsfodp.commons.odp.XSPCompilationResult;
 import org.openntf.nsfodp.commons.odp.notesapi.NDXLImporter;
 import org.openntf.nsfodp.commons.odp.notesapi.NDatabase;
-import org.openntf.nsfodp.commons.odp.notesapi.NDominoException;
-import org.openntf.nsfodp.commons.odp.notesapi.NLotusScriptCompilationException;
 import org.openntf.nsfodp.commons.odp.notesapi.NNote;
 import org.openntf.nsfodp.commons.odp.notesapi.NotesAPI;
 import org.openntf.nsfodp.commons.odp.util.ODPUtil;
 import org.openntf.nsfodp.commons.xml.NSFODPDomUtil;
+import org.openntf.nsfodp.compiler.dxl.DxlImportBatch;
 import org.openntf.nsfodp.compiler.dxl.DxlImporterLog;
-import org.openntf.nsfodp.compiler.dxl.DxlImporterLog.DXLFatalError;
 import org.openntf.nsfodp.compiler.util.CompilerUtil;
+import org.openntf.nsfodp.compiler.util.LotusScriptCompiler;
 import org.openntf.nsfodp.compiler.util.MultiPathResourceBundleSource;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -120,6 +119,28 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	 * @since 3.8.0
 	 */
 	private boolean compileBasicElementLotusScript = false;
+	/**
+	 * @since 4.1.0
+	 */
+	private int importBatchSize = 1;
+	/**
+	 * @since 4.1.0
+	 */
+	private Path incrementalBaseDatabase;
+	/**
+	 * @since 4.1.0
+	 */
+	private Path buildManifestFile;
+	/**
+	 * @since 4.1.0
+	 */
+	private BuildManifest buildManifest;
+	/**
+	 * The comparison to the previous build, or {@code null} when incremental builds are
+	 * not configured
+	 * @since 4.1.0
+	 */
+	private IncrementalBuild incrementalBuild;
 	
 	private static final List<String> DEFAULT_COMPILER_OPTIONS = Arrays.asList(
 			"-g", //$NON-NLS-1$
@@ -128,6 +149,11 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 		);
 	public static final String DEFAULT_COMPILER_LEVEL = "1.8"; //$NON-NLS-1$
 	
+	/**
+	 * Prefix of build manifest keys for generated notes that have no project file, such as
+	 * standalone class files.
+	 */
+	private static final String KEY_PREFIX_GENERATED = "generated:"; //$NON-NLS-1$
 	private static final ThreadLocal<DateFormat> TIMESTAMP = ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyy-MM-dd h:mm a zzz")); //$NON-NLS-1$
 	
 	/**
@@ -319,6 +345,71 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 		return compileBasicElementLotusScript;
 	}
 	
+	/**
+	 * Sets the maximum number of design elements to combine into a single DXL import
+	 * call. This is {@code 1} by default, which imports each element individually.
+	 * 
+	 * <p>Batching applies to basic design elements, Java classes, XPages, and Custom Controls,
+	 * and can considerably reduce the time spent importing projects with many small elements.
+	 * Errors reported by the importer are still attributed to the element that caused them.</p>
+	 * 
+	 * @param importBatchSize the maximum number of elements per import call; values below
+	 *                        {@code 1} are treated as {@code 1}
+	 * @since 4.1.0
+	 */
+	public void setImportBatchSize(int importBatchSize) {
+		this.importBatchSize = Math.max(1, importBatchSize);
+	}
+	
+	/**
+	 * @return the maximum number of design elements to combine into a single DXL import call
+	 * @since 4.1.0
+	 */
+	public int getImportBatchSize() {
+		return importBatchSize;
+	}
+	
+	/**
+	 * Configures the compiler to update the NSF from a previous build instead of creating
+	 * a new one from scratch, when possible.
+	 * 
+	 * <p>When the provided manifest file exists and was created with the same compiler settings,
+	 * a copy of {@code baseDatabase} is used as the starting point and only the design elements
+	 * whose files changed are re-imported. XSP elements are only re-translated when they changed
+	 * themselves, unless a Java source, JAR, or Custom Control changed. A full build is performed
+	 * if any LotusScript library changed or was removed.</p>
+	 * 
+	 * <p>The notes imported for each element are recorded in the manifest, and the notes of
+	 * a changed element are deleted from the copy before it is imported again. The notes of
+	 * removed elements are deleted from the copy. Elements are therefore imported individually
+	 * regardless of {@link #setImportBatchSize(int)}.</p>
+	 * 
+	 * <p>The manifest is not written by {@link #compile()}: callers should store the result of
+	 * {@link #getBuildManifest()} after they have stored the generated NSF as
+	 * {@code baseDatabase}.</p>
+	 * 
+	 * @param baseDatabase the NSF generated by the previous build, or {@code null} to disable
+	 *        incremental builds
+	 * @param buildManifestFile the manifest file stored after the previous build, or {@code null}
+	 *        to disable incremental builds
+	 * @since 4.1.0
+	 */
+	public void setIncrementalBuild(Path baseDatabase, Path buildManifestFile) {
+		this.incrementalBaseDatabase = baseDatabase;
+		this.buildManifestFile = buildManifestFile;
+	}
+	
+	/**
+	 * Retrieves the manifest of the project as compiled by the last call to {@link #compile()}.
+	 * 
+	 * @return the {@link BuildManifest} of the last compilation, or {@code null} if incremental
+	 *         builds are not configured
+	 * @since 4.1.0
+	 */
+	public BuildManifest getBuildManifest() {
+		return buildManifest;
+	}
+	
 	/**
 	 * Runs the compilation process:
 	 * 
@@ -355,12 +446,23 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	 * @since 1.0.0
 	 */
 	public synchronized Path compile(ClassLoader cl) throws Exception {
+		this.incrementalBuild = planIncrementalBuild();
+		
 		Collection<Bundle> bundles = installBundles();
 		JavaSourceClassLoader classLoader = null;
 		Set<Path> cleanup = new HashSet<>();
 		try {
 			boolean hasXPages = odp.hasXPagesElements();
-			if(hasXPages) {
+			
+			// Incremental builds only rebuild changed XPages unless a shared dependency changed
+			boolean rebuildAllXsp = isXspDependencyChanged();
+			List<CustomControl> ccs = rebuildAllXsp ? odp.getCustomControls() : Collections.emptyList();
+			List<XPage> xpages = odp.getXPages().stream()
+				.filter(xpage -> rebuildAllXsp || isChanged(xpage.getDataFile(), xpage.getDxlFile()))
+				.collect(Collectors.toList());
+			boolean buildXsp = hasXPages && (rebuildAllXsp || !xpages.isEmpty());
+			
+			if(buildXsp) {
 				initRegistry();
 	
 				Collection<String> dependencies = buildDependenciesCollection(cleanup);
@@ -390,8 +492,12 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 
 				// Compile Java classes
 				compileJavaSources(classLoader);
-				compileCustomControls(classLoader);
-				compileXPages(classLoader);
+				
+				// Translate all XSP elements first, then compile them in one pass
+				Map<XPage, String> translated = new LinkedHashMap<>();
+				translated.putAll(compileCustomControls(classLoader, ccs));
+				translated.putAll(compileXPages(xpages));
+				compileXSP(translated, classLoader);
 			}
 			
 			try(NotesAPI session = NotesAPI.get()) {
@@ -399,6 +505,9 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 				try(NDatabase database = session.openDatabase("", file.toAbsolutePath().toString())) { //$NON-NLS-1$
 					try(NDXLImporter importer = session.createDXLImporter()) {
 						
+						if(isIncremental()) {
+							incrementalBuild.removeDeletedElements(database);
+						}
 						importDbProperties(importer, database);
 						importEarlyBasicElements(importer, database);
 						importLotusScriptLibraries(importer, database);
@@ -406,16 +515,19 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 						importFileResources(importer, database);
 						importDbScript(importer, database);
 						
-						if(hasXPages) {
+						if(buildXsp) {
 							Set<String> compiledClassNames = new HashSet<>(classLoader.getCompiledClassNames());
-							importCustomControls(importer, database, classLoader, compiledClassNames);
-							importXPages(importer, database, classLoader, compiledClassNames);
-							importJavaElements(importer, database, classLoader, compiledClassNames);
+							importCustomControls(importer, database, classLoader, compiledClassNames, ccs);
+							importXPages(importer, database, classLoader, compiledClassNames, xpages);
+							// Java elements in a previous build remain valid unless a dependency changed
+							if(rebuildAllXsp) {
+								importJavaElements(importer, database, classLoader, compiledClassNames);
+							}
 						}
 		
 						// Append a timestamp if requested
 						if(this.isAppendTimestampToTitle()) {
-							database.setTitle(database.getTitle() + " - " + TIMESTAMP.get().format(new Date())); //$NON-NLS-1$
+							database.setTitle(getBaseTitle(database) + " - " + TIMESTAMP.get().format(new Date())); //$NON-NLS-1$
 						}
 						
 						// Set the template info if requested
@@ -500,14 +612,21 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	// * XSP compilation methods
 	// *******************************************************************************
 	
-	private Map<CustomControl, XSPCompilationResult> compileCustomControls(JavaSourceClassLoader classLoader) throws Exception {
+	/**
+	 * Registers all Custom Controls in the project with the Faces registry and translates the
+	 * provided Custom Controls to Java source.
+	 * 
+	 * @param classLoader the {@link JavaSourceClassLoader} to use for the registry
+	 * @param toTranslate the Custom Controls to translate
+	 * @return a {@link Map} of the translated Custom Controls to their Java source
+	 * @throws Exception if there is a problem registering or translating any element
+	 */
+	private Map<CustomControl, String> compileCustomControls(JavaSourceClassLoader classLoader, List<CustomControl> toTranslate) throws Exception {
 		subTask(Messages.ODPCompiler_compilingCustomControls);
 		
 		ConfigParser configParser = ConfigParserFactory.getParserInstance();
 		FacesClassLoader facesClassLoader = new DynamicFacesClassLoader(dynamicXPageBean, classLoader);
 		
-		Map<CustomControl, XSPCompilationResult> result = new LinkedHashMap<>();
-		
 		List<CustomControl> ccs = odp.getCustomControls();
 		for(CustomControl cc : ccs) {
 			Document xspConfig = cc.getXspConfig().get();
@@ -532,24 +651,53 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 			def.refreshReferences();
 		}
 		
-		// Now that they're all defined, try to compile them in a queue
-		for(CustomControl cc : ccs) {
-			XSPCompilationResult compilationResult = compileXSP(cc, classLoader);
-			result.put(cc, compilationResult);
-		}
-		
-		return result;
+		// Now that they're all defined, translate them to Java
+		return translateXSP(toTranslate);
 	}
 	
-	private Map<XPage, XSPCompilationResult> compileXPages(JavaSourceClassLoader classLoader) throws Exception {
+	private Map<XPage, String> compileXPages(List<XPage> xpages) throws Exception {
 		subTask(Messages.ODPCompiler_compilingXPages);
-		Map<XPage, XSPCompilationResult> result = new LinkedHashMap<>();
 		
-		for(XPage xpage : odp.getXPages()) {
-			XSPCompilationResult compilationResult = compileXSP(xpage, classLoader);
-			result.put(xpage, compilationResult);
+		return translateXSP(xpages);
+	}
+	
+	/**
+	 * Compiles the translated Java source of all XSP elements in a single compiler
+	 * invocation.
+	 * 
+	 * @param translated a {@link Map} of XPages and Custom Controls to their translated
+	 *        Java source
+	 * @param classLoader the {@link JavaSourceClassLoader} to compile with
+	 * @return a {@link Map} of XSP elements to their compilation results
+	 * @throws Exception if there is a problem compiling any element
+	 * @since 4.1.0
+	 */
+	private Map<XPage, XSPCompilationResult> compileXSP(Map<? extends XPage, String> translated, JavaSourceClassLoader classLoader) throws Exception {
+		if(translated.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		subTask(MessageFormat.format(Messages.ODPCompiler_compilingXSPClasses, translated.size()));
+		
+		Map<String, XPage> elementsByClass = new HashMap<>();
+		Map<String, CharSequence> sources = new LinkedHashMap<>();
+		for(Map.Entry<? extends XPage, String> entry : translated.entrySet()) {
+			String className = entry.getKey().getJavaClassName();
+			elementsByClass.put(className, entry.getKey());
+			sources.put(className, entry.getValue());
+		}
+		
+		Map<String, Class<?>> compiled;
+		try {
+			compiled = classLoader.addClasses(sources);
+		} catch(JavaCompilerException e) {
+			throw new RuntimeException(MessageFormat.format(Messages.ODPCompiler_xspCompilationFailed, describeDiagnostics(e, elementsByClass)), e);
 		}
 		
+		Map<XPage, XSPCompilationResult> result = new LinkedHashMap<>();
+		for(Map.Entry<? extends XPage, String> entry : translated.entrySet()) {
+			Class<?> compiledClass = compiled.get(entry.getKey().getJavaClassName());
+			result.put(entry.getKey(), new XSPCompilationResult(entry.getValue(), compiledClass));
+		}
 		return result;
 	}
 	
@@ -566,8 +714,6 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	 * @throws DominoException if there is an API-level problem creating the copy
 	 */
 	private Path createDatabase(NotesAPI session) throws IOException {
-		subTask(Messages.ODPCompiler_creatingNSF);
-		
 		String ext;
 		String odsRelease = getOdsRelease();
 		if(StringUtil.isEmpty(odsRelease)) {
@@ -577,6 +723,13 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 		}
 		
 		Path temp = Files.createTempFile(NSFODPUtil.getTempDirectory(), "odpcompilertemp", ext); //$NON-NLS-1$
+		if(isIncremental()) {
+			subTask(Messages.ODPCompiler_copyingPreviousNSF);
+			Files.copy(incrementalBaseDatabase, temp, StandardCopyOption.REPLACE_EXISTING);
+			return temp;
+		}
+		
+		subTask(Messages.ODPCompiler_creatingNSF);
 		Files.deleteIfExists(temp);
 		String filePath = temp.toAbsolutePath().toString();
 		
@@ -587,8 +740,11 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	
 	private void importDbProperties(NDXLImporter importer, NDatabase database) throws Exception {
 		// DB properties gets special handling
-		subTask(Messages.ODPCompiler_importingDbProperties);
 		Path properties = odp.getDbPropertiesFile();
+		if(!isChanged(properties)) {
+			return;
+		}
+		subTask(Messages.ODPCompiler_importingDbProperties);
 		Document dxlDoc = ODPUtil.readXml(properties);
 		
 		// Strip out any FT search settings, since these cause an exception on import
@@ -603,9 +759,10 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	
 	private void importEarlyBasicElements(NDXLImporter importer, NDatabase database) throws Exception {
 		subTask(Messages.ODPCompiler_importingEarlyDesignElements);
-		List<Integer> noteIds = new ArrayList<>();
+		ImportQueue queue = new ImportQueue(importer, database);
 		try(Stream<Path> dxlElements = odp.getDirectEarlyDXLElements()) {
 			dxlElements
+				.filter(p -> isChanged(p))
 				.filter(p -> {
 					try {
 						return Files.size(p) > 0;
@@ -615,21 +772,21 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 				})
 				.forEach(p -> {
 					try {
-						try(InputStream is = NSFODPUtil.newInputStream(p)) {
-							noteIds.addAll(importDxl(importer, is, database, MessageFormat.format(Messages.ODPCompiler_basicElementLabel, odp.getBaseDirectory().relativize(p))));
-						}
+						queue.add(MessageFormat.format(Messages.ODPCompiler_basicElementLabel, odp.getBaseDirectory().relativize(p)), p);
 					} catch(Exception e) {
 						throw new RuntimeException("Exception while importing element " + odp.getBaseDirectory().relativize(p), e);
 					}
 				});
 		}
+		queue.flush();
 	}
 	
 	private void importBasicElements(NDXLImporter importer, NDatabase database) throws Exception {
 		subTask(Messages.ODPCompiler_importingDesignElements);
-		List<Integer> noteIds = new ArrayList<>();
+		ImportQueue queue = new ImportQueue(importer, database);
 		try(Stream<Path> dxlElements = odp.getDirectDXLElements()) {
 			dxlElements
+				.filter(p -> isChanged(p))
 				.filter(p -> {
 					try {
 						return Files.size(p) > 0;
@@ -639,16 +796,16 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 				})
 				.forEach(p -> {
 					try {
-						try(InputStream is = NSFODPUtil.newInputStream(p)) {
-							noteIds.addAll(importDxl(importer, is, database, MessageFormat.format(Messages.ODPCompiler_basicElementLabel, odp.getBaseDirectory().relativize(p))));
-						}
+						queue.add(MessageFormat.format(Messages.ODPCompiler_basicElementLabel, odp.getBaseDirectory().relativize(p)), p);
 					} catch(Exception e) {
 						throw new RuntimeException("Exception while importing element " + odp.getBaseDirectory().relativize(p), e);
 					}
 				});
 		}
+		List<Integer> noteIds = queue.flush();
 		if(isCompileBasicElementLotusScript()) {
-			compileLotusScript(database, noteIds, false);
+			// Basic elements can only use script libraries, which were compiled previously
+			compileLotusScript(database, noteIds, Collections.emptyMap(), false);
 		}
 	}
 	
@@ -656,6 +813,7 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 		subTask(Messages.ODPCompiler_importingFileResources);
 		
 		Map<AbstractSplitDesignElement, Document> elements = odp.getFileResources().stream()
+			.filter(res -> isChanged(res.getDataFile(), res.getDxlFile()))
 			.filter(res -> {
 				Path filePath = odp.getBaseDirectory().relativize(res.getDataFile());
 				String normalizedPath = filePath.toString().replace('\\', '/');
@@ -698,7 +856,7 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 				Function.identity(),
 				res -> {
 					try {
-						return res.getDxl();
+						return res.getStreamingDxl();
 					} catch ( IOException e) {
 						throw new RuntimeException(e);
 					}
@@ -709,29 +867,32 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 			AbstractSplitDesignElement res = entry.getKey();
 			Document dxlDoc = entry.getValue();
 			Path filePath = odp.getBaseDirectory().relativize(res.getDataFile());
-			importDxl(importer, NSFODPDomUtil.getXmlString(dxlDoc, null), database, res.getClass().getSimpleName() + " " + filePath); //$NON-NLS-1$
-			
-			if(res instanceof FileResource) {
-				FileResource fileRes = (FileResource)res;
-				if(fileRes.isCopyToClasses()) {
-					// Also create a copy beneath WEB-INF/classes
-					ByteArrayOutputStream baos = new ByteArrayOutputStream();
-					Files.copy(fileRes.getDataFile(), baos);
-					// Use expanded syntax due to the presence of the xmlns
-					String title = NSFODPDomUtil.node(dxlDoc, "/*[name()='note']/*[name()='item'][@name='$TITLE']/*[name()='text']/text()").get().getTextContent(); //$NON-NLS-1$
-					if(StringUtil.isEmpty(title)) {
-						throw new IllegalStateException(MessageFormat.format(Messages.ODPCompiler_couldNotIdentifyTitle, filePath));
+			importElement(database, () -> {
+				List<Integer> noteIds = importDxl(importer, dxlDoc, database, res.getClass().getSimpleName() + " " + filePath); //$NON-NLS-1$
+				
+				if(res instanceof FileResource) {
+					FileResource fileRes = (FileResource)res;
+					if(fileRes.isCopyToClasses()) {
+						// Also create a copy beneath WEB-INF/classes
+						ByteArrayOutputStream baos = new ByteArrayOutputStream();
+						Files.copy(fileRes.getDataFile(), baos);
+						// Use expanded syntax due to the presence of the xmlns
+						String title = NSFODPDomUtil.node(dxlDoc, "/*[name()='note']/*[name()='item'][@name='$TITLE']/*[name()='text']/text()").get().getTextContent(); //$NON-NLS-1$
+						if(StringUtil.isEmpty(title)) {
+							throw new IllegalStateException(MessageFormat.format(Messages.ODPCompiler_couldNotIdentifyTitle, filePath));
+						}
+						noteIds.addAll(CompilerUtil.importFileResource(importer, baos.toByteArray(), database, "WEB-INF/classes/" + title, "~C4g", "w")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 					}
-					CompilerUtil.importFileResource(importer, baos.toByteArray(), database, "WEB-INF/classes/" + title, "~C4g", "w"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 				}
-			}
+				return noteIds;
+			}, res.getDataFile(), res.getDxlFile());
 		}
 	}
 	
-	private void importCustomControls(NDXLImporter importer, NDatabase database, JavaSourceClassLoader classLoader, Set<String> compiledClassNames) throws Exception {
+	private void importCustomControls(NDXLImporter importer, NDatabase database, JavaSourceClassLoader classLoader, Set<String> compiledClassNames, List<CustomControl> ccs) throws Exception {
 		subTask(Messages.ODPCompiler_importingCustomControls);
 		
-		List<CustomControl> ccs = odp.getCustomControls();
+		ImportQueue queue = new ImportQueue(importer, database);
 		for(CustomControl cc : ccs) {
 			Document dxlDoc = importXSP(importer, database, classLoader, compiledClassNames, cc);
 			
@@ -740,18 +901,20 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 			DXLUtil.writeItemFileData(dxlDoc, "$ConfigData", xspConfigData); //$NON-NLS-1$
 			DXLUtil.writeItemNumber(dxlDoc, "$ConfigSize", xspConfigData.length); //$NON-NLS-1$
 			
-			importDxl(importer, NSFODPDomUtil.getXmlString(dxlDoc, null), database, MessageFormat.format(Messages.ODPCompiler_customControlLabel, cc.getPageName()));
+			queue.add(MessageFormat.format(Messages.ODPCompiler_customControlLabel, cc.getPageName()), dxlDoc, cc.getDataFile(), cc.getDxlFile(), cc.getXspConfigFile());
 		}
+		queue.flush();
 	}
 	
-	private void importXPages(NDXLImporter importer, NDatabase database, JavaSourceClassLoader classLoader, Set<String> compiledClassNames) throws Exception {
+	private void importXPages(NDXLImporter importer, NDatabase database, JavaSourceClassLoader classLoader, Set<String> compiledClassNames, List<XPage> xpages) throws Exception {
 		subTask(Messages.ODPCompiler_importingXPages);
 		
-		List<XPage> xpages = odp.getXPages();
+		ImportQueue queue = new ImportQueue(importer, database);
 		for(XPage xpage : xpages) {
 			Document dxlDoc = importXSP(importer, database, classLoader, compiledClassNames, xpage);
-			importDxl(importer, NSFODPDomUtil.getXmlString(dxlDoc, null), database, MessageFormat.format(Messages.ODPCompiler_XPageLabel, xpage.getPageName()));
+			queue.add(MessageFormat.format(Messages.ODPCompiler_XPageLabel, xpage.getPageName()), dxlDoc, xpage.getDataFile(), xpage.getDxlFile());
 		}
+		queue.flush();
 	}
 	
 	private Document importXSP(NDXLImporter importer, NDatabase database, JavaSourceClassLoader classLoader, Set<String> compiledClassNames, XPage xpage) throws IOException {
@@ -780,6 +943,7 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	private void importJavaElements(NDXLImporter importer, NDatabase database, JavaSourceClassLoader classLoader, Set<String> compiledClassNames) throws Exception {
 		subTask(Messages.ODPCompiler_importingJava);
 		
+		ImportQueue queue = new ImportQueue(importer, database);
 		Map<Path, List<JavaSource>> javaSourceFiles = odp.getJavaSourceFiles();
 		for(Map.Entry<Path, List<JavaSource>> entry : javaSourceFiles.entrySet()) {
 			for(JavaSource source : entry.getValue()) {
@@ -810,15 +974,27 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 				}
 				DXLUtil.writeItemString(dxlDoc, "$ClassIndexItem", true, classIndexItem.toArray(new CharSequence[classIndexItem.size()])); //$NON-NLS-1$
 				
-				importDxl(importer, NSFODPDomUtil.getXmlString(dxlDoc, null), database, MessageFormat.format(Messages.ODPCompiler_javaClassLabel, className));
+				queue.add(MessageFormat.format(Messages.ODPCompiler_javaClassLabel, className), dxlDoc, source.getDataFile(), source.getDxlFile());
 			}
 		}
+		queue.flush();
 		
-		// Create standalone class files for remaining classes
+		// Create standalone class files for remaining classes, replacing those of the previous build
+		if(buildManifest != null) {
+			List<String> previousClassKeys = buildManifest.getNoteKeys().stream()
+				.filter(key -> key.startsWith(KEY_PREFIX_GENERATED))
+				.collect(Collectors.toList());
+			buildManifest.removeNotes(database, previousClassKeys);
+		}
 		for(String leftoverClassName : compiledClassNames) {
 			String fileName = "WEB-INF/classes/" + ODPUtil.toJavaPath(leftoverClassName); //$NON-NLS-1$
 			byte[] leftoverByteCode = classLoader.getClassByteCode(leftoverClassName);
-			CompilerUtil.importFileResource(importer, leftoverByteCode, database, fileName, "~C4g", "w"); //$NON-NLS-1$ //$NON-NLS-2$
+			Callable<List<Integer>> importLeftover = () -> CompilerUtil.importFileResource(importer, leftoverByteCode, database, fileName, "~C4g", "w"); //$NON-NLS-1$ //$NON-NLS-2$
+			if(buildManifest != null) {
+				buildManifest.replaceNotes(database, Collections.singletonList(KEY_PREFIX_GENERATED + fileName), importLeftover);
+			} else {
+				importLeftover.call();
+			}
 		}
 	}
 	
@@ -826,7 +1002,11 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 		subTask(Messages.ODPCompiler_importingLotusScript);
 		
 		List<Integer> noteIds = new ArrayList<>();
+		Map<Integer, String> sources = new HashMap<>();
 		for(LotusScriptLibrary lib : odp.getLotusScriptLibraries()) {
+			if(!isChanged(lib.getDataFile(), lib.getDxlFile())) {
+				continue;
+			}
 			Document dxlDoc = lib.getDxl();
 			String script = lib.getSource();
 			int chunkSize = 60 * 1024;
@@ -837,10 +1017,12 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 				el.setAttribute("sign", "true"); //$NON-NLS-1$ //$NON-NLS-2$
 				el.setAttribute("summary", "false"); //$NON-NLS-1$ //$NON-NLS-2$
 			}
-			noteIds.addAll(importDxl(importer, NSFODPDomUtil.getXmlString(dxlDoc, null), database, MessageFormat.format(Messages.ODPCompiler_lotusScriptLabel, odp.getBaseDirectory().relativize(lib.getDataFile()))));
+			List<Integer> libNoteIds = importElement(database, () -> importDxl(importer, NSFODPDomUtil.getXmlString(dxlDoc, null), database, MessageFormat.format(Messages.ODPCompiler_lotusScriptLabel, odp.getBaseDirectory().relativize(lib.getDataFile()))), lib.getDataFile(), lib.getDxlFile());
+			noteIds.addAll(libNoteIds);
+			libNoteIds.forEach(noteId -> sources.put(noteId, script));
 		}
 		
-		compileLotusScript(database, noteIds, true);
+		compileLotusScript(database, noteIds, sources, true);
 	}
 	
 	/**
@@ -853,36 +1035,196 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	 */
 	private void importDbScript(NDXLImporter importer, NDatabase database) throws Exception {
 		Path dbScript = odp.getDbScriptFile();
-		if(dbScript != null) {
+		if(dbScript != null && isChanged(dbScript)) {
 			try {
-				List<Integer> noteIds;
-				try(InputStream is = NSFODPUtil.newInputStream(dbScript)) {
-					noteIds = importDxl(importer, is, database, MessageFormat.format(Messages.ODPCompiler_basicElementLabel, odp.getBaseDirectory().relativize(dbScript)));
-				}
-				compileLotusScript(database, noteIds, true);
+				List<Integer> noteIds = importElement(database, () -> {
+					try(InputStream is = NSFODPUtil.newInputStream(dbScript)) {
+						return importDxl(importer, is, database, MessageFormat.format(Messages.ODPCompiler_basicElementLabel, odp.getBaseDirectory().relativize(dbScript)));
+					}
+				}, dbScript);
+				compileLotusScript(database, noteIds, Collections.emptyMap(), true);
 			} catch(Exception ne) {
 				throw new Exception("Exception while importing element " + odp.getBaseDirectory().relativize(dbScript), ne); //$NON-NLS-1$
 			}
 		}
 	}
 	
+	// *******************************************************************************
+	// * Incremental build methods
+	// *******************************************************************************
+	
+	/**
+	 * Computes the manifest for the current build and compares it to the previous one, if
+	 * configured.
+	 * 
+	 * @return the comparison to the previous build, or {@code null} if incremental builds
+	 *         are not configured
+	 * @throws IOException if there is a problem reading the project or manifest
+	 * @since 4.1.0
+	 */
+	private IncrementalBuild planIncrementalBuild() throws IOException {
+		this.buildManifest = null;
+		if(buildManifestFile == null) {
+			return null;
+		}
+		
+		this.buildManifest = BuildManifest.forProject(odp, getBuildFingerprint());
+		BuildManifest previous = BuildManifest.load(buildManifestFile);
+		boolean hasBaseDatabase = incrementalBaseDatabase != null && Files.isRegularFile(incrementalBaseDatabase);
+		IncrementalBuild result = IncrementalBuild.plan(odp, buildManifest, previous, hasBaseDatabase);
+		subTask(result.getMessage());
+		return result;
+	}
+	
+	/**
+	 * @return a string representing the compiler settings that affect the generated NSF
+	 * @since 4.1.0
+	 */
+	private String getBuildFingerprint() {
+		return String.join("|", //$NON-NLS-1$
+			compilerLevel,
+			String.join(" ", compilerOptions), //$NON-NLS-1$
+			Boolean.toString(setProductionXspOptions),
+			StringUtil.toString(odsRelease),
+			Boolean.toString(compileBasicElementLotusScript),
+			Boolean.toString(appendTimestampToTitle),
+			StringUtil.toString(templateName),
+			StringUtil.toString(templateVersion)
+		);
+	}
+	
+	/**
+	 * @return {@code true} if the NSF of the previous build is being updated; {@code false}
+	 *         for a full build
+	 * @since 4.1.0
+	 */
+	private boolean isIncremental() {
+		return incrementalBuild != null && !incrementalBuild.isFullBuild();
+	}
+	
+	/**
+	 * Determines the title to append a timestamp to. In an incremental build, the copied NSF
+	 * keeps the timestamped title of the previous build unless database.properties changed, so
+	 * the title is read from the project instead.
+	 * 
+	 * @param database the database target
+	 * @return the title of the database without a build timestamp
+	 * @since 4.1.0
+	 */
+	private String getBaseTitle(NDatabase database) {
+		if(!isIncremental()) {
+			return database.getTitle();
+		}
+		Document dxlDoc = ODPUtil.readXml(odp.getDbPropertiesFile());
+		return dxlDoc.getDocumentElement().getAttribute("title"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Imports a design element, recording its notes in the build manifest when incremental
+	 * builds are configured. In an incremental build, the notes of the element in the
+	 * previous NSF are deleted first.
+	 * 
+	 * @param database the database target
+	 * @param importer the import operation, returning the IDs of the imported notes
+	 * @param files the project files of the element, the first of which is used to record its notes
+	 * @return the IDs of the imported notes
+	 * @throws Exception if there is a problem importing the element
+	 * @since 4.1.0
+	 */
+	private List<Integer> importElement(NDatabase database, Callable<List<Integer>> importer, Path... files) throws Exception {
+		if(buildManifest == null) {
+			return importer.call();
+		}
+		Path baseDir = odp.getBaseDirectory();
+		List<String> keys = Arrays.stream(files)
+			.filter(Objects::nonNull)
+			.map(file -> BuildManifest.toKey(baseDir, file))
+			.collect(Collectors.toList());
+		return buildManifest.replaceNotes(database, keys, importer);
+	}
+	
+	/**
+	 * Determines whether any of the provided files changed since the previous build.
+	 * 
+	 * @param files the files to check
+	 * @return {@code true} if any of the files changed or if this is a full build;
+	 *         {@code false} otherwise
+	 * @since 4.1.0
+	 */
+	private boolean isChanged(Path... files) {
+		return incrementalBuild == null || incrementalBuild.isChanged(files);
+	}
+	
+	/**
+	 * @return {@code true} if all XSP elements must be rebuilt; {@code false} otherwise
+	 * @throws IOException if there is a problem reading the project
+	 * @since 4.1.0
+	 * @see IncrementalBuild#isXspDependencyChanged()
+	 */
+	private boolean isXspDependencyChanged() throws IOException {
+		return incrementalBuild == null || incrementalBuild.isXspDependencyChanged();
+	}
+	
 	// *******************************************************************************
 	// * Internal utility methods
 	// *******************************************************************************
 	
-	private XSPCompilationResult compileXSP(XPage xpage, JavaSourceClassLoader classLoader) throws Exception {
-		try {
-			String javaSource;
-			try(InputStream xspSource = xpage.getSourceAsStream()) {
-				javaSource = dynamicXPageBean.translate(xpage.getJavaClassName(), xpage.getPageName(), xspSource, (FacesSharableRegistry)facesProject.getRegistry());
-			}
-			Class<?> compiled = classLoader.addClass(xpage.getJavaClassName(), javaSource);
-			return new XSPCompilationResult(javaSource, compiled);
+	/**
+	 * Translates the provided XSP elements into Java source, using up to
+	 * {@link #getTranslationParallelism()} threads.
+	 * 
+	 * @param <T> the type of XSP element being translated
+	 * @param xpages the XPages or Custom Controls to translate
+	 * @return a {@link Map} of the elements to their translated Java source, in the same
+	 *         order as provided
+	 * @since 4.1.0
+	 */
+	private <T extends XPage> Map<T, String> translateXSP(List<T> xpages) {
+		return translateAll(xpages, this::translateXSP);
+	}
+	
+	private String translateXSP(XPage xpage) {
+		try(InputStream xspSource = xpage.getSourceAsStream()) {
+			return dynamicXPageBean.translate(xpage.getJavaClassName(), xpage.getPageName(), xspSource, (FacesSharableRegistry)facesProject.getRegistry());
 		} catch(Throwable e) {
 			throw new RuntimeException(MessageFormat.format(Messages.ODPCompiler_errorConvertingXSP, odp.getBaseDirectory().relativize(xpage.getDataFile())), e);
 		}
 	}
 	
+	/**
+	 * Groups the diagnostics from a failed XSP compilation by their originating
+	 * XSP file.
+	 * 
+	 * @param e the exception thrown by the compiler
+	 * @param elementsByClass a {@link Map} of generated class names to their XSP elements
+	 * @return a human-readable description of the failures
+	 * @since 4.1.0
+	 */
+	private String describeDiagnostics(JavaCompilerException e, Map<String, XPage> elementsByClass) {
+		Map<String, List<String>> messages = new LinkedHashMap<>();
+		for(Diagnostic<? extends JavaFileObject> d : e.getDiagnosticCollector().getDiagnostics()) {
+			if(d.getKind() != Diagnostic.Kind.ERROR) {
+				continue;
+			}
+			String fileName = null;
+			JavaFileObject source = d.getSource();
+			if(source instanceof JavaFileObjectJavaSource) {
+				XPage xpage = elementsByClass.get(((JavaFileObjectJavaSource)source).getQualifiedClassName());
+				if(xpage != null) {
+					fileName = odp.getBaseDirectory().relativize(xpage.getDataFile()).toString();
+				}
+			}
+			if(fileName == null) {
+				fileName = source == null ? "" : source.getName(); //$NON-NLS-1$
+			}
+			messages.computeIfAbsent(fileName, key -> new ArrayList<>())
+				.add(StringUtil.format("line {0}: {1}", d.getLineNumber(), d.getMessage(null))); //$NON-NLS-1$
+		}
+		return messages.entrySet().stream()
+			.map(entry -> entry.getKey() + "\n\t" + String.join("\n\t", entry.getValue())) //$NON-NLS-1$ //$NON-NLS-2$
+			.collect(Collectors.joining("\n")); //$NON-NLS-1$
+	}
+	
 	/**
 	 * @param importer the importer to use during the process
 	 * @param dxl an XML string to import
@@ -891,6 +1233,19 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	 * @return a {@link List} of imported note IDs
 	 */
 	private List<Integer> importDxl(NDXLImporter importer, String dxl, NDatabase database, String name) throws Exception {
+		return importDxl(importer, dxl, database, name, null);
+	}
+	/**
+	 * @param importer the importer to use during the process
+	 * @param dxl an XML string to import
+	 * @param database the database to import to
+	 * @param name a human-readable name of the element, for logging
+	 * @param elementForLine a function to determine the name of the element at a given
+	 *        line of the DXL, for logging; may be {@code null}
+	 * @return a {@link List} of imported note IDs
+	 * @since 4.1.0
+	 */
+	private List<Integer> importDxl(NDXLImporter importer, String dxl, NDatabase database, String name, IntFunction<String> elementForLine) throws Exception {
 		if(DEBUG_DXL) {
 			Path dxlFile = Files.createTempFile(NSFODPUtil.getTempDirectory(), name.replace('/', '-').replace('\\', '-'), ".xml"); //$NON-NLS-1$
 			try(OutputStream os = Files.newOutputStream(dxlFile)) {
@@ -898,7 +1253,26 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 			}
 		}
 		try(InputStream baos = new ByteArrayInputStream(dxl.getBytes(StandardCharsets.UTF_8))) {
-			return importDxl(importer, baos, database, name);
+			return importDxl(importer, baos, database, name, elementForLine);
+		}
+	}
+	/**
+	 * @param importer the importer to use during the process
+	 * @param dxlDoc a DXL document to import, which may contain deferred item data
+	 * @param database the database to import to
+	 * @param name a human-readable name of the element, for logging
+	 * @return a {@link List} of imported note IDs
+	 * @since 4.1.0
+	 */
+	private List<Integer> importDxl(NDXLImporter importer, Document dxlDoc, NDatabase database, String name) throws Exception {
+		if(DEBUG_DXL) {
+			Path dxlFile = Files.createTempFile(NSFODPUtil.getTempDirectory(), name.replace('/', '-').replace('\\', '-'), ".xml"); //$NON-NLS-1$
+			try(OutputStream os = Files.newOutputStream(dxlFile)) {
+				DXLUtil.writeDxl(dxlDoc, os);
+			}
+		}
+		try(InputStream is = DXLUtil.newDxlInputStream(dxlDoc)) {
+			return importDxl(importer, is, database, name);
 		}
 	}
 	/**
@@ -910,6 +1284,19 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 	 * @since 3.4.0
 	 */
 	private List<Integer> importDxl(NDXLImporter importer, InputStream dxl, NDatabase database, String name) throws Exception {
+		return importDxl(importer, dxl, database, name, null);
+	}
+	/**
+	 * @param importer the importer to use during the process
+	 * @param dxl an XML {@link InputStream} to import
+	 * @param database the database to import to
+	 * @param name a human-readable name of the element, for logging
+	 * @param elementForLine a function to determine the name of the element at a given
+	 *        line of the DXL, for logging; may be {@code null}
+	 * @return a {@link List} of imported note IDs
+	 * @since 4.1.0
+	 */
+	private List<Integer> importDxl(NDXLImporter importer, InputStream dxl, NDatabase database, String name, IntFunction<String> elementForLine) throws Exception {
 		try {
 			Collection<Integer> imported = new HashSet<>();
 			imported.addAll(importer.importDxl(database, dxl));
@@ -918,12 +1305,12 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 				DxlImporterLog log = DxlImporterLog.forXml(logXml);
 				if(log.getErrors() != null && !log.getErrors().isEmpty()) {
 					String msg = log.getErrors().stream()
-						.map(e -> StringUtil.format("{2} (line={0}, column={1})", e.getLine(), e.getColumn(), e.getText()))
+						.map(e -> withElementName(StringUtil.format("{2} (line={0}, column={1})", e.getLine(), e.getColumn(), e.getText()), e.getLine(), elementForLine))
 						.collect(Collectors.joining(", ")); //$NON-NLS-1$
 					throw new Exception(MessageFormat.format("Exception importing {0}: {1}", name, msg));
 				} else if(log.getFatalErrors() != null && !log.getFatalErrors().isEmpty()) {
 					String msg = log.getFatalErrors().stream()
-						.map(DXLFatalError::getText)
+						.map(e -> withElementName(e.getText(), e.getLine(), elementForLine))
 						.collect(Collectors.joining(", ")); //$NON-NLS-1$
 					throw new Exception(MessageFormat.format("Exception importing {0}: {1}", name, msg));
 				}
@@ -948,7 +1335,106 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 		}
 	}
 	
-	private void compileLotusScript(NDatabase database, List<Integer> noteIds, boolean retry) {
+	private static String withElementName(String message, int line, IntFunction<String> elementForLine) {
+		if(elementForLine != null) {
+			String element = elementForLine.apply(line);
+			if(StringUtil.isNotEmpty(element)) {
+				return element + ": " + message; //$NON-NLS-1$
+			}
+		}
+		return message;
+	}
+	
+	/**
+	 * Imports design elements of a category either individually or, when {@link ODPCompiler#getImportBatchSize()}
+	 * is greater than 1, in combined batches. {@link #flush()} must be called after the last element
+	 * is added.
+	 * 
+	 * @since 4.1.0
+	 */
+	private class ImportQueue {
+		private final NDXLImporter importer;
+		private final NDatabase database;
+		private final DxlImportBatch batch;
+		private final List<Integer> noteIds = new ArrayList<>();
+		
+		public ImportQueue(NDXLImporter importer, NDatabase database) {
+			this.importer = importer;
+			this.database = database;
+			// Tracked builds import individually so that each element's notes are known
+			this.batch = importBatchSize > 1 && buildManifest == null ? new DxlImportBatch() : null;
+		}
+		
+		public void add(String name, Path dxlFile) throws Exception {
+			if(batch == null) {
+				noteIds.addAll(importElement(database, () -> {
+					try(InputStream is = NSFODPUtil.newInputStream(dxlFile)) {
+						return importDxl(importer, is, database, name);
+					}
+				}, dxlFile));
+			} else {
+				Document dxlDoc;
+				try(InputStream is = NSFODPUtil.newInputStream(dxlFile)) {
+					dxlDoc = NSFODPDomUtil.createDocument(is);
+				}
+				add(name, dxlDoc);
+			}
+		}
+		
+		/**
+		 * @param name the element name to use in messages
+		 * @param dxlDoc the DXL of the element
+		 * @param files the project files of the element, used to track its notes
+		 */
+		public void add(String name, Document dxlDoc, Path... files) throws Exception {
+			if(batch == null) {
+				noteIds.addAll(importElement(database, () -> importDxl(importer, NSFODPDomUtil.getXmlString(dxlDoc, null), database, name), files));
+			} else {
+				batch.add(name, dxlDoc);
+				if(batch.size() >= importBatchSize) {
+					flush();
+				}
+			}
+		}
+		
+		/**
+		 * Imports any pending elements.
+		 * 
+		 * @return the IDs of all notes imported by this queue
+		 */
+		public List<Integer> flush() throws Exception {
+			if(batch != null && !batch.isEmpty()) {
+				String name = MessageFormat.format(Messages.ODPCompiler_importBatchLabel, batch.size());
+				String dxl;
+				try(ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+					batch.writeTo(baos);
+					dxl = baos.toString("UTF-8"); //$NON-NLS-1$
+				}
+				// The batch's <database> root must not replace the properties imported from the project
+				importer.setReplaceDbProperties(false);
+				try {
+					noteIds.addAll(importDxl(importer, dxl, database, name, batch::getNameForLine));
+				} finally {
+					importer.setReplaceDbProperties(true);
+				}
+				batch.clear();
+			}
+			return noteIds;
+		}
+	}
+	
+	/**
+	 * Compiles the LotusScript in the provided notes, ordered by the {@code Use} statements
+	 * in their source.
+	 * 
+	 * @param database the database containing the notes
+	 * @param noteIds the IDs of the notes to compile
+	 * @param sources the LotusScript source of the notes by ID, used to determine their
+	 *        dependencies on each other
+	 * @param ignoreFailures whether compilation failures should be tolerated instead of
+	 *        causing an exception
+	 */
+	private void compileLotusScript(NDatabase database, List<Integer> noteIds, Map<Integer, String> sources, boolean ignoreFailures) {
 		if(!noteIds.isEmpty()) {
 			try {
 				Class.forName("lotus.domino.websvc.client.Stub"); //$NON-NLS-1$
@@ -964,52 +1450,12 @@ public class ODPCompiler extends AbstractCompilationEnvironment {
 			}
 			
 			subTask(Messages.ODPCompiler_compilingLotusScript);
-			// In lieu of a dependency graph, just keep bashing at the list until it's done
-			Queue<Integer> remaining = new ArrayDeque<>(noteIds);
-			Map<Integer, String> titles = new HashMap<>();
-			for(int i = 0; i < noteIds.size(); i++) {
-				Queue<Integer> nextPass = new ArrayDeque<>();
-				
-				Integer noteId;
-				while((noteId = remaining.poll()) != null) {
-					String title = null;
-					try(NNote note = database.getNoteByID(noteId)) {
-						// Check to see if this is the Shared Actions note, which we should skip to avoid trouble
-						if((note.getNoteClassValue() & NsfNote.NOTE_CLASS_NONPRIV) == NsfNote.NOTE_CLASS_FORM) {
-							String flags = note.getAsString(StdNames.DESIGN_FLAGS, ' ');
-							if(NSFODPUtil.matchesFlagsPattern(flags, DFLAGPAT_SACTIONS_DESIGN)) {
-								continue;
-							}
-						}
-						
-						title = note.get("$TITLE", String.class); //$NON-NLS-1$
-						titles.put(noteId, title);
-						note.compileLotusScript();
-						note.sign();
-						note.save();
-					} catch(NLotusScriptCompilationException err) {
-						nextPass.add(noteId);
-						titles.put(noteId, title + " - " + err); //$NON-NLS-1$
-					} catch(NDominoException err) {
-						if(err.getStatus() == 12051) { // Same as above, but not encapsulated
-							titles.put(noteId, title + " - " + err); //$NON-NLS-1$
-							nextPass.add(noteId);
-						} else if(err.getStatus() == 0x222) {
-							// Note item not found - occurs for non-LS elements
-						} else {
-							throw err;
-						}
-					}
-				}
-				
-				remaining = nextPass;
-				if(nextPass.isEmpty()) {
-					break;
-				}
-			}
-			if(!retry && !remaining.isEmpty()) {
-				String notes = remaining.stream()
-					.map(noteId -> "Note ID " + noteId + ": " + titles.get(noteId)) //$NON-NLS-1$ //$NON-NLS-2$
+			LotusScriptCompiler.Result result = new LotusScriptCompiler(database::getNoteByID).compile(noteIds, sources);
+			result.getCycles().forEach(this::subTask);
+			
+			if(!ignoreFailures && !result.getFailures().isEmpty()) {
+				String notes = result.getFailures().entrySet().stream()
+					.map(entry -> "Note ID " + entry.getKey() + ": " + entry.getValue()) //$NON-NLS-1$ //$NON-NLS-2$
 					.collect(Collectors.joining("\n")); //$NON-NLS-1$
 				throw new RuntimeException(MessageFormat.format(Messages.ODPCompiler_unableToCompileLotusScript, notes));
 			}
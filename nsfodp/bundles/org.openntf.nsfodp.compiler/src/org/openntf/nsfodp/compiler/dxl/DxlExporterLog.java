@@ -15,11 +15,7 @@
  */
 package org.openntf.nsfodp.compiler.dxl;
 
-import java.io.StringReader;
-
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -33,18 +29,27 @@ import javax.xml.bind.annotation.XmlValue;
  */
 @XmlRootElement(name="DXLExporterLog")
 public class DxlExporterLog {
+	private static UnmarshallerPool<DxlExporterLog> pool;
+	
 	public static DxlExporterLog forXml(String xml) {
+		// Logs for successful exports contain no errors, so skip parsing entirely
+		if(xml.indexOf("error") == -1) { //$NON-NLS-1$
+			return new DxlExporterLog();
+		}
 		try {
-			JAXBContext jaxbContext = JAXBContext.newInstance(DxlExporterLog.class);
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-			try(StringReader r = new StringReader(xml)) {
-				return (DxlExporterLog) unmarshaller.unmarshal(r);
-			}
+			return getPool().unmarshal(xml);
 		} catch (JAXBException e) {
 			throw new RuntimeException(e);
 		}
 	}
 	
+	private static synchronized UnmarshallerPool<DxlExporterLog> getPool() throws JAXBException {
+		if(pool == null) {
+			pool = new UnmarshallerPool<>(DxlExporterLog.class);
+		}
+		return pool;
+	}
+	
 	@XmlRootElement(name="error")
 	public static class DXLError {
 		private int id;
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler.dxl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+
+import org.openntf.nsfodp.commons.xml.NSFODPDomUtil;
+import org.w3c.dom.Document;
+
+/**
+ * Collects the DXL of several design elements into a single {@code <database>} document,
+ * so that they can be imported in one importer call.
+ * 
+ * <p>The {@code <database>} root carries no attributes, and should be imported without
+ * replacing the properties of the target database.</p>
+ * 
+ * <p>The starting line of each element in the combined DXL is tracked, so that errors
+ * reported by the importer can be attributed to the element that caused them.</p>
+ * 
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class DxlImportBatch {
+	private static final String NS_DXL = "http://www.lotus.com/dxl"; //$NON-NLS-1$
+	/** The number of lines written before the first element: the XML declaration and the database start tag */
+	private static final int HEADER_LINES = 2;
+	
+	private final Transformer transformer;
+	private final List<String> names = new ArrayList<>();
+	private final List<Integer> startLines = new ArrayList<>();
+	private final StringBuilder body = new StringBuilder();
+	private int bodyLines;
+	
+	public DxlImportBatch() {
+		this.transformer = NSFODPDomUtil.createTransformer(null);
+		// Write the elements exactly as parsed
+		this.transformer.setOutputProperty(OutputKeys.INDENT, "no"); //$NON-NLS-1$
+		this.transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes"); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Adds the root element of the provided DXL document to the batch.
+	 * 
+	 * @param name a human-readable name of the element, used in error messages
+	 * @param dxlDoc the element's DXL
+	 */
+	public void add(String name, Document dxlDoc) {
+		StringWriter w = new StringWriter();
+		NSFODPDomUtil.serialize(w, dxlDoc.getDocumentElement(), transformer);
+		String xml = w.toString();
+		
+		names.add(name);
+		startLines.add(HEADER_LINES + bodyLines + 1);
+		body.append(xml).append('\n');
+		for(int i = 0; i < xml.length(); i++) {
+			if(xml.charAt(i) == '\n') {
+				bodyLines++;
+			}
+		}
+		bodyLines++;
+	}
+	
+	public int size() {
+		return names.size();
+	}
+	
+	public boolean isEmpty() {
+		return names.isEmpty();
+	}
+	
+	/**
+	 * @return the names of the elements in the batch, in order
+	 */
+	public List<String> getNames() {
+		return Collections.unmodifiableList(names);
+	}
+	
+	/**
+	 * Determines the element that contains the provided line of the combined DXL.
+	 * 
+	 * @param line a 1-based line number, as reported in the importer log
+	 * @return the name of the element containing that line, or {@code null} if the
+	 *         line is outside of any element
+	 */
+	public String getNameForLine(int line) {
+		int index = Collections.binarySearch(startLines, line);
+		if(index < 0) {
+			index = -index - 2;
+		}
+		if(index < 0 || line > HEADER_LINES + bodyLines) {
+			return null;
+		}
+		return names.get(index);
+	}
+	
+	/**
+	 * Writes the combined DXL to the provided stream as UTF-8.
+	 * 
+	 * @param os the stream to write to
+	 * @throws IOException if there is a problem writing the DXL
+	 */
+	public void writeTo(OutputStream os) throws IOException {
+		StringBuilder header = new StringBuilder();
+		header.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"); //$NON-NLS-1$
+		header.append("<database xmlns=\"").append(NS_DXL).append("\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		
+		os.write(header.toString().getBytes(StandardCharsets.UTF_8));
+		os.write(body.toString().getBytes(StandardCharsets.UTF_8));
+		os.write("</database>\n".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Removes all elements from the batch.
+	 */
+	public void clear() {
+		names.clear();
+		startLines.clear();
+		body.setLength(0);
+		bodyLines = 0;
+	}
+}
@@ -15,13 +15,10 @@
  */
 package org.openntf.nsfodp.compiler.dxl;
 
-import java.io.StringReader;
 import java.text.MessageFormat;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -37,18 +34,27 @@ import javax.xml.bind.annotation.XmlValue;
 @XmlRootElement(name="DXLImporterLog")
 @XmlAccessorType(XmlAccessType.FIELD)
 public class DxlImporterLog {
+	private static UnmarshallerPool<DxlImporterLog> pool;
+	
 	public static DxlImporterLog forXml(String xml) {
+		// Logs for successful imports contain no errors, so skip parsing entirely
+		if(xml.indexOf("error") == -1) { //$NON-NLS-1$
+			return new DxlImporterLog();
+		}
 		try {
-			JAXBContext jaxbContext = JAXBContext.newInstance(DxlImporterLog.class);
-			Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-			try(StringReader r = new StringReader(xml)) {
-				return (DxlImporterLog) unmarshaller.unmarshal(r);
-			}
+			return getPool().unmarshal(xml);
 		} catch (JAXBException e) {
 			throw new RuntimeException("Encountered exception parsing DXL log: " + xml, e);
 		}
 	}
 	
+	private static synchronized UnmarshallerPool<DxlImporterLog> getPool() throws JAXBException {
+		if(pool == null) {
+			pool = new UnmarshallerPool<>(DxlImporterLog.class);
+		}
+		return pool;
+	}
+	
 	@XmlRootElement(name="error")
 	public static class DXLError {
 		private int id;
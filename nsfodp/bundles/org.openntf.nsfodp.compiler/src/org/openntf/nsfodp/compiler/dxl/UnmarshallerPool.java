@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler.dxl;
+
+import java.io.StringReader;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Holds a shared {@link JAXBContext} for a log class along with a pool of
+ * {@link Unmarshaller}s, which are not themselves thread-safe.
+ * 
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+class UnmarshallerPool<T> {
+	private final Class<T> type;
+	private final JAXBContext context;
+	private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<>();
+	
+	public UnmarshallerPool(Class<T> type) throws JAXBException {
+		this.type = type;
+		this.context = JAXBContext.newInstance(type);
+	}
+	
+	public T unmarshal(String xml) throws JAXBException {
+		Unmarshaller unmarshaller = unmarshallers.poll();
+		if(unmarshaller == null) {
+			unmarshaller = context.createUnmarshaller();
+		}
+		try(StringReader r = new StringReader(xml)) {
+			return type.cast(unmarshaller.unmarshal(r));
+		} finally {
+			unmarshallers.offer(unmarshaller);
+		}
+	}
+}
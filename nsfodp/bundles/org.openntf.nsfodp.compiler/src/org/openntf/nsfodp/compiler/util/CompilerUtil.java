@@ -19,6 +19,8 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.openntf.nsfodp.commons.dxl.DXLUtil;
 import org.openntf.nsfodp.commons.odp.notesapi.NDXLImporter;
@@ -40,8 +42,10 @@ public enum CompilerUtil {
 	
 	/**
 	 * Imports a generic file resource, such as an outer class file from a multi-class Java resource.
+	 * 
+	 * @return the IDs of the imported notes
 	 */
-	public static void importFileResource(NDXLImporter importer, byte[] data, NDatabase database, String name, String flags, String flagsExt) throws IOException {
+	public static List<Integer> importFileResource(NDXLImporter importer, byte[] data, NDatabase database, String name, String flags, String flagsExt) throws IOException {
 		Document dxlDoc = NSFODPDomUtil.createDocument();
 		Element note = NSFODPDomUtil.createElement(dxlDoc, "note"); //$NON-NLS-1$
 		note.setAttribute("class", "form"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -56,7 +60,7 @@ public enum CompilerUtil {
 		DXLUtil.writeItemString(dxlDoc, "$FileNames", false, name); //$NON-NLS-1$
 		String dxl = NSFODPDomUtil.getXmlString(dxlDoc, null);
 		try(InputStream is = new ByteArrayInputStream(dxl.getBytes(StandardCharsets.UTF_8))) {
-			importer.importDxl(database, is);
+			return new ArrayList<>(importer.importDxl(database, is));
 		}
 	}
 }
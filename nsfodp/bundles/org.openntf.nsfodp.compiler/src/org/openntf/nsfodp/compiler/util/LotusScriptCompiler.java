@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler.util;
+
+import static org.openntf.nsfodp.commons.h.StdNames.DFLAGPAT_SACTIONS_DESIGN;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import org.openntf.nsfodp.commons.NSFODPUtil;
+import org.openntf.nsfodp.commons.h.NsfNote;
+import org.openntf.nsfodp.commons.h.StdNames;
+import org.openntf.nsfodp.commons.odp.notesapi.NDominoException;
+import org.openntf.nsfodp.commons.odp.notesapi.NLotusScriptCompilationException;
+import org.openntf.nsfodp.commons.odp.notesapi.NNote;
+import org.openntf.nsfodp.compiler.Messages;
+
+import com.ibm.commons.util.StringUtil;
+
+/**
+ * Compiles the LotusScript in a set of notes in a single pass, ordered by the
+ * {@code Use} dependencies between them.
+ * 
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class LotusScriptCompiler {
+	/** Status code for LotusScript compilation errors that are not reported as such */
+	private static final int ERR_LS_COMPILATION = 12051;
+	/** Status code for a missing item, which occurs for notes without LotusScript */
+	private static final int ERR_ITEM_NOT_FOUND = 0x222;
+	
+	private final IntFunction<NNote> noteProvider;
+	
+	/**
+	 * @param noteProvider a function to open a note by ID, such as {@code NDatabase::getNoteByID}
+	 */
+	public LotusScriptCompiler(IntFunction<NNote> noteProvider) {
+		this.noteProvider = noteProvider;
+	}
+	
+	/**
+	 * Compiles, signs, and saves the provided notes.
+	 * 
+	 * @param noteIds the IDs of the notes to compile
+	 * @param sources the LotusScript source of the notes by ID, used to determine their
+	 *        {@code Use} dependencies; notes without an entry are assumed to have none
+	 * @return a {@link Result} describing any failures
+	 */
+	public Result compile(Collection<Integer> noteIds, Map<Integer, ? extends CharSequence> sources) {
+		Map<Integer, String> titles = new HashMap<>();
+		LotusScriptDependencyGraph<Integer> graph = new LotusScriptDependencyGraph<>();
+		for(Integer noteId : noteIds) {
+			try(NNote note = noteProvider.apply(noteId)) {
+				// Check to see if this is the Shared Actions note, which we should skip to avoid trouble
+				if((note.getNoteClassValue() & NsfNote.NOTE_CLASS_NONPRIV) == NsfNote.NOTE_CLASS_FORM) {
+					String flags = note.getAsString(StdNames.DESIGN_FLAGS, ' ');
+					if(NSFODPUtil.matchesFlagsPattern(flags, DFLAGPAT_SACTIONS_DESIGN)) {
+						continue;
+					}
+				}
+				
+				String title = note.get("$TITLE", String.class); //$NON-NLS-1$
+				titles.put(noteId, title);
+				List<String> names = StringUtil.isEmpty(title) ? Collections.emptyList() : Arrays.asList(title.split("\\|")); //$NON-NLS-1$
+				graph.add(noteId, names, LotusScriptDependencyGraph.parseUses(sources.get(noteId)));
+			}
+		}
+		
+		LotusScriptDependencyGraph.Order<Integer> order = graph.sort();
+		List<Integer> compiled = new ArrayList<>();
+		Map<Integer, String> failures = new LinkedHashMap<>();
+		for(Integer noteId : order.getOrder()) {
+			String title = titles.get(noteId);
+			try(NNote note = noteProvider.apply(noteId)) {
+				note.compileLotusScript();
+				note.sign();
+				note.save();
+				compiled.add(noteId);
+			} catch(NLotusScriptCompilationException err) {
+				failures.put(noteId, title + " - " + err); //$NON-NLS-1$
+			} catch(NDominoException err) {
+				if(err.getStatus() == ERR_LS_COMPILATION) { // Same as above, but not encapsulated
+					failures.put(noteId, title + " - " + err); //$NON-NLS-1$
+				} else if(err.getStatus() == ERR_ITEM_NOT_FOUND) {
+					// Note item not found - occurs for non-LS elements
+				} else {
+					throw err;
+				}
+			}
+		}
+		for(Integer noteId : order.getBlocked()) {
+			failures.put(noteId, titles.get(noteId) + " - " + Messages.LotusScriptCompiler_circularUse); //$NON-NLS-1$
+		}
+		
+		List<String> cycles = order.getCycles().stream()
+			.map(cycle -> {
+				List<String> path = cycle.stream().map(titles::get).collect(Collectors.toList());
+				path.add(path.get(0));
+				return MessageFormat.format(Messages.LotusScriptCompiler_cycle, String.join(" -> ", path)); //$NON-NLS-1$
+			})
+			.collect(Collectors.toList());
+		
+		return new Result(compiled, failures, cycles);
+	}
+	
+	/**
+	 * The outcome of a call to {@link LotusScriptCompiler#compile}.
+	 */
+	public static class Result {
+		private final List<Integer> compiled;
+		private final Map<Integer, String> failures;
+		private final List<String> cycles;
+		
+		private Result(List<Integer> compiled, Map<Integer, String> failures, List<String> cycles) {
+			this.compiled = Collections.unmodifiableList(compiled);
+			this.failures = Collections.unmodifiableMap(failures);
+			this.cycles = Collections.unmodifiableList(cycles);
+		}
+		
+		/**
+		 * @return the IDs of the notes that were compiled, in compilation order
+		 */
+		public List<Integer> getCompiled() {
+			return compiled;
+		}
+		
+		/**
+		 * @return a map of note IDs that could not be compiled to a description of the problem
+		 */
+		public Map<Integer, String> getFailures() {
+			return failures;
+		}
+		
+		/**
+		 * @return human-readable descriptions of each {@code Use} cycle found
+		 */
+		public List<String> getCycles() {
+			return cycles;
+		}
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.compiler.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Models the {@code Use} dependencies between LotusScript design elements, in order to
+ * compile them in a single pass with each library compiled before its dependents.
+ * 
+ * <p>Dependencies on libraries that are not part of the graph, such as ones compiled
+ * in an earlier step, are ignored.</p>
+ * 
+ * @param <T> the type used to identify elements, such as note IDs
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class LotusScriptDependencyGraph<T> {
+	private static final Pattern USE_STATEMENT = Pattern.compile("^\\s*use\\s+\"([^\"]+)\"\\s*$", Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
+	private static final Pattern REM_START = Pattern.compile("^\\s*%rem\\b.*", Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
+	private static final Pattern REM_END = Pattern.compile("^\\s*%end\\s+rem\\b.*", Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
+	
+	private final Map<T, Collection<String>> uses = new LinkedHashMap<>();
+	private final Map<String, T> elementsByName = new HashMap<>();
+	
+	/**
+	 * Finds the names of the libraries referenced by {@code Use "..."} statements in the
+	 * provided LotusScript source, skipping comments.
+	 * 
+	 * @param source the LotusScript source to parse; may be {@code null}
+	 * @return a {@link Set} of referenced library names, in source order
+	 */
+	public static Set<String> parseUses(CharSequence source) {
+		Set<String> result = new LinkedHashSet<>();
+		if(source == null) {
+			return result;
+		}
+		
+		boolean inRem = false;
+		for(String line : source.toString().split("\\r\\n|\\r|\\n")) { //$NON-NLS-1$
+			if(inRem) {
+				if(REM_END.matcher(line).matches()) {
+					inRem = false;
+				}
+				continue;
+			} else if(REM_START.matcher(line).matches()) {
+				inRem = true;
+				continue;
+			}
+			
+			for(String statement : splitStatements(line)) {
+				Matcher matcher = USE_STATEMENT.matcher(statement);
+				if(matcher.matches()) {
+					result.add(matcher.group(1));
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Adds an element to the graph.
+	 * 
+	 * @param element the identifier of the element
+	 * @param names the names by which the element can be referenced in a {@code Use} statement,
+	 *        such as a library's title and aliases
+	 * @param uses the names of the libraries the element uses
+	 */
+	public void add(T element, Collection<String> names, Collection<String> uses) {
+		this.uses.put(element, uses == null ? Collections.emptyList() : new ArrayList<>(uses));
+		if(names != null) {
+			for(String name : names) {
+				this.elementsByName.putIfAbsent(normalizeName(name), element);
+			}
+		}
+	}
+	
+	/**
+	 * Determines the compilation order of the elements in the graph.
+	 * 
+	 * @return an {@link Order} containing the sorted elements and any dependency cycles
+	 */
+	public Order<T> sort() {
+		// Resolve the names to the elements in the graph
+		Map<T, Set<T>> dependencies = new LinkedHashMap<>();
+		Map<T, List<T>> dependents = new HashMap<>();
+		for(Map.Entry<T, Collection<String>> entry : uses.entrySet()) {
+			Set<T> deps = new LinkedHashSet<>();
+			for(String name : entry.getValue()) {
+				T dep = elementsByName.get(normalizeName(name));
+				if(dep != null) {
+					deps.add(dep);
+					dependents.computeIfAbsent(dep, key -> new ArrayList<>()).add(entry.getKey());
+				}
+			}
+			dependencies.put(entry.getKey(), deps);
+		}
+		
+		// Kahn's algorithm, preserving insertion order where there are no constraints
+		Map<T, Integer> remainingCounts = new HashMap<>();
+		Deque<T> ready = new ArrayDeque<>();
+		dependencies.forEach((element, deps) -> {
+			remainingCounts.put(element, deps.size());
+			if(deps.isEmpty()) {
+				ready.add(element);
+			}
+		});
+		List<T> order = new ArrayList<>(dependencies.size());
+		T element;
+		while((element = ready.poll()) != null) {
+			order.add(element);
+			for(T dependent : dependents.getOrDefault(element, Collections.emptyList())) {
+				int count = remainingCounts.merge(dependent, -1, Integer::sum);
+				if(count == 0) {
+					ready.add(dependent);
+				}
+			}
+		}
+		
+		List<T> blocked = new ArrayList<>();
+		for(T e : dependencies.keySet()) {
+			if(remainingCounts.get(e) > 0) {
+				blocked.add(e);
+			}
+		}
+		
+		return new Order<>(order, blocked, findCycles(blocked, dependencies));
+	}
+	
+	/**
+	 * Finds one representative cycle for each group of mutually-dependent elements.
+	 */
+	private static <T> List<List<T>> findCycles(List<T> blocked, Map<T, Set<T>> dependencies) {
+		List<List<T>> result = new ArrayList<>();
+		Set<T> seen = new HashSet<>();
+		for(T start : blocked) {
+			if(seen.contains(start)) {
+				continue;
+			}
+			List<T> path = findPath(start, start, dependencies, new HashSet<>());
+			if(path != null) {
+				seen.addAll(path);
+				result.add(path);
+			}
+		}
+		return result;
+	}
+	
+	private static <T> List<T> findPath(T from, T to, Map<T, Set<T>> dependencies, Set<T> visited) {
+		for(T dep : dependencies.get(from)) {
+			if(dep.equals(to)) {
+				List<T> path = new ArrayList<>();
+				path.add(from);
+				return path;
+			} else if(visited.add(dep)) {
+				List<T> path = findPath(dep, to, dependencies, visited);
+				if(path != null) {
+					path.add(0, from);
+					return path;
+				}
+			}
+		}
+		return null;
+	}
+	
+	private static List<String> splitStatements(String line) {
+		List<String> result = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		boolean inString = false;
+		for(int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if(c == '"') {
+				inString = !inString;
+			} else if(!inString && c == '\'') {
+				// The rest of the line is a comment
+				break;
+			} else if(!inString && c == ':') {
+				result.add(current.toString());
+				current.setLength(0);
+				continue;
+			}
+			current.append(c);
+		}
+		result.add(current.toString());
+		return result;
+	}
+	
+	private static String normalizeName(String name) {
+		return name.trim().toLowerCase(Locale.ENGLISH);
+	}
+	
+	/**
+	 * The result of sorting a {@link LotusScriptDependencyGraph}.
+	 * 
+	 * @param <T> the type used to identify elements
+	 */
+	public static class Order<T> {
+		private final List<T> order;
+		private final List<T> blocked;
+		private final List<List<T>> cycles;
+		
+		private Order(List<T> order, List<T> blocked, List<List<T>> cycles) {
+			this.order = Collections.unmodifiableList(order);
+			this.blocked = Collections.unmodifiableList(blocked);
+			this.cycles = Collections.unmodifiableList(cycles);
+		}
+		
+		/**
+		 * @return the elements that can be compiled, with each one after the libraries it uses
+		 */
+		public List<T> getOrder() {
+			return order;
+		}
+		
+		/**
+		 * @return the elements that are part of, or depend on, a dependency cycle and so
+		 *         cannot be compiled
+		 */
+		public List<T> getBlocked() {
+			return blocked;
+		}
+		
+		/**
+		 * @return the dependency cycles in the graph, each listed as a path of elements where
+		 *         each uses the next and the last uses the first
+		 */
+		public List<List<T>> getCycles() {
+			return cycles;
+		}
+	}
+}
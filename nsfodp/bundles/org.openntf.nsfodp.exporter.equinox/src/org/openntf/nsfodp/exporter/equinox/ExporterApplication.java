@@ -21,6 +21,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.Collections;
+import java.util.Map;
 
 import org.eclipse.equinox.app.IApplication;
 import org.eclipse.equinox.app.IApplicationContext;
@@ -28,6 +29,7 @@ import org.openntf.nsfodp.commons.NSFODPConstants;
 import org.openntf.nsfodp.commons.NSFODPUtil;
 import org.openntf.nsfodp.commons.odp.notesapi.NDatabase;
 import org.openntf.nsfodp.commons.odp.notesapi.NotesAPI;
+import org.openntf.nsfodp.commons.osgi.DaemonApplicationContext;
 import org.openntf.nsfodp.exporter.ODPExporter;
 
 import lotus.domino.NotesThread;
@@ -39,24 +41,27 @@ public class ExporterApplication implements IApplication {
 
 	@Override
 	public Object start(IApplicationContext context) throws Exception {
-		String notesIni = System.getenv(NSFODPConstants.PROP_NOTESINI);
+		Map<String, String> env = DaemonApplicationContext.getEnvironment(context);
+		String notesIni = env.get(NSFODPConstants.PROP_NOTESINI);
 		if(notesIni != null && !notesIni.isEmpty()) {
-			String execDir = System.getenv("Notes_ExecDirectory"); //$NON-NLS-1$
+			String execDir = env.get("Notes_ExecDirectory"); //$NON-NLS-1$
 			try(NotesAPI api = NotesAPI.get()) {
 				api.NotesInitExtended(execDir, "=" + notesIni); //$NON-NLS-1$
 			}
 		}
 		
-		String databasePath = System.getenv(NSFODPConstants.PROP_EXPORTER_DATABASE_PATH);
+		String databasePath = env.get(NSFODPConstants.PROP_EXPORTER_DATABASE_PATH);
 		if(databasePath == null) {
 			throw new IllegalArgumentException(MessageFormat.format(Messages.ExporterApplication_dbPathCannotBeEmpty, NSFODPConstants.PROP_EXPORTER_DATABASE_PATH));
 		}
-		Path odpDir = Paths.get(System.getenv(NSFODPConstants.PROP_OUTPUTFILE));
+		Path odpDir = Paths.get(env.get(NSFODPConstants.PROP_OUTPUTFILE));
 		
-		boolean binaryDxl = "true".equals(System.getenv(NSFODPConstants.PROP_EXPORTER_BINARY_DXL)); //$NON-NLS-1$
-		boolean swiperFilter = "true".equals(System.getenv(NSFODPConstants.PROP_EXPORTER_SWIPER_FILTER)); //$NON-NLS-1$
-		boolean richTextAsItemData = "true".equals(System.getenv(NSFODPConstants.PROP_RICH_TEXT_AS_ITEM_DATA)); //$NON-NLS-1$
-		String projectName = System.getenv(NSFODPConstants.PROP_PROJECT_NAME);
+		boolean binaryDxl = "true".equals(env.get(NSFODPConstants.PROP_EXPORTER_BINARY_DXL)); //$NON-NLS-1$
+		boolean swiperFilter = "true".equals(env.get(NSFODPConstants.PROP_EXPORTER_SWIPER_FILTER)); //$NON-NLS-1$
+		boolean richTextAsItemData = "true".equals(env.get(NSFODPConstants.PROP_RICH_TEXT_AS_ITEM_DATA)); //$NON-NLS-1$
+		String projectName = env.get(NSFODPConstants.PROP_PROJECT_NAME);
+		String parallelism = env.get(NSFODPConstants.PROP_EXPORTER_PARALLELISM);
+		boolean incremental = "true".equals(env.get(NSFODPConstants.PROP_EXPORTER_INCREMENTAL)); //$NON-NLS-1$
 		
 		NotesThread runner = new NotesThread(() -> {
 			try(NotesAPI session = NotesAPI.get()) {
@@ -67,7 +72,17 @@ public class ExporterApplication implements IApplication {
 					exporter.setSwiperFilter(swiperFilter);
 					exporter.setRichTextAsItemData(richTextAsItemData);
 					exporter.setProjectName(projectName);
+					if(parallelism != null && !parallelism.isEmpty()) {
+						exporter.setParallelism(Integer.parseInt(parallelism));
+					}
+					if(incremental) {
+						exporter.setIncrementalBase(odpDir);
+					}
 					Path result = exporter.export();
+					if(result.equals(odpDir)) {
+						// Then the existing ODP was updated in place
+						return;
+					}
 					Path eclipseProject = odpDir.resolve(".project"); //$NON-NLS-1$
 					if(Files.exists(eclipseProject)) {
 						Path tempPath = Files.createTempFile("nsfodp", ".project"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -26,6 +26,8 @@ import java.security.Principal;
 import java.text.MessageFormat;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
@@ -34,6 +36,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.openntf.nsfodp.commons.AsyncLineDelimitedJsonProgressMonitor;
 import org.openntf.nsfodp.commons.LineDelimitedJsonProgressMonitor;
 import org.openntf.nsfodp.commons.NSFODPConstants;
 import org.openntf.nsfodp.commons.NSFODPUtil;
@@ -65,10 +68,15 @@ public class ODPExporterServlet extends HttpServlet {
 		Principal user = req.getUserPrincipal();
 		resp.setBufferSize(0);
 		resp.setStatus(HttpServletResponse.SC_OK);
+		if("true".equals(req.getHeader(NSFODPConstants.HEADER_STREAM_ODP))) { //$NON-NLS-1$
+			resp.setHeader(NSFODPConstants.HEADER_STREAM_ODP, "true"); //$NON-NLS-1$
+		}
 		
 		ServletOutputStream os = resp.getOutputStream();
 		
 		Set<Path> cleanup = new HashSet<>();
+		AsyncLineDelimitedJsonProgressMonitor monitor = null;
+		ZipOutputStream zos = null;
 		try {
 			if(!ALLOW_ANONYMOUS && "Anonymous".equalsIgnoreCase(user.getName())) { //$NON-NLS-1$
 				resp.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -118,7 +126,8 @@ public class ODPExporterServlet extends HttpServlet {
 				}
 				
 				try {
-					IProgressMonitor mon = new LineDelimitedJsonProgressMonitor(os);
+					monitor = new AsyncLineDelimitedJsonProgressMonitor(os);
+					IProgressMonitor mon = monitor;
 					
 					ODPExporter exporter = new ODPExporter(database);
 					
@@ -135,13 +144,31 @@ public class ODPExporterServlet extends HttpServlet {
 						exporter.setRichTextAsItemData(true);
 					}
 					exporter.setProjectName(req.getHeader(NSFODPConstants.HEADER_PROJECT_NAME));
+					String parallelism = req.getHeader(NSFODPConstants.HEADER_EXPORT_PARALLELISM);
+					if(StringUtil.isNotEmpty(parallelism)) {
+						exporter.setParallelism(Integer.parseInt(parallelism));
+					}
 					
-					exporter.setOdpType(ODPType.ZIP);
-					Path result = exporter.export();
-					cleanup.add(result);
-					mon.done();
-					
-					Files.copy(result, os);
+					if("true".equals(req.getHeader(NSFODPConstants.HEADER_STREAM_ODP))) { //$NON-NLS-1$
+						// Send entries as notes are exported, ending with a marker that
+						//   tells the client the export is complete
+						mon.done();
+						monitor.close();
+						zos = new ZipOutputStream(os);
+						exporter.export(zos);
+						zos.putNextEntry(new ZipEntry(NSFODPConstants.STREAM_ENTRY_END));
+						zos.closeEntry();
+						zos.finish();
+					} else {
+						exporter.setOdpType(ODPType.ZIP);
+						Path result = exporter.export();
+						cleanup.add(result);
+						mon.done();
+						
+						// Make sure all progress is sent before the ODP
+						monitor.flush();
+						Files.copy(result, os);
+					}
 				} finally {
 					if(post) {
 						String filePath = database.getFilePath();
@@ -152,16 +179,30 @@ public class ODPExporterServlet extends HttpServlet {
 			}
 			
 		} catch(Throwable e) {
+			if(monitor != null) {
+				monitor.close();
+			}
 			ByteArrayOutputStream baos = new ByteArrayOutputStream();
 			PrintWriter out = new PrintWriter(baos);
 			e.printStackTrace(out);
 			out.flush();
-			os.println(LineDelimitedJsonProgressMonitor.message(
-				"type", "error", //$NON-NLS-1$ //$NON-NLS-2$
-				"stackTrace", baos.toString() //$NON-NLS-1$
-				)
-			);
+			if(zos != null) {
+				// The client is already reading entries, so report the failure as one
+				zos.putNextEntry(new ZipEntry(NSFODPConstants.STREAM_ENTRY_ERROR));
+				baos.writeTo(zos);
+				zos.closeEntry();
+				zos.finish();
+			} else {
+				os.println(LineDelimitedJsonProgressMonitor.message(
+					"type", "error", //$NON-NLS-1$ //$NON-NLS-2$
+					"stackTrace", baos.toString() //$NON-NLS-1$
+					)
+				);
+			}
 		} finally {
+			if(monitor != null) {
+				monitor.close();
+			}
 			NSFODPUtil.deltree(cleanup);
 		}
 	}
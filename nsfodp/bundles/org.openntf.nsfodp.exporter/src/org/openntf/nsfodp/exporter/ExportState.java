@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.nsfodp.exporter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Represents the contents of the marker file written into an ODP by an incremental-capable
+ * export, recording the database it came from, the export settings, the database time of
+ * the export, and the files written for each design note.
+ *
+ * <p>The recorded files allow a later export to remove the files for deleted or renamed
+ * notes. The marker is written with sorted keys and no timestamp, so that it only changes
+ * when its content does.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+class ExportState {
+	/** The name of the marker file within the ODP */
+	public static final String FILE_NAME = ".nsfodp-export"; //$NON-NLS-1$
+
+	private static final String PROP_REPLICA_ID = "replicaId"; //$NON-NLS-1$
+	private static final String PROP_SETTINGS = "settings"; //$NON-NLS-1$
+	private static final String PROP_SINCE = "since"; //$NON-NLS-1$
+	private static final String PREFIX_NOTE = "note."; //$NON-NLS-1$
+	private static final String PATH_DELIMITER = "|"; //$NON-NLS-1$
+
+	/**
+	 * Reads the export state from the provided ODP directory.
+	 *
+	 * @param odpDirectory the ODP directory to read from
+	 * @return the read {@link ExportState}, or {@code null} if the directory has no
+	 *         marker file
+	 * @throws IOException if there is a problem reading the marker file
+	 */
+	public static ExportState read(Path odpDirectory) throws IOException {
+		Path file = odpDirectory.resolve(FILE_NAME);
+		if(!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		Properties props = new Properties();
+		try(InputStream is = Files.newInputStream(file)) {
+			props.load(is);
+		}
+		ExportState state = new ExportState(props.getProperty(PROP_REPLICA_ID), props.getProperty(PROP_SETTINGS), props.getProperty(PROP_SINCE));
+		for(String key : props.stringPropertyNames()) {
+			if(key.startsWith(PREFIX_NOTE)) {
+				int noteId = Integer.parseUnsignedInt(key.substring(PREFIX_NOTE.length()), 16);
+				String paths = props.getProperty(key);
+				Set<String> files = paths.isEmpty() ? Collections.emptySet() : new LinkedHashSet<>(Arrays.asList(paths.split("\\|"))); //$NON-NLS-1$
+				state.previousFiles.put(noteId, files);
+				state.setFiles(noteId, files);
+			}
+		}
+		return state;
+	}
+
+	private final String replicaId;
+	private final String settings;
+	private String since;
+	private final Map<Integer, Set<String>> previousFiles = new HashMap<>();
+	private final Map<Integer, Set<String>> files = new HashMap<>();
+	/** The notes recorded for each file, usually only one */
+	private final Map<String, Set<Integer>> notesByPath = new HashMap<>();
+	private volatile boolean complete = true;
+
+	/**
+	 * @param replicaId the replica ID of the exported database
+	 * @param settings a description of the export settings that affect the exported files
+	 * @param since the database time of the last complete export, or {@code null} if there
+	 *        has not been one
+	 */
+	public ExportState(String replicaId, String settings, String since) {
+		this.replicaId = replicaId;
+		this.settings = settings;
+		this.since = since;
+	}
+
+	/**
+	 * @return the replica ID of the exported database
+	 */
+	public String getReplicaId() {
+		return replicaId;
+	}
+
+	/**
+	 * @return a description of the export settings that affect the exported files, or
+	 *         {@code null} if not recorded
+	 */
+	public String getSettings() {
+		return settings;
+	}
+
+	/**
+	 * @return the database time of the last complete export, or {@code null} if there
+	 *         has not been one
+	 */
+	public String getSince() {
+		return since;
+	}
+
+	/**
+	 * Records the files written for a note, replacing any previously recorded.
+	 *
+	 * @param noteId the ID of the exported note
+	 * @param paths the written files, relative to the ODP root with "/" separators
+	 */
+	public synchronized void setFiles(int noteId, Collection<String> paths) {
+		removeFiles(noteId);
+		Set<String> noteFiles = new LinkedHashSet<>(paths);
+		files.put(noteId, noteFiles);
+		for(String path : noteFiles) {
+			notesByPath.computeIfAbsent(path, key -> new HashSet<>()).add(noteId);
+		}
+	}
+
+	/**
+	 * Removes the record of the files for a deleted note.
+	 *
+	 * @param noteId the ID of the deleted note
+	 */
+	public synchronized void removeFiles(int noteId) {
+		Set<String> noteFiles = files.remove(noteId);
+		if(noteFiles != null) {
+			for(String path : noteFiles) {
+				Set<Integer> notes = notesByPath.get(path);
+				if(notes != null) {
+					notes.remove(noteId);
+					if(notes.isEmpty()) {
+						notesByPath.remove(path);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determines whether a note with a lower ID than the provided one is recorded as
+	 * having written the file.
+	 *
+	 * @param path the file path, relative to the ODP root with "/" separators
+	 * @param noteId the ID of the note to compare to
+	 * @return {@code true} if an earlier note is recorded for {@code path}
+	 */
+	public synchronized boolean isRecordedForEarlierNote(String path, int noteId) {
+		return notesByPath.getOrDefault(path, Collections.emptySet()).stream()
+			.anyMatch(id -> Integer.compareUnsigned(id, noteId) < 0);
+	}
+
+	/**
+	 * Determines the files recorded by a previous export for the provided notes that no
+	 * note has been recorded as writing in this export.
+	 *
+	 * @param noteIds the IDs of modified or deleted notes
+	 * @return a {@link Set} of relative file paths that should be removed
+	 */
+	public synchronized Set<String> getStaleFiles(Collection<Integer> noteIds) {
+		Set<String> result = new HashSet<>();
+		for(Integer noteId : noteIds) {
+			for(String path : previousFiles.getOrDefault(noteId, Collections.emptySet())) {
+				if(!notesByPath.containsKey(path)) {
+					result.add(path);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Marks that at least one note could not be exported, so that the next export does
+	 * not skip it.
+	 */
+	public void markIncomplete() {
+		this.complete = false;
+	}
+
+	/**
+	 * Writes the state to the provided ODP directory.
+	 *
+	 * <p>If every note was exported, the recorded database time is replaced with
+	 * {@code until}. Otherwise, the previous time is kept so that the next export
+	 * includes the notes that failed.</p>
+	 *
+	 * @param odpDirectory the ODP directory to write to
+	 * @param until the database time at which this export's search was performed
+	 * @throws IOException if there is a problem writing the marker file
+	 */
+	public synchronized void write(Path odpDirectory, String until) throws IOException {
+		if(complete) {
+			this.since = until;
+		}
+
+		Properties props = new Properties();
+		props.setProperty(PROP_REPLICA_ID, replicaId);
+		if(settings != null) {
+			props.setProperty(PROP_SETTINGS, settings);
+		}
+		if(since != null) {
+			props.setProperty(PROP_SINCE, since);
+		}
+		for(Map.Entry<Integer, Set<String>> entry : files.entrySet()) {
+			props.setProperty(PREFIX_NOTE + Integer.toHexString(entry.getKey()), String.join(PATH_DELIMITER, entry.getValue()));
+		}
+
+		// Properties#store adds a date comment and writes in hash order, so sort its lines
+		//   instead. Line breaks within values are escaped, so each entry is one line
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		props.store(baos, null);
+		String content = Arrays.stream(new String(baos.toByteArray(), StandardCharsets.ISO_8859_1).split("\\r?\\n")) //$NON-NLS-1$
+			.filter(line -> !line.isEmpty() && !line.startsWith("#")) //$NON-NLS-1$
+			.sorted()
+			.map(line -> line + '\n')
+			.collect(Collectors.joining());
+		try(OutputStream os = Files.newOutputStream(odpDirectory.resolve(FILE_NAME), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			os.write(content.getBytes(StandardCharsets.ISO_8859_1));
+		}
+	}
+}
@@ -21,6 +21,12 @@ public class Messages extends NLS {
 	private static final String BUNDLE_NAME = "org.openntf.nsfodp.exporter.messages"; //$NON-NLS-1$
 	public static String ODPExporter_nativeExceptionSpecialNote;
 	public static String ODPExporter_nativeExceptionNoteId;
+	public static String ODPExporter_exceptionWritingNoteId;
+	public static String ODPExporter_duplicateFile;
+	public static String ODPExporter_unableToOpenDatabase;
+	public static String ODPExporter_exportSettingsChanged;
+	public static String ODPExporter_incrementalExport;
+	public static String ODPExporter_noExportState;
 	public static String ODPExporter_unknownNote;
 	static {
 		// initialize resource bundle
@@ -35,6 +35,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
@@ -42,22 +43,36 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.openntf.nsfodp.commons.NSFODPUtil;
 import org.openntf.nsfodp.commons.NoteType;
 import org.openntf.nsfodp.commons.dxl.DXLUtil;
 import org.openntf.nsfodp.commons.h.NsfNote;
 import org.openntf.nsfodp.commons.h.StdNames;
+import org.openntf.nsfodp.commons.io.SpoolOutputStream;
 import org.openntf.nsfodp.commons.odp.OnDiskProject;
 import org.openntf.nsfodp.commons.odp.notesapi.NCompositeData;
 import org.openntf.nsfodp.commons.odp.notesapi.NDXLExporter;
@@ -87,6 +102,8 @@ public class ODPExporter {
 	}
 	
 	public static final String EXT_METADATA = ".metadata"; //$NON-NLS-1$
+	/** The number of exported notes per thread that may wait to be written */
+	private static final int PENDING_NOTES_PER_THREAD = 4;
 	private static final Collection<NoteType> IGNORE_FILENAMES_TYPES = EnumSet.of(NoteType.FileResource, NoteType.StyleSheet, NoteType.ImageResource, NoteType.Theme);
 	
 	private final NDatabase database;
@@ -95,6 +112,8 @@ public class ODPExporter {
 	private boolean swiperFilter = false;
 	private String projectName;
 	private ODPType odpType = ODPType.DIRECTORY;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private Path incrementalBase;
 
 	public ODPExporter(NDatabase database) {
 		this.database = database;
@@ -196,16 +215,99 @@ public class ODPExporter {
 		return odpType;
 	}
 	
+	/**
+	 * Sets the number of threads to use to export design notes and to write the
+	 * resulting files.
+	 * 
+	 * @param parallelism the number of threads to use, or a value below {@code 1}
+	 *        to use the number of available processors
+	 * @since 4.1.0
+	 */
+	public void setParallelism(int parallelism) {
+		if(parallelism < 1) {
+			this.parallelism = Runtime.getRuntime().availableProcessors();
+		} else {
+			this.parallelism = parallelism;
+		}
+	}
+	
+	/**
+	 * Gets the number of threads used to export design notes and to write the
+	 * resulting files.
+	 * 
+	 * @return the configured number of threads
+	 * @since 4.1.0
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Sets an existing ODP directory to update incrementally.
+	 * 
+	 * <p>When set for a {@link ODPType#DIRECTORY DIRECTORY} export, the exporter records
+	 * the database time and the files written for each note in a marker file within the
+	 * ODP. If the directory already contains a marker file for the same database, only
+	 * design notes modified since that export are exported into the directory in place,
+	 * and the files of deleted or renamed notes are removed. Otherwise, the full database
+	 * is exported to a new directory as usual.</p>
+	 * 
+	 * @param incrementalBase the ODP directory to update, or {@code null} to always
+	 *        export the full database
+	 * @since 4.1.0
+	 */
+	public void setIncrementalBase(Path incrementalBase) {
+		this.incrementalBase = incrementalBase;
+	}
+	
+	/**
+	 * Gets the existing ODP directory to update incrementally.
+	 * 
+	 * @return the configured ODP directory, or {@code null} if not set
+	 * @since 4.1.0
+	 */
+	public Path getIncrementalBase() {
+		return incrementalBase;
+	}
+	
 	/**
 	 * Exports the NSF to an on-disk project using the configured settings.
 	 * 
-	 * @return a {@link Path} to the on-disk project root, either a directory or a ZIP file
+	 * <p>When several design notes map to the same file, the note with the lowest note ID
+	 * keeps it and the files of the others are skipped with a message. Before 4.1.0, the
+	 * note exported last overwrote the file.</p>
+	 * 
+	 * @return a {@link Path} to the on-disk project root, either a directory or a ZIP file.
+	 *         When the {@link #setIncrementalBase(Path) incremental base} was updated in
+	 *         place, this is that directory
 	 * @throws IOException if there is a problem reading or writing filesystem data
 	 */
 	public Path export() throws IOException {
 		Path target;
 		Path returnPath;
 		ODPType odpType = this.odpType == null ? ODPType.DIRECTORY : this.odpType;
+		
+		ExportState state = null;
+		boolean incremental = false;
+		if(odpType == ODPType.DIRECTORY && incrementalBase != null) {
+			String replicaId = database.getReplicaID();
+			String settings = getExportSettings();
+			ExportState previous = Files.isDirectory(incrementalBase) ? ExportState.read(incrementalBase) : null;
+			if(previous != null && replicaId.equals(previous.getReplicaId()) && previous.getSince() != null) {
+				if(settings.equals(previous.getSettings())) {
+					state = previous;
+					incremental = true;
+				} else {
+					// Unchanged notes would keep the format of the previous settings
+					System.out.println(StringUtil.format(Messages.ODPExporter_exportSettingsChanged, incrementalBase));
+					state = new ExportState(replicaId, settings, null);
+				}
+			} else {
+				System.out.println(StringUtil.format(Messages.ODPExporter_noExportState, incrementalBase));
+				state = new ExportState(replicaId, settings, null);
+			}
+		}
+		
 		switch(odpType) {
 		case ZIP:
 			returnPath = Files.createTempFile(NSFODPUtil.getTempDirectory(), "org.openntf.nsfodp.exporter", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -213,61 +315,44 @@ public class ODPExporter {
 			break;
 		case DIRECTORY:
 		default:
-			target = returnPath = Files.createTempDirectory(getClass().getName());
+			if(incremental) {
+				target = returnPath = incrementalBase;
+			} else {
+				target = returnPath = Files.createTempDirectory(getClass().getName());
+			}
 			break;
 		}
 		
+		FileClaims claims = new FileClaims(state);
 		try(NDXLExporter exporter = database.getAPI().createDXLExporter()) {
-			// Output database.properties in encapsulated format
-			Path databaseProperties = target.resolve("AppProperties").resolve("database.properties"); //$NON-NLS-1$ //$NON-NLS-2$
-			Files.createDirectories(databaseProperties.getParent());
-			Set<Integer> iconColl = new HashSet<>();
-			iconColl.add(NOTE_ID_SPECIAL | NOTE_CLASS_ICON);
-			try(NNote acl = database.getNoteByID(NOTE_ID_SPECIAL | NOTE_CLASS_ACL)) {
-				iconColl.add(acl.getNoteID());
-			}
-			
-			try(OutputStream os = new CommonsSwiperOutputStream(databaseProperties, isSwiperFilter())) {
-				exporter.export(database, iconColl, os);
-			}
+			exportDatabaseProperties(exporter, target, null, claims);
 			
 			// Output the rest according to the settings
 			exporter.setForceNoteFormat(isBinaryDxl());
 			exporter.setRichTextAsItemData(isRichTextAsItemData());
 			
-			database.eachDesignNote((noteId, note) -> {
-				NoteType type = null;
-				try {
-					type = NoteTypeUtil.forNote(note);
-					exportNote(note, exporter, target);
-				} catch(Throwable e) {
-					System.out.println(StringUtil.format(Messages.ODPExporter_nativeExceptionNoteId, Integer.toString(noteId, 16), e.getMessage(), type));
-					e.printStackTrace(System.out);
-				}
-			});
+			// The search only gathers IDs, so that notes can be exported outside its callback
+			List<Integer> noteIds = new ArrayList<>();
+			List<Integer> deletedIds = new ArrayList<>();
+			String since = incremental ? state.getSince() : null;
+			String until = database.eachModifiedDesignNoteId(since, noteIds::add, deletedIds::add);
+			if(incremental) {
+				System.out.println(StringUtil.format(Messages.ODPExporter_incrementalExport, noteIds.size(), deletedIds.size()));
+			}
+			exportDesignNotes(noteIds, target, state, null, claims);
+			exportSpecialNotes(exporter, target, state, null, claims);
 			
-			// Export several notes specially
-			int[] specialIds = new int[] { NOTE_CLASS_ICON, NOTE_CLASS_HELP, NOTE_CLASS_INFO };
-			for(int id : specialIds) {
-				try {
-					try(NNote iconNote = database.getNoteByID(NOTE_ID_SPECIAL | id)) {
-						if(iconNote != null && iconNote.isRefValid()) {
-							exportNote(iconNote, exporter, target);
-						}
-					}
-				} catch(NDominoException e) {
-					switch(e.getStatus()) {
-					case 578:
-						// "Special database object cannot be located", which is fine
-						break;
-					default:
-						e.printStackTrace();
-						System.out.println(StringUtil.format(Messages.ODPExporter_nativeExceptionSpecialNote, id, e.getMessage()));
-						break;
+			if(state != null) {
+				for(int noteId : deletedIds) {
+					state.removeFiles(noteId);
+				}
+				if(incremental) {
+					// Remove the files of deleted notes and the old names of renamed ones
+					List<Integer> changedIds = new ArrayList<>(noteIds);
+					changedIds.addAll(deletedIds);
+					for(String path : state.getStaleFiles(changedIds)) {
+						Files.deleteIfExists(target.resolve(path));
 					}
-				} catch(Throwable e) {
-					e.printStackTrace();
-					System.out.println(StringUtil.format(Messages.ODPExporter_nativeExceptionSpecialNote, id, e.getMessage()));
 				}
 			}
 			
@@ -275,6 +360,11 @@ public class ODPExporter {
 			generateEclipseProjectFile(target);
 			createClasspathDirectories(target);
 			createStubFiles(target);
+			
+			// Leave the marker untouched when nothing changed, to avoid needless differences
+			if(state != null && (!incremental || !noteIds.isEmpty() || !deletedIds.isEmpty())) {
+				state.write(target, until);
+			}
 		}
 		
 		if(odpType == ODPType.ZIP) {
@@ -283,8 +373,285 @@ public class ODPExporter {
 		
 		return returnPath;
 	}
+	
+	/**
+	 * @return a description of the settings that affect the content of exported files,
+	 *         for comparison with the state of a previous export
+	 */
+	private String getExportSettings() {
+		return StringUtil.format("binaryDxl={0},swiperFilter={1},richTextAsItemData={2}", isBinaryDxl(), isSwiperFilter(), isRichTextAsItemData()); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Exports the NSF as an on-disk project written to the provided ZIP stream using the
+	 * configured settings.
+	 * 
+	 * <p>Each design note's files are added to the stream as soon as the note is exported,
+	 * allowing the recipient to process them while the export continues. The
+	 * {@link #setOdpType(ODPType) ODP type} and {@link #setIncrementalBase(Path) incremental
+	 * base} settings do not apply.</p>
+	 * 
+	 * <p>The stream is neither finished nor closed, so that the caller may add further
+	 * entries.</p>
+	 * 
+	 * @param zos the stream to write entries to
+	 * @throws IOException if there is a problem writing to the stream
+	 * @since 4.1.0
+	 */
+	public void export(ZipOutputStream zos) throws IOException {
+		// Paths are only used for their names relative to this stand-in root
+		Path target = Paths.get("/"); //$NON-NLS-1$
+		ZipStream stream = new ZipStream(zos);
+		FileClaims claims = new FileClaims(null);
+		
+		try(NDXLExporter exporter = database.getAPI().createDXLExporter()) {
+			exportDatabaseProperties(exporter, target, stream, claims);
+			
+			exporter.setForceNoteFormat(isBinaryDxl());
+			exporter.setRichTextAsItemData(isRichTextAsItemData());
+			
+			List<Integer> noteIds = new ArrayList<>();
+			database.eachDesignNoteId(noteIds::add);
+			exportDesignNotes(noteIds, target, null, stream, claims);
+			exportSpecialNotes(exporter, target, null, stream, claims);
+			
+			// Equivalents of the generated files and directories of a filesystem export
+			String manifest = "META-INF/MANIFEST.MF"; //$NON-NLS-1$
+			if(!stream.contains(manifest)) {
+				stream.writeFile(manifest, new byte[0]);
+			}
+			if(!stream.contains(".project")) { //$NON-NLS-1$
+				try(ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+					NSFODPDomUtil.serialize(baos, createEclipseProjectFile(), null);
+					stream.writeFile(".project", baos.toByteArray()); //$NON-NLS-1$
+				}
+			}
+			stream.writeDirectory("Resources/Files"); //$NON-NLS-1$
+			stream.writeDirectory("Code/Java"); //$NON-NLS-1$
+			for(String stub : Arrays.asList("Resources/UsingDocument", "Resources/AboutDocument")) { //$NON-NLS-1$ //$NON-NLS-2$
+				if(!stream.contains(stub)) {
+					stream.writeFile(stub, new byte[0]);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Exports the database's icon and ACL to "AppProperties/database.properties" in
+	 * encapsulated format.
+	 * 
+	 * @param exporter the exporter to use for the process
+	 * @param baseDir the base directory for export operations
+	 * @param stream the stream to write to, or {@code null} to write to {@code baseDir}
+	 * @param claims the record of files written by this export
+	 * @throws IOException if there is a problem writing the file
+	 * @since 4.1.0
+	 */
+	private void exportDatabaseProperties(NDXLExporter exporter, Path baseDir, ZipStream stream, FileClaims claims) throws IOException {
+		Path databaseProperties = baseDir.resolve("AppProperties").resolve("database.properties"); //$NON-NLS-1$ //$NON-NLS-2$
+		Set<Integer> iconColl = new HashSet<>();
+		iconColl.add(NOTE_ID_SPECIAL | NOTE_CLASS_ICON);
+		try(NNote acl = database.getNoteByID(NOTE_ID_SPECIAL | NOTE_CLASS_ACL)) {
+			iconColl.add(acl.getNoteID());
+		}
+		
+		// This isn't a single note, so its file is not recorded in any export state
+		NoteOutput output = new NoteOutput(0, baseDir, null, stream, claims);
+		try {
+			try(OutputStream os = output.newFile(databaseProperties, true)) {
+				exporter.export(database, iconColl, os);
+			}
+			output.write();
+		} finally {
+			output.discard();
+		}
+	}
+	
+	/**
+	 * Exports the icon, "Using", and "About" notes, which are not found by the design
+	 * note search.
+	 * 
+	 * @param exporter the exporter to use for the process
+	 * @param baseDir the base directory for export operations
+	 * @param state the state to record written files in, or {@code null} to not record them
+	 * @param stream the stream to write to, or {@code null} to write to {@code baseDir}
+	 * @param claims the record of files written by this export
+	 * @since 4.1.0
+	 */
+	private void exportSpecialNotes(NDXLExporter exporter, Path baseDir, ExportState state, ZipStream stream, FileClaims claims) {
+		int[] specialIds = new int[] { NOTE_CLASS_ICON, NOTE_CLASS_HELP, NOTE_CLASS_INFO };
+		for(int id : specialIds) {
+			try {
+				try(NNote iconNote = database.getNoteByID(NOTE_ID_SPECIAL | id)) {
+					if(iconNote != null && iconNote.isRefValid()) {
+						NoteOutput output = new NoteOutput(iconNote.getNoteID(), baseDir, state, stream, claims);
+						try {
+							exportNote(iconNote, exporter, baseDir, output);
+							output.write();
+						} finally {
+							output.discard();
+						}
+					}
+				}
+			} catch(NDominoException e) {
+				switch(e.getStatus()) {
+				case 578:
+					// "Special database object cannot be located", which is fine
+					break;
+				default:
+					e.printStackTrace();
+					System.out.println(StringUtil.format(Messages.ODPExporter_nativeExceptionSpecialNote, id, e.getMessage()));
+					if(state != null) {
+						state.markIncomplete();
+					}
+					break;
+				}
+			} catch(Throwable e) {
+				e.printStackTrace();
+				System.out.println(StringUtil.format(Messages.ODPExporter_nativeExceptionSpecialNote, id, e.getMessage()));
+				if(state != null) {
+					state.markIncomplete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Exports the provided design notes using a pipeline of two stages.
+	 * 
+	 * <p>Threads from the Notes API's thread factory each open the database and export
+	 * notes with their own {@link NDXLExporter}, collecting the results in a
+	 * {@link NoteOutput}. The Swiper filter is then applied by a separate pool, allowing the
+	 * next notes to be exported in the meantime. The results are written in ascending note ID order, so
+	 * that when several notes map to the same file, the first note keeps it regardless
+	 * of thread timing, as in a {@link #export(ZipOutputStream) streamed} export.</p>
+	 * 
+	 * <p>Failures for individual notes are logged and do not stop the export.</p>
+	 * 
+	 * @param noteIds the IDs of the design notes to export
+	 * @param baseDir the base directory for export operations
+	 * @param state the state to record written files in, or {@code null} to not record them
+	 * @param stream the stream to write to, or {@code null} to write to {@code baseDir}
+	 * @param claims the record of files written by this export
+	 * @throws IOException if a worker thread could not be run
+	 * @since 4.1.0
+	 */
+	private void exportDesignNotes(List<Integer> noteIds, Path baseDir, ExportState state, ZipStream stream, FileClaims claims) throws IOException {
+		if(noteIds.isEmpty()) {
+			return;
+		}
+		List<Integer> sortedIds = new ArrayList<>(noteIds);
+		sortedIds.sort(Integer::compareUnsigned);
+		int threadCount = Math.max(1, Math.min(this.parallelism, sortedIds.size()));
+		
+		ExecutorService filters = Executors.newFixedThreadPool(threadCount);
+		// Limit the number of notes being exported or waiting to be written. As a permit is
+		//   taken before a note is claimed, the earliest unwritten note always holds one
+		Semaphore pending = new Semaphore(threadCount * PENDING_NOTES_PER_THREAD);
+		NoteWriteQueue writeQueue = new NoteWriteQueue(pending);
+		AtomicInteger nextIndex = new AtomicInteger();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		String apiPath = database.getApiPath();
+		
+		ThreadFactory threadFactory = database.getAPI().createThreadFactory();
+		List<Thread> workers = new ArrayList<>(threadCount);
+		try {
+			for(int i = 0; i < threadCount; i++) {
+				Thread worker = threadFactory.newThread(() -> {
+					// Database handles are not shared between threads
+					try(NDatabase workerDatabase = openWorkerDatabase(apiPath); NDXLExporter exporter = database.getAPI().createDXLExporter()) {
+						exporter.setForceNoteFormat(isBinaryDxl());
+						exporter.setRichTextAsItemData(isRichTextAsItemData());
+						
+						while(true) {
+							pending.acquireUninterruptibly();
+							int index = nextIndex.getAndIncrement();
+							if(index >= sortedIds.size()) {
+								pending.release();
+								break;
+							}
+							int noteId = sortedIds.get(index);
+							NoteOutput output = new NoteOutput(noteId, baseDir, state, stream, claims);
+							try(NNote note = workerDatabase.getNoteByID(noteId)) {
+								output.type = NoteTypeUtil.forNote(note);
+								exportNote(note, exporter, baseDir, output);
+							} catch(Throwable e) {
+								System.out.println(StringUtil.format(Messages.ODPExporter_nativeExceptionNoteId, Integer.toString(noteId, 16), e.getMessage(), output.type));
+								e.printStackTrace(System.out);
+								if(state != null) {
+									state.markIncomplete();
+								}
+								output.discard();
+								writeQueue.complete(index, null);
+								continue;
+							}
+							
+							// Empty outputs are still written when recording state, to clear old files
+							if(output.isEmpty() && state == null) {
+								writeQueue.complete(index, null);
+								continue;
+							}
+							filters.execute(() -> {
+								NoteOutput prepared = output;
+								try {
+									output.prepare();
+								} catch(Throwable e) {
+									logWriteFailure(output, e);
+									output.discard();
+									prepared = null;
+								}
+								writeQueue.complete(index, prepared);
+							});
+						}
+					} catch(Throwable t) {
+						failure.compareAndSet(null, t);
+					}
+				});
+				worker.start();
+				workers.add(worker);
+			}
+			
+			for(Thread worker : workers) {
+				worker.join();
+			}
+			filters.shutdown();
+			filters.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			filters.shutdownNow();
+		}
+		
+		Throwable t = failure.get();
+		if(t instanceof IOException) {
+			throw (IOException)t;
+		} else if(t instanceof RuntimeException) {
+			throw (RuntimeException)t;
+		} else if(t instanceof Error) {
+			throw (Error)t;
+		} else if(t != null) {
+			throw new IOException(t);
+		}
+	}
+	
+	private NDatabase openWorkerDatabase(String apiPath) {
+		NDatabase result = database.getAPI().openDatabase(apiPath);
+		if(result == null) {
+			throw new IllegalStateException(StringUtil.format(Messages.ODPExporter_unableToOpenDatabase, apiPath));
+		}
+		return result;
+	}
+	
+	private void logWriteFailure(NoteOutput output, Throwable e) {
+		System.out.println(StringUtil.format(Messages.ODPExporter_exceptionWritingNoteId, Integer.toString(output.noteId, 16), e.getMessage(), output.type));
+		e.printStackTrace(System.out);
+		if(output.state != null) {
+			output.state.markIncomplete();
+		}
+	}
 
-	private void exportNote(NNote note, NDXLExporter exporter, Path baseDir) throws IOException {
+	private void exportNote(NNote note, NDXLExporter exporter, Path baseDir, NoteOutput output) throws IOException {
 		NoteType type = NoteTypeUtil.forNote(note);
 		if(type == NoteType.Unknown) {
 			String flags = note.hasItem(DESIGN_FLAGS) ? note.getAsString(DESIGN_FLAGS, ' ') : StringUtil.EMPTY_STRING;
@@ -302,25 +669,25 @@ public class ODPExporter {
 		if(type.isSingleton()) {
 			switch(type.getOutputFormat()) {
 			case RAWFILE:
-				exportFileData(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()), type);
+				exportFileData(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()), type, output);
 				break;
 			case METADATA:
 			case DXL:
 			default:
-				exportExplicitNote(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()));
+				exportExplicitNote(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()), output);
 				break;
 			}
 		} else {
 			switch(type.getOutputFormat()) {
 			case METADATA:
-				exportNamedDataAndMetadata(note, exporter, baseDir, type);
+				exportNamedDataAndMetadata(note, exporter, baseDir, type, output);
 				break;
 			case RAWFILE:
-				exportNamedData(note, exporter, baseDir, type);
+				exportNamedData(note, exporter, baseDir, type, output);
 				break;
 			case DXL:
 			default:
-				exportNamedNote(note, exporter, baseDir, type);
+				exportNamedNote(note, exporter, baseDir, type, output);
 				break;
 			}
 		}
@@ -333,9 +700,10 @@ public class ODPExporter {
 	 * @param exporter the exporter to use for the process
 	 * @param baseDir the base directory for export operations
 	 * @param type the NoteType enum for the note
+	 * @param output the collector for the files to write
 	 * @throws IOException 
 	 */
-	private void exportNamedNote(NNote note, NDXLExporter exporter, Path baseDir, NoteType type) throws IOException {
+	private void exportNamedNote(NNote note, NDXLExporter exporter, Path baseDir, NoteType type, NoteOutput output) throws IOException {
 		Path name = getCleanName(baseDir.getFileSystem(), note, type);
 		if(StringUtil.isNotEmpty(type.getExtension()) && !name.getFileName().toString().endsWith(type.getExtension())) {
 			Path parent = name.getParent();
@@ -346,7 +714,7 @@ public class ODPExporter {
 			}
 		}
 		
-		exportExplicitNote(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()).resolve(name));
+		exportExplicitNote(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()).resolve(name), output);
 	}
 	
 	/**
@@ -391,9 +759,10 @@ public class ODPExporter {
 	 * @param exporter the exporter to use for the process
 	 * @param baseDir the base directory for export operations
 	 * @param type the NoteType enum for the note
+	 * @param output the collector for the files to write
 	 * @throws IOException
 	 */
-	private void exportNamedData(NNote note, NDXLExporter exporter, Path baseDir, NoteType type) throws IOException {
+	private void exportNamedData(NNote note, NDXLExporter exporter, Path baseDir, NoteType type, NoteOutput output) throws IOException {
 		Path name = getCleanName(baseDir.getFileSystem(), note, type);
 		if(StringUtil.isNotEmpty(type.getExtension()) && !name.getFileName().toString().endsWith(type.getExtension())) {
 			Path parent = name.getParent();
@@ -411,7 +780,7 @@ public class ODPExporter {
 			return;
 		}
 		
-		exportFileData(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()).resolve(name), type);
+		exportFileData(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()).resolve(name), type, output);
 	}
 	
 	/**
@@ -421,10 +790,11 @@ public class ODPExporter {
 	 * @param exporter the exporter to use for the process
 	 * @param baseDir the base directory for export operations
 	 * @param type the NoteType enum for the note
+	 * @param output the collector for the files to write
 	 * @throws IOException
 	 */
-	private void exportNamedDataAndMetadata(NNote note, NDXLExporter exporter, Path baseDir, NoteType type) throws IOException {
-		exportNamedData(note, exporter, baseDir, type);
+	private void exportNamedDataAndMetadata(NNote note, NDXLExporter exporter, Path baseDir, NoteType type, NoteOutput output) throws IOException {
+		exportNamedData(note, exporter, baseDir, type, output);
 		
 		Path name = getCleanName(baseDir.getFileSystem(), note, type);
 		if(StringUtil.isNotEmpty(type.getExtension()) && !name.getFileName().toString().endsWith(type.getExtension())) {
@@ -458,7 +828,7 @@ public class ODPExporter {
 		boolean rawFormat = exporter.isForceNoteFormat();
 		exporter.setForceNoteFormat(true);
 		try {
-			exportExplicitNote(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()).resolve(name));
+			exportExplicitNote(note, exporter, baseDir, type.getPath(baseDir.getFileSystem()).resolve(name), output);
 		} finally {
 			exporter.setOmitItemNames(Collections.emptySet());
 			exporter.setProperty(38, false);
@@ -474,13 +844,13 @@ public class ODPExporter {
 	 * @param baseDir the base directory for export operations
 	 * @param path the relative file path to export to within the base dir
 	 * @param type the NoteType enum for the note
+	 * @param output the collector for the files to write
 	 * @throws IOException 
 	 */
-	private void exportFileData(NNote note, NDXLExporter exporter, Path baseDir, Path path, NoteType type) throws IOException {
+	private void exportFileData(NNote note, NDXLExporter exporter, Path baseDir, Path path, NoteType type, NoteOutput output) throws IOException {
 		Path fullPath = baseDir.resolve(path.toString());
-		Files.createDirectories(fullPath.getParent());
 		
-		try(OutputStream os = Files.newOutputStream(fullPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+		try(OutputStream os = output.newFile(fullPath, false)) {
 			// readFileContent works for some but not all file types
 			switch(type) {
 			case LotusScriptLibrary:
@@ -529,7 +899,7 @@ public class ODPExporter {
 				// Special behavior: also export the config data field
 				
 				Path configPath = fullPath.getParent().resolve(fullPath.getFileName()+"-config"); //$NON-NLS-1$
-				try(OutputStream configOut = Files.newOutputStream(configPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				try(OutputStream configOut = output.newFile(configPath, false)) {
 					try(NCompositeData cd = note.getCompositeData(ITEM_NAME_CONFIG_FILE_DATA)) {
 						if(cd != null) {
 							cd.writeFileResourceData(configOut);
@@ -597,13 +967,13 @@ public class ODPExporter {
 	 * @param exporter the exporter to use for the process
 	 * @param baseDir the base directory for export operations
 	 * @param path the relative file path to export to within the base dir
+	 * @param output the collector for the files to write
 	 * @throws IOException 
 	 */
-	private void exportExplicitNote(NNote note, NDXLExporter exporter, Path baseDir, Path path) throws IOException {
+	private void exportExplicitNote(NNote note, NDXLExporter exporter, Path baseDir, Path path, NoteOutput output) throws IOException {
 		Path fullPath = baseDir.resolve(path.toString());
-		Files.createDirectories(fullPath.getParent());
 		
-		try(OutputStream os = new CommonsSwiperOutputStream(fullPath, isSwiperFilter())) {
+		try(OutputStream os = output.newFile(fullPath, true)) {
 			exporter.export(note, os);
 		}
 	}
@@ -633,23 +1003,34 @@ public class ODPExporter {
 	private void generateEclipseProjectFile(Path baseDir) throws IOException {
 		Path manifest = baseDir.resolve(".project"); //$NON-NLS-1$
 		if(!Files.isRegularFile(manifest)) {
-			Document xmlDoc = NSFODPDomUtil.createDocument();
-			Element projectDescription = NSFODPDomUtil.createElement(xmlDoc, "projectDescription"); //$NON-NLS-1$
-			{
-				Element name = NSFODPDomUtil.createElement(projectDescription, "name"); //$NON-NLS-1$
-				String path = database.getFilePath().replace('\\', '/');
-				name.setTextContent(path.substring(path.lastIndexOf('/')+1).replaceAll("\\W", "_")); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-			NSFODPDomUtil.createElement(projectDescription, "comment"); //$NON-NLS-1$
-			NSFODPDomUtil.createElement(projectDescription, "projects"); //$NON-NLS-1$
-			NSFODPDomUtil.createElement(projectDescription, "buildSpec"); //$NON-NLS-1$
-			NSFODPDomUtil.createElement(projectDescription, "natures"); //$NON-NLS-1$
+			Document xmlDoc = createEclipseProjectFile();
 			try(OutputStream os = Files.newOutputStream(manifest, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
 				NSFODPDomUtil.serialize(os, xmlDoc, null);
 			}
 		}
 	}
 	
+	/**
+	 * Creates the content of a stub .project file named for the database.
+	 * 
+	 * @return the .project XML document
+	 * @since 4.1.0
+	 */
+	private Document createEclipseProjectFile() {
+		Document xmlDoc = NSFODPDomUtil.createDocument();
+		Element projectDescription = NSFODPDomUtil.createElement(xmlDoc, "projectDescription"); //$NON-NLS-1$
+		{
+			Element name = NSFODPDomUtil.createElement(projectDescription, "name"); //$NON-NLS-1$
+			String path = database.getFilePath().replace('\\', '/');
+			name.setTextContent(path.substring(path.lastIndexOf('/')+1).replaceAll("\\W", "_")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		NSFODPDomUtil.createElement(projectDescription, "comment"); //$NON-NLS-1$
+		NSFODPDomUtil.createElement(projectDescription, "projects"); //$NON-NLS-1$
+		NSFODPDomUtil.createElement(projectDescription, "buildSpec"); //$NON-NLS-1$
+		NSFODPDomUtil.createElement(projectDescription, "natures"); //$NON-NLS-1$
+		return xmlDoc;
+	}
+	
 	/**
 	 * Creates any directories expected by default and specified by the project classpath that
 	 * don't exist in the NSF, to smooth Java compilation downstream.
@@ -701,6 +1082,287 @@ public class ODPExporter {
 		return null;
 	}
 	
+	/**
+	 * Collects the files exported for a note, so that they can be filtered and written
+	 * outside of the thread that exported the note.
+	 * 
+	 * <p>Each file is held in a {@link SpoolOutputStream}, which moves large content to a
+	 * temporary file, and is filtered from one spool into another, so that only small
+	 * files are kept in memory while notes wait for their turn to be written.</p>
+	 * 
+	 * @since 4.1.0
+	 */
+	private class NoteOutput {
+		private final int noteId;
+		private final Path baseDir;
+		private final ExportState state;
+		private final ZipStream stream;
+		private final FileClaims claims;
+		private final List<Path> paths = new ArrayList<>();
+		private final List<SpoolOutputStream> contents = new ArrayList<>();
+		private final List<Boolean> dxl = new ArrayList<>();
+		private NoteType type;
+		
+		/**
+		 * @param noteId the ID of the exported note
+		 * @param baseDir the base directory for export operations
+		 * @param state the state to record the written files in, or {@code null} to
+		 *        not record them
+		 * @param stream the stream to write the files to, or {@code null} to write them
+		 *        to {@code baseDir}
+		 * @param claims the record of files written by this export
+		 */
+		public NoteOutput(int noteId, Path baseDir, ExportState state, ZipStream stream, FileClaims claims) {
+			this.noteId = noteId;
+			this.baseDir = baseDir;
+			this.state = state;
+			this.stream = stream;
+			this.claims = claims;
+		}
+		
+		/**
+		 * Creates a stream to collect the content of a file.
+		 * 
+		 * @param fullPath the path of the file to write
+		 * @param isDxl whether the content is DXL to pass through the Swiper filter
+		 *        when configured
+		 * @return a stream for the file content
+		 */
+		public OutputStream newFile(Path fullPath, boolean isDxl) {
+			SpoolOutputStream os = new SpoolOutputStream();
+			paths.add(fullPath);
+			contents.add(os);
+			dxl.add(isDxl);
+			return os;
+		}
+		
+		public boolean isEmpty() {
+			return paths.isEmpty();
+		}
+		
+		/**
+		 * Applies the Swiper filter to DXL content when configured. This may be called
+		 * from any thread.
+		 * 
+		 * @throws IOException if there is a problem filtering the content
+		 */
+		public void prepare() throws IOException {
+			for(int i = 0; i < paths.size(); i++) {
+				SpoolOutputStream content = contents.get(i);
+				content.close();
+				// Without the Swiper filter, DXL is written as exported
+				if(dxl.get(i) && isSwiperFilter()) {
+					SpoolOutputStream filtered = new SpoolOutputStream();
+					contents.set(i, filtered);
+					try(OutputStream os = new CommonsSwiperOutputStream(filtered, true)) {
+						content.writeTo(os);
+					} finally {
+						content.delete();
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Writes the collected files, skipping any already written by this export, and
+		 * records them in the export state if present.
+		 * 
+		 * @throws IOException if there is a problem writing the files
+		 */
+		public void commit() throws IOException {
+			try {
+				List<String> written = new ArrayList<>(paths.size());
+				for(int i = 0; i < paths.size(); i++) {
+					Path fullPath = paths.get(i);
+					String name = toRelativeName(fullPath);
+					if(!claims.claim(name, noteId)) {
+						continue;
+					}
+					if(stream != null) {
+						stream.writeFile(name, contents.get(i));
+					} else {
+						Files.createDirectories(fullPath.getParent());
+						try(OutputStream os = Files.newOutputStream(fullPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+							contents.get(i).writeTo(os);
+						}
+					}
+					written.add(name);
+				}
+				
+				if(state != null) {
+					state.setFiles(noteId, written);
+				}
+			} finally {
+				discard();
+			}
+		}
+		
+		/**
+		 * Releases the collected content without writing it. This has no effect once the
+		 * content has been written or released.
+		 */
+		public void discard() {
+			for(SpoolOutputStream content : contents) {
+				try {
+					content.delete();
+				} catch(IOException e) {
+					// Only a leftover temporary file, which does not affect the export
+				}
+			}
+		}
+		
+		/**
+		 * Prepares and commits the collected files on the calling thread.
+		 * 
+		 * @throws IOException if there is a problem writing the files
+		 */
+		public void write() throws IOException {
+			prepare();
+			commit();
+		}
+		
+		private String toRelativeName(Path path) {
+			return baseDir.relativize(path).toString().replace(baseDir.getFileSystem().getSeparator(), "/"); //$NON-NLS-1$
+		}
+	}
+	
+	/**
+	 * Writes exported files as entries of a ZIP stream, recording the names written so
+	 * that generated files are added only when the database did not contain them.
+	 * 
+	 * @since 4.1.0
+	 */
+	private static class ZipStream {
+		private final ZipOutputStream zos;
+		private final Set<String> names = new HashSet<>();
+		
+		public ZipStream(ZipOutputStream zos) {
+			this.zos = zos;
+		}
+		
+		public synchronized boolean contains(String name) {
+			return names.contains(name);
+		}
+		
+		/**
+		 * Writes a file entry and flushes it to the underlying stream. An entry cannot be
+		 * replaced once written, so later files with the same name are ignored.
+		 * 
+		 * @param name the name of the entry, using "/" separators
+		 * @param content the content of the file
+		 * @throws IOException if there is a problem writing to the stream
+		 */
+		public synchronized void writeFile(String name, byte[] content) throws IOException {
+			if(!names.add(name)) {
+				return;
+			}
+			zos.putNextEntry(new ZipEntry(name));
+			zos.write(content);
+			zos.closeEntry();
+			zos.flush();
+		}
+		
+		/**
+		 * Writes a file entry from collected content.
+		 * 
+		 * @param name the name of the entry, using "/" separators
+		 * @param content the content of the file
+		 * @throws IOException if there is a problem writing to the stream
+		 * @see #writeFile(String, byte[])
+		 */
+		public synchronized void writeFile(String name, SpoolOutputStream content) throws IOException {
+			if(!names.add(name)) {
+				return;
+			}
+			zos.putNextEntry(new ZipEntry(name));
+			content.writeTo(zos);
+			zos.closeEntry();
+			zos.flush();
+		}
+		
+		public synchronized void writeDirectory(String name) throws IOException {
+			String entryName = name + '/';
+			if(names.add(entryName)) {
+				zos.putNextEntry(new ZipEntry(entryName));
+				zos.closeEntry();
+			}
+		}
+	}
+	
+	/**
+	 * Records the files written by an export, so that when several notes map to the same
+	 * file, the first one written keeps it in both filesystem and streamed exports.
+	 * 
+	 * @since 4.1.0
+	 */
+	private static class FileClaims {
+		private final ExportState state;
+		private final Set<String> names = new HashSet<>();
+		
+		/**
+		 * @param state the state of an incremental export, whose recorded files for notes
+		 *        not re-exported are also honored, or {@code null}
+		 */
+		public FileClaims(ExportState state) {
+			this.state = state;
+		}
+		
+		/**
+		 * Claims a file for a note.
+		 * 
+		 * @param name the relative name of the file, using "/" separators
+		 * @param noteId the ID of the note writing the file
+		 * @return {@code true} if the note should write the file; {@code false} if an
+		 *         earlier note already did
+		 */
+		public synchronized boolean claim(String name, int noteId) {
+			boolean claimed = names.add(name) && (state == null || !state.isRecordedForEarlierNote(name, noteId));
+			if(!claimed) {
+				System.out.println(StringUtil.format(Messages.ODPExporter_duplicateFile, name, Integer.toString(noteId, 16)));
+			}
+			return claimed;
+		}
+	}
+	
+	/**
+	 * Writes prepared note outputs in the order their notes were claimed, releasing a
+	 * permit for each note once it is done.
+	 * 
+	 * @since 4.1.0
+	 */
+	private class NoteWriteQueue {
+		private final Semaphore pending;
+		private final Map<Integer, Optional<NoteOutput>> ready = new HashMap<>();
+		private int next;
+		
+		public NoteWriteQueue(Semaphore pending) {
+			this.pending = pending;
+		}
+		
+		/**
+		 * Marks a note as done, writing it and any notes after it that are waiting on it.
+		 * 
+		 * @param index the index of the note in the export order
+		 * @param output the prepared output to write, or {@code null} if there is nothing
+		 *        to write
+		 */
+		public synchronized void complete(int index, NoteOutput output) {
+			ready.put(index, Optional.ofNullable(output));
+			Optional<NoteOutput> current;
+			while((current = ready.remove(next)) != null) {
+				next++;
+				if(current.isPresent()) {
+					try {
+						current.get().commit();
+					} catch(Throwable e) {
+						logWriteFailure(current.get(), e);
+					}
+				}
+				pending.release();
+			}
+		}
+	}
+	
 	private static String getTitle(NNote note) {
 		if(note.hasItem(StdNames.FIELD_TITLE)) {
 			String[] titles = note.get(StdNames.FIELD_TITLE, String[].class);
@@ -16,10 +16,9 @@
 package org.openntf.nsfodp.exporter.io;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 import javax.xml.transform.Transformer;
@@ -44,12 +43,19 @@ public class CommonsSwiperOutputStream extends SwiperOutputStream {
 		super(path, isSwiper);
 	}
 	
+	/**
+	 * @param out the destination for the written or transformed DXL
+	 * @param isSwiper whether to transform the DXL with the Swiper filter
+	 * @since 4.1.0
+	 */
+	public CommonsSwiperOutputStream(OutputStream out, boolean isSwiper) {
+		super(out, isSwiper);
+	}
+	
 	@Override
-	protected void transform(Transformer transformer, Reader r, Path destination) throws Exception {
+	protected void transform(Transformer transformer, Reader r, Writer w) throws Exception {
 		DOMResult result = new DOMResult();
 		transformer.transform(new StreamSource(r), result);
-		try(Writer w = Files.newBufferedWriter(destination, StandardCharsets.UTF_8)) {
-			NSFODPDomUtil.serialize(w, result.getNode(), null);
-		}
+		NSFODPDomUtil.serialize(w, result.getNode(), null);
 	}
 }
\ No newline at end of file
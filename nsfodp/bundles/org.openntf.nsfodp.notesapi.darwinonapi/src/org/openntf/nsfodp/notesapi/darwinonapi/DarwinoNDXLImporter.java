@@ -52,6 +52,15 @@ public class DarwinoNDXLImporter implements NDXLImporter {
 		}
 	}
 
+	@Override
+	public void setReplaceDbProperties(boolean replaceDbProperties) {
+		try {
+			importer.setReplaceDBProperties(replaceDbProperties);
+		} catch (DominoException e) {
+			throw new NDominoException(e.getStatus(), e);
+		}
+	}
+
 	@Override
 	public void close() {
 		this.importer.free();
@@ -16,6 +16,7 @@
 package org.openntf.nsfodp.notesapi.darwinonapi;
 
 import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
 
 import org.openntf.nsfodp.commons.odp.notesapi.NDatabase;
 import org.openntf.nsfodp.commons.odp.notesapi.NDominoException;
@@ -27,6 +28,7 @@ import com.darwino.domino.napi.DominoException;
 import com.darwino.domino.napi.c.C;
 import com.darwino.domino.napi.proc.NSFSEARCHPROC;
 import com.darwino.domino.napi.struct.SEARCH_MATCH;
+import com.darwino.domino.napi.struct.TIMEDATE;
 import com.darwino.domino.napi.wrap.FormulaException;
 import com.darwino.domino.napi.wrap.NSFDatabase;
 import com.darwino.domino.napi.wrap.NSFNote;
@@ -59,6 +61,15 @@ public class DarwinoNDatabase implements NDatabase {
 		}
 	}
 	
+	@Override
+	public void deleteNote(int noteId) {
+		try {
+			database.deleteNoteByID(noteId, true, true);
+		} catch (DominoException e) {
+			throw new NDominoException(e.getStatus(), e);
+		}
+	}
+	
 	@Override
 	public String getTitle() {
 		try {
@@ -86,6 +97,15 @@ public class DarwinoNDatabase implements NDatabase {
 		}
 	}
 	
+	@Override
+	public String getApiPath() {
+		try {
+			return database.getApiPath();
+		} catch (DominoException e) {
+			throw new NDominoException(e.getStatus(), e);
+		}
+	}
+	
 	@Override
 	public int getSharedFieldNoteID(String fieldName) {
 		try {
@@ -97,6 +117,20 @@ public class DarwinoNDatabase implements NDatabase {
 	
 	@Override
 	public void eachDesignNote(BiConsumer<Integer, NNote> consumer) {
+		eachDesignNoteId(noteId -> {
+			try(NNote note = getNoteByID(noteId)) {
+				consumer.accept(noteId, note);
+			}
+		});
+	}
+	
+	@Override
+	public void eachDesignNoteId(IntConsumer consumer) {
+		eachModifiedDesignNoteId(null, consumer, noteId -> {});
+	}
+	
+	@Override
+	public String eachModifiedDesignNoteId(String since, IntConsumer modified, IntConsumer deleted) {
 		NSFSEARCHPROC proc = new NSFSEARCHPROC() {
 			@Override public short callback(long searchMatchPtr, long summaryBufferPtr) throws DominoException {
 				SEARCH_MATCH searchMatch = new SEARCH_MATCH();
@@ -106,23 +140,47 @@ public class DarwinoNDatabase implements NDatabase {
 				int noteId = searchMatch.getId().getNoteId();
 				byte retFlags = searchMatch.getSERetFlags();
 				
-				boolean deleted = (noteClass & DominoAPI.NOTE_CLASS_NOTIFYDELETION) != 0;
+				boolean isDeleted = (noteClass & DominoAPI.NOTE_CLASS_NOTIFYDELETION) != 0;
 				boolean isSearchMatch = (retFlags & DominoAPI.SE_FMATCH) != 0;  // The use of "since" means that non-matching notes will be returned; check this flag to make sure
 				
-				if(isSearchMatch && !deleted) {
-					try(NNote note = getNoteByID(noteId)) {
-						consumer.accept(noteId, note);
-					}
+				if(isDeleted) {
+					deleted.accept(noteId);
+				} else if(isSearchMatch) {
+					modified.accept(noteId);
 				}
 				return DominoAPI.NOERROR;
 			}
 		};
+		TIMEDATE sinceTime = null;
+		TIMEDATE until = new TIMEDATE();
 		try {
-			database.search("@All", proc, (short)0, DominoAPI.NOTE_CLASS_ALLNONDATA, null, null); //$NON-NLS-1$
+			short searchFlags = 0;
+			if(since != null && !since.isEmpty()) {
+				sinceTime = new TIMEDATE();
+				sinceTime.setInnards(1, Integer.parseUnsignedInt(since.substring(0, 8), 16));
+				sinceTime.setInnards(0, Integer.parseUnsignedInt(since.substring(8), 16));
+				searchFlags |= DominoAPI.SEARCH_NOTIFYDELETIONS;
+			}
+			database.search("@All", proc, searchFlags, DominoAPI.NOTE_CLASS_ALLNONDATA, sinceTime, until); //$NON-NLS-1$
+			return String.format("%08X%08X", until.getInnards(1), until.getInnards(0)); //$NON-NLS-1$
 		} catch (DominoException e) {
 			throw new NDominoException(e.getStatus(), e);
 		} catch (FormulaException e) {
 			throw new NDominoException(0, e);
+		} finally {
+			if(sinceTime != null) {
+				sinceTime.free();
+			}
+			until.free();
+		}
+	}
+	
+	@Override
+	public String getReplicaID() {
+		try {
+			return database.getReplicaId();
+		} catch (DominoException e) {
+			throw new NDominoException(e.getStatus(), e);
 		}
 	}
 	
@@ -16,6 +16,7 @@
 package org.openntf.nsfodp.transpiler.equinox;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.io.UncheckedIOException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
@@ -24,6 +25,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -34,8 +36,10 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.equinox.app.IApplication;
 import org.eclipse.equinox.app.IApplicationContext;
 import org.openntf.nsfodp.commons.NSFODPConstants;
+import org.openntf.nsfodp.commons.NSFODPUtil;
 import org.openntf.nsfodp.commons.PrintStreamProgressMonitor;
 import org.openntf.nsfodp.commons.odp.notesapi.NotesAPI;
+import org.openntf.nsfodp.commons.osgi.DaemonApplicationContext;
 import org.openntf.nsfodp.compiler.update.FilesystemUpdateSite;
 import org.openntf.nsfodp.transpiler.TranspilerActivator;
 import org.openntf.nsfodp.transpiler.XspTranspiler;
@@ -52,25 +56,28 @@ import lotus.domino.NotesThread;
  * @since 3.0.0
  */
 public class TranspilerApplication implements IApplication {
-	private static final ExecutorService exec = Executors.newSingleThreadExecutor(NotesThread::new);
-	
 	@Override
 	public Object start(IApplicationContext context) throws Exception {
-		String notesIni = System.getenv(NSFODPConstants.PROP_NOTESINI);
+		Map<String, String> env = DaemonApplicationContext.getEnvironment(context);
+		PrintStream out = DaemonApplicationContext.getOutput(context);
+		String notesIni = env.get(NSFODPConstants.PROP_NOTESINI);
 		if(notesIni != null && !notesIni.isEmpty()) {
-			String execDir = System.getenv("Notes_ExecDirectory"); //$NON-NLS-1$
+			String execDir = env.get("Notes_ExecDirectory"); //$NON-NLS-1$
 			NotesAPI.get().NotesInitExtended(execDir, "=" + notesIni); //$NON-NLS-1$
 		}
 		
 		NotesThread.sinitThread();
+		// Created per run, as the daemon may start this application repeatedly
+		ExecutorService exec = Executors.newSingleThreadExecutor(NotesThread::new);
 		try {
-			Path xspSourceRoot = toPath(System.getenv(NSFODPConstants.PROP_XSP_SOURCE_ROOT));
-			Path ccSourceRoot = toPath(System.getenv(NSFODPConstants.PROP_CC_SOURCE_ROOT));
-			List<Path> updateSites = toPaths(System.getenv(NSFODPConstants.PROP_UPDATESITE));
-			Path outputDirectory = toPath(System.getenv(NSFODPConstants.PROP_OUTPUTFILE));
+			Path xspSourceRoot = toPath(env.get(NSFODPConstants.PROP_XSP_SOURCE_ROOT));
+			Path ccSourceRoot = toPath(env.get(NSFODPConstants.PROP_CC_SOURCE_ROOT));
+			List<Path> updateSites = toPaths(env.get(NSFODPConstants.PROP_UPDATESITE));
+			Path outputDirectory = toPath(env.get(NSFODPConstants.PROP_OUTPUTFILE));
 			
-			IProgressMonitor mon = new PrintStreamProgressMonitor(System.out);
+			IProgressMonitor mon = new PrintStreamProgressMonitor(out);
 			XspTranspiler transpiler = new XspTranspiler(TranspilerActivator.instance.getBundle().getBundleContext(), xspSourceRoot, ccSourceRoot, mon);
+			transpiler.setTranslationParallelism(NSFODPUtil.parseInt(env.get(NSFODPConstants.PROP_TRANSLATIONPARALLELISM), 1));
 			
 			if(updateSites != null && !updateSites.isEmpty()) {
 				updateSites.stream()
@@ -102,13 +109,12 @@ public class TranspilerApplication implements IApplication {
 					throw new RuntimeException(e);
 				}
 			}).get();
-			System.out.println(getClass().getName() + "#end"); //$NON-NLS-1$
-			
-			exec.shutdownNow();
-			exec.awaitTermination(30, TimeUnit.SECONDS);
+			out.println(getClass().getName() + "#end"); //$NON-NLS-1$
 			
 			return EXIT_OK;
 		} finally {
+			exec.shutdownNow();
+			exec.awaitTermination(30, TimeUnit.SECONDS);
 			NotesThread.stermThread();
 		}
 	}
@@ -26,7 +26,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -87,15 +89,11 @@ public class XspTranspiler extends AbstractCompilationEnvironment {
 				defineCustomControls(ccSourceRoot);
 				
 				subTask("Transpiling Custom Controls");
-				try(Stream<Path> xspFiles = Files.find(ccSourceRoot, Integer.MAX_VALUE, (path, attr) -> attr.isRegularFile() && path.toString().toLowerCase().endsWith(".xsp"), FileVisitOption.FOLLOW_LINKS)) { //$NON-NLS-1$
-					xspFiles.forEach(p -> transpileXsp(ccSourceRoot, p, outputDirectory));
-				}
+				transpileXsp(ccSourceRoot, findXspFiles(ccSourceRoot), outputDirectory);
 			}
 			if(xspSourceRoot != null && Files.isDirectory(xspSourceRoot)) {
 				subTask("Transpiling XPages");
-				try(Stream<Path> xspFiles = Files.find(xspSourceRoot, Integer.MAX_VALUE, (path, attr) -> attr.isRegularFile() && path.toString().toLowerCase().endsWith(".xsp"), FileVisitOption.FOLLOW_LINKS)) { //$NON-NLS-1$
-					xspFiles.forEach(p -> transpileXsp(xspSourceRoot, p, outputDirectory));
-				}
+				transpileXsp(xspSourceRoot, findXspFiles(xspSourceRoot), outputDirectory);
 			}
 			
 			return outputDirectory;
@@ -145,6 +143,28 @@ public class XspTranspiler extends AbstractCompilationEnvironment {
 		}
 	}
 	
+	private List<Path> findXspFiles(Path rootDir) throws IOException {
+		try(Stream<Path> xspFiles = Files.find(rootDir, Integer.MAX_VALUE, (path, attr) -> attr.isRegularFile() && path.toString().toLowerCase().endsWith(".xsp"), FileVisitOption.FOLLOW_LINKS)) { //$NON-NLS-1$
+			return xspFiles.collect(Collectors.toList());
+		}
+	}
+	
+	/**
+	 * Transpiles the provided XSP files, using up to {@link #getTranslationParallelism()}
+	 * threads.
+	 * 
+	 * @param rootDir the root directory containing the XSP files
+	 * @param xspFiles the XSP files to transpile
+	 * @param outputDirectory the root directory for generated Java source
+	 * @since 4.1.0
+	 */
+	private void transpileXsp(Path rootDir, List<Path> xspFiles, Path outputDirectory) {
+		translateAll(xspFiles, xspFile -> {
+			transpileXsp(rootDir, xspFile, outputDirectory);
+			return xspFile;
+		});
+	}
+	
 	private void transpileXsp(Path rootDir, Path xspFile, Path outputDirectory) {
 		try {
 			String xspSource;
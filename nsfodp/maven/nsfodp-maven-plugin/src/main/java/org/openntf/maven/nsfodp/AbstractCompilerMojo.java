@@ -52,6 +52,15 @@ public abstract class AbstractCompilerMojo extends AbstractEquinoxMojo {
 	 */
 	@Parameter(defaultValue = "odp", required = true)
 	protected File odpDirectory;
+	/**
+	 * The number of threads to use when translating XPages and Custom Controls to Java.
+	 * Defaults to {@code 1}; values less than {@code 1} use the number of available
+	 * processors.
+	 * 
+	 * @since 4.1.0
+	 */
+	@Parameter(property = "nsfodp.compiler.translationParallelism", required = false, defaultValue = "1")
+	protected int translationParallelism = 1;
 	
 	protected List<Path> collectUpdateSites() {
 		List<Path> result = new ArrayList<>();
@@ -103,6 +103,37 @@ public abstract class AbstractEquinoxMojo extends AbstractMojo {
 	@Parameter(property="nsfodp.equinoxJvmArgs", required=false)
 	protected String equinoxJvmArgs;
 	
+	/**
+	 * Runs local Equinox goals in a shared, long-lived Equinox process instead of launching
+	 * a new process for each goal.
+	 * 
+	 * <p>The process is reused by later goals with the same Notes, update site, and classpath
+	 * configuration, and exits after {@link #equinoxDaemonIdleTimeout} seconds without work.</p>
+	 * @since 4.1.0
+	 */
+	@Parameter(property="nsfodp.equinoxDaemon", required=false)
+	protected boolean equinoxDaemon = false;
+	
+	/**
+	 * The number of seconds a shared Equinox process waits for another goal before exiting,
+	 * when {@link #equinoxDaemon} is enabled.
+	 * @since 4.1.0
+	 */
+	@Parameter(property="nsfodp.equinoxDaemonIdleTimeout", required=false, defaultValue="300")
+	protected int equinoxDaemonIdleTimeout = 300;
+	
+	/**
+	 * The maximum number of goals a shared Equinox process runs at the same time, when
+	 * {@link #equinoxDaemon} is enabled. Concurrent goals share the process's installed
+	 * update-site bundles and classpath indexes.
+	 * 
+	 * <p>The default of {@code 0} uses the degree of concurrency of the build, such as
+	 * the thread count specified with {@code -T}.</p>
+	 * @since 4.1.0
+	 */
+	@Parameter(property="nsfodp.equinoxDaemonParallelism", required=false, defaultValue="0")
+	protected int equinoxDaemonParallelism = 0;
+	
 	/**
 	 * Skips execution of this mojo.
 	 * 
@@ -32,8 +32,6 @@ import java.util.Collections;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -56,6 +54,8 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.openntf.maven.nsfodp.container.NSFODPContainer;
 import org.openntf.maven.nsfodp.equinox.EquinoxExporter;
 import org.openntf.maven.nsfodp.util.ODPMojoUtil;
+import org.openntf.maven.nsfodp.util.ODPSyncUtil;
+import org.openntf.maven.nsfodp.util.ODPSyncUtil.SyncResult;
 import org.openntf.maven.nsfodp.util.ResponseUtil;
 import org.openntf.nsfodp.commons.NSFODPConstants;
 import org.openntf.nsfodp.commons.NSFODPUtil;
@@ -106,6 +106,34 @@ public abstract class AbstractExportMojo extends AbstractEquinoxMojo {
 	 */
 	@Parameter(property = "nsfodp.exporter.richTextAsItemData", required = false)
 	protected boolean richTextAsItemData = true;
+	/**
+	 * The number of threads to use to export design notes, or {@code 0} to use the number
+	 * of available processors on the exporting machine.
+	 * 
+	 * @since 4.1.0
+	 */
+	@Parameter(property = "nsfodp.exporter.parallelism", required = false, defaultValue = "0")
+	protected int exportParallelism = 0;
+	/**
+	 * Whether to update the existing ODP with only the design notes modified since it was
+	 * last exported with this option, removing the files of deleted notes. When the ODP
+	 * has no record of a previous export of the same database, the full database is
+	 * exported. Only applies to local exports.
+	 * 
+	 * @since 4.1.0
+	 */
+	@Parameter(property = "nsfodp.exporter.incremental", required = false)
+	protected boolean incremental = false;
+	/**
+	 * Whether to update the ODP directory by writing only the exported files whose content
+	 * differs from the existing files and removing only files no longer exported, rather
+	 * than replacing the whole directory. This preserves the modification times of unchanged
+	 * files. Defaults to <code>true</code>.
+	 * 
+	 * @since 4.1.0
+	 */
+	@Parameter(property = "nsfodp.exporter.syncChangedFiles", required = false, defaultValue = "true")
+	protected boolean syncChangedFiles = true;
 	protected Log log;
 	/**
 	 * Location of the ODP directory.
@@ -117,6 +145,11 @@ public abstract class AbstractExportMojo extends AbstractEquinoxMojo {
 	// * Remote execution
 	// *******************************************************************************
 
+	/**
+	 * Exports the ODP using the remote exporter server, extracting files as they are received.
+	 * 
+	 * @return a temporary directory containing the exported ODP
+	 */
 	protected Path exportODPRemote() throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException,
 		URISyntaxException, MojoExecutionException, ClientProtocolException, IOException {
 		HttpClientBuilder httpBuilder = HttpClients.custom();
@@ -151,16 +184,25 @@ public abstract class AbstractExportMojo extends AbstractEquinoxMojo {
 			req.addHeader(NSFODPConstants.HEADER_SWIPER_FILTER, String.valueOf(this.swiperFilter));
 			req.addHeader(NSFODPConstants.HEADER_RICH_TEXT_AS_ITEM_DATA, String.valueOf(this.richTextAsItemData));
 			req.addHeader(NSFODPConstants.HEADER_PROJECT_NAME, this.project.getGroupId() + '.' + this.project.getArtifactId());
+			req.addHeader(NSFODPConstants.HEADER_EXPORT_PARALLELISM, Integer.toString(this.exportParallelism));
+			req.addHeader(NSFODPConstants.HEADER_STREAM_ODP, "true"); //$NON-NLS-1$
 			
 			HttpResponse res = client.execute(req);
 			HttpEntity responseEntity = ResponseUtil.checkResponse(log, res);
+			// Older servers ignore the request and send a complete ZIP after exporting
+			boolean streamed = res.containsHeader(NSFODPConstants.HEADER_STREAM_ODP);
 			
 			try(InputStream is = responseEntity.getContent()) {
-				ResponseUtil.monitorResponse(log, is);
+				InputStream payload = ResponseUtil.monitorResponse(log, is);
 				
-				// Now that we're here, the rest will be the compiler output
-				Path result = Files.createTempFile("odpexporter-output", ".nsf"); //$NON-NLS-1$ //$NON-NLS-2$
-				Files.copy(is, result, StandardCopyOption.REPLACE_EXISTING);
+				// Now that we're here, the rest will be the exported ODP
+				Path result = Files.createTempDirectory("odpexporter-output"); //$NON-NLS-1$
+				try {
+					ResponseUtil.extractOdp(log, payload, result, streamed);
+				} catch(Throwable t) {
+					NSFODPUtil.deltree(result);
+					throw t;
+				}
 				return result;
 			}
 		}
@@ -174,10 +216,13 @@ public abstract class AbstractExportMojo extends AbstractEquinoxMojo {
 		Path notesIni = this.notesIni == null ? null : this.notesIni.toPath();
 		EquinoxExporter exporter = new EquinoxExporter(pluginDescriptor, mavenSession, project, getLog(), notesProgram.toPath(), notesPlatform, notesIni);
 		exporter.setJvmArgs(this.equinoxJvmArgs);
+		exporter.setDaemon(this.equinoxDaemon);
+		exporter.setDaemonIdleTimeout(this.equinoxDaemonIdleTimeout);
+		exporter.setDaemonParallelism(this.equinoxDaemonParallelism);
 		if(file == null) {
-			exporter.exportOdp(odpDir, databasePath, binaryDxl, swiperFilter, richTextAsItemData);
+			exporter.exportOdp(odpDir, databasePath, binaryDxl, swiperFilter, richTextAsItemData, exportParallelism, incremental);
 		} else {
-			exporter.exportOdp(odpDir, file.getAbsolutePath(), binaryDxl, swiperFilter, richTextAsItemData);
+			exporter.exportOdp(odpDir, file.getAbsolutePath(), binaryDxl, swiperFilter, richTextAsItemData, exportParallelism, incremental);
 		}
 	}
 
@@ -222,15 +267,26 @@ public abstract class AbstractExportMojo extends AbstractEquinoxMojo {
 		}
 		
 		try {
-			if(isRunLocally()) {
+			if(isRunLocally() && this.incremental) {
+				// The exporter updates the ODP in place or replaces it as needed
+				exportODPLocal(odpDir);
+			} else if(isRunLocally()) {
 				Path temp = Files.createTempDirectory("nsfodp"); //$NON-NLS-1$
 				exportODPLocal(temp);
 
-				Path eclipseProject = copyEclipseProject(odpDir);
-				NSFODPUtil.deltree(odpDir);
-				NSFODPUtil.moveDirectory(temp, odpDir);
-				if(eclipseProject != null) {
-					Files.move(eclipseProject, odpDir.resolve(".project"), StandardCopyOption.REPLACE_EXISTING); //$NON-NLS-1$
+				if(this.syncChangedFiles) {
+					try {
+						syncOdp(temp, odpDir);
+					} finally {
+						NSFODPUtil.deltree(temp);
+					}
+				} else {
+					Path eclipseProject = copyEclipseProject(odpDir);
+					NSFODPUtil.deltree(odpDir);
+					NSFODPUtil.moveDirectory(temp, odpDir);
+					if(eclipseProject != null) {
+						Files.move(eclipseProject, odpDir.resolve(".project"), StandardCopyOption.REPLACE_EXISTING); //$NON-NLS-1$
+					}
 				}
 			} else {
 				Optional<NSFODPContainer> spawnedContainer = initContainerIfNeeded(Collections.emptyList(), null);
@@ -239,42 +295,25 @@ public abstract class AbstractExportMojo extends AbstractEquinoxMojo {
 					log.debug(Messages.getString("GenerateODPMojo.usingServerUrl", exporterServerUrl)); //$NON-NLS-1$
 				}
 				
-				Path zip = exportODPRemote();
+				Path exported = exportODPRemote();
 				try {
-					Path eclipseProject = copyEclipseProject(odpDir);
+					if(this.syncChangedFiles) {
+						syncOdp(exported, odpDir);
+					} else {
+						Path eclipseProject = copyEclipseProject(odpDir);
 					
-					if(Files.exists(odpDir)) {
-						NSFODPUtil.deltree(Collections.singleton(odpDir));
-					}
-					Files.createDirectories(odpDir);
-					
-					// Extract the ZIP to the destination
-					try(ZipFile zipFile = new ZipFile(zip.toFile())) {
-						for(ZipEntry entry : Collections.list(zipFile.entries())) {
-							if(log.isDebugEnabled()) {
-								log.debug(Messages.getString("GenerateODPMojo.exportingZipEntry", entry.getName())); //$NON-NLS-1$
-							}
-							
-							String name = entry.getName();
-							if(name != null && !name.isEmpty()) {
-								Path entryPath = Paths.get(name);
-								Path fullPath = odpDir.resolve(entryPath);
-								if(entry.isDirectory()) {
-									Files.createDirectories(fullPath);
-								} else {
-									Files.createDirectories(fullPath.getParent());
-									try(InputStream is = zipFile.getInputStream(entry)) {
-										Files.copy(is, fullPath);
-									}
-								}
-							}
+						if(Files.exists(odpDir)) {
+							NSFODPUtil.deltree(Collections.singleton(odpDir));
+						}
+						NSFODPUtil.moveDirectory(exported, odpDir);
+						if(eclipseProject != null) {
+							Files.move(eclipseProject, odpDir.resolve(".project"), StandardCopyOption.REPLACE_EXISTING); //$NON-NLS-1$
 						}
-					}
-					if(eclipseProject != null) {
-						Files.move(eclipseProject, odpDir.resolve(".project"), StandardCopyOption.REPLACE_EXISTING); //$NON-NLS-1$
 					}
 				} finally {
-					Files.deleteIfExists(zip);
+					if(Files.exists(exported)) {
+						NSFODPUtil.deltree(exported);
+					}
 					spawnedContainer.ifPresent(c -> {
 						try {
 							c.close();
@@ -291,6 +330,22 @@ public abstract class AbstractExportMojo extends AbstractEquinoxMojo {
 		}
 	}
 
+	/**
+	 * Updates the ODP directory to match the exported ODP, writing only changed files and
+	 * leaving any existing Eclipse project file in place.
+	 * 
+	 * @param exported the root of the exported ODP
+	 * @param odpDir the ODP directory to update
+	 * @throws IOException if there is a problem reading or writing files
+	 * @since 4.1.0
+	 */
+	private void syncOdp(Path exported, Path odpDir) throws IOException {
+		SyncResult result = ODPSyncUtil.sync(exported, odpDir, Collections.singleton(".project")); //$NON-NLS-1$
+		if(log.isInfoEnabled()) {
+			log.info(Messages.getString("GenerateODPMojo.syncResult", result.getWritten(), result.getDeleted(), result.getUnchanged())); //$NON-NLS-1$
+		}
+	}
+
 	private Path copyEclipseProject(Path odpDir) throws IOException {
 		Path eclipseProject = odpDir.resolve(".project"); //$NON-NLS-1$
 		if(Files.exists(eclipseProject)) {
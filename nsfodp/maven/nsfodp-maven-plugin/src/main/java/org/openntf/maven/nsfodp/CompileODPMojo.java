@@ -15,6 +15,7 @@
  */
 package org.openntf.maven.nsfodp;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -38,10 +39,16 @@ import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -54,6 +61,7 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -61,11 +69,14 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.util.EntityUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Resource;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -101,6 +112,10 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 	public static final String CLASSIFIER_NSF = "nsf"; //$NON-NLS-1$
 	public static final String SERVLET_PATH = "/org.openntf.nsfodp/compiler"; //$NON-NLS-1$
 	public static final String SERVLET_CONTAINER_PATH = "/org.openntf.nsfodp/containerCompiler"; //$NON-NLS-1$
+	/**
+	 * @since 4.1.0
+	 */
+	public static final String SERVLET_BLOBS_PATH = "/org.openntf.nsfodp/compilerBlobs"; //$NON-NLS-1$
 	
 	/**
 	 * File name of the generated NSF.
@@ -210,6 +225,29 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 	@Parameter(required=false, defaultValue = "false")
 	private boolean compileBasicElementLotusScript = false;
 	
+	/**
+	 * Whether to update the previously-compiled NSF instead of building a new one from scratch
+	 * when only some design elements changed. This applies only to local compilation.
+	 * 
+	 * <p>The content of the project at the time of each compilation is recorded in a manifest
+	 * file next to the output NSF. A full build is still performed when files are removed,
+	 * LotusScript libraries change, or the project pom or update sites change.</p>
+	 * 
+	 * @since 4.1.0
+	 */
+	@Parameter(property="nsfodp.compiler.incremental", required=false, defaultValue = "false")
+	private boolean incremental = false;
+	
+	/**
+	 * The maximum number of design elements to combine into a single DXL import call. The default
+	 * of {@code 1} imports each element individually; larger values can considerably speed up
+	 * compilation of projects with many small design elements.
+	 * 
+	 * @since 4.1.0
+	 */
+	@Parameter(property="nsfodp.compiler.importBatchSize", required=false, defaultValue = "1")
+	private int importBatchSize = 1;
+	
 	@Component( role = MavenResourcesFiltering.class, hint = "default" )
     protected MavenResourcesFiltering mavenResourcesFiltering;
 	
@@ -345,7 +383,15 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 				
 				// Compile the ODP
 				if(isRunLocally()) {
-					compileOdpLocal(odpCopy, updateSites, outputFile);
+					Path buildManifest = null;
+					if(this.incremental) {
+						buildManifest = outputFile.resolveSibling(outputFile.getFileName() + ".manifest"); //$NON-NLS-1$
+						// Changes outside the ODP aren't tracked by the manifest, so start fresh
+						if(isConfigurationChanged(outputFile, updateSites)) {
+							Files.deleteIfExists(buildManifest);
+						}
+					}
+					compileOdpLocal(odpCopy, updateSites, outputFile, buildManifest);
 				} else {
 					
 					Path odpZip = zipDirectory(odpCopy);
@@ -353,7 +399,7 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 						List<Path> updateSiteZips = null;
 						if(!this.container && updateSites != null && !updateSites.isEmpty()) {
 							updateSiteZips = updateSites.stream()
-								.map(this::zipDirectory)
+								.map(this::zipUpdateSite)
 								.collect(Collectors.toList());
 						}
 						
@@ -411,10 +457,13 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 	// * Local compilation
 	// *******************************************************************************
 	
-	private void compileOdpLocal(Path odpDirectory, List<Path> updateSites, Path outputFile) throws IOException {
+	private void compileOdpLocal(Path odpDirectory, List<Path> updateSites, Path outputFile, Path buildManifest) throws IOException {
 		Path notesIni = this.notesIni == null ? null : this.notesIni.toPath();
 		EquinoxCompiler compiler = new EquinoxCompiler(pluginDescriptor, mavenSession, project, getLog(), notesProgram.toPath(), notesPlatform, notesIni);
 		compiler.setJvmArgs(this.equinoxJvmArgs);
+		compiler.setDaemon(this.equinoxDaemon);
+		compiler.setDaemonIdleTimeout(this.equinoxDaemonIdleTimeout);
+		compiler.setDaemonParallelism(this.equinoxDaemonParallelism);
 		List<Path> jars = new ArrayList<>();
 		if(this.classpathJars != null) {
 			Arrays.stream(this.classpathJars).map(File::toPath).forEach(jars::add);
@@ -424,7 +473,7 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 			.map(Artifact::getFile)
 			.map(File::toPath)
 			.forEach(jars::add);
-		compiler.compileOdp(odpDirectory, updateSites, jars, outputFile, compilerLevel, appendTimestampToTitle, templateName, setProductionXspOptions, odsRelease, this.compileBasicElementLotusScript);
+		compiler.compileOdp(odpDirectory, updateSites, jars, outputFile, compilerLevel, appendTimestampToTitle, templateName, setProductionXspOptions, odsRelease, this.compileBasicElementLotusScript, this.translationParallelism, this.importBatchSize, buildManifest);
 	}
 	
 	// *******************************************************************************
@@ -436,6 +485,24 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 			log.debug(Messages.getString("CompileODPMojo.creatingPackage") + odpZip + ", updateSiteZips=" + updateSiteZips); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 		
+		// Collect the update sites and dependencies by digest, so that the server can reuse stored copies
+		Map<String, Path> blobs = new LinkedHashMap<>();
+		Map<String, String> blobDigests = new LinkedHashMap<>();
+		if(updateSiteZips != null && !updateSiteZips.isEmpty()) {
+			for(int i = 0; i < updateSiteZips.size(); i++) {
+				blobs.put("site" + i + ".zip", updateSiteZips.get(i)); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		for(Artifact artifact : this.project.getArtifacts()) {
+			Path artifactPath = artifact.getFile().toPath();
+			String dedupeName = blobs.size() + "-" + artifactPath.getFileName().toString(); //$NON-NLS-1$
+			blobs.put("classpath/" + dedupeName, artifactPath); //$NON-NLS-1$
+		}
+		for(Map.Entry<String, Path> blob : blobs.entrySet()) {
+			blobDigests.put(blob.getKey(), NSFODPUtil.sha256(blob.getValue()));
+		}
+		Set<String> missingDigests = findMissingBlobs(blobDigests.values());
+		
 		Path packageZip = Files.createTempFile("odpcompiler-package", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
 		try(OutputStream fos = Files.newOutputStream(packageZip, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
 			try(ZipOutputStream zos = new ZipOutputStream(fos, StandardCharsets.UTF_8)) {
@@ -445,23 +512,25 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 				Files.copy(odpZip, zos);
 				zos.closeEntry();
 				
-				if(updateSiteZips != null && !updateSiteZips.isEmpty()) {
-					for(int i = 0; i < updateSiteZips.size(); i++) {
-						Path updateSiteZip = updateSiteZips.get(i);
-						entry = new ZipEntry("site" + i + ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
-						zos.putNextEntry(entry);
-						Files.copy(updateSiteZip, zos);
-						zos.closeEntry();
-					}
+				if(!blobs.isEmpty()) {
+					StringBuilder manifest = new StringBuilder();
+					blobDigests.forEach((name, digest) -> manifest.append(digest).append("  ").append(name).append('\n')); //$NON-NLS-1$
+					entry = new ZipEntry(NSFODPConstants.PACKAGE_BLOB_MANIFEST);
+					zos.putNextEntry(entry);
+					zos.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+					zos.closeEntry();
 				}
 				
-				// Add any project dependencies
-				for(Artifact artifact : this.project.getArtifacts()) {
-					Path artifactPath = artifact.getFile().toPath();
-					String dedupeName = System.currentTimeMillis() + artifactPath.getFileName().toString();
-					entry = new ZipEntry("classpath/" + dedupeName); //$NON-NLS-1$
+				// Add any update sites and project dependencies not already on the server. These
+				//   are already compressed, so spend little time trying to shrink them further
+				zos.setLevel(Deflater.BEST_SPEED);
+				for(Map.Entry<String, Path> blob : blobs.entrySet()) {
+					if(!missingDigests.contains(blobDigests.get(blob.getKey()))) {
+						continue;
+					}
+					entry = new ZipEntry(blob.getKey());
 					zos.putNextEntry(entry);
-					Files.copy(artifactPath, zos);
+					Files.copy(blob.getValue(), zos);
 					zos.closeEntry();
 				}
 			}
@@ -469,6 +538,60 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 		return packageZip;
 	}
 	
+	/**
+	 * Asks the compilation server which of the provided digests it does not yet have
+	 * stored.
+	 * 
+	 * <p>If the server cannot be queried, such as when it predates the blob store, all
+	 * digests are considered missing.</p>
+	 * 
+	 * @param digests the SHA-256 digests of the update sites and JARs to send
+	 * @return the digests whose content must be included in the package
+	 */
+	private Set<String> findMissingBlobs(Collection<String> digests) {
+		Set<String> result = new HashSet<>(digests);
+		if(this.container || digests.isEmpty()) {
+			return result;
+		}
+		
+		try(CloseableHttpClient client = createServerClientBuilder().build()) {
+			URI servlet = Objects.requireNonNull(this.compilerServerUrl).toURI().resolve(SERVLET_BLOBS_PATH);
+			HttpPost post = new HttpPost(servlet);
+			ODPMojoUtil.addAuthenticationInfo(this.wagonManager, this.compilerServer, post, this.log);
+			post.setEntity(new StringEntity(String.join("\n", digests), ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8))); //$NON-NLS-1$
+			
+			HttpResponse res = client.execute(post);
+			HttpEntity responseEntity = res.getEntity();
+			Header contentType = res.getFirstHeader("Content-Type"); //$NON-NLS-1$
+			boolean isPlainText = contentType != null && String.valueOf(contentType.getValue()).startsWith("text/plain"); //$NON-NLS-1$
+			if(res.getStatusLine().getStatusCode() != 200 || !isPlainText) {
+				if(log.isDebugEnabled()) {
+					log.debug(Messages.getString("CompileODPMojo.blobQueryUnavailable", res.getStatusLine())); //$NON-NLS-1$
+				}
+				EntityUtils.consume(responseEntity);
+				return result;
+			}
+			
+			Set<String> missing = new HashSet<>();
+			try(BufferedReader r = new BufferedReader(new InputStreamReader(responseEntity.getContent(), StandardCharsets.UTF_8))) {
+				String line;
+				while((line = r.readLine()) != null) {
+					missing.add(line.trim());
+				}
+			}
+			result.retainAll(missing);
+			if(log.isInfoEnabled()) {
+				log.info(Messages.getString("CompileODPMojo.reusingServerBlobs", digests.size() - result.size(), digests.size())); //$NON-NLS-1$
+			}
+			return result;
+		} catch(Exception e) {
+			if(log.isWarnEnabled()) {
+				log.warn(Messages.getString("CompileODPMojo.blobQueryFailed"), e); //$NON-NLS-1$
+			}
+			return result;
+		}
+	}
+	
 	private Path compileOdpInContainer(Path packageZip, NSFODPContainer container) throws URISyntaxException, IOException {
 		URL compilerServerUrl = Objects.requireNonNull(this.compilerServerUrl);
 		if(log.isDebugEnabled()) {
@@ -495,17 +618,19 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 			post.addHeader(NSFODPConstants.HEADER_SET_PRODUCTION_XSP, String.valueOf(this.setProductionXspOptions));
 			post.addHeader(NSFODPConstants.HEADER_ODS_RELEASE, StringUtil.toString(this.odsRelease));
 			post.addHeader(NSFODPConstants.HEADER_COMPILE_BASICLS, Boolean.toString(this.compileBasicElementLotusScript));
+			post.addHeader(NSFODPConstants.HEADER_TRANSLATION_PARALLELISM, Integer.toString(this.translationParallelism));
+			post.addHeader(NSFODPConstants.HEADER_IMPORT_BATCH_SIZE, Integer.toString(this.importBatchSize));
 			post.addHeader(NSFODPConstants.HEADER_CONTAINER_PACKAGE, "/local/odp.zip"); //$NON-NLS-1$
 			
 			HttpResponse res = client.execute(post);
 			HttpEntity responseEntity = ResponseUtil.checkResponse(log, res);
  			
 			try(InputStream is = responseEntity.getContent()) {
-				ResponseUtil.monitorResponse(log, is);
+				InputStream payload = ResponseUtil.monitorResponse(log, is);
 				
 				// Now that we're here, the rest will be the compiler output
 				Path result = Files.createTempFile("odpcompiler-output", ".nsf"); //$NON-NLS-1$ //$NON-NLS-2$
-				try(InputStream gzis = new GZIPInputStream(is)) {
+				try(InputStream gzis = new GZIPInputStream(payload)) {
 					Files.copy(gzis, result, StandardCopyOption.REPLACE_EXISTING);
 				}
 				return result;
@@ -519,13 +644,7 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 			log.debug(Messages.getString("CompileODPMojo.usingServerUrl", compilerServerUrl)); //$NON-NLS-1$
 		}
 		
-		HttpClientBuilder httpBuilder = HttpClients.custom();
-		if(this.compilerServerTrustSelfSignedSsl) {
-			SSLContextBuilder sslBuilder = new SSLContextBuilder();
-			sslBuilder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
-			SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(sslBuilder.build(), null, null, NoopHostnameVerifier.INSTANCE);
-			httpBuilder.setSSLSocketFactory(sslsf);
-		}
+		HttpClientBuilder httpBuilder = createServerClientBuilder();
 
 		URI servlet = compilerServerUrl.toURI().resolve(SERVLET_PATH);
 		if(log.isInfoEnabled()) {
@@ -549,6 +668,8 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 			post.addHeader(NSFODPConstants.HEADER_SET_PRODUCTION_XSP, String.valueOf(this.setProductionXspOptions));
 			post.addHeader(NSFODPConstants.HEADER_ODS_RELEASE, StringUtil.toString(this.odsRelease));
 			post.addHeader(NSFODPConstants.HEADER_COMPILE_BASICLS, Boolean.toString(this.compileBasicElementLotusScript));
+			post.addHeader(NSFODPConstants.HEADER_TRANSLATION_PARALLELISM, Integer.toString(this.translationParallelism));
+			post.addHeader(NSFODPConstants.HEADER_IMPORT_BATCH_SIZE, Integer.toString(this.importBatchSize));
 			
 			HttpEntity responseEntity;
 			try(InputStream fileIs = Files.newInputStream(packageZip)) {
@@ -560,11 +681,11 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 			}
  			
 			try(InputStream is = responseEntity.getContent()) {
-				ResponseUtil.monitorResponse(log, is);
+				InputStream payload = ResponseUtil.monitorResponse(log, is);
 				
 				// Now that we're here, the rest will be the compiler output
 				Path result = Files.createTempFile("odpcompiler-output", ".nsf"); //$NON-NLS-1$ //$NON-NLS-2$
-				try(InputStream gzis = new GZIPInputStream(is)) {
+				try(InputStream gzis = new GZIPInputStream(payload)) {
 					Files.copy(gzis, result, StandardCopyOption.REPLACE_EXISTING);
 				}
 				return result;
@@ -572,6 +693,17 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 		}
 	}
 	
+	private HttpClientBuilder createServerClientBuilder() throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException {
+		HttpClientBuilder httpBuilder = HttpClients.custom();
+		if(this.compilerServerTrustSelfSignedSsl) {
+			SSLContextBuilder sslBuilder = new SSLContextBuilder();
+			sslBuilder.loadTrustMaterial(null, new TrustSelfSignedStrategy());
+			SSLConnectionSocketFactory sslsf = new SSLConnectionSocketFactory(sslBuilder.build(), null, null, NoopHostnameVerifier.INSTANCE);
+			httpBuilder.setSSLSocketFactory(sslsf);
+		}
+		return httpBuilder;
+	}
+	
 	private Path zipDirectory(Path path) {
 		if(log.isDebugEnabled()) {
 			log.debug(Messages.getString("CompileODPMojo.zippingPath", path.toString())); //$NON-NLS-1$
@@ -590,6 +722,43 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 		}
 	}
 	
+	/**
+	 * Zips the provided update site directory with entries in a stable order and with fixed
+	 * timestamps, so that unchanged sites produce identical archives and can be reused from
+	 * the server's blob store.
+	 */
+	private Path zipUpdateSite(Path path) {
+		if(log.isDebugEnabled()) {
+			log.debug(Messages.getString("CompileODPMojo.zippingPath", path.toString())); //$NON-NLS-1$
+		}
+		
+		try {
+			Path result = Files.createTempFile("odpcompiler-site", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+			List<Path> files;
+			try(Stream<Path> walk = Files.walk(path)) {
+				files = walk
+					.filter(Files::isRegularFile)
+					.filter(p -> !p.getFileName().toString().startsWith(".DS_Store")) //$NON-NLS-1$
+					.sorted(Comparator.comparing(p -> path.relativize(p).toString()))
+					.collect(Collectors.toList());
+			}
+			try(OutputStream os = Files.newOutputStream(result, StandardOpenOption.TRUNCATE_EXISTING)) {
+				try(ZipOutputStream zos = new ZipOutputStream(os, StandardCharsets.UTF_8)) {
+					for(Path file : files) {
+						ZipEntry entry = new ZipEntry(path.relativize(file).toString().replace(File.separatorChar, '/'));
+						entry.setTime(0);
+						zos.putNextEntry(entry);
+						Files.copy(file, zos);
+						zos.closeEntry();
+					}
+				}
+			}
+			return result;
+		} catch(IOException e) {
+			throw new RuntimeException(Messages.getString("CompileODPMojo.exceptionCompressingDir", path), e); //$NON-NLS-1$
+		}
+	}
+	
 	// *******************************************************************************
 	// * Misc. internal utilities
 	// *******************************************************************************
@@ -600,8 +769,8 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 			try {
 				FileTime mod = Files.getLastModifiedTime(outputFile);
 				
-				// Check if the project pom itself changed
-				if(this.project.getFile().lastModified() > mod.toMillis()) {
+				// Check if the project pom or dependent update sites changed
+				if(isConfigurationChanged(outputFile, updateSites)) {
 					return true;
 				}
 				
@@ -612,17 +781,6 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 					}
 				}
 				
-				// Check if any dependent update sites changed
-				if(updateSites.stream().anyMatch(path -> {
-						try {
-							return Files.getLastModifiedTime(path).compareTo(mod) > 0;
-						} catch (IOException e) {
-							throw new RuntimeException(e);
-						}
-					})) {
-					return true;
-				}
-				
 				return false;
 			} catch(IOException e) {
 				throw new MojoExecutionException(Messages.getString("CompileODPMojo.exceptionCheckingFiles"), e); //$NON-NLS-1$
@@ -631,6 +789,38 @@ public class CompileODPMojo extends AbstractCompilerMojo {
 		return true;
 	}
 	
+	/**
+	 * Determines whether the project pom or any dependent update sites changed since the
+	 * output file was generated.
+	 * 
+	 * @param outputFile the previously-generated NSF
+	 * @param updateSites the update sites used for compilation
+	 * @return {@code true} if the configuration changed or the output file does not exist;
+	 *         {@code false} otherwise
+	 * @throws IOException if there is a problem reading file attributes
+	 * @since 4.1.0
+	 */
+	private boolean isConfigurationChanged(Path outputFile, List<Path> updateSites) throws IOException {
+		if(!Files.exists(outputFile)) {
+			return true;
+		}
+		FileTime mod = Files.getLastModifiedTime(outputFile);
+		
+		// Check if the project pom itself changed
+		if(this.project.getFile().lastModified() > mod.toMillis()) {
+			return true;
+		}
+		
+		// Check if any dependent update sites changed
+		return updateSites.stream().anyMatch(path -> {
+			try {
+				return Files.getLastModifiedTime(path).compareTo(mod) > 0;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+	}
+	
 	@Override
 	protected void setServerUrl(URL serverUrl) {
 		this.compilerServer = UUID.randomUUID().toString();
@@ -134,6 +134,9 @@ public class TranspileXspMojo extends AbstractCompilerMojo {
 		Path notesIni = this.notesIni == null ? null : this.notesIni.toPath();
 		EquinoxTranspiler transpiler = new EquinoxTranspiler(pluginDescriptor, mavenSession, project, getLog(), notesProgram.toPath(), notesPlatform, notesIni);
 		transpiler.setJvmArgs(this.equinoxJvmArgs);
+		transpiler.setDaemon(this.equinoxDaemon);
+		transpiler.setDaemonIdleTimeout(this.equinoxDaemonIdleTimeout);
+		transpiler.setDaemonParallelism(this.equinoxDaemonParallelism);
 		List<Path> jars = new ArrayList<>();
 		if(this.classpathJars != null) {
 			Arrays.stream(this.classpathJars).map(File::toPath).forEach(jars::add);
@@ -143,7 +146,7 @@ public class TranspileXspMojo extends AbstractCompilerMojo {
 			.map(Artifact::getFile)
 			.map(File::toPath)
 			.forEach(jars::add);
-		transpiler.transpileXsp(xspSourceRoot, ccSourceRoot, updateSites, jars, outputDirectory);
+		transpiler.transpileXsp(xspSourceRoot, ccSourceRoot, updateSites, jars, outputDirectory, translationParallelism);
 	}
 	
 	// *******************************************************************************
@@ -15,21 +15,32 @@
  */
 package org.openntf.maven.nsfodp.equinox;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import org.apache.maven.artifact.Artifact;
@@ -42,12 +53,23 @@ import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.component.repository.ComponentDependency;
 import org.openntf.maven.nsfodp.Messages;
+import org.openntf.nsfodp.commons.NSFODPConstants;
+import org.openntf.nsfodp.commons.NSFODPUtil;
 import org.openntf.nsfodp.commons.jvm.JvmEnvironment;
+import org.openntf.nsfodp.commons.osgi.EquinoxDaemon;
 import org.openntf.nsfodp.commons.osgi.EquinoxRunner;
 
 public abstract class AbstractEquinoxTask {
 	private static final String[] VERBOTEN_NDEXT_JARS = { "jsdk.jar", "Notes.jar" }; //$NON-NLS-1$ //$NON-NLS-2$
 	
+	/** Guards daemon discovery within this JVM, as file locks are held per-process */
+	private static final Object DAEMON_LOCK = new Object();
+	/** The number of jobs in flight from this JVM per daemon directory, guarded by {@link #DAEMON_LOCK} */
+	private static final Map<Path, Integer> DAEMON_JOBS = new HashMap<>();
+	private static final String DAEMON_INFO_FILE = "daemon.properties"; //$NON-NLS-1$
+	private static final long DAEMON_START_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+	private static final int DAEMON_UNREACHABLE = -1;
+	
 	private final PluginDescriptor pluginDescriptor;
 	private final MavenSession mavenSession;
 	private final MavenProject project;
@@ -63,6 +85,9 @@ public abstract class AbstractEquinoxTask {
 	private boolean successFlag;
 	
 	private String jvmArgs;
+	private boolean daemon;
+	private int daemonIdleTimeout = EquinoxDaemon.DEFAULT_IDLE_TIMEOUT;
+	private int daemonParallelism;
 
 	public AbstractEquinoxTask(PluginDescriptor pluginDescriptor, MavenSession mavenSession, MavenProject project, Log log, Path notesProgram, URL notesPlatform, Path notesIni) throws IOException {
 		this.pluginDescriptor = pluginDescriptor;
@@ -104,6 +129,39 @@ public abstract class AbstractEquinoxTask {
 		this.jvmArgs = jvmArgs;
 	}
 	
+	/**
+	 * Sets whether to run the application in a shared, long-lived Equinox process instead
+	 * of launching a new process.
+	 * 
+	 * @since 4.1.0
+	 */
+	public void setDaemon(boolean daemon) {
+		this.daemon = daemon;
+	}
+	
+	/**
+	 * Sets the number of seconds a shared Equinox process started by this task waits for
+	 * another job before exiting.
+	 * 
+	 * @since 4.1.0
+	 */
+	public void setDaemonIdleTimeout(int daemonIdleTimeout) {
+		this.daemonIdleTimeout = daemonIdleTimeout;
+	}
+	
+	/**
+	 * Sets the maximum number of jobs a shared Equinox process started by this task runs at
+	 * the same time. Values below {@code 1} use the degree of concurrency of the Maven build.
+	 * 
+	 * <p>Jobs only run side by side when they use the same update sites, as the process keeps
+	 * one set of update-site bundles installed at a time.</p>
+	 * 
+	 * @since 4.1.0
+	 */
+	public void setDaemonParallelism(int daemonParallelism) {
+		this.daemonParallelism = daemonParallelism;
+	}
+	
 	protected void run(String applicationId) {
 		successFlag = false;
 		try {
@@ -198,11 +256,25 @@ public abstract class AbstractEquinoxTask {
 			}
 			
 			if(equinoxEnvironmentVars != null) {
-				equinoxEnvironmentVars.forEach(runner::addEnvironmentVar);
+				if(daemon) {
+					// Job variables are sent with each request, but Notes initialization is shared
+					String notesIni = equinoxEnvironmentVars.get(NSFODPConstants.PROP_NOTESINI);
+					if(notesIni != null) {
+						runner.addEnvironmentVar(NSFODPConstants.PROP_NOTESINI, notesIni);
+					}
+				} else {
+					equinoxEnvironmentVars.forEach(runner::addEnvironmentVar);
+				}
 			}
 			
 			Collection<Path> addedJars = jvm.initNotesJars(notesProgram);
 			addedJars.forEach(runner::addClasspathJar);
+			
+			if(daemon) {
+				runInDaemon(runner, applicationId);
+				return;
+			}
+			
 			Path logFile = runner.getLogFile();
 			
 			Process proc = runner.start(applicationId);
@@ -235,6 +307,235 @@ public abstract class AbstractEquinoxTask {
 		}
 	}
 	
+	// *******************************************************************************
+	// * Daemon support
+	// *******************************************************************************
+	
+	/**
+	 * Runs the application as a job in a shared Equinox daemon, starting one if no running
+	 * daemon was launched with the same configuration.
+	 * 
+	 * @param runner the configured runner, used to launch a new daemon if needed
+	 * @param applicationId the Equinox application ID to run
+	 * @since 4.1.0
+	 */
+	private void runInDaemon(EquinoxRunner runner, String applicationId) throws IOException, InterruptedException, MojoExecutionException {
+		// Settings that shape the daemon process are part of its configuration key
+		int parallelism = daemonParallelism > 0 ? daemonParallelism : mavenSession.getRequest().getDegreeOfConcurrency();
+		runner.addEnvironmentVar(NSFODPConstants.PROP_DAEMON_PARALLELISM, Integer.toString(Math.max(1, parallelism)));
+		// Keep update-site bundles installed between jobs, so that jobs using the same sites
+		// can run at the same time instead of each holding the framework exclusively
+		runner.addJvmLaunchProperty(NSFODPConstants.PROP_POOLBUNDLES, Boolean.TRUE.toString());
+		String key = runner.getConfigurationKey();
+		String user = System.getProperty("user.name", "").replaceAll("[^\\w.-]", "_"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		Path daemonRoot = Files.createDirectories(NSFODPUtil.getTempDirectory().resolve("nsfodp-daemon-" + user)); //$NON-NLS-1$
+		Path instanceDir = daemonRoot.resolve(key.substring(0, 16));
+		Map<String, String> env = equinoxEnvironmentVars == null ? Collections.emptyMap() : equinoxEnvironmentVars;
+		
+		for(int attempt = 0; attempt < 2; attempt++) {
+			EquinoxDaemon.Info info = acquireDaemon(runner, daemonRoot, instanceDir, key);
+			int status;
+			try {
+				if(log.isDebugEnabled()) {
+					log.debug(Messages.getString("EquinoxMojo.usingDaemon", info.getPort(), instanceDir)); //$NON-NLS-1$
+				}
+				status = sendRequest(info, new EquinoxDaemon.Request(info.getToken(), EquinoxDaemon.COMMAND_RUN, applicationId, env));
+			} finally {
+				synchronized(DAEMON_LOCK) {
+					DAEMON_JOBS.computeIfPresent(instanceDir, (dir, count) -> count > 1 ? count - 1 : null);
+				}
+			}
+			if(status == DAEMON_UNREACHABLE) {
+				// Then the daemon exited after it was located - discard its details and try once more
+				discardDaemon(instanceDir, info);
+				continue;
+			}
+			if(status != 0) {
+				throw new RuntimeException(Messages.getString("EquinoxMojo.processExitedWithNonZero", status)); //$NON-NLS-1$
+			}
+			return;
+		}
+		throw new MojoExecutionException(Messages.getString("EquinoxMojo.daemonUnreachable", instanceDir)); //$NON-NLS-1$
+	}
+	
+	/**
+	 * Locates the running daemon for the provided configuration, starting one if needed and
+	 * asking any daemons with other configurations to stop. The caller must release the
+	 * job count recorded for {@code instanceDir} once its request completes.
+	 */
+	private EquinoxDaemon.Info acquireDaemon(EquinoxRunner runner, Path daemonRoot, Path instanceDir, String key) throws IOException, InterruptedException, MojoExecutionException {
+		synchronized(DAEMON_LOCK) {
+			try(FileChannel channel = FileChannel.open(daemonRoot.resolve("discovery.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE); //$NON-NLS-1$
+				FileLock lock = channel.lock()) {
+				EquinoxDaemon.Info info;
+				Optional<EquinoxDaemon.Info> existing = EquinoxDaemon.Info.read(instanceDir.resolve(DAEMON_INFO_FILE));
+				if(existing.isPresent() && key.equals(existing.get().getConfigurationKey())) {
+					info = existing.get();
+				} else {
+					stopOtherDaemons(daemonRoot, instanceDir);
+					info = startDaemon(runner, instanceDir, key);
+				}
+				DAEMON_JOBS.merge(instanceDir, 1, Integer::sum);
+				return info;
+			}
+		}
+	}
+	
+	private EquinoxDaemon.Info startDaemon(EquinoxRunner runner, Path instanceDir, String key) throws IOException, InterruptedException, MojoExecutionException {
+		Files.createDirectories(instanceDir);
+		deleteStaleRuns(instanceDir);
+		Path infoFile = instanceDir.resolve(DAEMON_INFO_FILE);
+		// Each daemon gets its own working directory, as one being replaced may still be finishing jobs
+		Path workingDirectory = Files.createTempDirectory(instanceDir, "run"); //$NON-NLS-1$
+		Path outputFile = workingDirectory.resolve("daemon.log"); //$NON-NLS-1$
+		runner.setWorkingDirectory(workingDirectory);
+		runner.addEnvironmentVar(NSFODPConstants.PROP_DAEMON_INFOFILE, infoFile.toString());
+		runner.addEnvironmentVar(NSFODPConstants.PROP_DAEMON_IDLETIMEOUT, Integer.toString(daemonIdleTimeout));
+		runner.addEnvironmentVar(NSFODPConstants.PROP_DAEMON_CONFIGURATIONKEY, key);
+		
+		if(log.isInfoEnabled()) {
+			log.info(Messages.getString("EquinoxMojo.startingDaemon", outputFile)); //$NON-NLS-1$
+		}
+		Process proc = runner.startDetached(EquinoxDaemon.APPLICATION_ID, outputFile);
+		long deadline = System.currentTimeMillis() + DAEMON_START_TIMEOUT;
+		while(true) {
+			Optional<EquinoxDaemon.Info> info = EquinoxDaemon.Info.read(infoFile);
+			if(info.isPresent()) {
+				return info.get();
+			}
+			if(!proc.isAlive()) {
+				for(Path file : new Path[] { outputFile, runner.getLogFile() }) {
+					if(Files.isReadable(file)) {
+						Files.lines(file).forEach(log::error);
+					}
+				}
+				throw new MojoExecutionException(Messages.getString("EquinoxMojo.processExitedWithNonZero", proc.exitValue())); //$NON-NLS-1$
+			}
+			if(System.currentTimeMillis() > deadline) {
+				proc.destroyForcibly();
+				throw new MojoExecutionException(Messages.getString("EquinoxMojo.daemonStartTimeout", outputFile)); //$NON-NLS-1$
+			}
+			TimeUnit.MILLISECONDS.sleep(250);
+		}
+	}
+	
+	/**
+	 * Asks daemons launched with other configurations to exit once their current jobs are
+	 * complete, so that successive builds with differing configurations don't accumulate idle
+	 * processes, and removes the remnants of daemons that have exited.
+	 * 
+	 * <p>Daemons still running jobs for this build are left alone, so that modules of the same
+	 * reactor with differing configurations don't repeatedly replace each other's daemons.</p>
+	 */
+	private void stopOtherDaemons(Path daemonRoot, Path instanceDir) throws IOException {
+		try(Stream<Path> dirs = Files.list(daemonRoot)) {
+			for(Path dir : (Iterable<Path>)dirs.filter(Files::isDirectory)::iterator) {
+				if(dir.equals(instanceDir) || DAEMON_JOBS.containsKey(dir)) {
+					continue;
+				}
+				Optional<EquinoxDaemon.Info> info = EquinoxDaemon.Info.read(dir.resolve(DAEMON_INFO_FILE));
+				if(info.isPresent()) {
+					if(log.isDebugEnabled()) {
+						log.debug(Messages.getString("EquinoxMojo.stoppingDaemon", dir)); //$NON-NLS-1$
+					}
+					try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), info.get().getPort())) {
+						new EquinoxDaemon.Request(info.get().getToken(), EquinoxDaemon.COMMAND_SHUTDOWN, null, null).write(socket.getOutputStream());
+					} catch(IOException e) {
+						// Then it's already gone
+						Files.deleteIfExists(dir.resolve(DAEMON_INFO_FILE));
+					}
+				}
+				if(deleteStaleRuns(dir) && !Files.exists(dir.resolve(DAEMON_INFO_FILE))) {
+					try {
+						NSFODPUtil.deltree(dir);
+					} catch(IOException e) {
+						// Try again next time
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Removes the working directories of daemons in {@code instanceDir} whose processes have
+	 * exited, as indicated by their lock files no longer being held.
+	 * 
+	 * @return {@code true} if no daemon working directories remain
+	 */
+	private boolean deleteStaleRuns(Path instanceDir) throws IOException {
+		boolean empty = true;
+		try(Stream<Path> dirs = Files.list(instanceDir)) {
+			for(Path dir : (Iterable<Path>)dirs.filter(Files::isDirectory)::iterator) {
+				boolean running;
+				try(FileChannel channel = FileChannel.open(dir.resolve(EquinoxDaemon.LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					FileLock lock = channel.tryLock()) {
+					running = lock == null;
+				} catch(IOException e) {
+					// Windows reports the lock held by the daemon this way
+					running = true;
+				}
+				if(!running) {
+					try {
+						NSFODPUtil.deltree(dir);
+						continue;
+					} catch(IOException e) {
+						// The process may still be releasing its files - try again next time
+					}
+				}
+				empty = false;
+			}
+		}
+		return empty;
+	}
+	
+	/**
+	 * Removes the published details of an unreachable daemon, unless another daemon has
+	 * since replaced it.
+	 */
+	private void discardDaemon(Path instanceDir, EquinoxDaemon.Info info) throws IOException {
+		synchronized(DAEMON_LOCK) {
+			Path infoFile = instanceDir.resolve(DAEMON_INFO_FILE);
+			Optional<EquinoxDaemon.Info> current = EquinoxDaemon.Info.read(infoFile);
+			if(current.isPresent() && info.getToken().equals(current.get().getToken())) {
+				Files.deleteIfExists(infoFile);
+			}
+		}
+	}
+	
+	/**
+	 * Sends a request to the daemon, logging the job output as it arrives.
+	 * 
+	 * @return the job status code, or {@link #DAEMON_UNREACHABLE} if the daemon closed the
+	 *         connection before responding
+	 */
+	private int sendRequest(EquinoxDaemon.Info info, EquinoxDaemon.Request request) throws IOException {
+		boolean received = false;
+		try(Socket socket = new Socket(InetAddress.getLoopbackAddress(), info.getPort())) {
+			request.write(socket.getOutputStream());
+			BufferedReader r = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			String line;
+			while((line = r.readLine()) != null) {
+				received = true;
+				if(line.startsWith(EquinoxDaemon.RESULT_PREFIX)) {
+					return Integer.parseInt(line.substring(EquinoxDaemon.RESULT_PREFIX.length()));
+				}
+				// Single-use processes are terminated at "#end", so it was never logged there either
+				if(!line.isEmpty() && !line.endsWith(String.valueOf(STOP_SEQUENCE)) && log.isInfoEnabled()) {
+					log.info(line);
+				}
+			}
+		} catch(IOException e) {
+			if(!received) {
+				return DAEMON_UNREACHABLE;
+			}
+			throw e;
+		}
+		if(!received) {
+			return DAEMON_UNREACHABLE;
+		}
+		throw new IOException(Messages.getString("EquinoxMojo.daemonConnectionLost")); //$NON-NLS-1$
+	}
+	
 	// *******************************************************************************
 	// * Internal utility methods
 	// *******************************************************************************
@@ -53,7 +53,10 @@ public class EquinoxCompiler extends AbstractEquinoxTask {
 			String templateName,
 			boolean setProductionXspOptions,
 			String odsRelease,
-			boolean compileBasicElementLotusScript
+			boolean compileBasicElementLotusScript,
+			int translationParallelism,
+			int importBatchSize,
+			Path buildManifest
 		) {
 		setClasspathJars(classpathJars);
 		
@@ -72,6 +75,11 @@ public class EquinoxCompiler extends AbstractEquinoxTask {
 		props.put(NSFODPConstants.PROP_SETPRODUCTIONXSPOPTIONS, Boolean.toString(setProductionXspOptions));
 		props.put(NSFODPConstants.PROP_ODSRELEASE, StringUtil.toString(odsRelease));
 		props.put(NSFODPConstants.PROP_COMPILEBASICLS, Boolean.toString(compileBasicElementLotusScript));
+		props.put(NSFODPConstants.PROP_TRANSLATIONPARALLELISM, Integer.toString(translationParallelism));
+		props.put(NSFODPConstants.PROP_IMPORTBATCHSIZE, Integer.toString(importBatchSize));
+		if(buildManifest != null) {
+			props.put(NSFODPConstants.PROP_BUILDMANIFEST, buildManifest.toAbsolutePath().toString());
+		}
 		
 		Path notesIni = getNotesIni();
 		if(notesIni != null) {
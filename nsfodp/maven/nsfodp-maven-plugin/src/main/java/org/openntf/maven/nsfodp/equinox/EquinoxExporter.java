@@ -39,13 +39,15 @@ public class EquinoxExporter extends AbstractEquinoxTask {
 		super(pluginDescriptor, mavenSession, project, log, notesProgram, notesPlatform, notesIni);
 	}
 
-	public void exportOdp(Path odpDir, String databasePath, boolean binaryDxl, boolean swiperFilter, boolean richTextAsItemData) {
+	public void exportOdp(Path odpDir, String databasePath, boolean binaryDxl, boolean swiperFilter, boolean richTextAsItemData, int parallelism, boolean incremental) {
 		Map<String, String> props = new HashMap<>();
 		props.put(NSFODPConstants.PROP_OUTPUTFILE, odpDir.toAbsolutePath().toString());
 		props.put(NSFODPConstants.PROP_EXPORTER_DATABASE_PATH, databasePath);
 		props.put(NSFODPConstants.PROP_EXPORTER_BINARY_DXL, Boolean.toString(binaryDxl));
 		props.put(NSFODPConstants.PROP_EXPORTER_SWIPER_FILTER, Boolean.toString(swiperFilter));
 		props.put(NSFODPConstants.PROP_RICH_TEXT_AS_ITEM_DATA, Boolean.toString(richTextAsItemData));
+		props.put(NSFODPConstants.PROP_EXPORTER_PARALLELISM, Integer.toString(parallelism));
+		props.put(NSFODPConstants.PROP_EXPORTER_INCREMENTAL, Boolean.toString(incremental));
 		props.put(NSFODPConstants.PROP_PROJECT_NAME, getProject().getGroupId() + '.' + getProject().getArtifactId());
 		Path notesIni = getNotesIni();
 		if(notesIni != null) {
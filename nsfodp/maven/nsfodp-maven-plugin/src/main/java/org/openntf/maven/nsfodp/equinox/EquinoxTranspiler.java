@@ -47,7 +47,8 @@ public class EquinoxTranspiler extends AbstractEquinoxTask {
 			Path ccSourceRoot,
 			List<Path> updateSites,
 			Collection<Path> classpathJars,
-			Path outputDirectory
+			Path outputDirectory,
+			int translationParallelism
 		) {
 		setClasspathJars(classpathJars);
 		
@@ -56,6 +57,7 @@ public class EquinoxTranspiler extends AbstractEquinoxTask {
 		props.put(NSFODPConstants.PROP_CC_SOURCE_ROOT, ccSourceRoot.toAbsolutePath().toString());
 		setUpdateSites(updateSites);
 		props.put(NSFODPConstants.PROP_OUTPUTFILE, outputDirectory.toAbsolutePath().toString());
+		props.put(NSFODPConstants.PROP_TRANSLATIONPARALLELISM, Integer.toString(translationParallelism));
 		
 		Path notesIni = getNotesIni();
 		if(notesIni != null) {
@@ -0,0 +1,274 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openntf.nsfodp.commons.NSFODPUtil;
+
+/**
+ * Utility methods for bringing an existing ODP directory in line with a freshly-exported one
+ * while leaving unchanged files untouched.
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public enum ODPSyncUtil {
+	;
+
+	/**
+	 * Represents the number of files affected by a call to {@link ODPSyncUtil#sync}.
+	 */
+	public static class SyncResult {
+		private final int written;
+		private final int deleted;
+		private final int unchanged;
+
+		public SyncResult(int written, int deleted, int unchanged) {
+			this.written = written;
+			this.deleted = deleted;
+			this.unchanged = unchanged;
+		}
+
+		/**
+		 * @return the number of new or changed files written
+		 */
+		public int getWritten() {
+			return written;
+		}
+
+		/**
+		 * @return the number of files removed from the destination
+		 */
+		public int getDeleted() {
+			return deleted;
+		}
+
+		/**
+		 * @return the number of files left as-is
+		 */
+		public int getUnchanged() {
+			return unchanged;
+		}
+	}
+
+	/**
+	 * Updates {@code dest} to match the contents of {@code source}, writing only files whose
+	 * content differs and removing files and directories not present in the source.
+	 *
+	 * <p>Files are compared in parallel. The source may be on any filesystem, such as a mounted
+	 * ZIP file.</p>
+	 *
+	 * <p>When {@code dest} is on a case-insensitive filesystem, existing files and directories
+	 * whose names differ from the source only in case are renamed to match it, rather than
+	 * being deleted as stale.</p>
+	 *
+	 * @param source the root of the exported ODP
+	 * @param dest the ODP directory to update
+	 * @param preserve relative paths, using "/" separators, of files in {@code dest} to leave
+	 *        untouched if they exist
+	 * @return a {@link SyncResult} describing the changes made
+	 * @throws IOException if there is a problem reading or writing files
+	 */
+	public static SyncResult sync(Path source, Path dest, Collection<String> preserve) throws IOException {
+		Map<String, Path> sourceFiles = new TreeMap<>();
+		Set<String> sourceDirs = new TreeSet<>();
+		try(Stream<Path> walk = Files.walk(source)) {
+			walk.filter(p -> !p.equals(source)).forEach(p -> {
+				String relative = toRelative(source, p);
+				if(Files.isDirectory(p)) {
+					sourceDirs.add(relative);
+				} else {
+					sourceFiles.put(relative, p);
+				}
+			});
+		}
+
+		// Directories are created first and in order, so that files can be written in parallel
+		Files.createDirectories(dest);
+		Map<String, String> sourcePaths = new HashMap<>();
+		Stream.concat(sourceDirs.stream(), sourceFiles.keySet().stream())
+			.forEach(path -> sourcePaths.putIfAbsent(path.toLowerCase(Locale.ENGLISH), path));
+		matchCase(dest, dest, sourcePaths);
+		for(String dir : sourceDirs) {
+			Path destDir = dest.resolve(dir);
+			if(Files.exists(destDir) && !Files.isDirectory(destDir)) {
+				Files.delete(destDir);
+			}
+			Files.createDirectories(destDir);
+		}
+
+		AtomicInteger written = new AtomicInteger();
+		AtomicInteger unchanged = new AtomicInteger();
+		try {
+			sourceFiles.entrySet().parallelStream().forEach(entry -> {
+				Path destFile = dest.resolve(entry.getKey());
+				try {
+					if(preserve.contains(entry.getKey()) && Files.exists(destFile)) {
+						unchanged.incrementAndGet();
+					} else if(Files.isRegularFile(destFile) && isSameContent(entry.getValue(), destFile)) {
+						unchanged.incrementAndGet();
+					} else {
+						if(Files.isDirectory(destFile)) {
+							NSFODPUtil.deltree(destFile);
+						}
+						Files.createDirectories(destFile.getParent());
+						Files.copy(entry.getValue(), destFile, StandardCopyOption.REPLACE_EXISTING);
+						written.incrementAndGet();
+					}
+				} catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		// Remove files that are no longer exported, followed by emptied directories
+		List<Path> existing;
+		try(Stream<Path> walk = Files.walk(dest)) {
+			existing = walk.filter(p -> !p.equals(dest))
+				.sorted(Comparator.comparing(Path::getNameCount).reversed())
+				.collect(Collectors.toList());
+		}
+		int deleted = 0;
+		Set<String> keep = new HashSet<>(preserve);
+		keep.addAll(sourceFiles.keySet());
+		List<Path> staleDirs = new ArrayList<>();
+		for(Path p : existing) {
+			String relative = toRelative(dest, p);
+			if(Files.isDirectory(p)) {
+				if(!sourceDirs.contains(relative)) {
+					staleDirs.add(p);
+				}
+			} else if(!keep.contains(relative)) {
+				Files.delete(p);
+				deleted++;
+			}
+		}
+		for(Path dir : staleDirs) {
+			try {
+				Files.deleteIfExists(dir);
+			} catch(DirectoryNotEmptyException e) {
+				// Then it contains a preserved file
+			}
+		}
+
+		return new SyncResult(written.get(), deleted, unchanged.get());
+	}
+
+	/**
+	 * Determines whether the two files have the same content.
+	 *
+	 * @param a the first file to compare
+	 * @param b the second file to compare
+	 * @return {@code true} if the files contain the same bytes
+	 * @throws IOException if there is a problem reading either file
+	 */
+	public static boolean isSameContent(Path a, Path b) throws IOException {
+		if(Files.size(a) != Files.size(b)) {
+			return false;
+		}
+		byte[] bufA = new byte[8192];
+		byte[] bufB = new byte[8192];
+		try(InputStream isA = Files.newInputStream(a); InputStream isB = Files.newInputStream(b)) {
+			while(true) {
+				int readA = readFully(isA, bufA);
+				int readB = readFully(isB, bufB);
+				if(readA != readB) {
+					return false;
+				}
+				if(readA == 0) {
+					return true;
+				}
+				for(int i = 0; i < readA; i++) {
+					if(bufA[i] != bufB[i]) {
+						return false;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Renames entries within {@code dir} whose paths differ from a source path only in case,
+	 * when the filesystem considers both names to refer to the same file.
+	 *
+	 * @param root the root of the destination ODP
+	 * @param dir the directory to process recursively
+	 * @param sourcePaths a {@link Map} of lowercase relative source paths to their actual paths
+	 */
+	private static void matchCase(Path root, Path dir, Map<String, String> sourcePaths) throws IOException {
+		List<Path> children;
+		try(Stream<Path> list = Files.list(dir)) {
+			children = list.collect(Collectors.toList());
+		}
+		for(Path child : children) {
+			String relative = toRelative(root, child);
+			String sourcePath = sourcePaths.get(relative.toLowerCase(Locale.ENGLISH));
+			if(sourcePath != null && !sourcePath.equals(relative)) {
+				Path target = root.resolve(sourcePath);
+				if(Files.exists(target) && Files.isSameFile(child, target)) {
+					// Move via a temporary name, as some filesystems ignore case-only renames
+					Path temp = child.resolveSibling(child.getFileName() + ".nsfodp-rename"); //$NON-NLS-1$
+					Files.move(child, temp);
+					Files.move(temp, target);
+					child = target;
+				}
+			}
+			if(Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+				matchCase(root, child, sourcePaths);
+			}
+		}
+	}
+
+	private static int readFully(InputStream is, byte[] buf) throws IOException {
+		int total = 0;
+		while(total < buf.length) {
+			int read = is.read(buf, total, buf.length - total);
+			if(read < 0) {
+				break;
+			}
+			total += read;
+		}
+		return total;
+	}
+
+	private static String toRelative(Path root, Path path) {
+		return root.relativize(path).toString().replace(root.getFileSystem().getSeparator(), "/"); //$NON-NLS-1$
+	}
+}
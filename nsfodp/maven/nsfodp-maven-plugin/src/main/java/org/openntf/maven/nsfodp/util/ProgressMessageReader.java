@@ -0,0 +1,386 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Reads the line-delimited JSON progress messages sent ahead of a server response's
+ * payload, as written by {@code LineDelimitedJsonProgressMonitor}.
+ *
+ * <p>The stream is read in blocks and each line is decoded into buffers reused across
+ * messages, with only the fields needed for the known message types extracted. Once the
+ * messages are complete, {@link #getRemainder()} provides the rest of the response,
+ * including any payload bytes already read into the buffer.</p>
+ *
+ * <p>Instances of this class are not thread-safe.</p>
+ *
+ * @author Jesse Gallagher
+ * @since 4.1.0
+ */
+public class ProgressMessageReader {
+	/**
+	 * The message types sent by the server.
+	 */
+	public enum Type {
+		BEGIN_TASK("beginTask"), //$NON-NLS-1$
+		TASK("task"), //$NON-NLS-1$
+		SUB_TASK("subTask"), //$NON-NLS-1$
+		INTERNAL_WORKED("internalWorked"), //$NON-NLS-1$
+		// "work" is retained for compatibility with older servers
+		WORKED("worked", "work"), //$NON-NLS-1$ //$NON-NLS-2$
+		CANCEL("cancel"), //$NON-NLS-1$
+		DONE("done"), //$NON-NLS-1$
+		ERROR("error"); //$NON-NLS-1$
+
+		private final String[] ids;
+
+		private Type(String... ids) {
+			this.ids = ids;
+		}
+
+		private static Type of(CharSequence id) {
+			for(Type type : values()) {
+				for(String candidate : type.ids) {
+					if(candidate.contentEquals(id)) {
+						return type;
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	private static final String KEY_TYPE = "type"; //$NON-NLS-1$
+	private static final String KEY_NAME = "name"; //$NON-NLS-1$
+	private static final String KEY_STACKTRACE = "stackTrace"; //$NON-NLS-1$
+
+	private final InputStream is;
+	private final byte[] buffer;
+	private int pos;
+	private int limit;
+	private boolean eof;
+
+	private byte[] lineBytes = new byte[256];
+	private int lineLength;
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+		.onMalformedInput(CodingErrorAction.REPLACE)
+		.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private CharBuffer chars = CharBuffer.allocate(256);
+	private final StringBuilder key = new StringBuilder();
+	private final StringBuilder value = new StringBuilder();
+
+	private Type type;
+	private String name;
+	private String stackTrace;
+
+	public ProgressMessageReader(InputStream is) {
+		this(is, 8192);
+	}
+
+	public ProgressMessageReader(InputStream is, int bufferSize) {
+		this.is = Objects.requireNonNull(is);
+		this.buffer = new byte[bufferSize];
+	}
+
+	/**
+	 * Reads the next message from the stream. Blank lines are skipped.
+	 *
+	 * @return {@code true} if a message was read, or {@code false} if the stream ended
+	 *         before another complete line
+	 * @throws IOException if there is a problem reading the stream
+	 */
+	public boolean next() throws IOException {
+		do {
+			if(!readLine()) {
+				return false;
+			}
+		} while(lineLength == 0);
+
+		decodeLine();
+		parse();
+		return true;
+	}
+
+	/**
+	 * @return the type of the current message, or {@code null} if it was not a recognized
+	 *         message
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the "name" value of the current message, or {@code null} if not present
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the "stackTrace" value of the current message, or {@code null} if not present
+	 */
+	public String getStackTrace() {
+		return stackTrace;
+	}
+
+	/**
+	 * @return the full text of the current message
+	 */
+	public String getLine() {
+		return chars.toString();
+	}
+
+	/**
+	 * Retrieves a stream of the remainder of the response after the last message read,
+	 * starting with any bytes already buffered.
+	 *
+	 * <p>Closing the returned stream closes the underlying stream.</p>
+	 *
+	 * @return an {@link InputStream} of the remaining response content
+	 */
+	public InputStream getRemainder() {
+		return new InputStream() {
+			@Override
+			public int read() throws IOException {
+				if(pos < limit) {
+					return buffer[pos++] & 0xFF;
+				}
+				return is.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if(len == 0) {
+					return 0;
+				}
+				if(pos < limit) {
+					int count = Math.min(len, limit - pos);
+					System.arraycopy(buffer, pos, b, off, count);
+					pos += count;
+					return count;
+				}
+				return is.read(b, off, len);
+			}
+
+			@Override
+			public int available() throws IOException {
+				return (limit - pos) + is.available();
+			}
+
+			@Override
+			public void close() throws IOException {
+				is.close();
+			}
+		};
+	}
+
+	// *******************************************************************************
+	// * Framing
+	// *******************************************************************************
+
+	/**
+	 * Reads bytes up to the next LF into {@link #lineBytes}, dropping CR characters.
+	 *
+	 * @return {@code false} if the stream ended before a complete line
+	 */
+	private boolean readLine() throws IOException {
+		lineLength = 0;
+		while(true) {
+			if(pos >= limit && !fill()) {
+				return false;
+			}
+			int start = pos;
+			while(pos < limit && buffer[pos] != '\n') {
+				pos++;
+			}
+			appendLine(start, pos);
+			if(pos < limit) {
+				// Consume the LF
+				pos++;
+				return true;
+			}
+		}
+	}
+
+	private boolean fill() throws IOException {
+		if(eof) {
+			return false;
+		}
+		int read;
+		do {
+			read = is.read(buffer, 0, buffer.length);
+		} while(read == 0);
+		if(read < 0) {
+			eof = true;
+			pos = limit = 0;
+			return false;
+		}
+		pos = 0;
+		limit = read;
+		return true;
+	}
+
+	private void appendLine(int start, int end) {
+		int needed = lineLength + (end - start);
+		if(needed > lineBytes.length) {
+			lineBytes = Arrays.copyOf(lineBytes, Math.max(needed, lineBytes.length * 2));
+		}
+		for(int i = start; i < end; i++) {
+			byte b = buffer[i];
+			if(b != '\r') {
+				lineBytes[lineLength++] = b;
+			}
+		}
+	}
+
+	private void decodeLine() {
+		int maxChars = lineLength;
+		if(chars.capacity() < maxChars) {
+			chars = CharBuffer.allocate(Math.max(maxChars, chars.capacity() * 2));
+		}
+		chars.clear();
+		decoder.reset();
+		decoder.decode(ByteBuffer.wrap(lineBytes, 0, lineLength), chars, true);
+		decoder.flush(chars);
+		chars.flip();
+	}
+
+	// *******************************************************************************
+	// * Parsing
+	// *******************************************************************************
+
+	/**
+	 * Extracts the known fields from the flat JSON object in {@link #chars}. Values for
+	 * other keys are skipped without being materialized.
+	 */
+	private void parse() {
+		type = null;
+		name = null;
+		stackTrace = null;
+
+		char[] c = chars.array();
+		int end = chars.limit();
+		Type parsedType = null;
+
+		int i = skipWhitespace(c, 0, end);
+		if(i >= end || c[i] != '{') {
+			return;
+		}
+		i = skipWhitespace(c, i + 1, end);
+		while(i < end && c[i] != '}') {
+			if(c[i] != '"') {
+				return;
+			}
+			i = readString(c, i + 1, end, key);
+			i = skipWhitespace(c, i, end);
+			if(i >= end || c[i] != ':') {
+				return;
+			}
+			i = skipWhitespace(c, i + 1, end);
+			if(i >= end) {
+				return;
+			}
+
+			if(c[i] == '"') {
+				i = readString(c, i + 1, end, value);
+				if(KEY_TYPE.contentEquals(key)) {
+					parsedType = Type.of(value);
+				} else if(KEY_NAME.contentEquals(key)) {
+					name = value.toString();
+				} else if(KEY_STACKTRACE.contentEquals(key)) {
+					stackTrace = value.toString();
+				}
+			} else {
+				// Numbers, booleans, and null aren't needed for any message
+				while(i < end && c[i] != ',' && c[i] != '}') {
+					i++;
+				}
+			}
+
+			i = skipWhitespace(c, i, end);
+			if(i < end && c[i] == ',') {
+				i = skipWhitespace(c, i + 1, end);
+			}
+		}
+		if(i < end) {
+			type = parsedType;
+		}
+	}
+
+	private static int skipWhitespace(char[] c, int i, int end) {
+		while(i < end && Character.isWhitespace(c[i])) {
+			i++;
+		}
+		return i;
+	}
+
+	/**
+	 * Reads a JSON string value starting after its opening quote into {@code dest}.
+	 *
+	 * @return the index after the closing quote
+	 */
+	private static int readString(char[] c, int i, int end, StringBuilder dest) {
+		dest.setLength(0);
+		while(i < end) {
+			char ch = c[i++];
+			if(ch == '"') {
+				return i;
+			} else if(ch == '\\' && i < end) {
+				char esc = c[i++];
+				switch(esc) {
+				case 'b':
+					dest.append('\b');
+					break;
+				case 'f':
+					dest.append('\f');
+					break;
+				case 'n':
+					dest.append('\n');
+					break;
+				case 'r':
+					dest.append('\r');
+					break;
+				case 't':
+					dest.append('\t');
+					break;
+				case 'u':
+					int code = 0;
+					for(int n = 0; n < 4 && i < end; n++) {
+						code = (code << 4) | Math.max(0, Character.digit(c[i++], 16));
+					}
+					dest.append((char)code);
+					break;
+				default:
+					// Covers \", \\, and \/
+					dest.append(esc);
+					break;
+				}
+			} else {
+				dest.append(ch);
+			}
+		}
+		return i;
+	}
+}
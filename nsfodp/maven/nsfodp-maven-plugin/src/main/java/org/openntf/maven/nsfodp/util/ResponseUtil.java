@@ -18,7 +18,14 @@ package org.openntf.maven.nsfodp.util;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
@@ -26,6 +33,7 @@ import org.apache.http.HttpResponse;
 import org.apache.maven.plugin.logging.Log;
 import org.codehaus.plexus.util.IOUtil;
 import org.openntf.maven.nsfodp.Messages;
+import org.openntf.nsfodp.commons.NSFODPConstants;
 
 import com.ibm.commons.util.StringUtil;
 
@@ -65,69 +73,138 @@ public enum ResponseUtil {
 	 * is "done", "cancel", or "error".
 	 * 
 	 * @param is the response input stream
-	 * @throws IOException if there is a problem reading the input stream
+	 * @return a stream of any response content following the messages
+	 * @throws IOException if there is a problem reading the input stream or if it ends
+	 *         before the work is done
 	 * @throws RuntimeException if the work was canceled on the server
 	 */
-	public static void monitorResponse(Log log, InputStream is) throws IOException {
+	public static InputStream monitorResponse(Log log, InputStream is) throws IOException {
 		// Start streaming the JSON responses until done
-		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-		String line;
-		while((line = readLine(is, buffer)) != null) {
+		ProgressMessageReader reader = new ProgressMessageReader(is);
+		while(reader.next()) {
 			if(log.isDebugEnabled()) {
-				log.debug(Messages.getString("ResponseUtil_jsonMessage", line)); //$NON-NLS-1$
+				log.debug(Messages.getString("ResponseUtil_jsonMessage", reader.getLine())); //$NON-NLS-1$
 			}
-			Map<String, Object> obj = JsonUtil.fromJson(line);
-			switch(obj.get("type").toString()) { //$NON-NLS-1$
-			case "beginTask": //$NON-NLS-1$
-				if(log.isInfoEnabled()) {
-					log.info(Messages.getString("ResponseUtil_beginTask", obj.get("name")));  //$NON-NLS-1$//$NON-NLS-2$
-				}
-				break;
-			case "internalWorked": //$NON-NLS-1$
-				// Ignore
-				break;
-			case "task": //$NON-NLS-1$
+			ProgressMessageReader.Type type = reader.getType();
+			if(type == null) {
+				throw new IllegalArgumentException(Messages.getString("ResponseUtil_unexpectedJsonMessage", reader.getLine())); //$NON-NLS-1$
+			}
+			switch(type) {
+			case BEGIN_TASK:
+			case TASK:
 				if(log.isInfoEnabled()) {
-					log.info(Messages.getString("ResponseUtil_beginTask", obj.get("name")));  //$NON-NLS-1$//$NON-NLS-2$
+					log.info(Messages.getString("ResponseUtil_beginTask", reader.getName())); //$NON-NLS-1$
 				}
 				break;
-			case "subTask": //$NON-NLS-1$
+			case SUB_TASK:
 				if(log.isInfoEnabled()) {
-					log.info(StringUtil.toString(obj.get("name"))); //$NON-NLS-1$
+					log.info(StringUtil.toString(reader.getName()));
 				}
 				break;
-			case "work": //$NON-NLS-1$
+			case INTERNAL_WORKED:
+			case WORKED:
 				// Ignore
 				break;
-			case "cancel": //$NON-NLS-1$
+			case CANCEL:
 				throw new RuntimeException(Messages.getString("ResponseUtil_workCanceled")); //$NON-NLS-1$
-			case "done": //$NON-NLS-1$
-				return;
-			case "error": //$NON-NLS-1$
-				System.err.println(obj.get("stackTrace")); //$NON-NLS-1$
+			case DONE:
+				return reader.getRemainder();
+			case ERROR:
+				System.err.println(reader.getStackTrace());
 				throw new RuntimeException(Messages.getString("ResponseUtil_serverError")); //$NON-NLS-1$
-			default:
-				throw new IllegalArgumentException(Messages.getString("ResponseUtil_unexpectedJsonMessage", line)); //$NON-NLS-1$
 			}
 		}
+		throw new IOException(Messages.getString("ResponseUtil_unexpectedEnd")); //$NON-NLS-1$
 	}
 	
 	/**
-	 * Reads a line of text from the given input stream. This is used in lieu of BufferedReader
-	 * in order to not read into the trailing binary data.
+	 * Extracts a ZIP-format ODP from the response into the provided directory.
+	 * 
+	 * <p>When the exporter streamed the ODP, entries arrive while the server is still exporting
+	 * and are written as they are received. The stream ends with either an
+	 * {@link NSFODPConstants#STREAM_ENTRY_END end marker} entry or an
+	 * {@link NSFODPConstants#STREAM_ENTRY_ERROR error} entry.</p>
+	 * 
+	 * <p>Otherwise, the response is buffered to a temporary file first, so that a truncated
+	 * response is detected by its missing ZIP central directory.</p>
+	 * 
+	 * @param is the response content following the progress messages
+	 * @param dest the directory to extract to
+	 * @param streamed whether the exporter streamed the ODP
+	 * @throws IOException if there is a problem reading the response or writing files, or if
+	 *         the ODP ends before the export is complete
+	 * @throws RuntimeException if the server reported a failure during a streamed export
+	 * @since 4.1.0
 	 */
-	private static String readLine(InputStream is, ByteArrayOutputStream buffer) throws IOException {
-		buffer.reset();
-		while(true) {
-			int val = is.read();
-			if(val == '\n') {
+	public static void extractOdp(Log log, InputStream is, Path dest, boolean streamed) throws IOException {
+		Path root = dest.toAbsolutePath().normalize();
+		Files.createDirectories(root);
+		
+		if(!streamed) {
+			Path zip = Files.createTempFile("odpexporter-output", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+			try {
+				Files.copy(is, zip, StandardCopyOption.REPLACE_EXISTING);
+				ZipFile zipFile;
+				try {
+					zipFile = new ZipFile(zip.toFile());
+				} catch(ZipException e) {
+					throw new IOException(Messages.getString("ResponseUtil_unexpectedEnd"), e); //$NON-NLS-1$
+				}
+				try {
+					for(ZipEntry entry : Collections.list(zipFile.entries())) {
+						try(InputStream entryIs = zipFile.getInputStream(entry)) {
+							extractEntry(log, root, entry, entryIs);
+						}
+					}
+				} finally {
+					zipFile.close();
+				}
+			} finally {
+				Files.deleteIfExists(zip);
+			}
+			return;
+		}
+		
+		boolean complete = false;
+		ZipInputStream zis = new ZipInputStream(is);
+		ZipEntry entry;
+		while((entry = zis.getNextEntry()) != null) {
+			String name = entry.getName();
+			if(NSFODPConstants.STREAM_ENTRY_END.equals(name)) {
+				complete = true;
 				break;
-			} else if(val == '\r') {
-				// ignore these
-			} else {
-				buffer.write(val);
+			} else if(NSFODPConstants.STREAM_ENTRY_ERROR.equals(name)) {
+				try(ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+					IOUtil.copy(zis, baos);
+					System.err.println(baos.toString("UTF-8")); //$NON-NLS-1$
+				}
+				throw new RuntimeException(Messages.getString("ResponseUtil_serverError")); //$NON-NLS-1$
 			}
+			
+			extractEntry(log, root, entry, zis);
+		}
+		if(!complete) {
+			throw new IOException(Messages.getString("ResponseUtil_unexpectedEnd")); //$NON-NLS-1$
+		}
+	}
+	
+	private static void extractEntry(Log log, Path root, ZipEntry entry, InputStream is) throws IOException {
+		String name = entry.getName();
+		if(log.isDebugEnabled()) {
+			log.debug(Messages.getString("GenerateODPMojo.exportingZipEntry", name)); //$NON-NLS-1$
+		}
+		if(name == null || name.isEmpty()) {
+			return;
+		}
+		Path fullPath = root.resolve(name).normalize();
+		if(!fullPath.startsWith(root)) {
+			throw new IOException(Messages.getString("ResponseUtil_invalidZipEntry", name)); //$NON-NLS-1$
+		}
+		if(entry.isDirectory()) {
+			Files.createDirectories(fullPath);
+		} else {
+			Files.createDirectories(fullPath.getParent());
+			Files.copy(is, fullPath, StandardCopyOption.REPLACE_EXISTING);
 		}
-		return buffer.toString();
 	}
 }
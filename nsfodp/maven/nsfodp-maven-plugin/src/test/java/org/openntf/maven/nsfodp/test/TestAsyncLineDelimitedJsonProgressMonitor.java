@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.openntf.nsfodp.commons.AsyncLineDelimitedJsonProgressMonitor;
+
+@SuppressWarnings("nls")
+public class TestAsyncLineDelimitedJsonProgressMonitor {
+	/**
+	 * Holds up the first write until released, so that messages pile up in the queue.
+	 */
+	private static class StalledOutputStream extends ByteArrayOutputStream {
+		private final CountDownLatch writing = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) {
+			writing.countDown();
+			try {
+				release.await();
+			} catch(InterruptedException e) {
+				throw new RuntimeException(new InterruptedIOException());
+			}
+			super.write(b, off, len);
+		}
+	}
+
+	@Test
+	public void testOverflowBeforeDone() throws IOException, InterruptedException {
+		StalledOutputStream out = new StalledOutputStream();
+		try(AsyncLineDelimitedJsonProgressMonitor mon = new AsyncLineDelimitedJsonProgressMonitor(out)) {
+			mon.beginTask("Exporting", 1);
+			assertTrue(out.writing.await(10, TimeUnit.SECONDS));
+
+			// Fill the queue behind the stalled write, ending with done, then overflow it
+			for(int i = 0; i < AsyncLineDelimitedJsonProgressMonitor.CAPACITY - 1; i++) {
+				mon.subTask("queued " + i);
+			}
+			mon.done();
+			mon.subTask("overflow");
+
+			out.release.countDown();
+		}
+
+		List<String> lines = Arrays.stream(new String(out.toByteArray(), StandardCharsets.UTF_8).split("\r\n"))
+			.filter(line -> !line.isEmpty())
+			.collect(Collectors.toList());
+		assertEquals("{\"type\":\"done\"}", lines.get(lines.size()-1));
+		assertTrue(lines.contains("{\"type\":\"subTask\",\"name\":\"overflow\"}"));
+	}
+}
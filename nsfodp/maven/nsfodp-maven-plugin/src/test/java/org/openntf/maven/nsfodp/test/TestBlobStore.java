@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openntf.nsfodp.commons.NSFODPUtil;
+import org.openntf.nsfodp.compiler.servlet.BlobStore;
+
+@SuppressWarnings("nls")
+public class TestBlobStore {
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+	@Test
+	public void testPutVerifiesDigest(@TempDir Path temp) throws Exception {
+		BlobStore store = new BlobStore(temp, 30 * DAY, 0);
+		byte[] data = "site contents".getBytes(StandardCharsets.UTF_8);
+		String digest = sha256(data);
+
+		String wrong = sha256("other contents".getBytes(StandardCharsets.UTF_8));
+		assertThrows(IOException.class, () -> store.put(wrong, new ByteArrayInputStream(data)));
+		assertFalse(store.contains(wrong));
+		assertThrows(IllegalArgumentException.class, () -> store.put("../" + digest, new ByteArrayInputStream(data)));
+		try(Stream<Path> work = Files.list(temp.resolve("work"))) {
+			assertFalse(work.findAny().isPresent());
+		}
+
+		Path blob = store.put(digest, new ByteArrayInputStream(data));
+		assertArrayEquals(data, Files.readAllBytes(blob));
+		assertTrue(store.contains(digest));
+	}
+
+	@Test
+	public void testGetValidatesDigest(@TempDir Path temp) throws Exception {
+		BlobStore store = new BlobStore(temp.resolve("store"), 30 * DAY, 0);
+		byte[] data = "jar contents".getBytes(StandardCharsets.UTF_8);
+		String digest = sha256(data);
+		store.put(digest, new ByteArrayInputStream(data));
+		Files.write(temp.resolve("outside"), data);
+
+		assertTrue(store.get(digest).isPresent());
+		assertFalse(store.get(digest.toUpperCase()).isPresent());
+		assertFalse(store.get(digest.substring(1)).isPresent());
+		assertFalse(store.get("../../outside").isPresent());
+		assertFalse(store.get(null).isPresent());
+		assertFalse(store.getExpandedSite("../../outside").isPresent());
+	}
+
+	@Test
+	public void testPruneAfterPut(@TempDir Path temp) throws Exception {
+		byte[] oldData = new byte[600];
+		byte[] idleData = new byte[600];
+		idleData[0] = 1;
+		byte[] newData = new byte[600];
+		newData[0] = 2;
+		BlobStore store = new BlobStore(temp, 30 * DAY, 1000);
+
+		// Entries unused for too long go first, then the least-recently-used while oversized
+		Path oldBlob = store.put(sha256(oldData), new ByteArrayInputStream(oldData));
+		Files.setLastModifiedTime(oldBlob, FileTime.fromMillis(System.currentTimeMillis() - 31 * DAY));
+		Path idleBlob = store.put(sha256(idleData), new ByteArrayInputStream(idleData));
+		assertFalse(Files.exists(oldBlob));
+		Files.setLastModifiedTime(idleBlob, FileTime.fromMillis(System.currentTimeMillis() - DAY));
+		Path newBlob = store.put(sha256(newData), new ByteArrayInputStream(newData));
+		assertFalse(Files.exists(idleBlob));
+		assertTrue(Files.exists(newBlob));
+
+		// Recently-used entries are kept even when the store is oversized
+		Path recentBlob = store.put(sha256(idleData), new ByteArrayInputStream(idleData));
+		assertTrue(Files.exists(newBlob));
+		assertTrue(Files.exists(recentBlob));
+	}
+
+	private static String sha256(byte[] data) throws Exception {
+		return NSFODPUtil.toHex(MessageDigest.getInstance("SHA-256").digest(data));
+	}
+}
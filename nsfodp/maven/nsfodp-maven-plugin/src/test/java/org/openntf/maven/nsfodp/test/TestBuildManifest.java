@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openntf.nsfodp.commons.odp.OnDiskProject;
+import org.openntf.nsfodp.commons.odp.notesapi.NDatabase;
+import org.openntf.nsfodp.compiler.BuildManifest;
+
+@SuppressWarnings("nls")
+public class TestBuildManifest {
+	/**
+	 * Stands in for an NSF, tracking only which notes exist.
+	 */
+	private static class FakeDatabase {
+		private final Set<Integer> notes = new TreeSet<>();
+		private int nextId = 0x10;
+
+		final NDatabase database = (NDatabase)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { NDatabase.class }, (proxy, method, args) -> {
+			if("deleteNote".equals(method.getName())) {
+				notes.remove(args[0]);
+				return null;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+
+		List<Integer> importNote() {
+			int id = nextId;
+			nextId += 4;
+			notes.add(id);
+			return Collections.singletonList(id);
+		}
+	}
+
+	@Test
+	public void testIncrementalBuildReplacesNotes(@TempDir Path temp) throws Exception {
+		Path odpDir = Files.createDirectories(temp.resolve("odp"));
+		Files.createDirectories(odpDir.resolve("Forms"));
+		Files.createDirectories(odpDir.resolve("XPages"));
+		Files.write(odpDir.resolve("Forms/Person.form"), "<form/>".getBytes(StandardCharsets.UTF_8));
+		Files.write(odpDir.resolve("XPages/home.xsp"), "<xp:view/>".getBytes(StandardCharsets.UTF_8));
+		Files.write(odpDir.resolve("XPages/home.xsp.metadata"), "<note/>".getBytes(StandardCharsets.UTF_8));
+		OnDiskProject odp = new OnDiskProject(odpDir);
+		FakeDatabase db = new FakeDatabase();
+
+		// Full build
+		BuildManifest first = BuildManifest.forProject(odp, "settings");
+		first.replaceNotes(db.database, Arrays.asList("Forms/Person.form"), db::importNote);
+		List<Integer> oldXPage = first.replaceNotes(db.database, Arrays.asList("XPages/home.xsp", "XPages/home.xsp.metadata"), db::importNote);
+		assertEquals(2, db.notes.size());
+		Path manifestFile = temp.resolve("manifest.properties");
+		first.save(manifestFile);
+
+		// Incremental build after modifying the XPage, importing into the same NSF
+		Files.write(odpDir.resolve("XPages/home.xsp"), "<xp:view><br/></xp:view>".getBytes(StandardCharsets.UTF_8));
+		BuildManifest previous = BuildManifest.load(manifestFile);
+		BuildManifest second = BuildManifest.forProject(odp, "settings");
+		Set<String> changed = second.getChangedFiles(previous);
+		assertEquals(Collections.singleton("XPages/home.xsp"), changed);
+		second.inheritNoteIds(previous);
+		List<Integer> newXPage = second.replaceNotes(db.database, Arrays.asList("XPages/home.xsp", "XPages/home.xsp.metadata"), db::importNote);
+
+		assertEquals(2, db.notes.size());
+		assertFalse(db.notes.contains(oldXPage.get(0)));
+		assertTrue(db.notes.contains(newXPage.get(0)));
+		assertEquals(new TreeSet<>(newXPage), second.getNoteIds("XPages/home.xsp"));
+		assertEquals(first.getNoteIds("Forms/Person.form"), second.getNoteIds("Forms/Person.form"));
+	}
+
+	@Test
+	public void testNoteIdsRoundTrip(@TempDir Path temp) throws Exception {
+		Path odpDir = Files.createDirectories(temp.resolve("odp"));
+		Files.write(odpDir.resolve("database.properties"), "<database/>".getBytes(StandardCharsets.UTF_8));
+		FakeDatabase db = new FakeDatabase();
+
+		BuildManifest manifest = BuildManifest.forProject(new OnDiskProject(odpDir), "settings");
+		manifest.replaceNotes(db.database, Arrays.asList("generated:WEB-INF/classes/Foo.class"), () -> Arrays.asList(0x8000000A, 0x1E));
+		Path manifestFile = temp.resolve("manifest.properties");
+		manifest.save(manifestFile);
+
+		BuildManifest loaded = BuildManifest.load(manifestFile);
+		assertEquals(new TreeSet<>(Arrays.asList(0x8000000A, 0x1E)), loaded.getNoteIds("generated:WEB-INF/classes/Foo.class"));
+		assertEquals(manifest.getNoteKeys(), loaded.getNoteKeys());
+		assertTrue(loaded.getNoteIds("database.properties").isEmpty());
+	}
+}
@@ -15,19 +15,30 @@
  */
 package org.openntf.maven.nsfodp.test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.Base64;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.openntf.nsfodp.commons.dxl.DXLUtil;
+import org.openntf.nsfodp.commons.dxl.ODSConstants;
+import org.openntf.nsfodp.commons.h.Ods;
 import org.openntf.nsfodp.commons.xml.NSFODPDomUtil;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -111,4 +122,84 @@ public class TestDXLUtil {
 			Files.deleteIfExists(tempRes);
 		}
 	}
+	
+	@Test
+	public void testStreamedFileDataMatchesRaw(@TempDir Path temp) throws IOException {
+		// Odd-sized, spanning several CDFILESEGMENTs and several items
+		Path file = temp.resolve("file.bin");
+		Files.write(file, randomBytes(ODSConstants.FILE_SEGMENT_SIZE_CAP * 5 + 3));
+		
+		Document raw = parseXml("/xml/imageres.xml");
+		DXLUtil.writeItemFileData(raw, "$FileData", file);
+		
+		Document streamed = parseXml("/xml/imageres.xml");
+		DXLUtil.writeItemFileDataDeferred(streamed, "$FileData", file);
+		
+		assertSameItems(raw, streamed, "$FileData", 3);
+	}
+	
+	@Test
+	public void testStreamedImageDataMatchesRaw(@TempDir Path temp) throws IOException {
+		Path file = temp.resolve("image.gif");
+		Files.write(file, randomBytes(ODSConstants.PER_IMAGE_ITEM_DATA_CAP + ODSConstants.IMAGE_SEGMENT_SIZE_CAP * 2 + 1));
+		
+		Document raw = parseXml("/xml/imageres.xml");
+		byte[] data = DXLUtil.getImageResourceData(file, raw);
+		DXLUtil.writeItemDataRaw(raw, "$ImageData", data, ODSConstants.PER_IMAGE_ITEM_DATA_CAP, Ods.SIZE_CDIMAGEHEADER + Ods.SIZE_CDGRAPHIC);
+		
+		Document streamed = parseXml("/xml/imageres.xml");
+		DXLUtil.writeItemDataDeferred(streamed, "$ImageData", ODSConstants.PER_IMAGE_ITEM_DATA_CAP, Ods.SIZE_CDIMAGEHEADER + Ods.SIZE_CDGRAPHIC,
+			os -> DXLUtil.writeImageResourceData(os, file, streamed));
+		
+		assertSameItems(raw, streamed, "$ImageData", 2);
+	}
+	
+	/**
+	 * Writes both documents with {@link DXLUtil#writeDxl} and checks that the output is identical
+	 * and that the named item is split into several items. Streamed items are written without
+	 * the serializer's indentation, so whitespace between elements is ignored.
+	 */
+	private static void assertSameItems(Document raw, Document streamed, String itemName, int minItems) throws IOException {
+		byte[] rawDxl = toDxl(raw);
+		byte[] streamedDxl = toDxl(streamed);
+		
+		List<byte[]> expected = rawItemData(rawDxl, itemName);
+		List<byte[]> actual = rawItemData(streamedDxl, itemName);
+		assertTrue(expected.size() >= minItems, "Expected at least " + minItems + " items; got " + expected.size());
+		assertEquals(expected.size(), actual.size());
+		for(int i = 0; i < expected.size(); i++) {
+			assertArrayEquals(expected.get(i), actual.get(i), "Mismatch in item " + i);
+		}
+		assertEquals(stripIndentation(rawDxl), stripIndentation(streamedDxl));
+	}
+	
+	private static byte[] toDxl(Document dxlDoc) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		DXLUtil.writeDxl(dxlDoc, baos);
+		return baos.toByteArray();
+	}
+	
+	private static String stripIndentation(byte[] dxl) {
+		return new String(dxl, StandardCharsets.UTF_8).replaceAll(">\\s+<", "><");
+	}
+	
+	private static List<byte[]> rawItemData(byte[] dxl, String itemName) {
+		Document written = NSFODPDomUtil.parseXml(new ByteArrayInputStream(dxl));
+		return NSFODPDomUtil.nodes(written, "/*[name()='note']/*[name()='item'][@name='" + itemName + "']/*[name()='rawitemdata']").stream()
+			.map(Node::getTextContent)
+			.map(Base64.getMimeDecoder()::decode)
+			.collect(Collectors.toList());
+	}
+	
+	private static Document parseXml(String resource) throws IOException {
+		try(InputStream is = TestDXLUtil.class.getResourceAsStream(resource)) {
+			return NSFODPDomUtil.parseXml(is);
+		}
+	}
+	
+	private static byte[] randomBytes(int size) {
+		byte[] result = new byte[size];
+		new Random(size).nextBytes(result);
+		return result;
+	}
 }
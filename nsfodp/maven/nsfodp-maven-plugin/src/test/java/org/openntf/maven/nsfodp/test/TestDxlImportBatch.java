@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.openntf.nsfodp.commons.xml.NSFODPDomUtil;
+import org.openntf.nsfodp.compiler.dxl.DxlImportBatch;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+@SuppressWarnings("nls")
+public class TestDxlImportBatch {
+	@Test
+	public void testNameForLine() throws IOException {
+		DxlImportBatch batch = new DxlImportBatch();
+		batch.add("Form", parse("<form xmlns='http://www.lotus.com/dxl' name='Form'>\n<body/>\n</form>"));
+		batch.add("View", parse("<view xmlns='http://www.lotus.com/dxl' name='View'/>"));
+		batch.add("Agent", parse("<agent xmlns='http://www.lotus.com/dxl' name='Agent'>\n<code/>\n</agent>"));
+
+		String[] lines = write(batch).split("\n", -1);
+		// Check the attribution against the written lines themselves
+		for(int i = 0; i < lines.length; i++) {
+			int line = i + 1;
+			String name = batch.getNameForLine(line);
+			if(lines[i].startsWith("<form")) {
+				assertEquals("Form", name);
+			} else if(lines[i].startsWith("<view")) {
+				assertEquals("View", name);
+			} else if(lines[i].startsWith("<agent")) {
+				assertEquals("Agent", name);
+			}
+		}
+
+		assertNull(batch.getNameForLine(1));
+		assertNull(batch.getNameForLine(2));
+		assertEquals("Form", batch.getNameForLine(3));
+		assertEquals("Form", batch.getNameForLine(5));
+		assertEquals("View", batch.getNameForLine(6));
+		assertEquals("Agent", batch.getNameForLine(7));
+		assertEquals("Agent", batch.getNameForLine(9));
+		assertEquals("</database>", lines[9]);
+		assertNull(batch.getNameForLine(10));
+	}
+
+	@Test
+	public void testCombinedDocument() throws IOException {
+		DxlImportBatch batch = new DxlImportBatch();
+		batch.add("Form", parse("<form xmlns='http://www.lotus.com/dxl' name='Form'/>"));
+		batch.add("Page", parse("<page xmlns='http://www.lotus.com/dxl' name='Page'/>"));
+		assertEquals(2, batch.size());
+		assertEquals(Arrays.asList("Form", "Page"), batch.getNames());
+
+		Element root = parse(write(batch)).getDocumentElement();
+		assertEquals("database", root.getTagName());
+		assertEquals("http://www.lotus.com/dxl", root.getAttribute("xmlns"));
+		// Only the namespace, so that the database properties are not changed
+		assertEquals(1, root.getAttributes().getLength());
+		assertEquals(2, root.getElementsByTagName("*").getLength());
+
+		batch.clear();
+		assertTrue(batch.isEmpty());
+		assertNull(batch.getNameForLine(3));
+		batch.add("View", parse("<view xmlns='http://www.lotus.com/dxl' name='View'/>"));
+		assertEquals("View", batch.getNameForLine(3));
+	}
+
+	private static Document parse(String xml) {
+		return NSFODPDomUtil.createDocument(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static String write(DxlImportBatch batch) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		batch.writeTo(baos);
+		return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openntf.nsfodp.commons.odp.OnDiskProject;
+import org.openntf.nsfodp.commons.odp.notesapi.NDatabase;
+import org.openntf.nsfodp.compiler.BuildManifest;
+import org.openntf.nsfodp.compiler.IncrementalBuild;
+
+@SuppressWarnings("nls")
+public class TestIncrementalBuild {
+	/**
+	 * Stands in for the NSF of the previous build, tracking only which notes exist.
+	 */
+	private static class FakeDatabase {
+		private final Set<Integer> notes = new TreeSet<>();
+		private int nextId = 0x10;
+
+		final NDatabase database = (NDatabase)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { NDatabase.class }, (proxy, method, args) -> {
+			if("deleteNote".equals(method.getName())) {
+				notes.remove(args[0]);
+				return null;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		});
+
+		Set<Integer> importNote() {
+			int id = nextId;
+			nextId += 4;
+			notes.add(id);
+			return Collections.singleton(id);
+		}
+	}
+
+	@Test
+	public void testRemovedElement(@TempDir Path temp) throws Exception {
+		Path odpDir = createProject(temp);
+		write(odpDir, "Forms/Other.form", "<form/>");
+		FakeDatabase db = new FakeDatabase();
+		Path manifestFile = fullBuild(odpDir, db, "Forms/Person.form", "Forms/Other.form", "XPages/home.xsp");
+
+		Files.delete(odpDir.resolve("Forms/Other.form"));
+		OnDiskProject odp = new OnDiskProject(odpDir);
+		IncrementalBuild build = plan(odp, manifestFile, "settings");
+
+		assertFalse(build.isFullBuild(), build.getMessage());
+		assertTrue(build.getChangedFiles().isEmpty());
+		assertEquals(Collections.singleton("Forms/Other.form"), build.getDeletedFiles());
+		assertFalse(build.isChanged(odpDir.resolve("Forms/Person.form")));
+		assertFalse(build.isXspDependencyChanged());
+
+		build.removeDeletedElements(db.database);
+		assertEquals(2, db.notes.size());
+	}
+
+	@Test
+	public void testRemovedMetadata(@TempDir Path temp) throws Exception {
+		Path odpDir = createProject(temp);
+		write(odpDir, "XPages/home.xsp.metadata", "<note/>");
+		FakeDatabase db = new FakeDatabase();
+		Path manifestFile = fullBuild(odpDir, db, "Forms/Person.form", "XPages/home.xsp");
+
+		Files.delete(odpDir.resolve("XPages/home.xsp.metadata"));
+		IncrementalBuild build = plan(new OnDiskProject(odpDir), manifestFile, "settings");
+
+		// The XPage itself is re-imported in place of its previous notes
+		assertFalse(build.isFullBuild());
+		assertTrue(build.isChanged(odpDir.resolve("XPages/home.xsp"), odpDir.resolve("XPages/home.xsp.metadata")));
+		build.removeDeletedElements(db.database);
+		assertEquals(2, db.notes.size());
+	}
+
+	@Test
+	public void testRemovedCustomControl(@TempDir Path temp) throws Exception {
+		Path odpDir = createProject(temp);
+		write(odpDir, "CustomControls/layout.xsp", "<xp:view/>");
+		write(odpDir, "CustomControls/layout.xsp-config", "<faces-config/>");
+		FakeDatabase db = new FakeDatabase();
+		Path manifestFile = fullBuild(odpDir, db, "CustomControls/layout.xsp", "XPages/home.xsp");
+
+		Files.delete(odpDir.resolve("CustomControls/layout.xsp"));
+		Files.delete(odpDir.resolve("CustomControls/layout.xsp-config"));
+		IncrementalBuild build = plan(new OnDiskProject(odpDir), manifestFile, "settings");
+
+		// XPages that used the control must be compiled again
+		assertFalse(build.isFullBuild());
+		assertTrue(build.isXspDependencyChanged());
+	}
+
+	@Test
+	public void testRemovedLotusScriptLibrary(@TempDir Path temp) throws Exception {
+		Path odpDir = createProject(temp);
+		write(odpDir, "Code/ScriptLibraries/Utils.lss", "Option Public");
+		FakeDatabase db = new FakeDatabase();
+		Path manifestFile = fullBuild(odpDir, db, "Code/ScriptLibraries/Utils.lss");
+
+		Files.delete(odpDir.resolve("Code/ScriptLibraries/Utils.lss"));
+		IncrementalBuild build = plan(new OnDiskProject(odpDir), manifestFile, "settings");
+
+		assertTrue(build.isFullBuild());
+		assertTrue(build.isChanged(odpDir.resolve("Forms/Person.form")));
+	}
+
+	@Test
+	public void testSettingsChanged(@TempDir Path temp) throws Exception {
+		Path odpDir = createProject(temp);
+		FakeDatabase db = new FakeDatabase();
+		Path manifestFile = fullBuild(odpDir, db, "Forms/Person.form");
+
+		assertTrue(plan(new OnDiskProject(odpDir), manifestFile, "other settings").isFullBuild());
+		assertFalse(plan(new OnDiskProject(odpDir), manifestFile, "settings").isFullBuild());
+	}
+
+	private static Path createProject(Path temp) throws IOException {
+		Path odpDir = Files.createDirectories(temp.resolve("odp"));
+		write(odpDir, "AppProperties/database.properties", "<database title='Test'/>");
+		write(odpDir, "Forms/Person.form", "<form/>");
+		write(odpDir, "XPages/home.xsp", "<xp:view/>");
+		return odpDir;
+	}
+
+	/**
+	 * Records a full build that imported one note for each of the provided files.
+	 */
+	private static Path fullBuild(Path odpDir, FakeDatabase db, String... elements) throws Exception {
+		BuildManifest manifest = BuildManifest.forProject(new OnDiskProject(odpDir), "settings");
+		for(String element : elements) {
+			manifest.replaceNotes(db.database, Collections.singletonList(element), db::importNote);
+		}
+		Path manifestFile = odpDir.resolveSibling("manifest.properties");
+		manifest.save(manifestFile);
+		return manifestFile;
+	}
+
+	private static IncrementalBuild plan(OnDiskProject odp, Path manifestFile, String fingerprint) throws IOException {
+		return IncrementalBuild.plan(odp, BuildManifest.forProject(odp, fingerprint), BuildManifest.load(manifestFile), true);
+	}
+
+	private static void write(Path odpDir, String path, String content) throws IOException {
+		Path file = odpDir.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+}
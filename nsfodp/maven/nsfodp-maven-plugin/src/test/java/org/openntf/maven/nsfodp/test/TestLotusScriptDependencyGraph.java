@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.openntf.nsfodp.commons.h.NsfNote;
+import org.openntf.nsfodp.commons.odp.notesapi.NNote;
+import org.openntf.nsfodp.compiler.util.LotusScriptCompiler;
+import org.openntf.nsfodp.compiler.util.LotusScriptDependencyGraph;
+
+@SuppressWarnings("nls")
+public class TestLotusScriptDependencyGraph {
+	@Test
+	public void testParseUses() {
+		String source = "Option Public\n"
+			+ "Use \"Utils\"\r\n"
+			+ "  use \"Logging\" : Use \"Config\" ' Use \"Commented\"\n"
+			+ "%REM\n"
+			+ "Use \"InRem\"\n"
+			+ "%END REM\n"
+			+ "Print \"Use \"\"NotAStatement\"\"\"\n";
+		assertEquals(new LinkedHashSet<>(Arrays.asList("Utils", "Logging", "Config")), LotusScriptDependencyGraph.parseUses(source));
+		assertTrue(LotusScriptDependencyGraph.parseUses(null).isEmpty());
+	}
+
+	@Test
+	public void testOrder() {
+		LotusScriptDependencyGraph<String> graph = new LotusScriptDependencyGraph<>();
+		graph.add("agent", Arrays.asList("Agent"), Arrays.asList("Business"));
+		graph.add("business", Arrays.asList("Business", "biz"), Arrays.asList("Utils", "logging"));
+		graph.add("logging", Arrays.asList("Logging"), Arrays.asList("UTILS"));
+		graph.add("utils", Arrays.asList("Utils"), Collections.emptyList());
+
+		LotusScriptDependencyGraph.Order<String> order = graph.sort();
+		assertEquals(Arrays.asList("utils", "logging", "business", "agent"), order.getOrder());
+		assertTrue(order.getBlocked().isEmpty());
+		assertTrue(order.getCycles().isEmpty());
+	}
+
+	@Test
+	public void testCycle() {
+		LotusScriptDependencyGraph<String> graph = new LotusScriptDependencyGraph<>();
+		graph.add("a", Arrays.asList("A"), Arrays.asList("B"));
+		graph.add("b", Arrays.asList("B"), Arrays.asList("C"));
+		graph.add("c", Arrays.asList("C"), Arrays.asList("A"));
+		graph.add("d", Arrays.asList("D"), Arrays.asList("A"));
+		graph.add("e", Arrays.asList("E"), Collections.emptyList());
+
+		LotusScriptDependencyGraph.Order<String> order = graph.sort();
+		assertEquals(Arrays.asList("e"), order.getOrder());
+		assertEquals(Arrays.asList("a", "b", "c", "d"), order.getBlocked());
+		assertEquals(Arrays.asList(Arrays.asList("a", "b", "c")), order.getCycles());
+	}
+
+	@Test
+	public void testMissingUse() {
+		// Libraries outside the graph, such as ones compiled earlier, do not block compilation
+		LotusScriptDependencyGraph<String> graph = new LotusScriptDependencyGraph<>();
+		graph.add("form", Arrays.asList("Person"), Arrays.asList("Elsewhere", "Utils"));
+		graph.add("utils", Arrays.asList("Utils"), Arrays.asList("Missing"));
+
+		LotusScriptDependencyGraph.Order<String> order = graph.sort();
+		assertEquals(Arrays.asList("utils", "form"), order.getOrder());
+		assertTrue(order.getBlocked().isEmpty());
+	}
+
+	@Test
+	public void testCompileOrder() {
+		Map<Integer, String> titles = new HashMap<>();
+		titles.put(0x10, "Business");
+		titles.put(0x14, "Utils|utl");
+		titles.put(0x18, "Loop1");
+		titles.put(0x1C, "Loop2");
+		Map<Integer, String> sources = new HashMap<>();
+		sources.put(0x10, "Use \"utl\"\nUse \"NotInThisBuild\"");
+		sources.put(0x18, "Use \"Loop2\"");
+		sources.put(0x1C, "Use \"Loop1\"");
+
+		List<Integer> compiledNotes = new ArrayList<>();
+		LotusScriptCompiler compiler = new LotusScriptCompiler(noteId -> stubNote(noteId, titles.get(noteId), compiledNotes));
+		LotusScriptCompiler.Result result = compiler.compile(Arrays.asList(0x10, 0x14, 0x18, 0x1C), sources);
+
+		assertEquals(Arrays.asList(0x14, 0x10), compiledNotes);
+		assertEquals(Arrays.asList(0x14, 0x10), result.getCompiled());
+		assertEquals(new LinkedHashSet<>(Arrays.asList(0x18, 0x1C)), result.getFailures().keySet());
+		assertEquals(1, result.getCycles().size());
+		assertTrue(result.getCycles().get(0).contains("Loop1 -> Loop2 -> Loop1"), result.getCycles().get(0));
+	}
+
+	/**
+	 * Stands in for a script library note, recording when it is compiled.
+	 */
+	private static NNote stubNote(int noteId, String title, List<Integer> compiledNotes) {
+		return (NNote)Proxy.newProxyInstance(TestLotusScriptDependencyGraph.class.getClassLoader(), new Class<?>[] { NNote.class }, (proxy, method, args) -> {
+			switch(method.getName()) {
+			case "getNoteClassValue":
+				return NsfNote.NOTE_CLASS_FILTER;
+			case "getNoteID":
+				return noteId;
+			case "get":
+				return "$TITLE".equals(args[0]) ? title : null;
+			case "compileLotusScript":
+				compiledNotes.add(noteId);
+				return null;
+			case "sign":
+			case "save":
+			case "close":
+				return null;
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+}
@@ -16,13 +16,20 @@
 package org.openntf.maven.nsfodp.test;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.zip.ZipEntry;
@@ -30,6 +37,7 @@ import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.Test;
 import org.openntf.nsfodp.commons.NSFODPUtil;
+import org.openntf.nsfodp.commons.io.ZipArchive;
 
 @SuppressWarnings("nls")
 public class TestNSFODPUtil {
@@ -66,4 +74,66 @@ public class TestNSFODPUtil {
 			NSFODPUtil.deltree(tempFile);
 		}
 	}
+	
+	@Test
+	public void testZipArchive() throws IOException {
+		Path tempFile = Files.createTempFile(getClass().getName(), ".zip");
+		try {
+			try(
+				OutputStream os = Files.newOutputStream(tempFile, StandardOpenOption.TRUNCATE_EXISTING);
+				ZipOutputStream zos = new ZipOutputStream(os, StandardCharsets.UTF_8)
+			) {
+				zos.putNextEntry(new ZipEntry("odp/"));
+				zos.putNextEntry(new ZipEntry("odp/Forms/Person.form"));
+				zos.write("<form/>".getBytes(StandardCharsets.UTF_8));
+			}
+			
+			Path file;
+			try(ZipArchive archive = ZipArchive.open(tempFile)) {
+				file = archive.getRoot().resolve("odp").resolve("Forms").resolve("Person.form");
+				assertSame(archive, ZipArchive.forPath(file).get());
+				assertSame(archive, ZipArchive.forPath(archive.getRoot()).get());
+				assertFalse(ZipArchive.forPath(tempFile).isPresent());
+				
+				// Reads through NSFODPUtil go straight to the ZIP data
+				try(InputStream is = NSFODPUtil.newInputStream(file)) {
+					assertEquals("<form/>", read(is));
+				}
+				// Relative and unnormalized paths find the same entry
+				try(InputStream is = archive.newInputStream(archive.getRoot().resolve("odp/Forms/../Forms/Person.form"))) {
+					assertEquals("<form/>", read(is));
+				}
+				assertThrows(NoSuchFileException.class, () -> archive.newInputStream(archive.getRoot().resolve("odp")));
+				assertThrows(NoSuchFileException.class, () -> archive.newInputStream(archive.getRoot().resolve("missing.txt")));
+				assertThrows(IllegalArgumentException.class, () -> archive.newInputStream(tempFile));
+			}
+			
+			// Closed archives are no longer found for their paths
+			assertFalse(ZipArchive.forPath(file).isPresent());
+			assertTrue(Files.isRegularFile(tempFile));
+		} finally {
+			NSFODPUtil.deltree(tempFile);
+		}
+	}
+	
+	@Test
+	public void testParseInt() {
+		assertEquals(4, NSFODPUtil.parseInt("4", 1));
+		assertEquals(4, NSFODPUtil.parseInt(" 4\t", 1));
+		assertEquals(-1, NSFODPUtil.parseInt("-1", 1));
+		assertEquals(1, NSFODPUtil.parseInt(null, 1));
+		assertEquals(1, NSFODPUtil.parseInt("", 1));
+		assertEquals(1, NSFODPUtil.parseInt("four", 1));
+		assertEquals(1, NSFODPUtil.parseInt("99999999999", 1));
+	}
+	
+	private static String read(InputStream is) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buf = new byte[1024];
+		int len;
+		while((len = is.read(buf)) != -1) {
+			baos.write(buf, 0, len);
+		}
+		return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+	}
 }
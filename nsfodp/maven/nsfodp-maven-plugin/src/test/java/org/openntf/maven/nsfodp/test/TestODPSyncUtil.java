@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openntf.maven.nsfodp.util.ODPSyncUtil;
+import org.openntf.maven.nsfodp.util.ODPSyncUtil.SyncResult;
+
+@SuppressWarnings("nls")
+public class TestODPSyncUtil {
+	@Test
+	public void testSync(@TempDir Path temp) throws IOException {
+		Path source = temp.resolve("source");
+		Path dest = temp.resolve("dest");
+
+		write(source.resolve("XPages/home.xsp"), "<xp:view/>");
+		write(source.resolve("XPages/changed.xsp"), "<xp:view>new</xp:view>");
+		write(source.resolve(".project"), "exported");
+		Files.createDirectories(source.resolve("Code/Java"));
+
+		write(dest.resolve("XPages/home.xsp"), "<xp:view/>");
+		write(dest.resolve("XPages/changed.xsp"), "<xp:view>old</xp:view>");
+		write(dest.resolve("Forms/Removed.form"), "<form/>");
+		write(dest.resolve(".project"), "existing");
+		FileTime old = FileTime.fromMillis(0);
+		Files.setLastModifiedTime(dest.resolve("XPages/home.xsp"), old);
+
+		SyncResult result = ODPSyncUtil.sync(source, dest, Collections.singleton(".project"));
+		assertEquals(1, result.getWritten());
+		assertEquals(1, result.getDeleted());
+		assertEquals(2, result.getUnchanged());
+
+		assertEquals(old, Files.getLastModifiedTime(dest.resolve("XPages/home.xsp")));
+		assertEquals("<xp:view>new</xp:view>", read(dest.resolve("XPages/changed.xsp")));
+		assertEquals("existing", read(dest.resolve(".project")));
+		assertFalse(Files.exists(dest.resolve("Forms")));
+		assertTrue(Files.isDirectory(dest.resolve("Code/Java")));
+	}
+
+	@Test
+	public void testCaseOnlyRename(@TempDir Path temp) throws IOException {
+		Path source = temp.resolve("source");
+		Path dest = temp.resolve("dest");
+
+		write(source.resolve("Code/Java/Foo.java"), "class Foo {}");
+		write(source.resolve("XPages/Home.xsp"), "<xp:view>new</xp:view>");
+
+		write(dest.resolve("code/java/foo.java"), "class Foo {}");
+		write(dest.resolve("XPages/home.xsp"), "<xp:view>old</xp:view>");
+
+		// Whether the filesystem is case-sensitive or not, only the source names should remain
+		ODPSyncUtil.sync(source, dest, Collections.emptySet());
+		assertEquals(Arrays.asList("Code", "XPages"), list(dest));
+		assertEquals(Arrays.asList("Java"), list(dest.resolve("Code")));
+		assertEquals(Arrays.asList("Foo.java"), list(dest.resolve("Code/Java")));
+		assertEquals(Arrays.asList("Home.xsp"), list(dest.resolve("XPages")));
+		assertEquals("class Foo {}", read(dest.resolve("Code/Java/Foo.java")));
+		assertEquals("<xp:view>new</xp:view>", read(dest.resolve("XPages/Home.xsp")));
+	}
+
+	@Test
+	public void testSameContent(@TempDir Path temp) throws IOException {
+		Path a = temp.resolve("a");
+		Path b = temp.resolve("b");
+		Path c = temp.resolve("c");
+		StringBuilder content = new StringBuilder();
+		for(int i = 0; i < 5000; i++) {
+			content.append(i);
+		}
+		write(a, content.toString());
+		write(b, content.toString());
+		write(c, content.toString().replace('9', '8'));
+
+		assertTrue(ODPSyncUtil.isSameContent(a, b));
+		assertFalse(ODPSyncUtil.isSameContent(a, c));
+	}
+
+	private static void write(Path path, String content) throws IOException {
+		Files.createDirectories(path.getParent());
+		Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static List<String> list(Path dir) throws IOException {
+		try(Stream<Path> children = Files.list(dir)) {
+			return children.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+		}
+	}
+
+	private static String read(Path path) throws IOException {
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.openntf.maven.nsfodp.util.ProgressMessageReader;
+import org.openntf.maven.nsfodp.util.ProgressMessageReader.Type;
+
+@SuppressWarnings("nls")
+public class TestProgressMessageReader {
+	@Test
+	public void testMessages() throws IOException {
+		String messages = "{\"type\":\"beginTask\",\"name\":\"Compiling\",\"totalWork\":5}\r\n"
+			+ "{\"type\":\"worked\",\"work\":1}\r\n"
+			+ "{\"type\":\"subTask\",\"name\":\"Caf\\u00e9 \\\"quoted\\\" ü\"}\r\n"
+			+ "{\"type\":\"error\",\"stackTrace\":\"line1\\nline2\"}\r\n"
+			+ "{\"type\":\"whatever\"}\r\n";
+		ProgressMessageReader reader = new ProgressMessageReader(new ByteArrayInputStream(messages.getBytes(StandardCharsets.UTF_8)), 16);
+
+		assertTrue(reader.next());
+		assertEquals(Type.BEGIN_TASK, reader.getType());
+		assertEquals("Compiling", reader.getName());
+
+		assertTrue(reader.next());
+		assertEquals(Type.WORKED, reader.getType());
+		assertNull(reader.getName());
+
+		assertTrue(reader.next());
+		assertEquals(Type.SUB_TASK, reader.getType());
+		assertEquals("Café \"quoted\" ü", reader.getName());
+
+		assertTrue(reader.next());
+		assertEquals(Type.ERROR, reader.getType());
+		assertEquals("line1\nline2", reader.getStackTrace());
+
+		assertTrue(reader.next());
+		assertNull(reader.getType());
+		assertEquals("{\"type\":\"whatever\"}", reader.getLine());
+
+		assertFalse(reader.next());
+	}
+
+	@Test
+	public void testRemainder() throws IOException {
+		byte[] payload = new byte[1000];
+		for(int i = 0; i < payload.length; i++) {
+			payload[i] = (byte)i;
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		baos.write("{\"type\":\"task\",\"name\":\"foo\"}\r\n{\"type\":\"done\"}\r\n".getBytes(StandardCharsets.UTF_8));
+		baos.write(payload);
+
+		ProgressMessageReader reader = new ProgressMessageReader(new ByteArrayInputStream(baos.toByteArray()), 64);
+		assertTrue(reader.next());
+		assertEquals(Type.TASK, reader.getType());
+		assertTrue(reader.next());
+		assertEquals(Type.DONE, reader.getType());
+
+		ByteArrayOutputStream remainder = new ByteArrayOutputStream();
+		try(InputStream is = reader.getRemainder()) {
+			byte[] buf = new byte[100];
+			int read;
+			while((read = is.read(buf)) > -1) {
+				remainder.write(buf, 0, read);
+			}
+		}
+		assertArrayEquals(payload, remainder.toByteArray());
+	}
+
+	@Test
+	public void testTruncated() throws IOException {
+		String messages = "{\"type\":\"task\",\"name\":\"foo\"}\r\n{\"type\":\"do";
+		ProgressMessageReader reader = new ProgressMessageReader(new ByteArrayInputStream(messages.getBytes(StandardCharsets.UTF_8)));
+		assertTrue(reader.next());
+		assertFalse(reader.next());
+		assertFalse(reader.next());
+	}
+}
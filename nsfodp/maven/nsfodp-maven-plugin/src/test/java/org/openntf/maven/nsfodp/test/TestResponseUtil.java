@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openntf.maven.nsfodp.util.ResponseUtil;
+import org.openntf.nsfodp.commons.NSFODPConstants;
+
+@SuppressWarnings("nls")
+public class TestResponseUtil {
+	@Test
+	public void testExtractStreamed(@TempDir Path temp) throws IOException {
+		byte[] zip = zip(true, "XPages/home.xsp", "<xp:view/>", "Code/Java/", null, NSFODPConstants.STREAM_ENTRY_END, "");
+		ResponseUtil.extractOdp(new SystemStreamLog(), new ByteArrayInputStream(zip), temp, true);
+
+		assertEquals("<xp:view/>", new String(Files.readAllBytes(temp.resolve("XPages/home.xsp")), StandardCharsets.UTF_8));
+		assertTrue(Files.isDirectory(temp.resolve("Code/Java")));
+		assertTrue(Files.notExists(temp.resolve(NSFODPConstants.STREAM_ENTRY_END)));
+	}
+
+	@Test
+	public void testExtractTruncated(@TempDir Path temp) throws IOException {
+		byte[] zip = zip(false, "XPages/home.xsp", "<xp:view/>");
+		assertThrows(IOException.class, () -> ResponseUtil.extractOdp(new SystemStreamLog(), new ByteArrayInputStream(zip), temp, true));
+
+		// A complete ZIP from a server that does not stream has no end marker, but a truncated one has no central directory
+		assertThrows(IOException.class, () -> ResponseUtil.extractOdp(new SystemStreamLog(), new ByteArrayInputStream(zip), temp.resolve("truncated"), false));
+		ResponseUtil.extractOdp(new SystemStreamLog(), new ByteArrayInputStream(zip(true, "XPages/home.xsp", "<xp:view/>", "Code/Java/", null)), temp.resolve("full"), false);
+		assertEquals("<xp:view/>", new String(Files.readAllBytes(temp.resolve("full/XPages/home.xsp")), StandardCharsets.UTF_8));
+		assertTrue(Files.isDirectory(temp.resolve("full/Code/Java")));
+	}
+
+	@Test
+	public void testExtractError(@TempDir Path temp) throws IOException {
+		byte[] zip = zip(true, "XPages/home.xsp", "<xp:view/>", NSFODPConstants.STREAM_ENTRY_ERROR, "java.io.IOException: failed");
+		assertThrows(RuntimeException.class, () -> ResponseUtil.extractOdp(new SystemStreamLog(), new ByteArrayInputStream(zip), temp, true));
+	}
+
+	@Test
+	public void testExtractOutsideDestination(@TempDir Path temp) throws IOException {
+		byte[] zip = zip(true, "../escaped.txt", "foo", NSFODPConstants.STREAM_ENTRY_END, "");
+		assertThrows(IOException.class, () -> ResponseUtil.extractOdp(new SystemStreamLog(), new ByteArrayInputStream(zip), temp.resolve("odp"), true));
+		assertTrue(Files.notExists(temp.resolve("escaped.txt")));
+	}
+
+	/**
+	 * @param finish whether to write the ZIP central directory, as opposed to a truncated stream
+	 * @param entries pairs of entry names and content, with {@code null} content for directories
+	 */
+	private static byte[] zip(boolean finish, String... entries) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ZipOutputStream zos = new ZipOutputStream(baos);
+		for(int i = 0; i < entries.length; i += 2) {
+			zos.putNextEntry(new ZipEntry(entries[i]));
+			if(entries[i+1] != null) {
+				zos.write(entries[i+1].getBytes(StandardCharsets.UTF_8));
+			}
+			zos.closeEntry();
+		}
+		if(finish) {
+			zos.finish();
+		}
+		zos.flush();
+		return baos.toByteArray();
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.openntf.nsfodp.commons.io.SpoolOutputStream;
+
+@SuppressWarnings("nls")
+public class TestSpoolOutputStream {
+	@Test
+	public void testInMemory() throws IOException {
+		SpoolOutputStream spool = new SpoolOutputStream(16);
+		spool.write("0123456789".getBytes());
+		spool.write('a');
+
+		assertTrue(spool.isInMemory());
+		assertEquals(11, spool.size());
+		assertEquals("0123456789a", read(spool));
+		// The content can be copied more than once
+		assertEquals("0123456789a", read(spool));
+
+		spool.delete();
+		assertThrows(IllegalStateException.class, () -> read(spool));
+	}
+
+	@Test
+	public void testSpilled() throws IOException {
+		byte[] content = new byte[100];
+		Arrays.fill(content, (byte)'x');
+		content[0] = 'a';
+		content[99] = 'z';
+
+		SpoolOutputStream spool = new SpoolOutputStream(16);
+		spool.write(content, 0, 10);
+		assertTrue(spool.isInMemory());
+		spool.write(content, 10, 90);
+		assertFalse(spool.isInMemory());
+		assertEquals(100, spool.size());
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		spool.writeTo(baos);
+		assertArrayEquals(content, baos.toByteArray());
+		assertThrows(IOException.class, () -> spool.write('x'));
+
+		spool.delete();
+		assertThrows(IllegalStateException.class, () -> read(spool));
+	}
+
+	private static String read(SpoolOutputStream spool) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		spool.writeTo(baos);
+		return new String(baos.toByteArray());
+	}
+}
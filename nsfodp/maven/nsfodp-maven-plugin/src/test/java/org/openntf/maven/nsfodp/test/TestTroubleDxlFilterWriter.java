@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2018-2025 Jesse Gallagher
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openntf.maven.nsfodp.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.openntf.nsfodp.commons.io.SwiperOutputStream;
+import org.openntf.nsfodp.commons.io.TroubleDxlFilterWriter;
+
+@SuppressWarnings("nls")
+public class TestTroubleDxlFilterWriter {
+	@Test
+	public void testSingleWrite() throws IOException {
+		assertEquals("<imageref>foo.gif</imageref>", filter("<imageref>\n\t  foo.gif</imageref>"));
+		assertEquals("<imageref>a <imageref>b", filter("<imageref>  a <imageref>\r\nb"));
+		assertEquals("<imagereference>\n  x", filter("<imagereference>\n  x"));
+		assertEquals("<image> ref", filter("<image> ref"));
+	}
+
+	@Test
+	public void testWhitespaceAcrossWrites() throws IOException {
+		assertEquals("<imageref>foo.gif", filter("<imageref>", "  ", "\n", "\t foo.gif"));
+		assertEquals("<imageref>foo.gif", filter("<imageref>\n", "  ", "", "foo.gif"));
+		// Whitespace after the first non-whitespace character is kept
+		assertEquals("<imageref>a\n b", filter("<imageref> ", "a", "\n b"));
+	}
+
+	@Test
+	public void testPartialMatchAcrossWrites() throws IOException {
+		assertEquals("<imageref>foo.gif", filter("<image", "ref>", "\n  foo.gif"));
+		assertEquals("<imageref>foo.gif", filter("<", "i", "m", "a", "g", "e", "r", "e", "f", ">", " ", "foo.gif"));
+		// A new tag abandons a partial match
+		assertEquals("<imag<imageref>x", filter("<imag", "<imageref>", " x"));
+		assertEquals("<imag\n  <imagere>\n x", filter("<imag", "\n  <imagere>", "\n x"));
+	}
+
+	@Test
+	public void testSingleChars() throws IOException {
+		StringWriter result = new StringWriter();
+		try(Writer w = new TroubleDxlFilterWriter(result)) {
+			for(char c : "<imageref>\n  foo".toCharArray()) {
+				w.write(c);
+			}
+		}
+		assertEquals("<imageref>foo", result.toString());
+	}
+
+	@Test
+	public void testSwiperOutputStream() throws IOException {
+		String dxl = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<note xmlns=\"http://www.lotus.com/dxl\" class=\"form\"><item name=\"$Body\"><richtext><par><imageref>foo.gif</imageref></par></richtext></item></note>\n";
+		byte[] data = dxl.getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			try(OutputStream os = new SwiperOutputStream(baos, true)) {
+				// Write in small pieces, as the DXL exporter does
+				for(int i = 0; i < data.length; i += 7) {
+					os.write(data, i, Math.min(7, data.length - i));
+				}
+			}
+		});
+		String result = new String(baos.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(result.contains("<imageref>foo.gif"), result);
+	}
+
+	@Test
+	public void testSwiperOutputStreamFailure() {
+		// A transformation failure must stop the writer rather than leaving it blocked on a full pipe
+		byte[] junk = new byte[256 * 1024];
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			assertThrows(Exception.class, () -> {
+				try(OutputStream os = new SwiperOutputStream(new ByteArrayOutputStream(), true)) {
+					os.write("<note>".getBytes(StandardCharsets.UTF_8));
+					os.write("</wrong>".getBytes(StandardCharsets.UTF_8));
+					for(int i = 0; i < 16; i++) {
+						os.write(junk);
+					}
+				}
+			});
+		});
+	}
+
+	private static String filter(String... writes) throws IOException {
+		StringWriter result = new StringWriter();
+		try(Writer w = new TroubleDxlFilterWriter(result)) {
+			for(String s : writes) {
+				w.write(s);
+			}
+		}
+		return result.toString();
+	}
+}